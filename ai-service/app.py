@@ -41,7 +41,8 @@ def index():
         'endpoints': [
             '/health',
             '/api/ai/predict/duration',
-            '/api/ai/predict/fault'
+            '/api/ai/predict/fault',
+            '/api/ai/predict/fault/batch'
         ]
     })
 
@@ -304,6 +305,98 @@ def predict_fault():
         }), 500
 
 
+# 批量故障预测单次最多条数
+FAULT_BATCH_MAX_SIZE = 5000
+
+FAULT_FEATURE_FIELDS = [
+    'total_charge_count', 'total_charge_amount', 'days_since_last_maintenance',
+    'health_score', 'avg_daily_usage', 'voltage_fluctuation', 'fault_history_count'
+]
+
+
+@app.route('/api/ai/predict/fault/batch', methods=['POST'])
+def predict_fault_batch():
+    """
+    批量预测充电桩故障概率（7天内），供全量评分任务使用
+
+    输入参数（列式，每个字段为等长数组，下标对应同一充电桩）:
+    - total_charge_count, total_charge_amount, days_since_last_maintenance,
+      health_score, avg_daily_usage, voltage_fluctuation, fault_history_count
+
+    返回:
+    - fault_probability: 故障概率数组（%），顺序与输入一致
+    """
+    try:
+        if not request.is_json:
+            return jsonify({
+                'code': 400,
+                'message': '请求必须是JSON格式',
+                'data': None
+            }), 400
+
+        data = request.json
+
+        missing_fields = [field for field in FAULT_FEATURE_FIELDS if field not in data]
+        if missing_fields:
+            return jsonify({
+                'code': 400,
+                'message': f'缺少必需参数: {", ".join(missing_fields)}',
+                'data': None
+            }), 400
+
+        columns = [np.asarray(data[field], dtype=float) for field in FAULT_FEATURE_FIELDS]
+        size = len(columns[0])
+        if any(len(column) != size for column in columns):
+            return jsonify({
+                'code': 400,
+                'message': '各字段数组长度必须一致',
+                'data': None
+            }), 400
+        if size > FAULT_BATCH_MAX_SIZE:
+            return jsonify({
+                'code': 400,
+                'message': f'单次最多预测{FAULT_BATCH_MAX_SIZE}条',
+                'data': None
+            }), 400
+        if size == 0:
+            return jsonify({'code': 200, 'message': '预测成功', 'data': {'fault_probability': []}})
+
+        features = np.column_stack(columns)
+
+        if fault_model:
+            probabilities = fault_model.predict_proba(features)[:, 1]
+        else:
+            # 与单条预测相同的规则（向量化）
+            total_charge_count, _, days_since_last_maintenance, health_score, _, _, fault_history_count = columns
+            health_risk = np.maximum(0, (100 - health_score) / 100)
+            maintenance_risk = np.minimum(1, days_since_last_maintenance / 180)
+            usage_risk = np.minimum(1, total_charge_count / 2000)
+            history_risk = np.minimum(1, fault_history_count / 10)
+            probabilities = (health_risk * 0.4 + maintenance_risk * 0.3 +
+                             usage_risk * 0.2 + history_risk * 0.1)
+
+        return jsonify({
+            'code': 200,
+            'message': '预测成功',
+            'data': {
+                'fault_probability': np.round(probabilities * 100, 2).tolist()
+            }
+        })
+
+    except ValueError as e:
+        return jsonify({
+            'code': 400,
+            'message': f'参数格式错误: {str(e)}',
+            'data': None
+        }), 400
+    except Exception as e:
+        return jsonify({
+            'code': 500,
+            'message': f'预测失败: {str(e)}',
+            'data': None
+        }), 500
+
+
 if __name__ == '__main__':
     print('='* 50)
     print('EV Charging AI Service Starting...')
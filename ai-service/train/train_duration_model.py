@@ -9,8 +9,10 @@ from sklearn.ensemble import RandomForestRegressor
 from sklearn.model_selection import train_test_split
 from sklearn.metrics import mean_squared_error, r2_score
 import joblib
+import json
 import sys
 import os
+import time
 
 # 设置输出编码为UTF-8
 import io
@@ -21,6 +23,44 @@ sys.path.append(os.path.dirname(os.path.dirname(os.path.abspath(__file__))))
 from utils.data_generator import generate_duration_data
 
 
+# 导出给后端进程内推理的模型文件（特征顺序须与后端 DurationModel.FEATURES 一致）
+EXPORT_FEATURES = ['battery_capacity', 'current_soc', 'target_soc', 'charge_power', 'temperature']
+
+
+def export_duration_model(model, path):
+    """
+    将随机森林导出为JSON，供后端进程内加载（文件变化后后端自动热加载）
+
+    每棵树导出为平行数组：left/right 为子节点下标（-1表示叶子），feature 为分裂特征下标，
+    threshold 为分裂阈值（x <= threshold 走左子树），value 为节点预测值（小时）
+    """
+    trees = []
+    for estimator in model.estimators_:
+        tree = estimator.tree_
+        trees.append({
+            'left': tree.children_left.tolist(),
+            'right': tree.children_right.tolist(),
+            'feature': [max(int(f), 0) for f in tree.feature],
+            'threshold': [float(t) for t in tree.threshold],
+            'value': [float(v) for v in tree.value[:, 0, 0]]
+        })
+
+    exported = {
+        'format': 'forest',
+        'version': time.strftime('%Y%m%d%H%M%S'),
+        'unit': 'hours',
+        'features': EXPORT_FEATURES,
+        'trees': trees
+    }
+
+    # 先写临时文件再替换，避免后端读到写了一半的文件
+    tmp_path = path + '.tmp'
+    with open(tmp_path, 'w', encoding='utf-8') as f:
+        json.dump(exported, f, separators=(',', ':'))
+    os.replace(tmp_path, path)
+    print(f'模型已导出至: {path}（{len(trees)}棵树，{sum(len(t["value"]) for t in trees)}个节点）')
+
+
 def train_duration_model():
     """训练充电时长预测模型"""
     print('开始训练充电时长预测模型...')
@@ -99,6 +139,8 @@ def train_duration_model():
     joblib.dump(model, model_path)
     print(f'\n模型已保存至: {model_path}')
 
+    export_duration_model(model, os.path.join(model_dir, 'charge_duration_model.json'))
+
     # 测试预测
     print('\n测试预测:')
     test_sample = np.array([[60, 20, 80, 60, 25]])  # 60kWh电池，20%充到80%，60kW充电桩，25度
@@ -110,5 +152,10 @@ def train_duration_model():
 
 
 if __name__ == '__main__':
-    train_duration_model()
-    print('\n训练完成！')
+    if '--export-only' in sys.argv:
+        # 只从已训练的模型重新导出JSON
+        export_duration_model(joblib.load('models/charge_duration_model.pkl'),
+                              'models/charge_duration_model.json')
+    else:
+        train_duration_model()
+        print('\n训练完成！')
@@ -0,0 +1,162 @@
+package com.ev.charging.ai;
+
+import com.ev.charging.dto.AIPredictionDTO.DurationPredictRequest;
+import com.ev.charging.dto.AIPredictionDTO.DurationPredictResponse;
+import com.ev.charging.dto.AIPredictionDTO.FaultBatchRequest;
+import com.ev.charging.dto.AIPredictionDTO.FaultBatchResponse;
+import com.ev.charging.dto.AIPredictionDTO.FaultPredictRequest;
+import com.ev.charging.dto.AIPredictionDTO.FaultPredictResponse;
+import com.ev.charging.dto.AIPredictionDTO.ServiceResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Python AI服务客户端
+ * <p>
+ * 连接由 {@link com.ev.charging.config.RestTemplateConfig} 的 JDK HttpClient 复用。调用前依次检查熔断器和并发上限
+ * （AI服务为单线程 Flask，排队的请求只会超时），任一不满足、调用失败或超时都返回null，由调用方改用本地模型；
+ * 只有请求参数被AI服务拒绝（4xx）时抛出 IllegalArgumentException。
+ */
+@Slf4j
+@Component
+public class AIServiceClient {
+
+    private static final String DURATION_PATH = "/api/ai/predict/duration";
+    private static final String FAULT_PATH = "/api/ai/predict/fault";
+    private static final String FAULT_BATCH_PATH = "/api/ai/predict/fault/batch";
+    private static final String HEALTH_PATH = "/health";
+
+    private static final ParameterizedTypeReference<ServiceResponse<DurationPredictResponse>> DURATION_TYPE =
+            new ParameterizedTypeReference<>() {
+            };
+    private static final ParameterizedTypeReference<ServiceResponse<FaultPredictResponse>> FAULT_TYPE =
+            new ParameterizedTypeReference<>() {
+            };
+    private static final ParameterizedTypeReference<ServiceResponse<FaultBatchResponse>> FAULT_BATCH_TYPE =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private final RestTemplate restTemplate;
+    private final String baseUrl;
+    private final CircuitBreaker breaker;
+    private final int maxConcurrent;
+    private final Semaphore permits;
+
+    private final AtomicLong callCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private final AtomicLong busyCount = new AtomicLong();
+
+    public AIServiceClient(RestTemplate restTemplate,
+                           @Value("${ai.service.url:http://localhost:5000}") String baseUrl,
+                           @Value("${ai.service.max-concurrent:4}") int maxConcurrent,
+                           @Value("${ai.breaker.failure-threshold:5}") int failureThreshold,
+                           @Value("${ai.breaker.open-duration:30000}") long openDuration) {
+        this.restTemplate = restTemplate;
+        this.baseUrl = baseUrl;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.permits = new Semaphore(this.maxConcurrent);
+        this.breaker = new CircuitBreaker(failureThreshold, openDuration);
+    }
+
+    /**
+     * 调用AI服务预测充电时长
+     *
+     * @return 预测结果，AI服务不可用时返回null
+     */
+    public DurationPredictResponse predictDuration(DurationPredictRequest request) {
+        return call(DURATION_PATH, request, DURATION_TYPE);
+    }
+
+    /**
+     * 调用AI服务预测故障概率
+     *
+     * @return 预测结果，AI服务不可用时返回null
+     */
+    public FaultPredictResponse predictFault(FaultPredictRequest request) {
+        return call(FAULT_PATH, request, FAULT_TYPE);
+    }
+
+    /**
+     * 调用AI服务批量预测故障概率
+     *
+     * @return 故障概率（0-100），顺序与请求一致；AI服务不可用或返回条数不符时返回null
+     */
+    public double[] predictFaultBatch(FaultBatchRequest request) {
+        FaultBatchResponse response = call(FAULT_BATCH_PATH, request, FAULT_BATCH_TYPE);
+        if (response == null || response.getFaultProbability() == null
+                || response.getFaultProbability().length != request.getHealthScore().length) {
+            return null;
+        }
+        return response.getFaultProbability();
+    }
+
+    /**
+     * 健康检查（不经过熔断器，不影响熔断状态）
+     */
+    public boolean isAvailable() {
+        try {
+            return restTemplate.getForObject(baseUrl + HEALTH_PATH, String.class) != null;
+        } catch (Exception e) {
+            log.warn("AI服务健康检查失败: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    public CircuitBreaker.State breakerState() {
+        return breaker.getState();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("breaker", breaker.stats());
+        stats.put("calls", callCount.get());
+        stats.put("failures", failureCount.get());
+        stats.put("busy", busyCount.get());
+        stats.put("inFlight", maxConcurrent - permits.availablePermits());
+        return stats;
+    }
+
+    private <T> T call(String path, Object request, ParameterizedTypeReference<ServiceResponse<T>> type) {
+        if (!breaker.tryAcquire()) {
+            return null;
+        }
+        if (!permits.tryAcquire()) {
+            busyCount.incrementAndGet();
+            breaker.release();
+            return null;
+        }
+        callCount.incrementAndGet();
+        try {
+            ServiceResponse<T> response = restTemplate.exchange(
+                    baseUrl + path, HttpMethod.POST, new HttpEntity<>(request), type).getBody();
+            if (response == null || response.getData() == null) {
+                throw new RestClientException("AI服务返回空响应");
+            }
+            breaker.onSuccess();
+            return response.getData();
+        } catch (HttpClientErrorException e) {
+            breaker.release();
+            log.warn("AI服务拒绝请求: status={}, body={}", e.getStatusCode(), e.getResponseBodyAsString());
+            throw new IllegalArgumentException("预测参数不合法");
+        } catch (RestClientException e) {
+            failureCount.incrementAndGet();
+            breaker.onFailure();
+            log.warn("AI服务调用失败，使用本地模型: path={}, breaker={}, {}", path, breaker.getState(), e.getMessage());
+            return null;
+        } finally {
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.ev.charging.ai;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 熔断器
+ * <p>
+ * 连续失败达到阈值后打开，打开期间调用方直接走降级逻辑；打开时长结束后进入半开状态，
+ * 只放行一个试探调用，成功则关闭，失败则重新打开。
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    private final AtomicLong openCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * @param failureThreshold 连续失败多少次后打开
+     * @param openMillis       打开时长（毫秒）
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * 是否允许发起调用；返回true后调用方必须以 {@link #onSuccess()} 或 {@link #onFailure()} 结束
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMillis) {
+                rejectedCount.incrementAndGet();
+                return false;
+            }
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                rejectedCount.incrementAndGet();
+                return false;
+            }
+            trialInFlight = true;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    public synchronized void onFailure() {
+        trialInFlight = false;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                openCount.incrementAndGet();
+            }
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * 调用未产生结论（如请求参数被拒绝）时释放试探名额，不改变状态
+     */
+    public synchronized void release() {
+        trialInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized Map<String, Object> stats() {
+        return Map.of(
+                "state", state.name(),
+                "consecutiveFailures", consecutiveFailures,
+                "opened", openCount.get(),
+                "rejected", rejectedCount.get()
+        );
+    }
+}
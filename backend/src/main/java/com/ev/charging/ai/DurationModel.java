@@ -0,0 +1,225 @@
+package com.ev.charging.ai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.List;
+
+/**
+ * 从模型文件加载的充电时长模型（不可变）
+ * <p>
+ * 文件由 ai-service/train/train_duration_model.py 导出，支持两种格式：
+ * <ul>
+ *     <li>forest：随机森林，预测值取各树叶子值的平均。加载时每棵树按先序重新编号（左子节点紧跟父节点），
+ *     所有树的节点拼接到一个 long 数组，每个节点占相邻两项：阈值（叶子为预测值）的位表示与 (右子节点 &lt;&lt; 3 | 特征)，
+ *     叶子的第二项为-1；遍历时每个节点只读一个缓存行，左分支通常与父节点在同一缓存行</li>
+ *     <li>linear：线性模型，intercept + Σ coefficients[i] * x[i]</li>
+ * </ul>
+ * 特征顺序固定为 {@link #FEATURES}，输出单位由 unit 指定（hours 或 minutes）。推理只读数组，不分配对象。
+ */
+final class DurationModel {
+
+    static final List<String> FEATURES = List.of(
+            "battery_capacity", "current_soc", "target_soc", "charge_power", "temperature");
+
+    static final String FORMAT_FOREST = "forest";
+    static final String FORMAT_LINEAR = "linear";
+
+    private static final int LEAF = -1;
+
+    private static final int FEATURE_BITS = 3;
+    private static final long FEATURE_MASK = (1 << FEATURE_BITS) - 1;
+
+    private final String format;
+    private final String version;
+    private final double unitMinutes;
+
+    private final int[] roots;
+    private final long[] nodes;
+
+    private final double intercept;
+    private final double[] coefficients;
+
+    private DurationModel(String format, String version, double unitMinutes,
+                          int[] roots, long[] nodes, double intercept, double[] coefficients) {
+        this.format = format;
+        this.version = version;
+        this.unitMinutes = unitMinutes;
+        this.roots = roots;
+        this.nodes = nodes;
+        this.intercept = intercept;
+        this.coefficients = coefficients;
+    }
+
+    /**
+     * 解析模型文件内容
+     *
+     * @throws IllegalArgumentException 格式不支持或内容不完整
+     */
+    static DurationModel parse(JsonNode root) {
+        JsonNode features = root.path("features");
+        if (features.size() != FEATURES.size()) {
+            throw new IllegalArgumentException("模型特征数不符: " + features.size());
+        }
+        for (int i = 0; i < FEATURES.size(); i++) {
+            if (!FEATURES.get(i).equals(features.get(i).asText())) {
+                throw new IllegalArgumentException("模型特征顺序不符: " + features);
+            }
+        }
+
+        String unit = root.path("unit").asText("hours");
+        double unitMinutes = switch (unit) {
+            case "hours" -> 60;
+            case "minutes" -> 1;
+            default -> throw new IllegalArgumentException("不支持的输出单位: " + unit);
+        };
+        String version = root.path("version").asText("");
+        String format = root.path("format").asText();
+
+        if (FORMAT_LINEAR.equals(format)) {
+            JsonNode coefficientsNode = root.path("coefficients");
+            if (coefficientsNode.size() != FEATURES.size()) {
+                throw new IllegalArgumentException("线性模型系数个数不符: " + coefficientsNode.size());
+            }
+            double[] coefficients = new double[FEATURES.size()];
+            for (int i = 0; i < coefficients.length; i++) {
+                coefficients[i] = coefficientsNode.get(i).asDouble();
+            }
+            return new DurationModel(format, version, unitMinutes, null, null,
+                    root.path("intercept").asDouble(), coefficients);
+        }
+
+        if (!FORMAT_FOREST.equals(format)) {
+            throw new IllegalArgumentException("不支持的模型格式: " + format);
+        }
+        JsonNode trees = root.path("trees");
+        if (trees.isEmpty()) {
+            throw new IllegalArgumentException("随机森林没有树");
+        }
+        int total = 0;
+        for (JsonNode tree : trees) {
+            total += tree.path("value").size();
+        }
+        int[] roots = new int[trees.size()];
+        long[] nodes = new long[total * 2];
+
+        int offset = 0;
+        for (int t = 0; t < trees.size(); t++) {
+            roots[t] = offset;
+            offset = flatten(trees.get(t), t, offset, nodes);
+        }
+        return new DurationModel(format, version, unitMinutes, roots, nodes, 0, null);
+    }
+
+    /**
+     * 按先序把一棵树写入 nodes
+     *
+     * @return 下一棵树的起始节点号
+     */
+    private static int flatten(JsonNode tree, int t, int offset, long[] nodes) {
+        JsonNode left = tree.path("left");
+        JsonNode right = tree.path("right");
+        JsonNode feature = tree.path("feature");
+        JsonNode threshold = tree.path("threshold");
+        JsonNode value = tree.path("value");
+        int size = value.size();
+        if (size == 0) {
+            throw new IllegalArgumentException("第" + t + "棵树没有节点");
+        }
+        if (left.size() != size || right.size() != size || feature.size() != size || threshold.size() != size) {
+            throw new IllegalArgumentException("第" + t + "棵树的节点数组长度不一致");
+        }
+
+        // 显式栈：源节点号；右子节点的新编号在其被弹出时回填到父节点
+        // 每次出栈最多压入两项，出栈次数超过 size 即报错，栈深不超过 size + 1
+        int[] stack = new int[size + 2];
+        int[] parentOfRight = new int[size + 2];
+        int top = 0;
+        stack[top] = 0;
+        parentOfRight[top++] = LEAF;
+        int next = offset;
+        int visited = 0;
+        while (top > 0) {
+            top--;
+            int n = stack[top];
+            int parent = parentOfRight[top];
+            int i = next++;
+            if (++visited > size) {
+                throw new IllegalArgumentException("第" + t + "棵树存在环");
+            }
+            if (parent != LEAF) {
+                nodes[parent * 2 + 1] |= (long) i << FEATURE_BITS;
+            }
+            int l = left.get(n).asInt();
+            if (l == LEAF) {
+                nodes[i * 2] = Double.doubleToRawLongBits(value.get(n).asDouble());
+                nodes[i * 2 + 1] = LEAF;
+                continue;
+            }
+            int r = right.get(n).asInt();
+            int f = feature.get(n).asInt();
+            if (l <= 0 || r <= 0 || l >= size || r >= size || f < 0 || f >= FEATURES.size()) {
+                throw new IllegalArgumentException("第" + t + "棵树的节点" + n + "无效");
+            }
+            nodes[i * 2] = Double.doubleToRawLongBits(threshold.get(n).asDouble());
+            nodes[i * 2 + 1] = f;
+            // 先压右子节点，左子节点先出栈，保证左子节点编号为 i + 1
+            stack[top] = r;
+            parentOfRight[top++] = i;
+            stack[top] = l;
+            parentOfRight[top++] = LEAF;
+        }
+        if (visited != size) {
+            throw new IllegalArgumentException("第" + t + "棵树存在不可达节点");
+        }
+        return next;
+    }
+
+    /**
+     * 预测充电时长（分钟）
+     */
+    double predictMinutes(double batteryCapacity, double currentSoc, double targetSoc,
+                          double chargePower, double temperature) {
+        if (coefficients != null) {
+            double y = intercept
+                    + coefficients[0] * batteryCapacity
+                    + coefficients[1] * currentSoc
+                    + coefficients[2] * targetSoc
+                    + coefficients[3] * chargePower
+                    + coefficients[4] * temperature;
+            return y * unitMinutes;
+        }
+        double sum = 0;
+        for (int root : roots) {
+            int node = root;
+            long meta;
+            while ((meta = nodes[node * 2 + 1]) >= 0) {
+                double x = switch ((int) (meta & FEATURE_MASK)) {
+                    case 0 -> batteryCapacity;
+                    case 1 -> currentSoc;
+                    case 2 -> targetSoc;
+                    case 3 -> chargePower;
+                    default -> temperature;
+                };
+                node = x <= Double.longBitsToDouble(nodes[node * 2]) ? node + 1 : (int) (meta >>> FEATURE_BITS);
+            }
+            sum += Double.longBitsToDouble(nodes[node * 2]);
+        }
+        return sum / roots.length * unitMinutes;
+    }
+
+    String getFormat() {
+        return format;
+    }
+
+    String getVersion() {
+        return version;
+    }
+
+    int treeCount() {
+        return roots != null ? roots.length : 0;
+    }
+
+    int nodeCount() {
+        return nodes != null ? nodes.length / 2 : 0;
+    }
+}
@@ -0,0 +1,402 @@
+package com.ev.charging.ai;
+
+import com.ev.charging.cluster.ClusterJobLock;
+import com.ev.charging.dto.AIPredictionDTO.FaultBatchRequest;
+import com.ev.charging.job.BatchJobRunner;
+import com.ev.charging.job.CheckpointedBatch;
+import com.ev.charging.tsdb.Aggregation;
+import com.ev.charging.tsdb.SeriesData;
+import com.ev.charging.tsdb.SeriesNames;
+import com.ev.charging.tsdb.TimeSeriesStore;
+import com.ev.charging.vo.FaultScoringReportVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 充电桩故障风险全量评分任务（预测性维护）
+ * 按充电桩ID键集分页读取全部充电桩，每页的特征（累计充电次数与电量、健康度、距上次维护天数、近期日均使用次数、
+ * 电压波动、历史故障次数）按列填入复用的基本类型数组，整页一次调用AI服务批量接口评分，AI服务不可用时用本地模型评分。
+ * 故障概率达到阈值的充电桩写入预测性维护计划：已有待执行的预测性计划则更新概率并按需提前计划时间，否则新建
+ * （仅在仍没有待执行的预测性计划时插入）。每页写入与检查点在同一事务内提交，中断后从检查点继续；
+ * 集群内同一时间只有一个节点执行。
+ * <p>
+ * 电压波动取自执行节点本地的 {@link TimeSeriesStore}，只包含发到本节点的遥测。多副本部署时遥测需按充电桩路由到固定节点
+ * 并在该节点执行本任务，否则其他节点接收的充电桩没有电压数据，该特征按0计；报告中的 voltageMissingCount 为本次执行中
+ * 本节点没有电压数据的充电桩数。
+ */
+@Slf4j
+@Component
+public class FaultScoringJob {
+
+    private static final String PAGE_SQL =
+            "SELECT id, station_id, status, total_charge_count, total_charge_amount, health_score, " +
+                    "last_maintenance_time, create_time " +
+                    "FROM charging_pile WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String FAULT_COUNT_SQL =
+            "SELECT pile_id, COUNT(*) AS cnt FROM fault_record WHERE pile_id BETWEEN ? AND ? GROUP BY pile_id";
+
+    private static final String USAGE_COUNT_SQL =
+            "SELECT pile_id, COUNT(*) AS cnt FROM charge_order " +
+                    "WHERE pile_id BETWEEN ? AND ? AND start_time >= ? GROUP BY pile_id";
+
+    private static final String PENDING_PLAN_SQL =
+            "SELECT id, pile_id FROM maintenance_plan " +
+                    "WHERE plan_type = 1 AND maintenance_status = 0 AND pile_id BETWEEN ? AND ?";
+
+    private static final String INSERT_PLAN_SQL =
+            "INSERT INTO maintenance_plan (pile_id, station_id, plan_type, predicted_fault_probability, " +
+                    "maintenance_content, planned_time, maintenance_status, create_time, update_time) " +
+                    "SELECT ?, ?, 1, ?, ?, ?, 0, NOW(), NOW() FROM DUAL WHERE NOT EXISTS (" +
+                    "SELECT 1 FROM maintenance_plan WHERE pile_id = ? AND plan_type = 1 AND maintenance_status = 0)";
+
+    private static final String UPDATE_PLAN_SQL =
+            "UPDATE maintenance_plan SET predicted_fault_probability = ?, maintenance_content = ?, " +
+                    "planned_time = LEAST(planned_time, ?), update_time = NOW() " +
+                    "WHERE id = ? AND maintenance_status = 0";
+
+    /**
+     * 检查点计数列下标：新建或更新的维护计划数、由AI服务模型评分的充电桩数
+     */
+    private static final int PLANNED = 0;
+    private static final int MODEL_SCORED = 1;
+
+    private static final String JOB_LOCK = "fault-scoring";
+
+    /**
+     * 任务锁租约，每页提交后续约
+     */
+    private static final Duration LOCK_LEASE = Duration.ofMinutes(10);
+
+    /**
+     * 故障中的充电桩已由故障流程处理，不再生成预测性计划
+     */
+    private static final byte PILE_FAULT = 4;
+
+    /**
+     * AI服务批量接口单次最多条数
+     */
+    private static final int MAX_BATCH_SIZE = 5000;
+
+    /**
+     * 高风险（%）：次日安排维护，否则3天内
+     */
+    private static final double HIGH_RISK = 70;
+
+    private static final LocalTime PLAN_TIME_OF_DAY = LocalTime.of(9, 0);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AIServiceClient aiServiceClient;
+    private final LocalPredictionModel localModel;
+    private final TimeSeriesStore timeSeriesStore;
+    private final BatchJobRunner batchJobRunner;
+    private final ClusterJobLock clusterJobLock;
+    private final CheckpointedBatch checkpointedBatch;
+    private final int pageSize;
+    private final double planThreshold;
+    private final int usageWindowDays;
+    private final Duration voltageWindow;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    public FaultScoringJob(JdbcTemplate jdbcTemplate,
+                           TransactionTemplate transactionTemplate,
+                           AIServiceClient aiServiceClient,
+                           LocalPredictionModel localModel,
+                           TimeSeriesStore timeSeriesStore,
+                           BatchJobRunner batchJobRunner,
+                           ClusterJobLock clusterJobLock,
+                           @Value("${ai.scoring.page-size:2000}") int pageSize,
+                           @Value("${ai.scoring.plan-threshold:40}") double planThreshold,
+                           @Value("${ai.scoring.usage-window-days:30}") int usageWindowDays,
+                           @Value("${ai.scoring.voltage-window-hours:24}") long voltageWindowHours) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.aiServiceClient = aiServiceClient;
+        this.localModel = localModel;
+        this.timeSeriesStore = timeSeriesStore;
+        this.batchJobRunner = batchJobRunner;
+        this.clusterJobLock = clusterJobLock;
+        this.checkpointedBatch = new CheckpointedBatch(jdbcTemplate, transactionTemplate,
+                "fault_scoring_checkpoint", "last_pile_id", "planned_count", "model_count");
+        this.pageSize = Math.min(Math.max(pageSize, 1), MAX_BATCH_SIZE);
+        this.planThreshold = planThreshold;
+        this.usageWindowDays = Math.max(usageWindowDays, 1);
+        this.voltageWindow = Duration.ofHours(voltageWindowHours);
+    }
+
+    /**
+     * 每晚为全部充电桩评分（在批处理线程池上执行）
+     */
+    @Scheduled(cron = "${ai.scoring.cron:0 0 3 * * ?}")
+    public void nightlyScore() {
+        batchJobRunner.submit("夜间故障风险评分", this::run);
+    }
+
+    /**
+     * 为全部充电桩评分并生成预测性维护计划，当天存在未完成的检查点时从检查点继续
+     *
+     * @return 评分报告
+     */
+    public FaultScoringReportVO run() {
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException("故障风险评分任务正在执行，请稍后再试");
+        }
+        try (ClusterJobLock.Lease lease = clusterJobLock.tryAcquire(JOB_LOCK, LOCK_LEASE)) {
+            if (lease == null) {
+                throw new RuntimeException("故障风险评分任务正在其他节点执行，请稍后再试");
+            }
+            return doRun(lease);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private FaultScoringReportVO doRun(ClusterJobLock.Lease lease) {
+        String jobName = "fault-scoring:" + LocalDate.now();
+
+        Page page = new Page(pageSize, LocalDateTime.now());
+        CheckpointedBatch.Result result = checkpointedBatch.run(jobName, pageSize, lease, page);
+        long planned = result.getCounter(PLANNED);
+        long modelScored = result.getCounter(MODEL_SCORED);
+        log.info("故障风险评分完成: job={}, processed={}, planned={}, modelScored={}, 耗时{}ms, 吞吐{}桩/秒",
+                jobName, result.getProcessed(), planned, modelScored, result.getElapsedMillis(),
+                String.format("%.0f", result.getPerSecond()));
+        if (page.voltageMissing > 0) {
+            log.warn("{}个充电桩在本节点没有电压数据，电压波动按0计（遥测可能发往了其他节点）", page.voltageMissing);
+        }
+
+        return FaultScoringReportVO.builder()
+                .jobName(jobName)
+                .resumedFromPileId(result.getResumedFromId())
+                .processedCount(result.getProcessed())
+                .plannedCount(planned)
+                .modelScoredCount(modelScored)
+                .voltageMissingCount(page.voltageMissing)
+                .elapsedMillis(result.getElapsedMillis())
+                .pilesPerSecond(result.getPerSecond())
+                .build();
+    }
+
+    /**
+     * 一页充电桩的列式缓冲区（整个任务复用）
+     */
+    private final class Page implements CheckpointedBatch.PageHandler {
+
+        /**
+         * 任务开始时间（计算距上次维护天数、近期使用次数与计划时间）
+         */
+        private final LocalDateTime now;
+
+        private final long[] pileIds;
+        private final long[] stationIds;
+        private final boolean[] faulty;
+        private final long[] pendingPlanIds;
+
+        private final int[] totalChargeCount;
+        private final double[] totalChargeAmount;
+        private final int[] daysSinceLastMaintenance;
+        private final int[] healthScore;
+        private final double[] avgDailyUsage;
+        private final double[] voltageFluctuation;
+        private final int[] faultHistoryCount;
+
+        /**
+         * 故障概率（%）
+         */
+        private final double[] probability;
+
+        /**
+         * 本次执行中本节点没有电压数据的充电桩数（不写入检查点）
+         */
+        private long voltageMissing;
+
+        private Page(int capacity, LocalDateTime now) {
+            this.now = now;
+            pileIds = new long[capacity];
+            stationIds = new long[capacity];
+            faulty = new boolean[capacity];
+            pendingPlanIds = new long[capacity];
+            totalChargeCount = new int[capacity];
+            totalChargeAmount = new double[capacity];
+            daysSinceLastMaintenance = new int[capacity];
+            healthScore = new int[capacity];
+            avgDailyUsage = new double[capacity];
+            voltageFluctuation = new double[capacity];
+            faultHistoryCount = new int[capacity];
+            probability = new double[capacity];
+        }
+
+        /**
+         * 读取ID大于 afterId 的下一页并填充全部特征
+         */
+        @Override
+        public int load(long afterId) {
+            int[] size = {0};
+            jdbcTemplate.query(PAGE_SQL, rs -> {
+                int i = size[0]++;
+                pileIds[i] = rs.getLong("id");
+                stationIds[i] = rs.getLong("station_id");
+                faulty[i] = rs.getByte("status") == PILE_FAULT;
+                totalChargeCount[i] = rs.getInt("total_charge_count");
+                BigDecimal amount = rs.getBigDecimal("total_charge_amount");
+                totalChargeAmount[i] = amount != null ? amount.doubleValue() : 0;
+                healthScore[i] = rs.getObject("health_score") != null ? rs.getInt("health_score") : 100;
+                Timestamp maintained = rs.getTimestamp("last_maintenance_time");
+                if (maintained == null) {
+                    maintained = rs.getTimestamp("create_time");
+                }
+                daysSinceLastMaintenance[i] = maintained != null
+                        ? (int) Math.max(0, Duration.between(maintained.toLocalDateTime(), now).toDays())
+                        : 0;
+                pendingPlanIds[i] = 0;
+                avgDailyUsage[i] = 0;
+                faultHistoryCount[i] = 0;
+            }, afterId, pileIds.length);
+
+            int count = size[0];
+            if (count == 0) {
+                return 0;
+            }
+            long firstId = pileIds[0];
+            long lastId = pileIds[count - 1];
+
+            jdbcTemplate.query(FAULT_COUNT_SQL, rs -> {
+                int i = indexOf(rs.getLong("pile_id"), count);
+                if (i >= 0) {
+                    faultHistoryCount[i] = rs.getInt("cnt");
+                }
+            }, firstId, lastId);
+
+            jdbcTemplate.query(USAGE_COUNT_SQL, rs -> {
+                int i = indexOf(rs.getLong("pile_id"), count);
+                if (i >= 0) {
+                    avgDailyUsage[i] = rs.getInt("cnt") / (double) usageWindowDays;
+                }
+            }, firstId, lastId, Timestamp.valueOf(now.minusDays(usageWindowDays)));
+
+            jdbcTemplate.query(PENDING_PLAN_SQL, rs -> {
+                int i = indexOf(rs.getLong("pile_id"), count);
+                if (i >= 0) {
+                    pendingPlanIds[i] = rs.getLong("id");
+                }
+            }, firstId, lastId);
+
+            long to = System.currentTimeMillis();
+            long from = to - voltageWindow.toMillis();
+            for (int i = 0; i < count; i++) {
+                voltageFluctuation[i] = voltageRange(pileIds[i], from, to);
+            }
+            return count;
+        }
+
+        @Override
+        public long lastId(int count) {
+            return pileIds[count - 1];
+        }
+
+        /**
+         * 整页评分，达到阈值的充电桩的计划与检查点一起写入
+         */
+        @Override
+        public CheckpointedBatch.PageWriter process(int count) {
+            boolean byModel = score(count);
+            List<Object[]> inserts = new ArrayList<>();
+            List<Object[]> updates = new ArrayList<>();
+            collectPlans(count, inserts, updates);
+            return () -> {
+                int planned = 0;
+                if (!inserts.isEmpty()) {
+                    planned += CheckpointedBatch.affectedRows(jdbcTemplate.batchUpdate(INSERT_PLAN_SQL, inserts));
+                }
+                if (!updates.isEmpty()) {
+                    planned += CheckpointedBatch.affectedRows(jdbcTemplate.batchUpdate(UPDATE_PLAN_SQL, updates));
+                }
+                return new long[]{planned, byModel ? count : 0};
+            };
+        }
+
+        /**
+         * 整页评分
+         *
+         * @return 是否由AI服务模型评分
+         */
+        private boolean score(int count) {
+            double[] result = aiServiceClient.predictFaultBatch(new FaultBatchRequest(
+                    Arrays.copyOf(totalChargeCount, count),
+                    Arrays.copyOf(totalChargeAmount, count),
+                    Arrays.copyOf(daysSinceLastMaintenance, count),
+                    Arrays.copyOf(healthScore, count),
+                    Arrays.copyOf(avgDailyUsage, count),
+                    Arrays.copyOf(voltageFluctuation, count),
+                    Arrays.copyOf(faultHistoryCount, count)));
+            if (result != null) {
+                System.arraycopy(result, 0, probability, 0, count);
+                return true;
+            }
+            localModel.predictFaultProbabilities(totalChargeCount, daysSinceLastMaintenance, healthScore,
+                    faultHistoryCount, count, probability);
+            for (int i = 0; i < count; i++) {
+                probability[i] *= 100;
+            }
+            return false;
+        }
+
+        /**
+         * 收集达到阈值的充电桩的计划写入
+         */
+        private void collectPlans(int count, List<Object[]> inserts, List<Object[]> updates) {
+            for (int i = 0; i < count; i++) {
+                if (faulty[i] || probability[i] < planThreshold) {
+                    continue;
+                }
+                BigDecimal percent = BigDecimal.valueOf(probability[i]).setScale(2, RoundingMode.HALF_UP);
+                String content = "预测性维护：7天内故障概率" + percent + "%，" + localModel.suggestion(probability[i] / 100);
+                int days = probability[i] >= HIGH_RISK ? 1 : 3;
+                Timestamp plannedTime = Timestamp.valueOf(now.toLocalDate().plusDays(days).atTime(PLAN_TIME_OF_DAY));
+                if (pendingPlanIds[i] > 0) {
+                    updates.add(new Object[]{percent, content, plannedTime, pendingPlanIds[i]});
+                } else {
+                    inserts.add(new Object[]{pileIds[i], stationIds[i], percent, content, plannedTime, pileIds[i]});
+                }
+            }
+        }
+
+        private int indexOf(long pileId, int count) {
+            return Arrays.binarySearch(pileIds, 0, count, pileId);
+        }
+
+        /**
+         * 时间窗口内电压的最大值与最小值之差，本节点无数据时为0
+         * 整个窗口作为一个降采样桶，解码时直接聚合，不取出原始点
+         */
+        private double voltageRange(long pileId, long from, long to) {
+            String series = SeriesNames.pile(pileId, "voltage");
+            long step = to - from + 1;
+            SeriesData max = timeSeriesStore.downsample(series, from, to, step, Aggregation.MAX);
+            if (max.size() == 0) {
+                voltageMissing++;
+                return 0;
+            }
+            SeriesData min = timeSeriesStore.downsample(series, from, to, step, Aggregation.MIN);
+            return max.getValues()[0] - min.getValues()[0];
+        }
+    }
+}
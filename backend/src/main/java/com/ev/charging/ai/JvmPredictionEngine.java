@@ -0,0 +1,133 @@
+package com.ev.charging.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内充电时长预测引擎
+ * <p>
+ * 从本地模型文件（train_duration_model.py 导出的 JSON）加载 {@link DurationModel}，在请求线程上直接推理，无网络与序列化开销。
+ * 定时检查文件的修改时间与大小，变化后重新加载并整体替换模型引用；新文件解析失败时保留旧模型。
+ * 文件不存在或尚未加载成功时返回 NaN，由下一个引擎处理。
+ */
+@Slf4j
+@Component
+public class JvmPredictionEngine implements PredictionEngine {
+
+    public static final String NAME = "jvm";
+
+    private final ObjectMapper objectMapper;
+    private final Path modelPath;
+
+    private volatile DurationModel model;
+
+    private long loadedModified;
+    private long loadedSize;
+    private LocalDateTime loadedAt;
+
+    private final AtomicLong reloadCount = new AtomicLong();
+    private final AtomicLong reloadFailedCount = new AtomicLong();
+
+    public JvmPredictionEngine(ObjectMapper objectMapper,
+                               @Value("${ai.engine.model-path:../ai-service/models/charge_duration_model.json}") String modelPath) {
+        this.objectMapper = objectMapper;
+        this.modelPath = Paths.get(modelPath);
+    }
+
+    @PostConstruct
+    public void load() {
+        reloadIfChanged();
+    }
+
+    /**
+     * 模型文件变化时重新加载
+     *
+     * @return 是否加载了新模型
+     */
+    @Scheduled(fixedDelayString = "${ai.engine.reload-interval:10000}")
+    public synchronized boolean reloadIfChanged() {
+        long modified;
+        long size;
+        try {
+            if (!Files.isRegularFile(modelPath)) {
+                return false;
+            }
+            modified = Files.getLastModifiedTime(modelPath).toMillis();
+            size = Files.size(modelPath);
+        } catch (IOException e) {
+            return false;
+        }
+        if (loadedAt != null && modified == loadedModified && size == loadedSize) {
+            return false;
+        }
+
+        try (InputStream in = Files.newInputStream(modelPath)) {
+            DurationModel loaded = DurationModel.parse(objectMapper.readTree(in));
+            model = loaded;
+            reloadCount.incrementAndGet();
+            log.info("充电时长模型已加载: path={}, format={}, version={}, trees={}, nodes={}",
+                    modelPath, loaded.getFormat(), loaded.getVersion(), loaded.treeCount(), loaded.nodeCount());
+        } catch (IOException | IllegalArgumentException e) {
+            reloadFailedCount.incrementAndGet();
+            log.warn("充电时长模型加载失败，继续使用{}: path={}, {}",
+                    model != null ? "旧模型" : "其他引擎", modelPath, e.getMessage());
+        }
+        // 失败的文件同样记录，文件再次变化前不重复解析
+        loadedModified = modified;
+        loadedSize = size;
+        loadedAt = LocalDateTime.now();
+        return true;
+    }
+
+    public boolean isReady() {
+        return model != null;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public double predictDurationMinutes(double batteryCapacity, double currentSoc, double targetSoc,
+                                         double chargePower, double temperature) {
+        DurationModel current = model;
+        if (current == null) {
+            return Double.NaN;
+        }
+        return current.predictMinutes(batteryCapacity, currentSoc, targetSoc, chargePower, temperature);
+    }
+
+    public synchronized Map<String, Object> stats() {
+        DurationModel current = model;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("modelPath", modelPath.toString());
+        stats.put("ready", current != null);
+        stats.put("reloads", reloadCount.get());
+        stats.put("reloadFailures", reloadFailedCount.get());
+        if (current != null) {
+            stats.put("format", current.getFormat());
+            stats.put("version", current.getVersion());
+            stats.put("trees", current.treeCount());
+            stats.put("nodes", current.nodeCount());
+        }
+        if (loadedAt != null) {
+            stats.put("checkedAt", loadedAt.toString());
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,107 @@
+package com.ev.charging.ai;
+
+import com.ev.charging.dto.AIPredictionDTO.FaultPredictRequest;
+import org.springframework.stereotype.Component;
+
+/**
+ * 本地解析模型
+ * <p>
+ * 进程内模型未加载且AI服务熔断、超时或繁忙时的降级预测，纯计算、无IO：
+ * 充电时长按恒功率段加涓流段（SOC 80%以上半功率）推算并按环境温度修正；
+ * 故障概率沿用AI服务未加载模型时的加权规则。
+ */
+@Component
+public class LocalPredictionModel implements PredictionEngine {
+
+    public static final String NAME = "local";
+
+    /**
+     * 实际充电功率与额定功率之比
+     */
+    private static final double POWER_FACTOR = 0.9;
+
+    /**
+     * SOC 超过80%后按一半功率涓流充电
+     */
+    private static final double TAPER_SOC = 80;
+
+    /**
+     * 低于该温度时每低1℃充电时长增加 {@link #COLD_PENALTY_PER_DEGREE}
+     */
+    private static final double COLD_THRESHOLD = 10;
+    private static final double COLD_PENALTY_PER_DEGREE = 0.02;
+
+    /**
+     * 高于该温度时每高1℃充电时长增加 {@link #HOT_PENALTY_PER_DEGREE}
+     */
+    private static final double HOT_THRESHOLD = 35;
+    private static final double HOT_PENALTY_PER_DEGREE = 0.01;
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public double predictDurationMinutes(double batteryCapacity, double currentSoc, double targetSoc,
+                                         double chargePower, double temperature) {
+        double powerKw = chargePower * POWER_FACTOR;
+        double fastKwh = batteryCapacity * Math.max(0, Math.min(targetSoc, TAPER_SOC) - currentSoc) / 100.0;
+        double taperKwh = batteryCapacity * Math.max(0, targetSoc - Math.max(currentSoc, TAPER_SOC)) / 100.0;
+        double hours = fastKwh / powerKw + taperKwh / (powerKw / 2);
+        return hours * 60 * temperatureFactor(temperature);
+    }
+
+    /**
+     * 预测7天内故障概率
+     *
+     * @return 故障概率（0-1）
+     */
+    public double predictFaultProbability(FaultPredictRequest request) {
+        double healthRisk = Math.max(0, (100 - request.getHealthScore()) / 100.0);
+        double maintenanceRisk = Math.min(1, request.getDaysSinceLastMaintenance() / 180.0);
+        double usageRisk = Math.min(1, request.getTotalChargeCount() / 2000.0);
+        double historyRisk = Math.min(1, request.getFaultHistoryCount() / 10.0);
+        return healthRisk * 0.4 + maintenanceRisk * 0.3 + usageRisk * 0.2 + historyRisk * 0.1;
+    }
+
+    /**
+     * 批量预测7天内故障概率（列式输入，规则同 {@link #predictFaultProbability}）
+     *
+     * @param count 本次预测条数（各数组的前 count 项）
+     * @param out   故障概率输出（0-1）
+     */
+    public void predictFaultProbabilities(int[] totalChargeCount, int[] daysSinceLastMaintenance, int[] healthScore,
+                                          int[] faultHistoryCount, int count, double[] out) {
+        for (int i = 0; i < count; i++) {
+            double healthRisk = Math.max(0, (100 - healthScore[i]) / 100.0);
+            double maintenanceRisk = Math.min(1, daysSinceLastMaintenance[i] / 180.0);
+            double usageRisk = Math.min(1, totalChargeCount[i] / 2000.0);
+            double historyRisk = Math.min(1, faultHistoryCount[i] / 10.0);
+            out[i] = healthRisk * 0.4 + maintenanceRisk * 0.3 + usageRisk * 0.2 + historyRisk * 0.1;
+        }
+    }
+
+    /**
+     * 按故障概率给出维护建议（与AI服务一致）
+     */
+    public String suggestion(double probability) {
+        if (probability > 0.7) {
+            return "高风险，建议立即安排维护";
+        }
+        if (probability > 0.4) {
+            return "中风险，建议3天内安排维护";
+        }
+        return "低风险，按常规计划维护";
+    }
+
+    private static double temperatureFactor(double temperature) {
+        if (temperature < COLD_THRESHOLD) {
+            return 1 + (COLD_THRESHOLD - temperature) * COLD_PENALTY_PER_DEGREE;
+        }
+        if (temperature > HOT_THRESHOLD) {
+            return 1 + (temperature - HOT_THRESHOLD) * HOT_PENALTY_PER_DEGREE;
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,145 @@
+package com.ev.charging.ai;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 预测结果缓存（按量化后的输入取键）
+ * <p>
+ * 命中时直接返回；未命中时同一键的并发请求只发起一次加载，其余请求等待该次结果（最多等待 waitMillis），
+ * 等待超时或加载失败时返回null，由调用方降级。容量满时按最近最少使用淘汰，条目超过 ttl 后失效。
+ */
+public class PredictionCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlMillis;
+
+    private final Map<K, Entry<V>> entries;
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    public PredictionCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > PredictionCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * 取缓存结果，未命中时加载
+     *
+     * @param key        量化后的输入
+     * @param loader     加载逻辑，返回null表示本次结果不可缓存（如已降级）
+     * @param waitMillis 等待其他线程加载同一键的最长时间
+     * @return 预测结果；加载失败或等待超时时返回null
+     */
+    public V get(K key, Supplier<V> loader, long waitMillis) {
+        V cached = lookup(key);
+        if (cached != null) {
+            hitCount.incrementAndGet();
+            return cached;
+        }
+        missCount.incrementAndGet();
+
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalescedCount.incrementAndGet();
+            return await(existing, waitMillis);
+        }
+
+        try {
+            // 前一次加载可能恰好在本次查缓存之后完成
+            V value = lookup(key);
+            if (value == null) {
+                value = loader.get();
+            }
+            if (value != null) {
+                put(key, value);
+            }
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return Map.of(
+                "size", size,
+                "hits", hitCount.get(),
+                "misses", missCount.get(),
+                "coalesced", coalescedCount.get(),
+                "inFlight", inFlight.size()
+        );
+    }
+
+    private V lookup(K key) {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() - entry.createdAt > ttlMillis) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.value;
+        }
+    }
+
+    private void put(K key, V value) {
+        synchronized (entries) {
+            entries.put(key, new Entry<>(value, System.currentTimeMillis()));
+        }
+    }
+
+    private V await(CompletableFuture<V> future, long waitMillis) {
+        try {
+            return future.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        }
+    }
+
+    private static final class Entry<V> {
+
+        private final V value;
+        private final long createdAt;
+
+        private Entry(V value, long createdAt) {
+            this.value = value;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.ev.charging.ai;
+
+/**
+ * 充电时长预测引擎
+ * <p>
+ * 实现：{@link JvmPredictionEngine}（进程内加载导出的模型文件）、{@link RemotePredictionEngine}（Python AI服务）、
+ * {@link LocalPredictionModel}（解析公式，始终可用）。{@link com.ev.charging.service.AIPredictionService}
+ * 按配置的主引擎依次尝试，引擎不可用时返回 NaN 交给下一个。
+ */
+public interface PredictionEngine {
+
+    /**
+     * 引擎名，作为预测结果的来源返回给调用方
+     */
+    String name();
+
+    /**
+     * 预测充电时长
+     *
+     * @param batteryCapacity 电池容量（kWh）
+     * @param currentSoc      当前SOC（%）
+     * @param targetSoc       目标SOC（%）
+     * @param chargePower     充电功率（kW）
+     * @param temperature     环境温度（℃）
+     * @return 充电时长（分钟），引擎不可用时返回 {@link Double#NaN}
+     */
+    double predictDurationMinutes(double batteryCapacity, double currentSoc, double targetSoc,
+                                  double chargePower, double temperature);
+}
@@ -0,0 +1,75 @@
+package com.ev.charging.ai;
+
+import com.ev.charging.dto.AIPredictionDTO.DurationPredictRequest;
+import com.ev.charging.dto.AIPredictionDTO.DurationPredictResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * 远程充电时长预测引擎（Python AI服务）
+ * <p>
+ * 输入先量化到区间：容量取最近的5kWh，当前SOC向下、目标SOC向上取5%（区间内偏保守），功率取整kW，温度取最近的5℃。
+ * 量化后的请求既是缓存键也是发送给AI服务的请求，相同区间的并发请求合并为一次调用；
+ * 结果对应区间代表值，按实际需充电量与代表值需充电量之比折算。AI服务不可用时返回 NaN。
+ */
+@Component
+public class RemotePredictionEngine implements PredictionEngine {
+
+    public static final String NAME = "remote";
+
+    private final AIServiceClient aiServiceClient;
+    private final PredictionCache<DurationPredictRequest, BigDecimal> cache;
+
+    /**
+     * 合并等待的最长时间，与AI服务读取超时一致
+     */
+    private final long waitMillis;
+
+    public RemotePredictionEngine(AIServiceClient aiServiceClient,
+                                  @Value("${ai.service.read-timeout:3000}") long waitMillis,
+                                  @Value("${ai.cache.max-size:10000}") int cacheSize,
+                                  @Value("${ai.cache.ttl:600000}") long cacheTtl) {
+        this.aiServiceClient = aiServiceClient;
+        this.waitMillis = waitMillis;
+        this.cache = new PredictionCache<>(cacheSize, cacheTtl);
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public double predictDurationMinutes(double batteryCapacity, double currentSoc, double targetSoc,
+                                         double chargePower, double temperature) {
+        long capacityKey = Math.max(10, Math.round(batteryCapacity / 5) * 5);
+        long currentKey = (long) Math.floor(currentSoc / 5) * 5;
+        long targetKey = Math.min(100, (long) Math.ceil(targetSoc / 5) * 5);
+        DurationPredictRequest key = DurationPredictRequest.builder()
+                .batteryCapacity(BigDecimal.valueOf(capacityKey))
+                .currentSoc(BigDecimal.valueOf(currentKey))
+                .targetSoc(BigDecimal.valueOf(targetKey))
+                .chargePower(BigDecimal.valueOf(Math.max(1, Math.round(chargePower))))
+                .temperature(BigDecimal.valueOf(Math.round(temperature / 5) * 5))
+                .build();
+
+        BigDecimal minutes = cache.get(key, () -> {
+            DurationPredictResponse response = aiServiceClient.predictDuration(key);
+            return response != null ? response.getDuration() : null;
+        }, waitMillis);
+        if (minutes == null) {
+            return Double.NaN;
+        }
+
+        double energy = batteryCapacity * (targetSoc - currentSoc);
+        double keyEnergy = (double) capacityKey * (targetKey - currentKey);
+        return keyEnergy > 0 ? minutes.doubleValue() * energy / keyEnergy : minutes.doubleValue();
+    }
+
+    public Map<String, Object> stats() {
+        return cache.stats();
+    }
+}
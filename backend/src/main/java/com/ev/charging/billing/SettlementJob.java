@@ -0,0 +1,290 @@
+package com.ev.charging.billing;
+
+import com.ev.charging.cluster.ClusterJobLock;
+import com.ev.charging.job.BatchJobRunner;
+import com.ev.charging.job.CheckpointedBatch;
+import com.ev.charging.stats.OrderRollupPipeline;
+import com.ev.charging.vo.SettlementReportVO;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 订单批量结算任务
+ * 按订单ID键集分页读取指定日期范围内已完成的订单，在ForkJoin线程池上分块用 {@link TariffSchedule} 重新计价，
+ * 费用有变化的未支付订单以JDBC批量更新写回；每页写回与检查点在同一事务内提交，中断后从检查点继续。
+ * 已支付订单不改写，只统计计价不一致的数量。
+ * 集群内同一时间只有一个节点执行，每页提交后续约任务锁。
+ */
+@Slf4j
+@Component
+public class SettlementJob {
+
+    private static final String PAGE_SQL =
+            "SELECT id, pile_id, start_time, end_time, charge_amount, electricity_fee, service_fee, payment_status " +
+                    "FROM charge_order " +
+                    "WHERE order_status = 1 AND create_time >= ? AND create_time < ? AND id > ? " +
+                    "ORDER BY id LIMIT ?";
+
+    private static final String UPDATE_SQL =
+            "UPDATE charge_order SET electricity_fee = ?, service_fee = ?, total_fee = ?, update_time = NOW() " +
+                    "WHERE id = ? AND order_status = 1 AND payment_status <> 1";
+
+    /**
+     * 检查点计数列下标：改写的订单数、计价不一致的已支付订单数
+     */
+    private static final int UPDATED = 0;
+    private static final int MISMATCHED = 1;
+
+    /**
+     * 单个ForkJoin任务最少处理的订单数
+     */
+    private static final int CHUNK_SIZE = 1024;
+
+    private static final String JOB_LOCK = "settlement";
+
+    /**
+     * 任务锁租约，每页提交后续约
+     */
+    private static final Duration LOCK_LEASE = Duration.ofMinutes(10);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TariffEngine tariffEngine;
+    private final OrderRollupPipeline orderRollupPipeline;
+    private final ClusterJobLock clusterJobLock;
+    private final BatchJobRunner batchJobRunner;
+    private final CheckpointedBatch checkpointedBatch;
+    private final ForkJoinPool pool;
+    private final int pageSize;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    public SettlementJob(JdbcTemplate jdbcTemplate,
+                         TransactionTemplate transactionTemplate,
+                         TariffEngine tariffEngine,
+                         OrderRollupPipeline orderRollupPipeline,
+                         ClusterJobLock clusterJobLock,
+                         BatchJobRunner batchJobRunner,
+                         @Value("${billing.settlement.page-size:5000}") int pageSize,
+                         @Value("${billing.settlement.parallelism:0}") int parallelism) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.tariffEngine = tariffEngine;
+        this.orderRollupPipeline = orderRollupPipeline;
+        this.clusterJobLock = clusterJobLock;
+        this.batchJobRunner = batchJobRunner;
+        this.checkpointedBatch = new CheckpointedBatch(jdbcTemplate, transactionTemplate,
+                "settlement_checkpoint", "last_order_id", "updated_count", "mismatched_count");
+        this.pageSize = pageSize;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * 每晚结算前一天的订单（在批处理线程池上执行）
+     */
+    @Scheduled(cron = "${billing.settlement.cron:0 0 2 * * ?}")
+    public void nightlySettle() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        batchJobRunner.submit("夜间批量结算(" + yesterday + ")", () -> run(yesterday, yesterday));
+    }
+
+    /**
+     * 结算指定日期范围（按订单创建时间）内已完成的订单，存在未完成的检查点时从检查点继续
+     *
+     * @param startDate 开始日期（含）
+     * @param endDate   结束日期（含）
+     * @return 结算报告
+     */
+    public SettlementReportVO run(LocalDate startDate, LocalDate endDate) {
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException("结算任务正在执行，请稍后再试");
+        }
+        try (ClusterJobLock.Lease lease = clusterJobLock.tryAcquire(JOB_LOCK, LOCK_LEASE)) {
+            if (lease == null) {
+                throw new RuntimeException("结算任务正在其他节点执行，请稍后再试");
+            }
+            return doRun(startDate, endDate, lease);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private SettlementReportVO doRun(LocalDate startDate, LocalDate endDate, ClusterJobLock.Lease lease) {
+        String jobName = "settlement:" + startDate + ":" + endDate;
+        Timestamp from = Timestamp.valueOf(startDate.atStartOfDay());
+        Timestamp to = Timestamp.valueOf(endDate.plusDays(1).atStartOfDay());
+
+        CheckpointedBatch.Result result = checkpointedBatch.run(jobName, pageSize, lease, new Page(pageSize, from, to));
+        long updated = result.getCounter(UPDATED);
+        long mismatched = result.getCounter(MISMATCHED);
+        log.info("批量结算完成: job={}, processed={}, updated={}, mismatched={}, 耗时{}ms, 吞吐{}单/秒",
+                jobName, result.getProcessed(), updated, mismatched, result.getElapsedMillis(),
+                String.format("%.0f", result.getPerSecond()));
+
+        if (updated > 0) {
+            orderRollupPipeline.rebuild(startDate, endDate);
+        }
+
+        return SettlementReportVO.builder()
+                .jobName(jobName)
+                .startDate(startDate)
+                .endDate(endDate)
+                .resumedFromOrderId(result.getResumedFromId())
+                .processedCount(result.getProcessed())
+                .updatedCount(updated)
+                .mismatchedCount(mismatched)
+                .elapsedMillis(result.getElapsedMillis())
+                .ordersPerSecond(result.getPerSecond())
+                .build();
+    }
+
+    private static long toCents(BigDecimal fee) {
+        return fee != null ? fee.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue() : -1L;
+    }
+
+    /**
+     * 一页订单的列式缓冲区（整个任务复用）
+     */
+    private final class Page implements CheckpointedBatch.PageHandler {
+
+        private final Timestamp from;
+        private final Timestamp to;
+
+        private final long[] orderIds;
+        private final TariffSchedule[] schedules;
+        private final long[] startSeconds;
+        private final long[] endSeconds;
+        private final long[] energyWh;
+        private final long[] oldElectricityCents;
+        private final long[] oldServiceCents;
+        private final boolean[] paid;
+        private final long[] electricityCents;
+        private final long[] serviceCents;
+
+        private Page(int capacity, Timestamp from, Timestamp to) {
+            this.from = from;
+            this.to = to;
+            orderIds = new long[capacity];
+            schedules = new TariffSchedule[capacity];
+            startSeconds = new long[capacity];
+            endSeconds = new long[capacity];
+            energyWh = new long[capacity];
+            oldElectricityCents = new long[capacity];
+            oldServiceCents = new long[capacity];
+            paid = new boolean[capacity];
+            electricityCents = new long[capacity];
+            serviceCents = new long[capacity];
+        }
+
+        @Override
+        public int load(long afterId) {
+            int[] size = {0};
+            jdbcTemplate.query(PAGE_SQL, rs -> {
+                int i = size[0]++;
+                orderIds[i] = rs.getLong("id");
+                schedules[i] = tariffEngine.scheduleFor(rs.getLong("pile_id"));
+                Timestamp start = rs.getTimestamp("start_time");
+                Timestamp end = rs.getTimestamp("end_time");
+                startSeconds[i] = start != null ? TariffEngine.toLocalSecond(start.toLocalDateTime()) : 0L;
+                endSeconds[i] = end != null ? TariffEngine.toLocalSecond(end.toLocalDateTime()) : startSeconds[i];
+                energyWh[i] = TariffEngine.toWh(rs.getBigDecimal("charge_amount"));
+                oldElectricityCents[i] = toCents(rs.getBigDecimal("electricity_fee"));
+                oldServiceCents[i] = toCents(rs.getBigDecimal("service_fee"));
+                paid[i] = rs.getByte("payment_status") == 1;
+            }, from, to, afterId, orderIds.length);
+            return size[0];
+        }
+
+        @Override
+        public long lastId(int count) {
+            return orderIds[count - 1];
+        }
+
+        /**
+         * 分块重新计价，费用有变化的未支付订单与检查点一起写回
+         */
+        @Override
+        public CheckpointedBatch.PageWriter process(int count) {
+            pool.invoke(new SettleTask(this, 0, count));
+            List<Object[]> updates = new ArrayList<>();
+            int mismatched = collectChanges(count, updates);
+            return () -> new long[]{
+                    updates.isEmpty() ? 0 : CheckpointedBatch.affectedRows(jdbcTemplate.batchUpdate(UPDATE_SQL, updates)),
+                    mismatched
+            };
+        }
+
+        /**
+         * 收集费用有变化的未支付订单
+         *
+         * @return 费用有变化的已支付订单数
+         */
+        private int collectChanges(int count, List<Object[]> updates) {
+            int mismatched = 0;
+            for (int i = 0; i < count; i++) {
+                if (electricityCents[i] == oldElectricityCents[i] && serviceCents[i] == oldServiceCents[i]) {
+                    continue;
+                }
+                if (paid[i]) {
+                    mismatched++;
+                    continue;
+                }
+                updates.add(new Object[]{
+                        BigDecimal.valueOf(electricityCents[i], 2),
+                        BigDecimal.valueOf(serviceCents[i], 2),
+                        BigDecimal.valueOf(electricityCents[i] + serviceCents[i], 2),
+                        orderIds[i]
+                });
+            }
+            return mismatched;
+        }
+    }
+
+    /**
+     * 按下标区间二分的计价任务
+     */
+    private static final class SettleTask extends RecursiveAction {
+
+        private final Page page;
+        private final int from;
+        private final int to;
+
+        private SettleTask(Page page, int from, int to) {
+            this.page = page;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE) {
+                TariffSchedule.settleRange(page.schedules, page.startSeconds, page.endSeconds, page.energyWh,
+                        from, to, page.electricityCents, page.serviceCents);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new SettleTask(page, from, mid), new SettleTask(page, mid, to));
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.ev.charging.billing;
+
+import com.ev.charging.catalog.CatalogCache;
+import com.ev.charging.catalog.PileSnapshot;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 分时计费引擎
+ * 根据充电桩配置的峰谷平电价和服务费编译 {@link TariffSchedule}，
+ * 相同电价配置的充电桩共享同一份电价表；充电桩电价变更后按快照对比自动重新编译。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TariffEngine {
+
+    /**
+     * 充电桩未配置电价时的默认值（元/kWh）
+     */
+    private static final double DEFAULT_PRICE_PEAK = 1.2;
+    private static final double DEFAULT_PRICE_FLAT = 0.8;
+    private static final double DEFAULT_PRICE_VALLEY = 0.4;
+    private static final double DEFAULT_SERVICE_FEE = 0.5;
+
+    private static final TariffSchedule DEFAULT_SCHEDULE = TariffSchedule.compile(
+            scale(DEFAULT_PRICE_VALLEY), scale(DEFAULT_PRICE_FLAT), scale(DEFAULT_PRICE_PEAK), scale(DEFAULT_SERVICE_FEE));
+
+    private final CatalogCache catalogCache;
+
+    /**
+     * 充电桩ID -> 编译结果（记录来源快照，快照变化时重新编译）
+     */
+    private final Map<Long, Compiled> pileSchedules = new ConcurrentHashMap<>();
+
+    /**
+     * 电价配置 -> 电价表（共享）
+     */
+    private final Map<PriceKey, TariffSchedule> schedules = new ConcurrentHashMap<>();
+
+    /**
+     * 获取充电桩的电价表
+     *
+     * @param pileId 充电桩ID
+     * @return 电价表，充电桩不存在时返回默认电价表
+     */
+    public TariffSchedule scheduleFor(Long pileId) {
+        PileSnapshot pile = pileId != null ? catalogCache.pile(pileId) : null;
+        if (pile == null) {
+            return DEFAULT_SCHEDULE;
+        }
+        Compiled compiled = pileSchedules.get(pileId);
+        if (compiled == null || compiled.source != pile) {
+            compiled = new Compiled(pile, compile(pile));
+            pileSchedules.put(pileId, compiled);
+        }
+        return compiled.schedule;
+    }
+
+    /**
+     * 结算一次充电（按均匀功率把电量分摊到经过的各价格区段）
+     *
+     * @param pileId       充电桩ID
+     * @param startTime    开始时间
+     * @param endTime      结束时间
+     * @param chargeAmount 充电量（kWh）
+     * @return 结算结果
+     */
+    public Settlement settle(Long pileId, LocalDateTime startTime, LocalDateTime endTime, BigDecimal chargeAmount) {
+        TariffSchedule schedule = scheduleFor(pileId);
+        long energyWh = toWh(chargeAmount);
+        long electricityCents = TariffSchedule.toCents(
+                schedule.energyCost(toLocalSecond(startTime), toLocalSecond(endTime), energyWh));
+        long serviceCents = TariffSchedule.toCents(schedule.serviceCost(energyWh));
+
+        log.debug("计算电费: pileId={}, startTime={}, endTime={}, chargeAmount={}, electricityFee={}分, serviceFee={}分",
+                pileId, startTime, endTime, chargeAmount, electricityCents, serviceCents);
+
+        return new Settlement(BigDecimal.valueOf(electricityCents, 2), BigDecimal.valueOf(serviceCents, 2));
+    }
+
+    /**
+     * 本地时间转为秒数（与 {@link TariffSchedule} 的时间约定一致）
+     */
+    public static long toLocalSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * kWh 转为 Wh
+     */
+    public static long toWh(BigDecimal kwh) {
+        if (kwh == null || kwh.signum() <= 0) {
+            return 0L;
+        }
+        return kwh.movePointRight(3).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    private TariffSchedule compile(PileSnapshot pile) {
+        PriceKey key = new PriceKey(
+                scale(pile.getPriceValley() != null ? pile.getPriceValley() : DEFAULT_PRICE_VALLEY),
+                scale(pile.getPriceFlat() != null ? pile.getPriceFlat() : DEFAULT_PRICE_FLAT),
+                scale(pile.getPricePeak() != null ? pile.getPricePeak() : DEFAULT_PRICE_PEAK),
+                scale(pile.getServiceFee() != null ? pile.getServiceFee() : DEFAULT_SERVICE_FEE));
+        return schedules.computeIfAbsent(key,
+                k -> TariffSchedule.compile(k.valley, k.flat, k.peak, k.service));
+    }
+
+    private static long scale(double price) {
+        return Math.round(price * TariffSchedule.PRICE_SCALE);
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static final class PriceKey {
+        private final long valley;
+        private final long flat;
+        private final long peak;
+        private final long service;
+    }
+
+    @AllArgsConstructor
+    private static final class Compiled {
+        private final PileSnapshot source;
+        private final TariffSchedule schedule;
+    }
+
+    /**
+     * 结算结果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class Settlement {
+
+        /**
+         * 电费（元）
+         */
+        private final BigDecimal electricityFee;
+
+        /**
+         * 服务费（元）
+         */
+        private final BigDecimal serviceFee;
+
+        public BigDecimal getTotalFee() {
+            return electricityFee.add(serviceFee);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.ev.charging.billing;
+
+/**
+ * 预编译的分时电价表
+ * 把峰谷平电价展开成按"一天中的分钟"索引的数组，并记录每分钟所在价格区段的结束分钟，
+ * 计费时按区段边界切分电量，全程使用long整数运算，不分配对象。
+ * <p>
+ * 单位约定：电价为 0.0001元/kWh，电量为 Wh，费用原始值为 1e-7元（电价 × 电量），
+ * 只在最后一步通过 {@link #toCents(long)} 四舍五入为分。
+ * 时间使用本地时间的秒数（{@code LocalDateTime.toEpochSecond(ZoneOffset.UTC)}）。
+ */
+public final class TariffSchedule {
+
+    /**
+     * 电价缩放倍数（1元 = 10000）
+     */
+    public static final long PRICE_SCALE = 10_000L;
+
+    /**
+     * 费用原始值到分的除数（1e-7元 -> 0.01元）
+     */
+    private static final long RAW_PER_CENT = 100_000L;
+
+    static final int MINUTES_PER_DAY = 1440;
+
+    static final byte BAND_VALLEY = 0;
+    static final byte BAND_FLAT = 1;
+    static final byte BAND_PEAK = 2;
+
+    /**
+     * 每分钟所属时段：谷时 23:00-07:00，峰时 10:00-15:00 和 18:00-21:00，其余为平时
+     */
+    private static final byte[] BAND_OF_MINUTE = new byte[MINUTES_PER_DAY];
+
+    static {
+        for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+            int hour = minute / 60;
+            if (hour >= 23 || hour < 7) {
+                BAND_OF_MINUTE[minute] = BAND_VALLEY;
+            } else if ((hour >= 10 && hour < 15) || (hour >= 18 && hour < 21)) {
+                BAND_OF_MINUTE[minute] = BAND_PEAK;
+            } else {
+                BAND_OF_MINUTE[minute] = BAND_FLAT;
+            }
+        }
+    }
+
+    /**
+     * 每分钟的电价（0.0001元/kWh）
+     */
+    private final int[] priceOfMinute = new int[MINUTES_PER_DAY];
+
+    /**
+     * 每分钟所在同价区段的结束分钟（不含，最大为1440）
+     */
+    private final short[] runEndOfMinute = new short[MINUTES_PER_DAY];
+
+    /**
+     * 服务费（0.0001元/kWh）
+     */
+    private final long servicePrice;
+
+    private TariffSchedule(long valleyPrice, long flatPrice, long peakPrice, long servicePrice) {
+        int[] bandPrice = {(int) valleyPrice, (int) flatPrice, (int) peakPrice};
+        for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+            priceOfMinute[minute] = bandPrice[BAND_OF_MINUTE[minute]];
+        }
+        int runEnd = MINUTES_PER_DAY;
+        for (int minute = MINUTES_PER_DAY - 1; minute >= 0; minute--) {
+            if (minute + 1 < MINUTES_PER_DAY && priceOfMinute[minute + 1] != priceOfMinute[minute]) {
+                runEnd = minute + 1;
+            }
+            runEndOfMinute[minute] = (short) runEnd;
+        }
+        this.servicePrice = servicePrice;
+    }
+
+    /**
+     * 编译电价表
+     *
+     * @param valleyPrice  谷时电价（0.0001元/kWh）
+     * @param flatPrice    平时电价（0.0001元/kWh）
+     * @param peakPrice    峰时电价（0.0001元/kWh）
+     * @param servicePrice 服务费（0.0001元/kWh）
+     * @return 电价表
+     */
+    public static TariffSchedule compile(long valleyPrice, long flatPrice, long peakPrice, long servicePrice) {
+        return new TariffSchedule(valleyPrice, flatPrice, peakPrice, servicePrice);
+    }
+
+    /**
+     * 某一时刻的电价
+     *
+     * @param localSecond 本地时间秒数
+     * @return 电价（0.0001元/kWh）
+     */
+    public int priceAt(long localSecond) {
+        return priceOfMinute[minuteOfDay(Math.floorDiv(localSecond, 60))];
+    }
+
+    /**
+     * 一段充电的电费（按均匀功率把电量分摊到各价格区段）
+     *
+     * @param startSecond 开始时间（本地时间秒数）
+     * @param endSecond   结束时间（本地时间秒数）
+     * @param energyWh    电量（Wh）
+     * @return 电费原始值（1e-7元）
+     */
+    public long energyCost(long startSecond, long endSecond, long energyWh) {
+        if (energyWh <= 0) {
+            return 0L;
+        }
+        long total = endSecond - startSecond;
+        if (total <= 0) {
+            return energyWh * priceAt(startSecond);
+        }
+
+        long cost = 0L;
+        long allocated = 0L;
+        long t = startSecond;
+        while (t < endSecond) {
+            long minute = Math.floorDiv(t, 60);
+            int minuteOfDay = minuteOfDay(minute);
+            long segmentEnd = (minute - minuteOfDay + runEndOfMinute[minuteOfDay]) * 60;
+            if (segmentEnd > endSecond) {
+                segmentEnd = endSecond;
+            }
+            // 按累计比例计算，保证各段电量之和恰好等于总电量
+            long cumulative = energyWh * (segmentEnd - startSecond) / total;
+            cost += (cumulative - allocated) * priceOfMinute[minuteOfDay];
+            allocated = cumulative;
+            t = segmentEnd;
+        }
+        return cost;
+    }
+
+    /**
+     * 按区间电量数据（如电表分段读数或功率曲线积分）计算电费
+     *
+     * @param startSeconds 各区间开始时间
+     * @param endSeconds   各区间结束时间
+     * @param energyWh     各区间电量（Wh）
+     * @param from         起始下标
+     * @param count        区间数量
+     * @return 电费原始值（1e-7元）
+     */
+    public long intervalCost(long[] startSeconds, long[] endSeconds, long[] energyWh, int from, int count) {
+        long cost = 0L;
+        for (int i = from, end = from + count; i < end; i++) {
+            cost += energyCost(startSeconds[i], endSeconds[i], energyWh[i]);
+        }
+        return cost;
+    }
+
+    /**
+     * 服务费
+     *
+     * @param energyWh 电量（Wh）
+     * @return 服务费原始值（1e-7元）
+     */
+    public long serviceCost(long energyWh) {
+        return energyWh > 0 ? energyWh * servicePrice : 0L;
+    }
+
+    /**
+     * 批量结算
+     *
+     * @param schedules            各订单的电价表
+     * @param startSeconds         各订单开始时间
+     * @param endSeconds           各订单结束时间
+     * @param energyWh             各订单电量（Wh）
+     * @param count                订单数量
+     * @param electricityCentsOut  输出：电费（分）
+     * @param serviceCentsOut      输出：服务费（分）
+     */
+    public static void settleAll(TariffSchedule[] schedules, long[] startSeconds, long[] endSeconds, long[] energyWh,
+                                 int count, long[] electricityCentsOut, long[] serviceCentsOut) {
+        settleRange(schedules, startSeconds, endSeconds, energyWh, 0, count, electricityCentsOut, serviceCentsOut);
+    }
+
+    /**
+     * 批量结算下标区间 [from, to) 内的订单（供并行分块调用）
+     */
+    public static void settleRange(TariffSchedule[] schedules, long[] startSeconds, long[] endSeconds, long[] energyWh,
+                                   int from, int to, long[] electricityCentsOut, long[] serviceCentsOut) {
+        for (int i = from; i < to; i++) {
+            TariffSchedule schedule = schedules[i];
+            electricityCentsOut[i] = toCents(schedule.energyCost(startSeconds[i], endSeconds[i], energyWh[i]));
+            serviceCentsOut[i] = toCents(schedule.serviceCost(energyWh[i]));
+        }
+    }
+
+    /**
+     * 费用原始值四舍五入为分
+     *
+     * @param raw 费用原始值（1e-7元，非负）
+     * @return 分
+     */
+    public static long toCents(long raw) {
+        return (raw + RAW_PER_CENT / 2) / RAW_PER_CENT;
+    }
+
+    private static int minuteOfDay(long minute) {
+        return (int) Math.floorMod(minute, (long) MINUTES_PER_DAY);
+    }
+}
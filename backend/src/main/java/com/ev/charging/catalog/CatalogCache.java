@@ -0,0 +1,411 @@
+package com.ev.charging.catalog;
+
+import com.ev.charging.entity.ChargingPile;
+import com.ev.charging.entity.ChargingStation;
+import com.ev.charging.geo.StationGeoIndex;
+import com.ev.charging.repository.ChargingPileRepository;
+import com.ev.charging.repository.ChargingStationRepository;
+import com.ev.charging.util.LongObjectMap;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * 充电站/充电桩目录缓存
+ * 启动时全量加载为只读快照，按ID查询直接读内存（未命中时回源数据库）。
+ * 写操作在事务提交后刷新本地快照，并通过Redis发布订阅通知其他节点从数据库重新加载。
+ * 充电站快照变化时同步刷新 {@link StationGeoIndex}。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CatalogCache implements MessageListener {
+
+    /**
+     * 失效通知频道，消息格式：节点ID:类型:实体ID
+     */
+    public static final String INVALIDATION_CHANNEL = "catalog:invalidate";
+
+    private static final String TYPE_STATION = "station";
+    private static final String TYPE_PILE = "pile";
+
+    /**
+     * 当前节点ID，用于忽略自己发出的通知
+     */
+    private static final String NODE_ID = UUID.randomUUID().toString();
+
+    private final ChargingStationRepository stationRepository;
+    private final ChargingPileRepository pileRepository;
+    private final StationGeoIndex stationGeoIndex;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    /**
+     * 写时复制：读取无锁，写入时复制后整体替换
+     */
+    private volatile LongObjectMap<StationSnapshot> stations = new LongObjectMap<>();
+    private volatile LongObjectMap<PileSnapshot> piles = new LongObjectMap<>();
+
+    /**
+     * 营业中的充电站（按评分降序），充电站变化时置空，下次访问重建
+     */
+    private volatile List<StationSnapshot> activeStations;
+
+    private volatile boolean ready;
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    /**
+     * 应用启动后全量加载
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<ChargingStation> stationList = stationRepository.findAll();
+        List<ChargingPile> pileList = pileRepository.findAll();
+
+        LongObjectMap<StationSnapshot> loadedStations = new LongObjectMap<>(stationList.size());
+        stationList.forEach(s -> loadedStations.put(s.getId(), StationSnapshot.from(s)));
+        LongObjectMap<PileSnapshot> loadedPiles = new LongObjectMap<>(pileList.size());
+        pileList.forEach(p -> loadedPiles.put(p.getId(), PileSnapshot.from(p)));
+
+        synchronized (this) {
+            stations = loadedStations;
+            piles = loadedPiles;
+            activeStations = null;
+        }
+        stationGeoIndex.load(loadedStations.values());
+        ready = true;
+
+        log.info("目录缓存加载完成，充电站：{}，充电桩：{}", loadedStations.size(), loadedPiles.size());
+    }
+
+    /**
+     * 是否已完成全量加载（列表类查询依赖全量数据）
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 按ID查询充电站
+     *
+     * @param stationId 充电站ID
+     * @return 充电站快照，不存在返回null
+     */
+    public StationSnapshot station(Long stationId) {
+        if (stationId == null) {
+            return null;
+        }
+        StationSnapshot snapshot = stations.get(stationId);
+        if (snapshot == null) {
+            snapshot = stationRepository.findById(stationId).map(StationSnapshot::from).orElse(null);
+            if (snapshot != null) {
+                putStationIfAbsent(snapshot);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * 按ID查询充电桩
+     *
+     * @param pileId 充电桩ID
+     * @return 充电桩快照，不存在返回null
+     */
+    public PileSnapshot pile(Long pileId) {
+        if (pileId == null) {
+            return null;
+        }
+        PileSnapshot snapshot = piles.get(pileId);
+        if (snapshot == null) {
+            snapshot = pileRepository.findById(pileId).map(PileSnapshot::from).orElse(null);
+            if (snapshot != null) {
+                putPileIfAbsent(snapshot);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * 查询充电站名称
+     *
+     * @param stationId 充电站ID
+     * @return 名称，不存在返回null
+     */
+    public String stationName(Long stationId) {
+        StationSnapshot snapshot = station(stationId);
+        return snapshot != null ? snapshot.getName() : null;
+    }
+
+    /**
+     * 批量解析一批记录关联的充电站和充电桩
+     * 先查内存，未命中的ID各用一次 findAllById 回源，不会逐行查询
+     *
+     * @param stationIds 充电站ID（可重复、可含null）
+     * @param pileIds    充电桩ID（可重复、可含null）
+     * @return 解析结果
+     */
+    public CatalogLookup lookup(Collection<Long> stationIds, Collection<Long> pileIds) {
+        Map<Long, StationSnapshot> stationMap = new HashMap<>();
+        Set<Long> missingStations = new HashSet<>();
+        LongObjectMap<StationSnapshot> currentStations = stations;
+        for (Long id : stationIds) {
+            if (id == null || stationMap.containsKey(id)) {
+                continue;
+            }
+            StationSnapshot snapshot = currentStations.get(id);
+            if (snapshot != null) {
+                stationMap.put(id, snapshot);
+            } else {
+                missingStations.add(id);
+            }
+        }
+
+        Map<Long, PileSnapshot> pileMap = new HashMap<>();
+        Set<Long> missingPiles = new HashSet<>();
+        LongObjectMap<PileSnapshot> currentPiles = piles;
+        for (Long id : pileIds) {
+            if (id == null || pileMap.containsKey(id)) {
+                continue;
+            }
+            PileSnapshot snapshot = currentPiles.get(id);
+            if (snapshot != null) {
+                pileMap.put(id, snapshot);
+            } else {
+                missingPiles.add(id);
+            }
+        }
+
+        if (!missingStations.isEmpty()) {
+            List<StationSnapshot> loaded = new ArrayList<>();
+            stationRepository.findAllById(missingStations).forEach(s -> loaded.add(StationSnapshot.from(s)));
+            loaded.forEach(s -> stationMap.put(s.getId(), s));
+            putStationsIfAbsent(loaded);
+        }
+        if (!missingPiles.isEmpty()) {
+            List<PileSnapshot> loaded = new ArrayList<>();
+            pileRepository.findAllById(missingPiles).forEach(p -> loaded.add(PileSnapshot.from(p)));
+            loaded.forEach(p -> pileMap.put(p.getId(), p));
+            putPilesIfAbsent(loaded);
+        }
+
+        return new CatalogLookup(stationMap, pileMap);
+    }
+
+    /**
+     * 全部充电站（顺序不确定）
+     *
+     * @return 充电站快照列表
+     */
+    public List<StationSnapshot> allStations() {
+        return stations.values();
+    }
+
+    /**
+     * 营业中的充电站，按评分降序
+     *
+     * @return 只读列表
+     */
+    public List<StationSnapshot> activeStations() {
+        List<StationSnapshot> list = activeStations;
+        if (list == null) {
+            list = Collections.unmodifiableList(stations.values().stream()
+                    .filter(StationSnapshot::isActive)
+                    .sorted(Comparator.comparing(StationSnapshot::getRating,
+                            Comparator.nullsLast(Comparator.reverseOrder())))
+                    .collect(Collectors.toList()));
+            activeStations = list;
+        }
+        return list;
+    }
+
+    /**
+     * 充电站已保存：事务提交后刷新快照并通知其他节点
+     *
+     * @param station 充电站实体
+     */
+    public void stationSaved(ChargingStation station) {
+        afterCommit(() -> {
+            applyStation(station.getId(), StationSnapshot.from(station));
+            publish(TYPE_STATION, station.getId());
+        });
+    }
+
+    /**
+     * 充电站已删除
+     *
+     * @param stationId 充电站ID
+     */
+    public void stationDeleted(Long stationId) {
+        afterCommit(() -> {
+            applyStation(stationId, null);
+            publish(TYPE_STATION, stationId);
+        });
+    }
+
+    /**
+     * 充电桩已保存
+     *
+     * @param pile 充电桩实体
+     */
+    public void pileSaved(ChargingPile pile) {
+        afterCommit(() -> {
+            applyPile(pile.getId(), PileSnapshot.from(pile));
+            publish(TYPE_PILE, pile.getId());
+        });
+    }
+
+    /**
+     * 充电桩已删除
+     *
+     * @param pileId 充电桩ID
+     */
+    public void pileDeleted(Long pileId) {
+        afterCommit(() -> {
+            applyPile(pileId, null);
+            publish(TYPE_PILE, pileId);
+        });
+    }
+
+    /**
+     * 收到其他节点的失效通知，从数据库重新加载
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split(":");
+        if (parts.length != 3 || NODE_ID.equals(parts[0])) {
+            return;
+        }
+
+        try {
+            Long id = Long.valueOf(parts[2]);
+            if (TYPE_STATION.equals(parts[1])) {
+                applyStation(id, stationRepository.findById(id).map(StationSnapshot::from).orElse(null));
+            } else if (TYPE_PILE.equals(parts[1])) {
+                applyPile(id, pileRepository.findById(id).map(PileSnapshot::from).orElse(null));
+            }
+        } catch (Exception e) {
+            log.error("处理目录失效通知失败: {}", String.join(":", parts), e);
+        }
+    }
+
+    private void applyStation(Long stationId, StationSnapshot snapshot) {
+        synchronized (this) {
+            LongObjectMap<StationSnapshot> copy = stations.copy();
+            if (snapshot != null) {
+                copy.put(stationId, snapshot);
+            } else {
+                copy.remove(stationId);
+            }
+            stations = copy;
+            activeStations = null;
+
+            if (snapshot != null) {
+                stationGeoIndex.upsert(snapshot);
+            } else {
+                stationGeoIndex.remove(stationId);
+            }
+        }
+    }
+
+    private void applyPile(Long pileId, PileSnapshot snapshot) {
+        synchronized (this) {
+            LongObjectMap<PileSnapshot> copy = piles.copy();
+            if (snapshot != null) {
+                copy.put(pileId, snapshot);
+            } else {
+                copy.remove(pileId);
+            }
+            piles = copy;
+        }
+    }
+
+    private void putStationIfAbsent(StationSnapshot snapshot) {
+        putStationsIfAbsent(Collections.singletonList(snapshot));
+    }
+
+    private void putPileIfAbsent(PileSnapshot snapshot) {
+        putPilesIfAbsent(Collections.singletonList(snapshot));
+    }
+
+    /**
+     * 回源加载的快照只在仍未缓存时写入，避免覆盖并发刷新的新值
+     */
+    private synchronized void putStationsIfAbsent(List<StationSnapshot> snapshots) {
+        LongObjectMap<StationSnapshot> copy = null;
+        for (StationSnapshot snapshot : snapshots) {
+            if (!stations.containsKey(snapshot.getId())) {
+                if (copy == null) {
+                    copy = stations.copy();
+                }
+                copy.put(snapshot.getId(), snapshot);
+            }
+        }
+        if (copy != null) {
+            stations = copy;
+            activeStations = null;
+        }
+    }
+
+    private synchronized void putPilesIfAbsent(List<PileSnapshot> snapshots) {
+        LongObjectMap<PileSnapshot> copy = null;
+        for (PileSnapshot snapshot : snapshots) {
+            if (!piles.containsKey(snapshot.getId())) {
+                if (copy == null) {
+                    copy = piles.copy();
+                }
+                copy.put(snapshot.getId(), snapshot);
+            }
+        }
+        if (copy != null) {
+            piles = copy;
+        }
+    }
+
+    private void publish(String type, Long id) {
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, NODE_ID + ":" + type + ":" + id);
+        } catch (Exception e) {
+            log.warn("发布目录失效通知失败: type={}, id={}", type, id, e);
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
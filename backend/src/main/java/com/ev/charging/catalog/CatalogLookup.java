@@ -0,0 +1,40 @@
+package com.ev.charging.catalog;
+
+import java.util.Map;
+
+/**
+ * 一批记录关联的充电站/充电桩快照
+ * 由 {@link CatalogCache#lookup} 一次性解析，组装列表VO时不再逐行查询
+ */
+public final class CatalogLookup {
+
+    private final Map<Long, StationSnapshot> stations;
+    private final Map<Long, PileSnapshot> piles;
+
+    CatalogLookup(Map<Long, StationSnapshot> stations, Map<Long, PileSnapshot> piles) {
+        this.stations = stations;
+        this.piles = piles;
+    }
+
+    /**
+     * 充电站快照，不存在返回null
+     */
+    public StationSnapshot station(Long stationId) {
+        return stationId != null ? stations.get(stationId) : null;
+    }
+
+    /**
+     * 充电站名称，不存在返回null
+     */
+    public String stationName(Long stationId) {
+        StationSnapshot station = station(stationId);
+        return station != null ? station.getName() : null;
+    }
+
+    /**
+     * 充电桩快照，不存在返回null
+     */
+    public PileSnapshot pile(Long pileId) {
+        return pileId != null ? piles.get(pileId) : null;
+    }
+}
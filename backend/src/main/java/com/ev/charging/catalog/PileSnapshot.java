@@ -0,0 +1,51 @@
+package com.ev.charging.catalog;
+
+import com.ev.charging.entity.ChargingPile;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 充电桩基础信息只读快照
+ * 只包含编号、功率、电价等静态信息，不包含状态、电压电流等实时数据
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class PileSnapshot {
+
+    private final Long id;
+    private final String pileNo;
+    private final Long stationId;
+    private final String pileName;
+    private final Byte pileType;
+    private final Double power;
+    private final String connectorType;
+    private final Double pricePeak;
+    private final Double priceFlat;
+    private final Double priceValley;
+    private final Double serviceFee;
+    private final Byte supportV2g;
+
+    /**
+     * 从实体创建快照
+     *
+     * @param pile 充电桩实体
+     * @return 快照
+     */
+    public static PileSnapshot from(ChargingPile pile) {
+        return new PileSnapshot(
+                pile.getId(),
+                pile.getPileNo(),
+                pile.getStationId(),
+                pile.getPileName(),
+                pile.getPileType(),
+                pile.getPower(),
+                pile.getConnectorType(),
+                pile.getPricePeak(),
+                pile.getPriceFlat(),
+                pile.getPriceValley(),
+                pile.getServiceFee(),
+                pile.getSupportV2g()
+        );
+    }
+}
@@ -0,0 +1,83 @@
+package com.ev.charging.catalog;
+
+import com.ev.charging.entity.ChargingStation;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+/**
+ * 充电站只读快照
+ * 由目录缓存、空间索引共享，创建后不再修改
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class StationSnapshot {
+
+    private final Long id;
+    private final String name;
+    private final String address;
+    private final Double longitude;
+    private final Double latitude;
+    private final String phone;
+    private final String businessHours;
+    private final Integer totalPiles;
+    private final Integer availablePiles;
+    private final Byte status;
+    private final String imageUrl;
+    private final String description;
+    private final Double rating;
+    private final Integer reviewCount;
+    private final LocalDateTime createTime;
+
+    /**
+     * 小写的名称，用于不区分大小写的名称搜索
+     */
+    @Getter(AccessLevel.NONE)
+    private final String searchName;
+
+    /**
+     * 从实体创建快照
+     *
+     * @param station 充电站实体
+     * @return 快照
+     */
+    public static StationSnapshot from(ChargingStation station) {
+        return new StationSnapshot(
+                station.getId(),
+                station.getName(),
+                station.getAddress(),
+                station.getLongitude(),
+                station.getLatitude(),
+                station.getPhone(),
+                station.getBusinessHours(),
+                station.getTotalPiles(),
+                station.getAvailablePiles(),
+                station.getStatus(),
+                station.getImageUrl(),
+                station.getDescription(),
+                station.getRating(),
+                station.getReviewCount(),
+                station.getCreateTime(),
+                station.getName() != null ? station.getName().toLowerCase(Locale.ROOT) : null
+        );
+    }
+
+    /**
+     * 是否营业中
+     */
+    public boolean isActive() {
+        return status != null && status == 1;
+    }
+
+    /**
+     * 名称是否包含关键词（不区分大小写，与数据库 LIKE 的默认排序规则一致）
+     *
+     * @param lowerKeyword 已转为小写的关键词
+     */
+    public boolean nameContains(String lowerKeyword) {
+        return searchName != null && searchName.contains(lowerKeyword);
+    }
+}
@@ -0,0 +1,45 @@
+package com.ev.charging.cluster;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * 跨节点转发的事件
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClusterEvent {
+
+    /**
+     * 事件ID（全局唯一，用于日志排查；接收端不做去重）
+     */
+    private String id;
+
+    /**
+     * 发出事件的节点ID
+     */
+    private String nodeId;
+
+    /**
+     * 事件类型，见 {@link ClusterEventRelay} 中的常量
+     */
+    private String type;
+
+    private Long stationId;
+
+    /**
+     * 事件内容
+     */
+    private Map<String, Object> payload;
+
+    /**
+     * 发出时间（毫秒时间戳）
+     */
+    private Long timestamp;
+}
@@ -0,0 +1,170 @@
+package com.ev.charging.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 跨节点事件转发（Redis发布订阅）
+ * <p>
+ * 多副本部署时，WebSocket会话只存在于建立连接的节点。事件在发生的节点本地投递后发布一次到 Redis，
+ * 其他节点收到后只投递给自己的本地订阅者（各组件通过 {@link #on} 注册处理器）；
+ * 自己发出的事件直接忽略。Redis发布订阅对每个订阅连接只投递一次，不做去重。
+ */
+@Slf4j
+@Component
+public class ClusterEventRelay implements MessageListener {
+
+    /**
+     * 转发频道
+     */
+    public static final String RELAY_CHANNEL = "cluster:events";
+
+    /**
+     * 充电桩状态变更：payload {pileId, oldStatus, newStatus}
+     */
+    public static final String TYPE_PILE_STATUS = "pile_status";
+
+    /**
+     * 站点WebSocket消息（故障告警等）：payload 为消息本身
+     */
+    public static final String TYPE_STATION_MESSAGE = "station_message";
+
+    /**
+     * 排队变更：payload {type, recordId, userId, queueNo, pileId, queueCount}
+     */
+    public static final String TYPE_QUEUE_CHANGED = "queue_changed";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+
+    /**
+     * 当前节点ID
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Map<String, List<Consumer<ClusterEvent>>> handlers = new ConcurrentHashMap<>();
+
+    private final AtomicLong publishedCount = new AtomicLong();
+    private final AtomicLong publishFailedCount = new AtomicLong();
+    private final AtomicLong receivedCount = new AtomicLong();
+    private final AtomicLong handlerFailedCount = new AtomicLong();
+
+    public ClusterEventRelay(StringRedisTemplate stringRedisTemplate,
+                             RedisMessageListenerContainer listenerContainer,
+                             ObjectMapper objectMapper,
+                             @Value("${websocket.relay.enabled:true}") boolean enabled) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        if (enabled) {
+            listenerContainer.addMessageListener(this, new ChannelTopic(RELAY_CHANNEL));
+        }
+    }
+
+    /**
+     * 注册远程事件处理器（只处理其他节点发出的事件）
+     *
+     * @param type    事件类型
+     * @param handler 处理器
+     */
+    public void on(String type, Consumer<ClusterEvent> handler) {
+        handlers.computeIfAbsent(type, key -> new CopyOnWriteArrayList<>()).add(handler);
+    }
+
+    /**
+     * 发布事件到其他节点（调用方负责本地投递）
+     * 发布失败只记录，不影响本地投递
+     *
+     * @param type      事件类型
+     * @param stationId 站点ID
+     * @param payload   事件内容
+     */
+    public void publish(String type, Long stationId, Map<String, Object> payload) {
+        if (!enabled) {
+            return;
+        }
+        ClusterEvent event = ClusterEvent.builder()
+                .id(UUID.randomUUID().toString())
+                .nodeId(nodeId)
+                .type(type)
+                .stationId(stationId)
+                .payload(payload)
+                .timestamp(System.currentTimeMillis())
+                .build();
+        try {
+            stringRedisTemplate.convertAndSend(RELAY_CHANNEL, objectMapper.writeValueAsString(event));
+            publishedCount.incrementAndGet();
+        } catch (Exception e) {
+            publishFailedCount.incrementAndGet();
+            log.warn("跨节点事件发布失败: type={}, stationId={}, {}", type, stationId, e.getMessage());
+        }
+    }
+
+    /**
+     * 收到其他节点的事件，交给本地处理器
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        ClusterEvent event;
+        try {
+            event = objectMapper.readValue(message.getBody(), ClusterEvent.class);
+        } catch (Exception e) {
+            log.error("跨节点事件解析失败", e);
+            return;
+        }
+        if (nodeId.equals(event.getNodeId())) {
+            return;
+        }
+        receivedCount.incrementAndGet();
+
+        for (Consumer<ClusterEvent> handler : handlers.getOrDefault(event.getType(), List.of())) {
+            try {
+                handler.accept(event);
+            } catch (Exception e) {
+                handlerFailedCount.incrementAndGet();
+                log.error("处理跨节点事件失败: type={}, id={}", event.getType(), event.getId(), e);
+            }
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 转发统计
+     */
+    public Map<String, Object> stats() {
+        return Map.of(
+                "enabled", enabled,
+                "nodeId", nodeId,
+                "published", publishedCount.get(),
+                "publishFailed", publishFailedCount.get(),
+                "received", receivedCount.get(),
+                "handlerFailed", handlerFailedCount.get()
+        );
+    }
+}
@@ -0,0 +1,142 @@
+package com.ev.charging.cluster;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 集群任务锁（job_lock 表）
+ * <p>
+ * 夜间批处理等任务在多个节点上由同一个定时表达式触发，只有获取到锁的节点执行。
+ * 锁以租约形式持有，时间以数据库时钟为准；持有者崩溃后租约到期，其他节点可以重新获取。
+ * 每次被新持有者获取时 fence 加1，其他组件可据此判断期间是否发生过该任务。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ClusterJobLock {
+
+    /**
+     * 租约到期时改为新持有者；赋值从左到右求值，前两项看到的是原租约，最后一项看到的是更新后的 owner
+     */
+    private static final String ACQUIRE_SQL =
+            "INSERT INTO job_lock (lock_name, owner, locked_until, fence) " +
+                    "VALUES (?, ?, DATE_ADD(NOW(3), INTERVAL ? SECOND), 1) " +
+                    "ON DUPLICATE KEY UPDATE " +
+                    "fence = IF(locked_until < NOW(3), fence + 1, fence), " +
+                    "owner = IF(locked_until < NOW(3), VALUES(owner), owner), " +
+                    "locked_until = IF(owner = VALUES(owner), VALUES(locked_until), locked_until)";
+
+    private static final String RENEW_SQL =
+            "UPDATE job_lock SET locked_until = DATE_ADD(NOW(3), INTERVAL ? SECOND) WHERE lock_name = ? AND owner = ?";
+
+    private static final String RELEASE_SQL =
+            "UPDATE job_lock SET locked_until = NOW(3) WHERE lock_name = ? AND owner = ?";
+
+    private static final String INSPECT_SQL =
+            "SELECT locked_until > NOW(3) AS locked, fence FROM job_lock WHERE lock_name = ? LOCK IN SHARE MODE";
+
+    private static final String ENSURE_SQL =
+            "INSERT IGNORE INTO job_lock (lock_name, owner, locked_until, fence) VALUES (?, '', NOW(3), 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 尝试获取锁
+     *
+     * @param name  锁名
+     * @param lease 租约时长，任务执行期间应在到期前调用 {@link Lease#renew()}
+     * @return 租约，锁已被其他节点持有时返回null
+     */
+    public Lease tryAcquire(String name, Duration lease) {
+        String owner = UUID.randomUUID().toString();
+        jdbcTemplate.update(ACQUIRE_SQL, name, owner, lease.toSeconds());
+        List<String> owners = jdbcTemplate.queryForList(
+                "SELECT owner FROM job_lock WHERE lock_name = ?", String.class, name);
+        if (owners.isEmpty() || !owner.equals(owners.get(0))) {
+            return null;
+        }
+        return new Lease(name, owner, lease);
+    }
+
+    /**
+     * 在调用方事务内以共享锁读取锁状态
+     * 获取锁需要修改该行，会等待持有共享锁的事务结束，因此调用方事务内看到"未被持有"时，
+     * 事务结束前不会有节点获取到锁
+     *
+     * @param name 锁名
+     * @return 锁状态
+     */
+    public State inspect(String name) {
+        List<State> states = query(name);
+        if (states.isEmpty()) {
+            jdbcTemplate.update(ENSURE_SQL, name);
+            states = query(name);
+        }
+        return states.get(0);
+    }
+
+    private List<State> query(String name) {
+        return jdbcTemplate.query(INSPECT_SQL,
+                (rs, rowNum) -> new State(rs.getBoolean("locked"), rs.getLong("fence")), name);
+    }
+
+    /**
+     * 锁状态
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class State {
+
+        /**
+         * 是否被持有（租约未到期）
+         */
+        private final boolean locked;
+
+        /**
+         * 获取次数
+         */
+        private final long fence;
+    }
+
+    /**
+     * 已获取的租约，任务结束时关闭即释放
+     */
+    public final class Lease implements AutoCloseable {
+
+        private final String name;
+        private final String owner;
+        private final Duration lease;
+
+        private Lease(String name, String owner, Duration lease) {
+            this.name = name;
+            this.owner = owner;
+            this.lease = lease;
+        }
+
+        /**
+         * 续约
+         *
+         * @return 是否仍持有锁（租约已过期并被其他节点获取时返回false）
+         */
+        public boolean renew() {
+            boolean held = jdbcTemplate.update(RENEW_SQL, lease.toSeconds(), name, owner) > 0;
+            if (!held) {
+                log.warn("任务锁{}已被其他节点获取", name);
+            }
+            return held;
+        }
+
+        @Override
+        public void close() {
+            jdbcTemplate.update(RELEASE_SQL, name, owner);
+        }
+    }
+}
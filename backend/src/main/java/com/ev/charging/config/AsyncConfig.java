@@ -0,0 +1,92 @@
+package com.ev.charging.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 异步任务配置
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    /**
+     * 充电桩事件处理线程池
+     * 有界队列，队列满时由提交线程执行，形成背压而不丢事件
+     */
+    @Bean("pileEventExecutor")
+    public ThreadPoolTaskExecutor pileEventExecutor(
+            @Value("${event.pile.core-pool-size:2}") int corePoolSize,
+            @Value("${event.pile.max-pool-size:4}") int maxPoolSize,
+            @Value("${event.pile.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("pile-event-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * WebSocket消息发送线程池
+     * 队列满时拒绝（发布方记录丢弃），不让推送阻塞业务线程
+     */
+    @Bean("webSocketSendExecutor")
+    public ThreadPoolTaskExecutor webSocketSendExecutor(
+            @Value("${websocket.send-pool-size:4}") int poolSize,
+            @Value("${websocket.send-queue-capacity:10000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("ws-send-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 排队事件推送（SSE）发送线程池
+     * 队列满时拒绝（发布方记录丢弃），慢连接不阻塞事件监听线程和调度线程
+     */
+    @Bean("sseSendExecutor")
+    public ThreadPoolTaskExecutor sseSendExecutor(
+            @Value("${queue.stream.send-pool-size:2}") int poolSize,
+            @Value("${queue.stream.send-queue-capacity:10000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("sse-send-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 批处理任务线程池（夜间结算、故障评分、汇总重建）
+     * 队列满时拒绝（提交方记录跳过），长任务不在调度线程上执行
+     */
+    @Bean("batchJobExecutor")
+    public ThreadPoolTaskExecutor batchJobExecutor(
+            @Value("${job.batch.pool-size:2}") int poolSize,
+            @Value("${job.batch.queue-capacity:8}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("batch-job-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
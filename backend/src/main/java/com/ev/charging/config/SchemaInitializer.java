@@ -0,0 +1,44 @@
+package com.ev.charging.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * 补充表结构初始化
+ * JPA只维护实体对应的表，JdbcTemplate直接读写的表（统计汇总等）在启动时按 classpath:schema/*.sql 创建，
+ * 脚本均使用 CREATE TABLE IF NOT EXISTS，可重复执行
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SchemaInitializer {
+
+    private static final String SCHEMA_LOCATION = "classpath*:schema/*.sql";
+
+    private final DataSource dataSource;
+
+    @PostConstruct
+    public void initialize() throws IOException {
+        Resource[] scripts = new PathMatchingResourcePatternResolver().getResources(SCHEMA_LOCATION);
+        if (scripts.length == 0) {
+            return;
+        }
+        Arrays.sort(scripts, Comparator.comparing(Resource::getFilename));
+
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(scripts);
+        populator.setSqlScriptEncoding("UTF-8");
+        populator.execute(dataSource);
+
+        log.info("补充表结构初始化完成，脚本数：{}", scripts.length);
+    }
+}
@@ -11,6 +11,7 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
+import java.util.Map;
 
 /**
  * AI预测控制器
@@ -100,4 +101,15 @@ public class AIPredictionController {
             return Result.error(503, "AI服务暂时不可用");
         }
     }
+
+    /**
+     * AI客户端统计
+     *
+     * @return 熔断状态、调用次数、缓存命中与合并次数、本地降级次数
+     */
+    @GetMapping("/stats")
+    @Operation(summary = "AI客户端统计", description = "查看熔断器、缓存与本地降级情况")
+    public Result<Map<String, Object>> getClientStats() {
+        return Result.success(aiPredictionService.stats());
+    }
 }
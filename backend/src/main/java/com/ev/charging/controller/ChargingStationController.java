@@ -5,6 +5,7 @@ import com.ev.charging.entity.ChargingStation;
 import com.ev.charging.service.ChargingStationService;
 import com.ev.charging.vo.StationVO;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -19,6 +20,18 @@ public class ChargingStationController {
 
     private final ChargingStationService stationService;
 
+    /**
+     * 附近查询的最大半径（千米）
+     */
+    @Value("${station.nearby.max-radius:50}")
+    private double maxRadius;
+
+    /**
+     * 最近查询的最大返回数量
+     */
+    @Value("${station.nearby.max-limit:100}")
+    private int maxLimit;
+
     /**
      * 获取所有营业中的充电站
      *
@@ -59,7 +72,7 @@ public class ChargingStationController {
      *
      * @param latitude  当前纬度
      * @param longitude 当前经度
-     * @param radius    搜索半径（千米），默认5km
+     * @param radius    搜索半径（千米），默认5km，超过上限时按上限查询
      * @return 附近充电站列表（按距离排序）
      */
     @GetMapping("/nearby")
@@ -67,7 +80,32 @@ public class ChargingStationController {
             @RequestParam Double latitude,
             @RequestParam Double longitude,
             @RequestParam(defaultValue = "5") Double radius) {
-        List<StationVO> stations = stationService.getNearbyStations(latitude, longitude, radius);
+        validateLocation(latitude, longitude);
+        if (!(radius > 0)) {
+            throw new IllegalArgumentException("搜索半径必须大于0");
+        }
+        List<StationVO> stations = stationService.getNearbyStations(latitude, longitude, Math.min(radius, maxRadius));
+        return Result.success(stations);
+    }
+
+    /**
+     * 查询最近的充电站
+     *
+     * @param latitude  当前纬度
+     * @param longitude 当前经度
+     * @param limit     返回数量，默认10个，超过上限时按上限返回
+     * @return 最近的充电站列表（按距离排序）
+     */
+    @GetMapping("/nearest")
+    public Result<List<StationVO>> getNearestStations(
+            @RequestParam Double latitude,
+            @RequestParam Double longitude,
+            @RequestParam(defaultValue = "10") Integer limit) {
+        validateLocation(latitude, longitude);
+        if (limit <= 0) {
+            throw new IllegalArgumentException("返回数量必须大于0");
+        }
+        List<StationVO> stations = stationService.getNearestStations(latitude, longitude, Math.min(limit, maxLimit));
         return Result.success(stations);
     }
 
@@ -108,4 +146,13 @@ public class ChargingStationController {
         stationService.deleteStation(id);
         return Result.success("删除成功", null);
     }
+
+    /**
+     * 校验经纬度范围
+     */
+    private static void validateLocation(Double latitude, Double longitude) {
+        if (!(latitude >= -90 && latitude <= 90) || !(longitude >= -180 && longitude <= 180)) {
+            throw new IllegalArgumentException("经纬度超出范围");
+        }
+    }
 }
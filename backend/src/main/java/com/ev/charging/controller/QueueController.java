@@ -2,14 +2,20 @@ package com.ev.charging.controller;
 
 import com.ev.charging.common.Result;
 import com.ev.charging.dto.JoinQueueDTO;
+import com.ev.charging.queue.QueueEventStream;
 import com.ev.charging.service.QueueService;
 import com.ev.charging.vo.QueueStatusVO;
 import com.ev.charging.vo.StationQueueInfoVO;
+import com.ev.charging.vo.StationRecommendationVO;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
 
 /**
  * 排队管理控制器
@@ -21,6 +27,7 @@ import org.springframework.web.bind.annotation.*;
 public class QueueController {
 
     private final QueueService queueService;
+    private final QueueEventStream queueEventStream;
 
     /**
      * 加入排队
@@ -69,6 +76,27 @@ public class QueueController {
         }
     }
 
+    /**
+     * 订阅我的排队事件（SSE）：位置、预计等待时间、叫号、即将过期、过号
+     * 浏览器 EventSource 无法设置请求头，Token 可通过 token 参数传递
+     *
+     * @param request HTTP请求
+     * @return SSE连接
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamQueueEvents(HttpServletRequest request) {
+        Long userId = (Long) request.getAttribute("userId");
+        log.info("用户{}订阅排队事件", userId);
+
+        QueueStatusVO current = null;
+        try {
+            current = queueService.getQueueStatus(userId);
+        } catch (IllegalArgumentException e) {
+            // 当前没有排队记录，加入排队后开始推送
+        }
+        return queueEventStream.subscribe(userId, current);
+    }
+
     /**
      * 离开队列
      *
@@ -113,4 +141,34 @@ public class QueueController {
             return Result.error(500, "系统异常，请稍后重试");
         }
     }
+
+    /**
+     * 推荐备选充电站（排队较长时分流）
+     *
+     * @param stationId 原站点ID
+     * @param latitude  用户纬度（可选）
+     * @param longitude 用户经度（可选）
+     * @param limit     返回数量
+     * @return 备选站点
+     */
+    @GetMapping("/station/{stationId}/alternatives")
+    public Result<List<StationRecommendationVO>> getAlternatives(
+            @PathVariable Long stationId,
+            @RequestParam(required = false) Double latitude,
+            @RequestParam(required = false) Double longitude,
+            @RequestParam(defaultValue = "3") Integer limit) {
+        log.info("查询站点{}备选充电站", stationId);
+
+        try {
+            List<StationRecommendationVO> alternatives =
+                    queueService.recommendAlternatives(stationId, latitude, longitude, limit);
+            return Result.success(alternatives);
+        } catch (IllegalArgumentException e) {
+            log.warn("查询备选充电站失败: {}", e.getMessage());
+            return Result.error(404, e.getMessage());
+        } catch (Exception e) {
+            log.error("查询备选充电站异常", e);
+            return Result.error(500, "系统异常，请稍后重试");
+        }
+    }
 }
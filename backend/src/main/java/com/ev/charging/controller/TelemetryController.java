@@ -0,0 +1,54 @@
+package com.ev.charging.controller;
+
+import com.ev.charging.common.Result;
+import com.ev.charging.dto.TelemetryDTO;
+import com.ev.charging.telemetry.TelemetryPipeline;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 充电桩遥测采集控制器
+ */
+@RestController
+@RequestMapping("/piles/telemetry")
+@RequiredArgsConstructor
+public class TelemetryController {
+
+    private final TelemetryPipeline telemetryPipeline;
+
+    /**
+     * 批量上报遥测数据（JSON）
+     *
+     * @param samples 采样列表
+     * @return 接收的条数（缓冲区满时少于上报条数）
+     */
+    @PostMapping
+    public Result<Integer> report(@RequestBody List<TelemetryDTO> samples) {
+        return Result.success(telemetryPipeline.ingest(samples));
+    }
+
+    /**
+     * 批量上报遥测数据（二进制帧，格式见 {@link TelemetryPipeline}）
+     *
+     * @param body 连续的24字节采样
+     * @return 接收的条数（缓冲区满时少于上报条数）
+     */
+    @PostMapping(value = "/frames", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public Result<Integer> reportFrames(@RequestBody byte[] body) {
+        return Result.success(telemetryPipeline.ingestFrames(body));
+    }
+
+    /**
+     * 采集统计
+     *
+     * @return 接收、丢弃、落库数量和积压量
+     */
+    @GetMapping("/stats")
+    public Result<Map<String, Object>> stats() {
+        return Result.success(telemetryPipeline.stats());
+    }
+}
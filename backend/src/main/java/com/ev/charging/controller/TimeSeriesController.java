@@ -0,0 +1,121 @@
+package com.ev.charging.controller;
+
+import com.ev.charging.common.Result;
+import com.ev.charging.dto.EnergyDataDTO;
+import com.ev.charging.tsdb.Aggregation;
+import com.ev.charging.tsdb.EnergySeries;
+import com.ev.charging.tsdb.SeriesData;
+import com.ev.charging.tsdb.SeriesNames;
+import com.ev.charging.tsdb.TimeSeriesStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * 时间序列查询控制器（图表数据）
+ */
+@RestController
+@RequestMapping("/timeseries")
+@RequiredArgsConstructor
+public class TimeSeriesController {
+
+    private static final long DEFAULT_RANGE_MILLIS = 24 * 3600 * 1000L;
+
+    /**
+     * 不降采样时单次查询的最大时间跨度
+     */
+    private static final long MAX_RAW_RANGE_MILLIS = DEFAULT_RANGE_MILLIS;
+
+    private final TimeSeriesStore timeSeriesStore;
+    private final EnergySeries energySeries;
+
+    /**
+     * 查询充电桩遥测序列
+     *
+     * @param pileId 充电桩ID
+     * @param metric 指标：voltage/current/power
+     * @param from   开始时间（毫秒时间戳，默认24小时前）
+     * @param to     结束时间（毫秒时间戳，默认当前）
+     * @param step   降采样步长（毫秒，0表示原始数据，此时范围不超过24小时）
+     * @param agg    聚合方式：avg/min/max/sum/last
+     * @return 序列数据
+     */
+    @GetMapping("/piles/{pileId}")
+    public Result<SeriesData> getPileSeries(@PathVariable Long pileId,
+                                            @RequestParam(defaultValue = "power") String metric,
+                                            @RequestParam(required = false) Long from,
+                                            @RequestParam(required = false) Long to,
+                                            @RequestParam(defaultValue = "0") Long step,
+                                            @RequestParam(defaultValue = "avg") String agg) {
+        return Result.success(query(SeriesNames.pile(pileId, metric), from, to, step, agg));
+    }
+
+    /**
+     * 查询站点能源序列
+     *
+     * @param stationId 站点ID
+     * @param metric    指标：solar_generation/grid_purchase/battery_charge/battery_discharge/battery_soc/total_consumption
+     * @param from      开始时间（毫秒时间戳，默认24小时前）
+     * @param to        结束时间（毫秒时间戳，默认当前）
+     * @param step      降采样步长（毫秒，0表示原始数据，此时范围不超过24小时）
+     * @param agg       聚合方式：avg/min/max/sum/last
+     * @return 序列数据
+     */
+    @GetMapping("/stations/{stationId}")
+    public Result<SeriesData> getStationSeries(@PathVariable Long stationId,
+                                               @RequestParam(defaultValue = "total_consumption") String metric,
+                                               @RequestParam(required = false) Long from,
+                                               @RequestParam(required = false) Long to,
+                                               @RequestParam(defaultValue = "0") Long step,
+                                               @RequestParam(defaultValue = "avg") String agg) {
+        return Result.success(query(SeriesNames.station(stationId, metric), from, to, step, agg));
+    }
+
+    /**
+     * 上报站点能源数据（记录时间须在存储保留期内，且不晚于当前时间）
+     *
+     * @param stationId 站点ID
+     * @param data      能源数据
+     * @return 操作结果
+     */
+    @PostMapping("/stations/{stationId}/energy")
+    public Result<Void> reportEnergy(@PathVariable Long stationId, @RequestBody EnergyDataDTO data) {
+        energySeries.append(stationId, data);
+        return Result.success();
+    }
+
+    /**
+     * 存储统计
+     *
+     * @return 序列数、段文件数、占用字节数等
+     */
+    @GetMapping("/stats")
+    public Result<Map<String, Object>> stats() {
+        return Result.success(timeSeriesStore.stats());
+    }
+
+    private SeriesData query(String series, Long from, Long to, Long step, String agg) {
+        long end = to != null ? to : System.currentTimeMillis();
+        long start = from != null ? from : end - DEFAULT_RANGE_MILLIS;
+        if (start > end) {
+            throw new IllegalArgumentException("开始时间不能晚于结束时间");
+        }
+        if (step == null || step < 0) {
+            throw new IllegalArgumentException("降采样步长不能为负数");
+        }
+        Aggregation aggregation;
+        try {
+            aggregation = Aggregation.valueOf(agg.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("不支持的聚合方式: " + agg);
+        }
+        if (step == 0) {
+            if (end - start > MAX_RAW_RANGE_MILLIS) {
+                throw new IllegalArgumentException("原始数据查询范围不能超过24小时，请指定降采样步长");
+            }
+            return timeSeriesStore.scan(series, start, end);
+        }
+        return timeSeriesStore.downsample(series, start, end, step, aggregation);
+    }
+}
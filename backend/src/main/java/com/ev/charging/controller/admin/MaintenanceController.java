@@ -1,9 +1,11 @@
 package com.ev.charging.controller.admin;
 
+import com.ev.charging.ai.FaultScoringJob;
 import com.ev.charging.common.Result;
 import com.ev.charging.dto.MaintenancePlanDTO;
 import com.ev.charging.entity.MaintenancePlan;
 import com.ev.charging.service.MaintenanceService;
+import com.ev.charging.vo.FaultScoringReportVO;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,6 +26,9 @@ public class MaintenanceController {
     @Autowired
     private MaintenanceService maintenanceService;
 
+    @Autowired
+    private FaultScoringJob faultScoringJob;
+
     /**
      * 创建维护计划
      */
@@ -76,6 +81,16 @@ public class MaintenanceController {
         return Result.success(plans);
     }
 
+    /**
+     * 全量故障风险评分并生成预测性维护计划（当天存在未完成的检查点时从检查点继续）
+     */
+    @PostMapping("/risk-scoring/run")
+    public Result<FaultScoringReportVO> runRiskScoring() {
+        log.info("全量故障风险评分");
+        FaultScoringReportVO report = faultScoringJob.run();
+        return Result.success(report);
+    }
+
     /**
      * 根据充电桩ID获取维护历史
      */
@@ -0,0 +1,35 @@
+package com.ev.charging.controller.admin;
+
+import com.ev.charging.billing.SettlementJob;
+import com.ev.charging.common.Result;
+import com.ev.charging.vo.SettlementReportVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+/**
+ * 批量结算控制器
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/admin/settlement")
+@CrossOrigin(origins = "*")
+public class SettlementController {
+
+    @Autowired
+    private SettlementJob settlementJob;
+
+    /**
+     * 按日期范围批量重新结算已完成订单（存在未完成的检查点时从检查点继续）
+     */
+    @PostMapping("/run")
+    public Result<SettlementReportVO> runSettlement(
+            @RequestParam String startDate,
+            @RequestParam String endDate) {
+        log.info("批量结算: startDate={}, endDate={}", startDate, endDate);
+        SettlementReportVO report = settlementJob.run(LocalDate.parse(startDate), LocalDate.parse(endDate));
+        return Result.success(report);
+    }
+}
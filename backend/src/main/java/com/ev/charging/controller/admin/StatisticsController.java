@@ -7,6 +7,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -84,4 +85,16 @@ public class StatisticsController {
         Map<String, Object> stats = statisticsService.getRevenueStatistics(period);
         return Result.success(stats);
     }
+
+    /**
+     * 重建统计汇总（按日期范围，从订单表重新计算）
+     */
+    @PostMapping("/rollup/rebuild")
+    public Result<Void> rebuildRollups(
+            @RequestParam String startDate,
+            @RequestParam String endDate) {
+        log.info("重建统计汇总: startDate={}, endDate={}", startDate, endDate);
+        statisticsService.rebuildRollups(LocalDate.parse(startDate), LocalDate.parse(endDate));
+        return Result.success("重建成功", null);
+    }
 }
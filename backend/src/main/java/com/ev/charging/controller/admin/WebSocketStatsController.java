@@ -0,0 +1,48 @@
+package com.ev.charging.controller.admin;
+
+import com.ev.charging.cluster.ClusterEventRelay;
+import com.ev.charging.common.Result;
+import com.ev.charging.websocket.PileStatusStream;
+import com.ev.charging.websocket.SubscriptionRegistry;
+import com.ev.charging.websocket.WebSocketPublisher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * WebSocket推送统计控制器
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/admin/websocket")
+@CrossOrigin(origins = "*")
+public class WebSocketStatsController {
+
+    @Autowired
+    private WebSocketPublisher webSocketPublisher;
+
+    @Autowired
+    private PileStatusStream pileStatusStream;
+
+    @Autowired
+    private SubscriptionRegistry subscriptionRegistry;
+
+    @Autowired
+    private ClusterEventRelay clusterEventRelay;
+
+    /**
+     * 本节点推送统计：会话与订阅数、发送/丢弃消息数、状态变更数与合并后的帧数、跨节点转发计数
+     */
+    @GetMapping("/stats")
+    public Result<Map<String, Object>> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("subscriptions", subscriptionRegistry.stats());
+        stats.put("publisher", webSocketPublisher.stats());
+        stats.put("statusStream", pileStatusStream.stats());
+        stats.put("relay", clusterEventRelay.stats());
+        return Result.success(stats);
+    }
+}
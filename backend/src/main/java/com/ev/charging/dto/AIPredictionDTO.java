@@ -92,6 +92,11 @@ public class AIPredictionDTO {
          */
         @JsonProperty("estimated_cost")
         private BigDecimal estimatedCost;
+
+        /**
+         * 预测来源：jvm-进程内模型，remote-AI服务，local-本地解析模型（前两者都不可用时）
+         */
+        private String source;
     }
 
     /**
@@ -190,6 +195,11 @@ public class AIPredictionDTO {
          */
         private String riskLevel;
 
+        /**
+         * 预测来源：remote-AI服务，local-本地规则（AI服务不可用时）
+         */
+        private String source;
+
         /**
          * 根据故障概率计算风险等级
          */
@@ -209,4 +219,59 @@ public class AIPredictionDTO {
             }
         }
     }
+
+    /**
+     * 批量故障预测请求（列式：各数组等长，下标对应同一充电桩）
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FaultBatchRequest implements Serializable {
+        @JsonProperty("total_charge_count")
+        private int[] totalChargeCount;
+
+        @JsonProperty("total_charge_amount")
+        private double[] totalChargeAmount;
+
+        @JsonProperty("days_since_last_maintenance")
+        private int[] daysSinceLastMaintenance;
+
+        @JsonProperty("health_score")
+        private int[] healthScore;
+
+        @JsonProperty("avg_daily_usage")
+        private double[] avgDailyUsage;
+
+        @JsonProperty("voltage_fluctuation")
+        private double[] voltageFluctuation;
+
+        @JsonProperty("fault_history_count")
+        private int[] faultHistoryCount;
+    }
+
+    /**
+     * 批量故障预测响应
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FaultBatchResponse implements Serializable {
+        /**
+         * 故障概率 (0-100)，顺序与请求一致
+         */
+        @JsonProperty("fault_probability")
+        private double[] faultProbability;
+    }
+
+    /**
+     * AI服务统一响应包装 {code, message, data}
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ServiceResponse<T> implements Serializable {
+        private Integer code;
+        private String message;
+        private T data;
+    }
 }
@@ -0,0 +1,51 @@
+package com.ev.charging.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 站点能源数据DTO（字段与 energy_data 表一致）
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EnergyDataDTO {
+
+    /**
+     * 记录时间（毫秒时间戳，为空时取服务端接收时间）
+     */
+    private Long recordTime;
+
+    /**
+     * 光伏发电量（kWh）
+     */
+    private Double solarGeneration;
+
+    /**
+     * 电网购电量（kWh）
+     */
+    private Double gridPurchase;
+
+    /**
+     * 储能充电量（kWh）
+     */
+    private Double batteryCharge;
+
+    /**
+     * 储能放电量（kWh）
+     */
+    private Double batteryDischarge;
+
+    /**
+     * 储能电池电量百分比
+     */
+    private Double batterySoc;
+
+    /**
+     * 总消耗电量（kWh）
+     */
+    private Double totalConsumption;
+}
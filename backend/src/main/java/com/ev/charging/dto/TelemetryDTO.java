@@ -0,0 +1,36 @@
+package com.ev.charging.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 充电桩遥测采样DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TelemetryDTO {
+
+    /**
+     * 充电桩ID
+     */
+    private Long pileId;
+
+    /**
+     * 电压（V）
+     */
+    private Integer voltage;
+
+    /**
+     * 电流（A）
+     */
+    private Double current;
+
+    /**
+     * 采样时间（毫秒时间戳，为空时取服务端接收时间）
+     */
+    private Long sampleTime;
+}
@@ -50,9 +50,9 @@ public class QueueRecord {
     private Long pileId;
 
     /**
-     * 排队号
+     * 排队号（站点ID-日期-序号，唯一）
      */
-    @Column(name = "queue_no", nullable = false, length = 20)
+    @Column(name = "queue_no", nullable = false, unique = true, length = 20)
     private String queueNo;
 
     /**
@@ -68,7 +68,7 @@ public class QueueRecord {
     private Integer estimatedWaitTime;
 
     /**
-     * 状态：0-排队中 1-已叫号 2-已过号 3-已取消
+     * 状态：0-排队中 1-已叫号 2-已过号 3-已取消 4-已完成（叫号后开始充电）
      */
     @Column(name = "status", nullable = false)
     private Byte status;
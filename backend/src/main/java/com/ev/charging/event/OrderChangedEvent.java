@@ -0,0 +1,60 @@
+package com.ev.charging.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 订单状态变更事件
+ * 统计汇总按订单创建时间归属时段，因此事件携带订单的创建时间而非发生时间
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class OrderChangedEvent {
+
+    /**
+     * 变更类型
+     */
+    public enum Type {
+        /**
+         * 创建订单（开始充电）
+         */
+        CREATED,
+        /**
+         * 结束充电
+         */
+        COMPLETED,
+        /**
+         * 取消订单
+         */
+        CANCELLED,
+        /**
+         * 支付订单
+         */
+        PAID
+    }
+
+    private final Type type;
+
+    private final Long orderId;
+
+    private final Long stationId;
+
+    private final Long pileId;
+
+    private final LocalDateTime orderCreateTime;
+
+    /**
+     * 充电量（kWh），结束充电时有效
+     */
+    private final BigDecimal chargeAmount;
+
+    /**
+     * 订单总金额（元），结束充电、支付时有效
+     */
+    private final BigDecimal totalFee;
+}
@@ -0,0 +1,41 @@
+package com.ev.charging.event;
+
+import com.ev.charging.entity.ChargeOrder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * 订单事件发布器
+ * 订单创建、结束、取消、支付时发布事件，统计汇总等监听器在事务提交后处理
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderEventPublisher {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * 发布订单变更事件
+     *
+     * @param type  变更类型
+     * @param order 变更后的订单
+     */
+    public void orderChanged(OrderChangedEvent.Type type, ChargeOrder order) {
+        OrderChangedEvent event = new OrderChangedEvent(
+                type,
+                order.getId(),
+                order.getStationId(),
+                order.getPileId(),
+                order.getCreateTime() != null ? order.getCreateTime() : LocalDateTime.now(),
+                order.getChargeAmount(),
+                order.getTotalFee()
+        );
+        log.debug("发布订单变更事件: {}", event);
+        eventPublisher.publishEvent(event);
+    }
+}
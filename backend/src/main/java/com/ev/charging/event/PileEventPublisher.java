@@ -0,0 +1,50 @@
+package com.ev.charging.event;
+
+import com.ev.charging.entity.ChargingPile;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * 充电桩事件发布器
+ * 所有修改充电桩状态的地方都通过这里发布事件，监听器在事务提交后异步处理
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PileEventPublisher {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * 发布充电桩状态变更事件（状态未变化时不发布）
+     *
+     * @param pile      变更后的充电桩
+     * @param oldStatus 变更前状态
+     */
+    public void statusChanged(ChargingPile pile, Byte oldStatus) {
+        statusChanged(pile.getId(), pile.getStationId(), oldStatus, pile.getStatus());
+    }
+
+    /**
+     * 发布充电桩状态变更事件（状态未变化时不发布）
+     *
+     * @param pileId    充电桩ID
+     * @param stationId 充电站ID
+     * @param oldStatus 变更前状态
+     * @param newStatus 变更后状态
+     */
+    public void statusChanged(Long pileId, Long stationId, Byte oldStatus, Byte newStatus) {
+        if (Objects.equals(oldStatus, newStatus)) {
+            return;
+        }
+        PileStatusChangedEvent event = new PileStatusChangedEvent(
+                pileId, stationId, oldStatus, newStatus, LocalDateTime.now(), false);
+        log.debug("发布充电桩状态变更事件: {}", event);
+        eventPublisher.publishEvent(event);
+    }
+}
@@ -0,0 +1,46 @@
+package com.ev.charging.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * 充电桩状态变更事件
+ * 状态：1空闲 2充电中 3预约中 4故障 5离线；新建充电桩时 oldStatus 为null，删除时 newStatus 为null
+ * 其他节点的变更由 {@link PileStatusClusterSync} 重新发布为 remote 事件，本地监听器统一处理
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class PileStatusChangedEvent {
+
+    /**
+     * 空闲状态
+     */
+    public static final byte STATUS_FREE = 1;
+
+    private final Long pileId;
+
+    private final Long stationId;
+
+    private final Byte oldStatus;
+
+    private final Byte newStatus;
+
+    private final LocalDateTime occurredAt;
+
+    /**
+     * 是否由其他节点转发而来（自动叫号等只应执行一次的处理由发生变更的节点负责，不再转发）
+     */
+    private final boolean remote;
+
+    /**
+     * 是否由非空闲变为空闲
+     */
+    public boolean becameFree() {
+        return newStatus != null && newStatus == STATUS_FREE
+                && (oldStatus == null || oldStatus != STATUS_FREE);
+    }
+}
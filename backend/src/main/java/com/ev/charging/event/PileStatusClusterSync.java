@@ -0,0 +1,68 @@
+package com.ev.charging.event;
+
+import com.ev.charging.cluster.ClusterEvent;
+import com.ev.charging.cluster.ClusterEventRelay;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 充电桩状态变更跨节点同步
+ * 本节点的变更在事务提交后转发到其他节点；其他节点的变更重新发布为 remote 事件，
+ * 状态计数、释放时间推演、状态推送等本地监听器统一处理，自动叫号只在发生变更的节点执行
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PileStatusClusterSync {
+
+    private final ClusterEventRelay relay;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostConstruct
+    public void registerRelayHandler() {
+        relay.on(ClusterEventRelay.TYPE_PILE_STATUS, this::onRemotePileStatusChanged);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPileStatusChanged(PileStatusChangedEvent event) {
+        if (event.isRemote() || event.getStationId() == null) {
+            return;
+        }
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("pileId", event.getPileId());
+        payload.put("oldStatus", event.getOldStatus());
+        payload.put("newStatus", event.getNewStatus());
+        relay.publish(ClusterEventRelay.TYPE_PILE_STATUS, event.getStationId(), payload);
+    }
+
+    private void onRemotePileStatusChanged(ClusterEvent event) {
+        Map<String, Object> payload = event.getPayload();
+        PileStatusChangedEvent changed = new PileStatusChangedEvent(
+                toLong(payload.get("pileId")),
+                event.getStationId(),
+                toByte(payload.get("oldStatus")),
+                toByte(payload.get("newStatus")),
+                LocalDateTime.now(),
+                true
+        );
+        log.debug("收到其他节点充电桩状态变更: {}", changed);
+        eventPublisher.publishEvent(changed);
+    }
+
+    private static Long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : null;
+    }
+
+    private static Byte toByte(Object value) {
+        return value != null ? ((Number) value).byteValue() : null;
+    }
+}
@@ -0,0 +1,71 @@
+package com.ev.charging.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * 排队变更事件
+ * 加入、离开、叫号、过号、叫号后开始充电时发布，推送与跨节点同步在事务提交后处理；
+ * 其他节点的变更由 {@link com.ev.charging.queue.QueueClusterSync} 重新发布为 remote 事件，本地监听器统一处理
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class QueueChangedEvent {
+
+    /**
+     * 变更类型
+     */
+    public enum Type {
+        /**
+         * 加入排队
+         */
+        JOINED,
+        /**
+         * 离开排队
+         */
+        LEFT,
+        /**
+         * 已叫号
+         */
+        CALLED,
+        /**
+         * 已过号
+         */
+        EXPIRED,
+        /**
+         * 已完成（叫号后开始充电）
+         */
+        COMPLETED
+    }
+
+    private final Type type;
+
+    private final Long recordId;
+
+    private final Long stationId;
+
+    private final Long userId;
+
+    private final String queueNo;
+
+    /**
+     * 叫号分配的充电桩ID，叫号及之后的过号、离开、完成时有效
+     */
+    private final Long pileId;
+
+    /**
+     * 叫号过期时间，叫号时有效
+     */
+    private final LocalDateTime expireTime;
+
+    private final LocalDateTime occurredAt;
+
+    /**
+     * 是否由其他节点转发而来（本节点已按数据库重建站点队列，不再转发）
+     */
+    private final boolean remote;
+}
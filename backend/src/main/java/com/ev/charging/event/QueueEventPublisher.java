@@ -0,0 +1,42 @@
+package com.ev.charging.event;
+
+import com.ev.charging.entity.QueueRecord;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * 排队事件发布器
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class QueueEventPublisher {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * 发布排队变更事件
+     *
+     * @param type   变更类型
+     * @param record 变更后的排队记录
+     */
+    public void queueChanged(QueueChangedEvent.Type type, QueueRecord record) {
+        QueueChangedEvent event = new QueueChangedEvent(
+                type,
+                record.getId(),
+                record.getStationId(),
+                record.getUserId(),
+                record.getQueueNo(),
+                record.getPileId(),
+                record.getExpireTime(),
+                LocalDateTime.now(),
+                false
+        );
+        log.debug("发布排队变更事件: {}", event);
+        eventPublisher.publishEvent(event);
+    }
+}
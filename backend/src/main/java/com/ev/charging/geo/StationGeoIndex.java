@@ -0,0 +1,357 @@
+package com.ev.charging.geo;
+
+import com.ev.charging.catalog.CatalogCache;
+import com.ev.charging.catalog.StationSnapshot;
+import com.ev.charging.util.DistanceUtil;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 充电站空间索引
+ * 按经纬度把营业中的充电站划分到固定大小的网格中，支持半径查询和K近邻查询，
+ * 附近充电站查询不再访问数据库。数据由 {@link CatalogCache} 加载并在充电站变化时增量刷新。
+ * 网格列号按经度一周（360度）取模，查询范围的行列数按纬度[-90, 90]、经度一周封顶，
+ * 半径再大或纬度接近两极时也只扫描有限个网格。
+ */
+@Slf4j
+@Component
+public class StationGeoIndex {
+
+    /**
+     * 网格边长（度），约5.5公里
+     */
+    private static final double CELL_DEGREES = 0.05;
+
+    /**
+     * 纬度1度对应的距离（千米）
+     */
+    private static final double KM_PER_DEGREE = 111.0;
+
+    /**
+     * K近邻查询最多向外扩展的网格圈数（约1100公里）
+     */
+    private static final int MAX_RINGS = 200;
+
+    /**
+     * 经度一周的网格列数
+     */
+    private static final long COLUMNS = Math.round(360 / CELL_DEGREES);
+
+    private static final long MIN_ROW = cellOf(-90);
+    private static final long MAX_ROW = cellOf(90);
+
+    /**
+     * 网格 -> 网格内的充电站（写时复制，不可变）
+     */
+    private final Map<Long, Cell> cells = new ConcurrentHashMap<>();
+
+    /**
+     * 充电站ID -> 索引条目
+     */
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    private volatile boolean ready;
+
+    /**
+     * 全量加载
+     *
+     * @param stations 充电站快照
+     */
+    public synchronized void load(Collection<StationSnapshot> stations) {
+        stations.forEach(this::upsert);
+        ready = true;
+        log.info("充电站空间索引加载完成，营业中充电站数：{}", entries.size());
+    }
+
+    /**
+     * 索引是否已加载
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 新增或更新充电站；非营业状态的充电站从索引中移除
+     *
+     * @param station 充电站快照
+     */
+    public synchronized void upsert(StationSnapshot station) {
+        remove(station.getId());
+        if (!station.isActive() || station.getLatitude() == null || station.getLongitude() == null) {
+            return;
+        }
+
+        Entry entry = new Entry(station, station.getLatitude(), station.getLongitude(),
+                cellKey(cellOf(station.getLatitude()), cellOf(station.getLongitude())));
+        entries.put(station.getId(), entry);
+        cells.compute(entry.cellKey, (key, cell) -> cell == null ? Cell.of(entry) : cell.with(entry));
+    }
+
+    /**
+     * 从索引中移除充电站
+     *
+     * @param stationId 充电站ID
+     */
+    public synchronized void remove(Long stationId) {
+        Entry entry = entries.remove(stationId);
+        if (entry != null) {
+            cells.computeIfPresent(entry.cellKey, (key, cell) -> cell.without(entry));
+        }
+    }
+
+    /**
+     * 半径查询
+     *
+     * @param latitude  中心纬度
+     * @param longitude 中心经度
+     * @param radiusKm  半径（千米）
+     * @return 半径内的充电站，按距离升序
+     */
+    public List<Hit> withinRadius(double latitude, double longitude, double radiusKm) {
+        List<Hit> hits = new ArrayList<>();
+        if (!(radiusKm > 0)) {
+            return hits;
+        }
+        double latDelta = radiusKm / KM_PER_DEGREE;
+        double lonDelta = radiusKm / (KM_PER_DEGREE * Math.max(Math.cos(Math.toRadians(latitude)), 1e-6));
+
+        long minRow = Math.max(cellOf(latitude - latDelta), MIN_ROW);
+        long maxRow = Math.min(cellOf(latitude + latDelta), MAX_ROW);
+        long minCol;
+        long maxCol;
+        if (lonDelta >= 180) {
+            minCol = 0;
+            maxCol = COLUMNS - 1;
+        } else {
+            minCol = cellOf(longitude - lonDelta);
+            maxCol = Math.min(cellOf(longitude + lonDelta), minCol + COLUMNS - 1);
+        }
+
+        Query query = new Query(latitude, longitude, radiusKm, hits);
+        if ((maxRow - minRow + 1) * (maxCol - minCol + 1) > cells.size()) {
+            // 查询范围的网格数多于非空网格数时，直接遍历非空网格
+            long rowCount = maxRow - minRow + 1;
+            long colCount = maxCol - minCol + 1;
+            cells.forEach((key, cell) -> {
+                long row = key >> 32;
+                long col = Math.floorMod((key & 0xffffffffL) - minCol, COLUMNS);
+                if (row - minRow >= 0 && row - minRow < rowCount && col < colCount) {
+                    query.scan(cell);
+                }
+            });
+        } else {
+            for (long row = minRow; row <= maxRow; row++) {
+                for (long col = minCol; col <= maxCol; col++) {
+                    Cell cell = cells.get(cellKey(row, col));
+                    if (cell != null) {
+                        query.scan(cell);
+                    }
+                }
+            }
+        }
+
+        hits.sort(Comparator.comparingDouble(Hit::getDistance));
+        return hits;
+    }
+
+    /**
+     * K近邻查询：从中心网格逐圈向外扩展，直到下一圈不可能出现更近的充电站
+     *
+     * @param latitude  中心纬度
+     * @param longitude 中心经度
+     * @param k         返回数量
+     * @return 最近的k个充电站，按距离升序
+     */
+    public List<Hit> nearest(double latitude, double longitude, int k) {
+        if (k <= 0 || entries.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        long centerRow = cellOf(latitude);
+        long centerCol = cellOf(longitude);
+
+        // 大顶堆保存当前最近的k个；k超过充电站总数时按总数分配
+        PriorityQueue<Hit> best = new PriorityQueue<>(Math.max(Math.min(k, entries.size()), 1),
+                Comparator.comparingDouble(Hit::getDistance).reversed());
+        double[] distanceBuf = new double[0];
+
+        for (int ring = 0; ring <= MAX_RINGS; ring++) {
+            // 第ring圈的网格与中心点的最小可能距离
+            if (best.size() == k && ringLowerBoundKm(latitude, ring) > best.peek().getDistance()) {
+                break;
+            }
+            for (long row = centerRow - ring; row <= centerRow + ring; row++) {
+                boolean edgeRow = row == centerRow - ring || row == centerRow + ring;
+                int step = edgeRow ? 1 : Math.max(2 * ring, 1);
+                for (long col = centerCol - ring; col <= centerCol + ring; col += step) {
+                    Cell cell = cells.get(cellKey(row, col));
+                    if (cell == null) {
+                        continue;
+                    }
+                    int count = cell.entries.length;
+                    if (distanceBuf.length < count) {
+                        distanceBuf = new double[count];
+                    }
+                    DistanceUtil.distances(latitude, longitude, cell.latitudes, cell.longitudes, count, distanceBuf);
+                    for (int i = 0; i < count; i++) {
+                        double distance = distanceBuf[i];
+                        if (best.size() < k) {
+                            best.offer(new Hit(cell.entries[i].station, distance));
+                        } else if (distance < best.peek().getDistance()) {
+                            best.poll();
+                            best.offer(new Hit(cell.entries[i].station, distance));
+                        }
+                    }
+                }
+            }
+            if (best.size() == entries.size()) {
+                break;
+            }
+        }
+
+        List<Hit> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(Hit::getDistance));
+        return result;
+    }
+
+    /**
+     * 索引中的充电站数量
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 第ring圈网格到中心点的距离下界（千米）
+     * 经度方向按该圈可能到达的最高纬度计算，保证不会高估
+     */
+    private double ringLowerBoundKm(double latitude, int ring) {
+        if (ring <= 1) {
+            return 0;
+        }
+        double maxLat = Math.min(Math.abs(latitude) + ring * CELL_DEGREES, 89.0);
+        double cellKm = CELL_DEGREES * KM_PER_DEGREE * Math.cos(Math.toRadians(maxLat));
+        return (ring - 1) * cellKm;
+    }
+
+    private static long cellOf(double degrees) {
+        return (long) Math.floor(degrees / CELL_DEGREES);
+    }
+
+    /**
+     * 网格键：高32位为行号，低32位为按一周取模后的列号
+     */
+    private static long cellKey(long row, long col) {
+        return (row << 32) | Math.floorMod(col, COLUMNS);
+    }
+
+    /**
+     * 半径查询的状态：复用下标与距离缓冲区
+     */
+    private static final class Query {
+
+        private final double latitude;
+        private final double longitude;
+        private final double radiusKm;
+        private final List<Hit> hits;
+
+        private int[] indexBuf = new int[0];
+        private double[] distanceBuf = new double[0];
+
+        Query(double latitude, double longitude, double radiusKm, List<Hit> hits) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.radiusKm = radiusKm;
+            this.hits = hits;
+        }
+
+        void scan(Cell cell) {
+            int count = cell.entries.length;
+            if (indexBuf.length < count) {
+                indexBuf = new int[count];
+                distanceBuf = new double[count];
+            }
+            int matched = DistanceUtil.withinRadius(latitude, longitude, cell.latitudes, cell.longitudes,
+                    count, radiusKm, indexBuf, distanceBuf);
+            for (int i = 0; i < matched; i++) {
+                hits.add(new Hit(cell.entries[indexBuf[i]].station, distanceBuf[i]));
+            }
+        }
+    }
+
+    /**
+     * 索引条目
+     */
+    @AllArgsConstructor
+    private static final class Entry {
+
+        private final StationSnapshot station;
+        private final double latitude;
+        private final double longitude;
+        private final long cellKey;
+    }
+
+    /**
+     * 网格：条目与坐标按列存放，便于批量计算距离
+     */
+    private static final class Cell {
+
+        private final Entry[] entries;
+        private final double[] latitudes;
+        private final double[] longitudes;
+
+        private Cell(Entry[] entries) {
+            this.entries = entries;
+            this.latitudes = new double[entries.length];
+            this.longitudes = new double[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                latitudes[i] = entries[i].latitude;
+                longitudes[i] = entries[i].longitude;
+            }
+        }
+
+        static Cell of(Entry entry) {
+            return new Cell(new Entry[]{entry});
+        }
+
+        Cell with(Entry entry) {
+            Entry[] copy = Arrays.copyOf(entries, entries.length + 1);
+            copy[entries.length] = entry;
+            return new Cell(copy);
+        }
+
+        Cell without(Entry entry) {
+            Entry[] copy = Arrays.stream(entries).filter(e -> e != entry).toArray(Entry[]::new);
+            return copy.length == 0 ? null : new Cell(copy);
+        }
+    }
+
+    /**
+     * 查询结果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class Hit {
+
+        /**
+         * 充电站快照
+         */
+        private final StationSnapshot station;
+
+        /**
+         * 距离（千米）
+         */
+        private final double distance;
+    }
+}
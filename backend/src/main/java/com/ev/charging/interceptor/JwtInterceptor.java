@@ -17,6 +17,11 @@ import org.springframework.web.servlet.HandlerInterceptor;
 @RequiredArgsConstructor
 public class JwtInterceptor implements HandlerInterceptor {
 
+    /**
+     * 排队事件推送（SSE）路径，只有这个接口允许通过 token 参数携带Token
+     */
+    private static final String EVENT_STREAM_PATH = "/queue/stream";
+
     private final JwtUtil jwtUtil;
 
     /**
@@ -32,6 +37,11 @@ public class JwtInterceptor implements HandlerInterceptor {
         // 获取请求头中的Token
         String token = request.getHeader("Authorization");
 
+        // EventSource 无法设置请求头，排队事件流接口允许通过 token 参数携带
+        if (token == null && isEventStream(request) && request.getParameter("token") != null) {
+            token = "Bearer " + request.getParameter("token");
+        }
+
         // 如果Token为空或格式不正确
         if (token == null || !token.startsWith("Bearer ")) {
             log.warn("请求未携带有效Token: {} {}", request.getMethod(), request.getRequestURI());
@@ -76,4 +86,11 @@ public class JwtInterceptor implements HandlerInterceptor {
 
         return true;
     }
+
+    private static boolean isEventStream(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String accept = request.getHeader("Accept");
+        return "GET".equals(request.getMethod()) && EVENT_STREAM_PATH.equals(path)
+                && accept != null && accept.contains("text/event-stream");
+    }
 }
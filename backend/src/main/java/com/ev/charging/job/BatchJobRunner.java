@@ -0,0 +1,43 @@
+package com.ev.charging.job;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+
+/**
+ * 批处理任务执行器
+ * 夜间结算、评分、重建等长任务由定时方法提交到独立线程池执行，定时方法立即返回，
+ * 不占用各组件共享的调度线程（状态推送合并、遥测落库等短周期任务）。
+ */
+@Slf4j
+@Component
+public class BatchJobRunner {
+
+    private final TaskExecutor executor;
+
+    public BatchJobRunner(@Qualifier("batchJobExecutor") TaskExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * 提交任务，线程池已满时跳过本次执行
+     *
+     * @param name 任务名（用于日志）
+     * @param job  任务
+     */
+    public void submit(String name, Runnable job) {
+        try {
+            executor.execute(() -> {
+                try {
+                    job.run();
+                } catch (Exception e) {
+                    log.error("{}失败", name, e);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            log.warn("批处理线程池已满，跳过{}", name);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.ev.charging.job;
+
+import com.ev.charging.cluster.ClusterJobLock;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 带检查点的键集分页批处理
+ * 按主键升序逐页读取，每页的写入与检查点在同一事务内提交，中断后从检查点继续；每页提交后续约任务锁。
+ * 检查点表：job_name 主键、已处理的最大ID列、processed_count、任务自定义的计数列、status（0运行中 1已完成）、update_time。
+ */
+@Slf4j
+public class CheckpointedBatch {
+
+    /**
+     * 检查点状态：0运行中 1已完成
+     */
+    private static final byte STATUS_RUNNING = 0;
+    private static final byte STATUS_DONE = 1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String selectSql;
+    private final String upsertSql;
+    private final int counterCount;
+
+    /**
+     * @param table          检查点表
+     * @param lastIdColumn   已处理的最大ID列
+     * @param counterColumns 任务自定义的计数列，顺序与 {@link PageWriter#write()} 返回的增量一致
+     */
+    public CheckpointedBatch(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                             String table, String lastIdColumn, String... counterColumns) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.counterCount = counterColumns.length;
+
+        List<String> columns = new ArrayList<>();
+        columns.add(lastIdColumn);
+        columns.add("processed_count");
+        columns.addAll(Arrays.asList(counterColumns));
+        String columnList = String.join(", ", columns);
+        this.selectSql = "SELECT " + columnList + ", status FROM " + table + " WHERE job_name = ?";
+        this.upsertSql = "INSERT INTO " + table + " (job_name, " + columnList + ", status, update_time) " +
+                "VALUES (?, " + "?, ".repeat(columns.size()) + "?, NOW()) " +
+                "ON DUPLICATE KEY UPDATE " +
+                columns.stream().map(column -> column + " = VALUES(" + column + ")").collect(Collectors.joining(", ")) +
+                ", status = VALUES(status), update_time = NOW()";
+    }
+
+    /**
+     * 执行任务，存在未完成的检查点时从检查点继续
+     *
+     * @param jobName  任务名（检查点主键）
+     * @param pageSize 每页条数，读到不足一页时结束
+     * @param lease    任务锁租约
+     * @param handler  分页读取与处理
+     * @return 执行结果
+     */
+    public Result run(String jobName, int pageSize, ClusterJobLock.Lease lease, PageHandler handler) {
+        Progress progress = loadCheckpoint(jobName);
+        long resumedFrom = progress.lastId;
+        if (resumedFrom > 0) {
+            log.info("批处理从检查点继续: job={}, lastId={}", jobName, resumedFrom);
+        }
+
+        long startNanos = System.nanoTime();
+        long processedThisRun = 0;
+
+        while (true) {
+            int count = handler.load(progress.lastId);
+            if (count == 0) {
+                break;
+            }
+
+            PageWriter writer = handler.process(count);
+            long lastId = handler.lastId(count);
+            Progress current = progress;
+
+            progress = transactionTemplate.execute(status -> {
+                Progress next = current.advance(lastId, count, writer.write());
+                save(jobName, next, STATUS_RUNNING);
+                return next;
+            });
+            processedThisRun += count;
+
+            log.debug("批处理进度: job={}, lastId={}, processed={}", jobName, lastId, progress.processed);
+            if (count < pageSize) {
+                break;
+            }
+            if (!lease.renew()) {
+                throw new RuntimeException("任务锁已失效，任务中止，下次从检查点继续: job=" + jobName);
+            }
+        }
+
+        save(jobName, progress, STATUS_DONE);
+
+        long elapsedMillis = Math.max((System.nanoTime() - startNanos) / 1_000_000, 1);
+        return new Result(resumedFrom, progress, elapsedMillis, processedThisRun * 1000.0 / elapsedMillis);
+    }
+
+    private Progress loadCheckpoint(String jobName) {
+        // 列顺序与 selectSql 一致：最大ID、processed_count、计数列、status
+        List<Progress> rows = jdbcTemplate.query(selectSql, (rs, rowNum) -> {
+            if (rs.getByte(counterCount + 3) != STATUS_RUNNING) {
+                return null;
+            }
+            long[] counters = new long[counterCount];
+            for (int i = 0; i < counterCount; i++) {
+                counters[i] = rs.getLong(i + 3);
+            }
+            return new Progress(rs.getLong(1), rs.getLong(2), counters);
+        }, jobName);
+        if (rows.isEmpty() || rows.get(0) == null) {
+            return new Progress(0, 0, new long[counterCount]);
+        }
+        return rows.get(0);
+    }
+
+    private void save(String jobName, Progress progress, byte status) {
+        Object[] args = new Object[counterCount + 4];
+        args[0] = jobName;
+        args[1] = progress.lastId;
+        args[2] = progress.processed;
+        for (int i = 0; i < counterCount; i++) {
+            args[i + 3] = progress.counters[i];
+        }
+        args[counterCount + 3] = status;
+        jdbcTemplate.update(upsertSql, args);
+    }
+
+    /**
+     * 批量更新影响的行数（驱动重写批量语句时返回 SUCCESS_NO_INFO，按1行计）
+     */
+    public static int affectedRows(int[] counts) {
+        int affected = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                affected += count;
+            } else if (count == Statement.SUCCESS_NO_INFO) {
+                affected++;
+            }
+        }
+        return affected;
+    }
+
+    /**
+     * 分页读取与处理（实现方通常是复用整个任务的列式缓冲区）
+     */
+    public interface PageHandler {
+
+        /**
+         * 读取ID大于 afterId 的下一页
+         *
+         * @return 本页条数
+         */
+        int load(long afterId);
+
+        /**
+         * 本页最大ID
+         */
+        long lastId(int count);
+
+        /**
+         * 处理一页（事务外），返回需要与检查点一起提交的写入
+         */
+        PageWriter process(int count);
+    }
+
+    /**
+     * 一页的写入，在检查点事务内执行
+     */
+    @FunctionalInterface
+    public interface PageWriter {
+
+        /**
+         * @return 各计数列本页的增量
+         */
+        long[] write();
+    }
+
+    /**
+     * 进度（与检查点对应）
+     */
+    private static final class Progress {
+
+        private final long lastId;
+        private final long processed;
+        private final long[] counters;
+
+        private Progress(long lastId, long processed, long[] counters) {
+            this.lastId = lastId;
+            this.processed = processed;
+            this.counters = counters;
+        }
+
+        private Progress advance(long lastId, int count, long[] deltas) {
+            long[] next = counters.clone();
+            for (int i = 0; i < next.length; i++) {
+                next[i] += deltas[i];
+            }
+            return new Progress(lastId, processed + count, next);
+        }
+    }
+
+    /**
+     * 执行结果
+     */
+    @Getter
+    public static final class Result {
+
+        /**
+         * 本次从哪个ID之后继续（0表示从头开始）
+         */
+        private final long resumedFromId;
+
+        private final long elapsedMillis;
+
+        /**
+         * 本次执行的吞吐（条/秒）
+         */
+        private final double perSecond;
+
+        @Getter(AccessLevel.NONE)
+        private final Progress progress;
+
+        private Result(long resumedFromId, Progress progress, long elapsedMillis, double perSecond) {
+            this.resumedFromId = resumedFromId;
+            this.progress = progress;
+            this.elapsedMillis = elapsedMillis;
+            this.perSecond = perSecond;
+        }
+
+        public long getProcessed() {
+            return progress.processed;
+        }
+
+        /**
+         * 计数列的累计值
+         *
+         * @param index 计数列下标（与构造时的顺序一致）
+         */
+        public long getCounter(int index) {
+            return progress.counters[index];
+        }
+    }
+}
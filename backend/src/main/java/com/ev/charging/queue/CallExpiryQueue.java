@@ -0,0 +1,112 @@
+package com.ev.charging.queue;
+
+import com.ev.charging.entity.QueueRecord;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 叫号到期队列
+ * 基于 {@link DelayQueue} 按每张叫号票的过期时间精确触发，取代每分钟全表扫描
+ */
+@Component
+public class CallExpiryQueue {
+
+    private final DelayQueue<CallTicket> delayQueue = new DelayQueue<>();
+
+    /**
+     * 排队记录ID -> 叫号票，避免重复登记
+     */
+    private final Map<Long, CallTicket> tickets = new ConcurrentHashMap<>();
+
+    /**
+     * 登记叫号票；处于事务中时在事务提交后登记
+     *
+     * @param record 已叫号的排队记录
+     */
+    public void schedule(QueueRecord record) {
+        if (record.getExpireTime() == null) {
+            return;
+        }
+        CallTicket ticket = new CallTicket(record.getId(), record.getStationId(), record.getPileId(),
+                record.getExpireTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    offer(ticket);
+                }
+            });
+        } else {
+            offer(ticket);
+        }
+    }
+
+    /**
+     * 阻塞等待至少一张到期的叫号票，并顺带取出其余已到期的票
+     *
+     * @param maxBatch 单批最大数量
+     * @return 到期的叫号票
+     * @throws InterruptedException 线程被中断
+     */
+    public List<CallTicket> takeExpired(int maxBatch) throws InterruptedException {
+        List<CallTicket> batch = new ArrayList<>();
+        batch.add(delayQueue.take());
+        delayQueue.drainTo(batch, maxBatch - 1);
+        batch.forEach(ticket -> tickets.remove(ticket.getRecordId(), ticket));
+        return batch;
+    }
+
+    /**
+     * 当前登记的叫号票数量
+     */
+    public int size() {
+        return tickets.size();
+    }
+
+    private void offer(CallTicket ticket) {
+        if (tickets.putIfAbsent(ticket.getRecordId(), ticket) == null) {
+            delayQueue.offer(ticket);
+        }
+    }
+
+    /**
+     * 叫号票
+     */
+    @Getter
+    public static final class CallTicket implements Delayed {
+
+        private final Long recordId;
+        private final Long stationId;
+        private final Long pileId;
+        private final long expireAtMillis;
+
+        CallTicket(Long recordId, Long stationId, Long pileId, long expireAtMillis) {
+            this.recordId = recordId;
+            this.stationId = stationId;
+            this.pileId = pileId;
+            this.expireAtMillis = expireAtMillis;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(expireAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(expireAtMillis, ((CallTicket) other).expireAtMillis);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.ev.charging.queue;
+
+import com.ev.charging.entity.QueueRecord;
+import com.ev.charging.repository.QueueRecordRepository;
+import com.ev.charging.service.QueueService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 叫号过期处理线程
+ * 启动时从 queue_record 重建所有已叫号的票，之后按到期时间逐批处理：
+ * 在一个事务内批量标记过号并释放预留的充电桩，重新叫号由充电桩空闲事件触发（见 {@link QueueDispatchListener}）
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CallExpiryWorker {
+
+    private static final byte STATUS_CALLED = 1;
+
+    private static final int MAX_BATCH = 100;
+
+    private final CallExpiryQueue callExpiryQueue;
+    private final QueueService queueService;
+    private final QueueRecordRepository queueRecordRepository;
+
+    private volatile Thread worker;
+
+    /**
+     * 应用启动后重建叫号票并启动处理线程
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        List<QueueRecord> calledRecords = queueRecordRepository.findByStatus(STATUS_CALLED);
+        calledRecords.forEach(callExpiryQueue::schedule);
+        log.info("叫号过期队列重建完成，待过期叫号数：{}", calledRecords.size());
+
+        Thread thread = new Thread(this::run, "queue-call-expiry");
+        thread.setDaemon(true);
+        thread.start();
+        worker = thread;
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread thread = worker;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                process(callExpiryQueue.takeExpired(MAX_BATCH));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("处理过期叫号失败", e);
+            }
+        }
+    }
+
+    private void process(List<CallExpiryQueue.CallTicket> batch) {
+        List<Long> recordIds = batch.stream()
+                .map(CallExpiryQueue.CallTicket::getRecordId)
+                .collect(Collectors.toList());
+        queueService.expireCalls(recordIds);
+    }
+}
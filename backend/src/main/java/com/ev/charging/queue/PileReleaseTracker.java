@@ -0,0 +1,500 @@
+package com.ev.charging.queue;
+
+import com.ev.charging.billing.TariffEngine;
+import com.ev.charging.billing.TariffSchedule;
+import com.ev.charging.catalog.CatalogCache;
+import com.ev.charging.catalog.PileSnapshot;
+import com.ev.charging.entity.ChargeOrder;
+import com.ev.charging.entity.ChargingPile;
+import com.ev.charging.entity.QueueRecord;
+import com.ev.charging.event.OrderChangedEvent;
+import com.ev.charging.event.PileStatusChangedEvent;
+import com.ev.charging.event.QueueChangedEvent;
+import com.ev.charging.repository.ChargeOrderRepository;
+import com.ev.charging.repository.ChargingPileRepository;
+import com.ev.charging.repository.QueueRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 充电桩释放时间跟踪
+ * <p>
+ * 每个站点维护一个按释放时间排序的最小堆：空闲桩的释放时间为当前，充电中的桩按进行中订单
+ * （开始时间、充电模式与目标值、起始SOC、桩功率）推算结束时间，故障和离线的桩不参与。
+ * 已叫号的排队记录预留的充电桩状态为预约中，在叫号过期（或开始充电）前不可分配，释放时间取叫号过期时间。
+ * 订单与充电桩状态事件在事务提交后以 O(log n) 增量更新堆；第 k 位排队者的等待时间由堆推演得到，
+ * 推演结果按站点缓存，堆变化或超过 {@link #PROJECTION_TTL_SECONDS} 后重新推演。
+ * 其他节点的充电桩状态变更经 {@link com.ev.charging.event.PileStatusClusterSync} 转发到达；订单变更不转发，
+ * 已加载的站点定期逐个从数据库重建，重建完成前继续使用原状态。
+ * <p>
+ * 与 {@link QueueEngine} 相同，加载在 map 之外进行，只有加载期间站点版本未变化时才安装结果；
+ * 每个事件都使站点版本递增，因此缺少加载期间所提交变更的快照不会被安装。
+ */
+@Slf4j
+@Component
+public class PileReleaseTracker {
+
+    /**
+     * 没有历史数据时每位排队者占用充电桩的时长（分钟）
+     */
+    public static final int DEFAULT_SESSION_MINUTES = 30;
+
+    private static final byte ORDER_IN_PROGRESS = 0;
+
+    private static final byte QUEUE_CALLED = 1;
+
+    private static final byte PILE_FREE = 1;
+    private static final byte PILE_CHARGING = 2;
+    private static final byte PILE_RESERVED = 3;
+
+    private static final byte MODE_FULL = 1;
+    private static final byte MODE_AMOUNT = 2;
+    private static final byte MODE_ENERGY = 3;
+    private static final byte MODE_TIME = 4;
+
+    /**
+     * 实际充电功率与额定功率之比
+     */
+    private static final double POWER_FACTOR = 0.9;
+
+    /**
+     * SOC 超过80%后按一半功率涓流充电
+     */
+    private static final int TAPER_SOC = 80;
+
+    private static final int DEFAULT_START_SOC = 20;
+    private static final double DEFAULT_POWER_KW = 7.0;
+
+    private static final int MIN_SESSION_MINUTES = 5;
+    private static final int MAX_SESSION_MINUTES = 12 * 60;
+
+    /**
+     * 站点平均占用时长的平滑系数
+     */
+    private static final double SESSION_EWMA_ALPHA = 0.2;
+
+    private static final long PROJECTION_TTL_SECONDS = 30;
+
+    private final ChargingPileRepository pileRepository;
+    private final ChargeOrderRepository orderRepository;
+    private final QueueRecordRepository queueRecordRepository;
+    private final TariffEngine tariffEngine;
+    private final CatalogCache catalogCache;
+    private final double batteryCapacityKwh;
+
+    private final Map<Long, StationReleases> stations = new ConcurrentHashMap<>();
+
+    /**
+     * 站点版本：每个订单、充电桩状态、排队事件到达时递增
+     */
+    private final Map<Long, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    public PileReleaseTracker(ChargingPileRepository pileRepository,
+                              ChargeOrderRepository orderRepository,
+                              QueueRecordRepository queueRecordRepository,
+                              TariffEngine tariffEngine,
+                              CatalogCache catalogCache,
+                              @Value("${queue.eta.battery-capacity:60}") double batteryCapacityKwh) {
+        this.pileRepository = pileRepository;
+        this.orderRepository = orderRepository;
+        this.queueRecordRepository = queueRecordRepository;
+        this.tariffEngine = tariffEngine;
+        this.catalogCache = catalogCache;
+        this.batteryCapacityKwh = batteryCapacityKwh;
+    }
+
+    /**
+     * 第 position 位排队者的预计等待时间
+     *
+     * @param stationId 充电站ID
+     * @param position  队列位置（从1开始）
+     * @return 预计等待时间（分钟）
+     */
+    public int etaMinutes(Long stationId, int position) {
+        if (position <= 0) {
+            return 0;
+        }
+        return station(stationId).etaMinutes(position, nowSecond());
+    }
+
+    /**
+     * 已加载站点的预计等待时间（不触发从数据库加载）
+     *
+     * @param stationId 充电站ID
+     * @param position  队列位置（从1开始）
+     * @return 预计等待时间（分钟），站点未加载时返回-1
+     */
+    public int cachedEtaMinutes(Long stationId, int position) {
+        StationReleases station = stations.get(stationId);
+        if (station == null) {
+            return -1;
+        }
+        return position <= 0 ? 0 : station.etaMinutes(position, nowSecond());
+    }
+
+    /**
+     * 站点当前可用于排队的充电桩数（空闲或充电中）
+     *
+     * @param stationId 充电站ID
+     * @return 充电桩数
+     */
+    public int activePiles(Long stationId) {
+        return station(stationId).size();
+    }
+
+    /**
+     * 订单开始、结束时更新对应充电桩的释放时间
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderChanged(OrderChangedEvent event) {
+        StationReleases station = touch(event.getStationId());
+        if (station == null || event.getPileId() == null) {
+            return;
+        }
+        long now = nowSecond();
+        switch (event.getType()) {
+            case CREATED -> orderRepository.findById(event.getOrderId())
+                    .ifPresent(order -> station.orderStarted(order.getPileId(), toSecond(startOf(order)),
+                            releaseSecond(order)));
+            case COMPLETED, CANCELLED -> station.orderEnded(event.getPileId(), now,
+                    event.getType() == OrderChangedEvent.Type.COMPLETED);
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * 充电桩状态变化：空闲立即可用，故障、离线、删除不再参与推演
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPileStatusChanged(PileStatusChangedEvent event) {
+        StationReleases station = touch(event.getStationId());
+        if (station == null) {
+            return;
+        }
+        station.statusChanged(event.getPileId(), event.getNewStatus(), nowSecond());
+    }
+
+    /**
+     * 叫号预留充电桩直到叫号过期；过号、离开或开始充电时结束预留
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onQueueChanged(QueueChangedEvent event) {
+        StationReleases station = touch(event.getStationId());
+        if (station == null || event.getPileId() == null) {
+            return;
+        }
+        switch (event.getType()) {
+            case CALLED -> {
+                if (event.getExpireTime() != null) {
+                    station.reserved(event.getPileId(), toSecond(event.getExpireTime()));
+                }
+            }
+            case EXPIRED, LEFT, COMPLETED -> station.reservationEnded(event.getPileId(), nowSecond());
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * 定期逐个重建已加载的站点（修正其他节点的订单变更和遗漏的事件）
+     * 重建期间站点有事件到达时保留当前状态（已增量更新），下一轮再重建
+     */
+    @Scheduled(fixedDelayString = "${queue.eta.refresh-interval:300000}")
+    public void refresh() {
+        int rebuilt = 0;
+        int skipped = 0;
+        for (Long stationId : new ArrayList<>(stations.keySet())) {
+            long version = versionOf(stationId).get();
+            StationReleases loaded;
+            try {
+                loaded = load(stationId);
+            } catch (RuntimeException e) {
+                log.warn("重建站点{}充电桩释放时间失败，保留当前状态", stationId, e);
+                continue;
+            }
+            StationReleases installed = stations.computeIfPresent(stationId, (id, current) -> {
+                if (versionOf(id).get() != version) {
+                    return current;
+                }
+                loaded.inheritSession(current);
+                return loaded;
+            });
+            if (installed == loaded) {
+                rebuilt++;
+            } else {
+                skipped++;
+            }
+        }
+        log.debug("重建充电桩释放时间完成，站点：{}，有新变更暂不重建：{}", rebuilt, skipped);
+    }
+
+    private StationReleases station(Long stationId) {
+        StationReleases station = stations.get(stationId);
+        while (station == null) {
+            long version = versionOf(stationId).get();
+            StationReleases loaded = load(stationId);
+            // 加载期间版本变化说明快照可能缺少刚提交的变更，放弃并重新加载
+            station = stations.compute(stationId, (id, current) ->
+                    current != null ? current : versionOf(id).get() == version ? loaded : null);
+        }
+        return station;
+    }
+
+    /**
+     * 事件到达：递增站点版本（使进行中的加载作废），返回已加载的站点
+     *
+     * @return 站点未加载时返回null
+     */
+    private StationReleases touch(Long stationId) {
+        if (stationId == null) {
+            return null;
+        }
+        versionOf(stationId).incrementAndGet();
+        return stations.get(stationId);
+    }
+
+    private AtomicLong versionOf(Long stationId) {
+        return versions.computeIfAbsent(stationId, id -> new AtomicLong());
+    }
+
+    private StationReleases load(Long stationId) {
+        long now = nowSecond();
+        StationReleases station = new StationReleases();
+
+        Map<Long, ChargeOrder> activeOrders = new HashMap<>();
+        for (ChargeOrder order : orderRepository.findByStationIdAndOrderStatus(stationId, ORDER_IN_PROGRESS)) {
+            activeOrders.put(order.getPileId(), order);
+        }
+
+        List<ChargingPile> piles = pileRepository.findByStationId(stationId);
+        for (ChargingPile pile : piles) {
+            ChargeOrder order = activeOrders.get(pile.getId());
+            if (order != null) {
+                station.orderStarted(pile.getId(), toSecond(startOf(order)), releaseSecond(order));
+            } else {
+                station.statusChanged(pile.getId(), pile.getStatus(), now);
+            }
+        }
+
+        for (QueueRecord record : queueRecordRepository.findByStationIdAndStatusOrderByJoinTimeAsc(stationId, QUEUE_CALLED)) {
+            if (record.getPileId() != null && record.getExpireTime() != null) {
+                station.reserved(record.getPileId(), toSecond(record.getExpireTime()));
+            }
+        }
+        log.debug("加载站点{}充电桩释放时间，充电桩：{}，进行中订单：{}", stationId, station.size(), activeOrders.size());
+        return station;
+    }
+
+    /**
+     * 按订单推算充电结束时间
+     */
+    private long releaseSecond(ChargeOrder order) {
+        LocalDateTime start = startOf(order);
+        double powerKw = chargingPowerKw(order.getPileId());
+        BigDecimal target = order.getTargetValue();
+        byte mode = order.getChargeMode() != null ? order.getChargeMode() : MODE_FULL;
+
+        double minutes;
+        if (mode == MODE_TIME && target != null) {
+            minutes = target.doubleValue();
+        } else if (mode == MODE_ENERGY && target != null) {
+            minutes = target.doubleValue() / powerKw * 60;
+        } else if (mode == MODE_AMOUNT && target != null) {
+            minutes = target.doubleValue() / yuanPerKwh(order.getPileId(), start) / powerKw * 60;
+        } else {
+            minutes = fullChargeMinutes(order.getStartSoc(), powerKw);
+        }
+        minutes = Math.max(MIN_SESSION_MINUTES, Math.min(MAX_SESSION_MINUTES, minutes));
+
+        return toSecond(start) + Math.round(minutes * 60);
+    }
+
+    /**
+     * 充满所需时间：80%以下按充电功率，80%以上按一半功率
+     */
+    private double fullChargeMinutes(Integer startSoc, double powerKw) {
+        int soc = startSoc != null ? Math.max(0, Math.min(100, startSoc)) : DEFAULT_START_SOC;
+        double fastKwh = batteryCapacityKwh * Math.max(0, TAPER_SOC - soc) / 100.0;
+        double taperKwh = batteryCapacityKwh * (100 - Math.max(soc, TAPER_SOC)) / 100.0;
+        return (fastKwh / powerKw + taperKwh / (powerKw / 2)) * 60;
+    }
+
+    private double chargingPowerKw(Long pileId) {
+        PileSnapshot pile = catalogCache.pile(pileId);
+        Double power = pile != null ? pile.getPower() : null;
+        double rated = power != null && power > 0 ? power : DEFAULT_POWER_KW;
+        return rated * POWER_FACTOR;
+    }
+
+    /**
+     * 开始时刻的电价加服务费（元/kWh），用于按金额充电的电量换算
+     */
+    private double yuanPerKwh(Long pileId, LocalDateTime start) {
+        TariffSchedule schedule = tariffEngine.scheduleFor(pileId);
+        LocalDateTime at = start != null ? start : LocalDateTime.now();
+        double electricity = schedule.priceAt(TariffEngine.toLocalSecond(at)) / (double) TariffSchedule.PRICE_SCALE;
+        double service = schedule.serviceCost(1000) / 1e7;
+        return Math.max(0.01, electricity + service);
+    }
+
+    private static LocalDateTime startOf(ChargeOrder order) {
+        return order.getStartTime() != null ? order.getStartTime() : order.getCreateTime();
+    }
+
+    private static long toSecond(LocalDateTime time) {
+        return time != null ? time.atZone(ZoneId.systemDefault()).toEpochSecond() : nowSecond();
+    }
+
+    private static long nowSecond() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    /**
+     * 单个站点的释放时间堆与推演缓存
+     */
+    private static final class StationReleases {
+
+        private final ReleaseHeap heap = new ReleaseHeap();
+
+        /**
+         * 有进行中订单的充电桩 -> 订单开始时间（秒），用于统计实际占用时长
+         */
+        private final Map<Long, Long> orderStarts = new HashMap<>();
+
+        /**
+         * 被已叫号排队记录预留的充电桩 -> 叫号过期时间（秒）
+         */
+        private final Map<Long, Long> reservations = new HashMap<>();
+
+        /**
+         * 每位排队者占用充电桩的平均时长（秒），按完成订单平滑更新
+         */
+        private double sessionSeconds = DEFAULT_SESSION_MINUTES * 60.0;
+
+        private long version;
+        private long projectedVersion = -1;
+        private long projectedAt;
+        private long[] projection = new long[0];
+
+        synchronized int size() {
+            return heap.size();
+        }
+
+        /**
+         * 重建时沿用原站点按完成订单学到的平均占用时长
+         */
+        void inheritSession(StationReleases previous) {
+            double seconds;
+            synchronized (previous) {
+                seconds = previous.sessionSeconds;
+            }
+            synchronized (this) {
+                sessionSeconds = seconds;
+                version++;
+            }
+        }
+
+        synchronized void orderStarted(long pileId, long startSecond, long releaseSecond) {
+            reservations.remove(pileId);
+            orderStarts.put(pileId, startSecond);
+            heap.upsert(pileId, releaseSecond);
+            version++;
+        }
+
+        synchronized void orderEnded(long pileId, long now, boolean completed) {
+            Long start = orderStarts.remove(pileId);
+            if (completed && start != null && now > start) {
+                sessionSeconds += SESSION_EWMA_ALPHA * ((now - start) - sessionSeconds);
+            }
+            if (heap.contains(pileId)) {
+                heap.upsert(pileId, now);
+            }
+            version++;
+        }
+
+        /**
+         * 叫号预留：预约中的充电桩到叫号过期时才可再分配（开始充电后改按订单推算）
+         */
+        synchronized void reserved(long pileId, long expireSecond) {
+            if (orderStarts.containsKey(pileId) || !heap.contains(pileId)) {
+                return;
+            }
+            reservations.put(pileId, expireSecond);
+            heap.upsert(pileId, expireSecond);
+            version++;
+        }
+
+        synchronized void reservationEnded(long pileId, long now) {
+            if (reservations.remove(pileId) == null) {
+                return;
+            }
+            if (!orderStarts.containsKey(pileId) && heap.contains(pileId)) {
+                heap.upsert(pileId, now);
+            }
+            version++;
+        }
+
+        synchronized void statusChanged(long pileId, Byte status, long now) {
+            if (status == null || (status != PILE_FREE && status != PILE_CHARGING && status != PILE_RESERVED)) {
+                orderStarts.remove(pileId);
+                reservations.remove(pileId);
+                heap.remove(pileId);
+            } else if (status == PILE_FREE) {
+                orderStarts.remove(pileId);
+                reservations.remove(pileId);
+                heap.upsert(pileId, now);
+            } else if (status == PILE_RESERVED && reservations.containsKey(pileId)) {
+                heap.upsert(pileId, reservations.get(pileId));
+            } else if (!orderStarts.containsKey(pileId)) {
+                // 充电中但订单事件尚未到达，或已被预约但叫号事件尚未到达：按平均占用时长估计
+                heap.upsert(pileId, now + Math.round(sessionSeconds));
+            }
+            version++;
+        }
+
+        synchronized int etaMinutes(int position, long now) {
+            if (projectedVersion != version || now - projectedAt > PROJECTION_TTL_SECONDS
+                    || projection.length < position) {
+                project(Math.max(position, Math.max(16, projection.length)), now);
+            }
+            long seconds = projection[position - 1] - (now - projectedAt);
+            return (int) Math.max(0, (seconds + 59) / 60);
+        }
+
+        private void project(int positions, long now) {
+            long hold = Math.round(sessionSeconds);
+            long[] eta = new long[positions];
+            if (heap.size() == 0) {
+                // 没有可用充电桩（全部故障或离线）：按单桩依次估计
+                for (int k = 0; k < positions; k++) {
+                    eta[k] = (k + 1) * hold;
+                }
+            } else {
+                ReleaseHeap.project(heap.copyTimes(), now, hold, eta);
+            }
+            projection = eta;
+            projectedAt = now;
+            projectedVersion = version;
+        }
+    }
+}
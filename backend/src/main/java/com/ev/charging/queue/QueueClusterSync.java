@@ -0,0 +1,74 @@
+package com.ev.charging.queue;
+
+import com.ev.charging.cluster.ClusterEvent;
+import com.ev.charging.cluster.ClusterEventRelay;
+import com.ev.charging.event.QueueChangedEvent;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 排队变更跨节点同步
+ * 本节点的排队变更提交后转发给其他节点；收到其他节点的变更时丢弃本地站点队列（下次访问从数据库重建），
+ * 再作为 remote 事件在本节点重新发布，推送等监听器与本地变更走同一条路径
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class QueueClusterSync {
+
+    private final QueueEngine queueEngine;
+    private final ClusterEventRelay relay;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostConstruct
+    public void registerRelayHandler() {
+        relay.on(ClusterEventRelay.TYPE_QUEUE_CHANGED, this::onRemoteQueueChanged);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onQueueChanged(QueueChangedEvent event) {
+        if (event.isRemote()) {
+            return;
+        }
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("type", event.getType().name());
+        payload.put("recordId", event.getRecordId());
+        payload.put("userId", event.getUserId());
+        payload.put("queueNo", event.getQueueNo());
+        payload.put("pileId", event.getPileId());
+        payload.put("expireTime", event.getExpireTime() != null ? event.getExpireTime().toString() : null);
+        relay.publish(ClusterEventRelay.TYPE_QUEUE_CHANGED, event.getStationId(), payload);
+    }
+
+    private void onRemoteQueueChanged(ClusterEvent event) {
+        log.debug("收到其他节点排队变更，重建站点{}排队队列", event.getStationId());
+        queueEngine.invalidate(event.getStationId());
+
+        Map<String, Object> payload = event.getPayload();
+        Object expireTime = payload.get("expireTime");
+        eventPublisher.publishEvent(new QueueChangedEvent(
+                QueueChangedEvent.Type.valueOf((String) payload.get("type")),
+                toLong(payload.get("recordId")),
+                event.getStationId(),
+                toLong(payload.get("userId")),
+                (String) payload.get("queueNo"),
+                toLong(payload.get("pileId")),
+                expireTime != null ? LocalDateTime.parse((String) expireTime) : null,
+                LocalDateTime.now(),
+                true
+        ));
+    }
+
+    private static Long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : null;
+    }
+}
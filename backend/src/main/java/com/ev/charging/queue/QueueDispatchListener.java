@@ -0,0 +1,37 @@
+package com.ev.charging.queue;
+
+import com.ev.charging.event.PileStatusChangedEvent;
+import com.ev.charging.service.QueueService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * 自动叫号
+ * 充电桩变为空闲后（订单、过号或离开的事务提交之后）立即为该站点队首叫号；
+ * 已叫号的排队者过号或离开时预留的充电桩改回空闲，同样由此重新叫号
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class QueueDispatchListener {
+
+    private final QueueService queueService;
+
+    @Async("pileEventExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPileStatusChanged(PileStatusChangedEvent event) {
+        if (event.isRemote() || !event.becameFree()) {
+            return;
+        }
+
+        try {
+            queueService.callNext(event.getStationId(), event.getPileId());
+        } catch (Exception e) {
+            log.error("自动叫号失败: stationId={}, pileId={}", event.getStationId(), event.getPileId(), e);
+        }
+    }
+}
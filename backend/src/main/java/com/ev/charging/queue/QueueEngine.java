@@ -0,0 +1,244 @@
+package com.ev.charging.queue;
+
+import com.ev.charging.entity.QueueRecord;
+import com.ev.charging.repository.QueueRecordRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 排队引擎
+ * 每个充电站维护一个内存有序队列，作为排队顺序和位置的唯一来源。
+ * 站点队列在首次访问时从 queue_record 加载，重启后自动重建；
+ * 位置变化只标记站点为脏，由 {@link QueuePositionWriter} 异步回写变化的行。
+ * <p>
+ * 加载在 map 之外进行，只有加载期间站点版本未变化时才安装结果；丢弃队列和事务提交都会使版本递增，
+ * 因此提交前读到的旧快照不会被安装。事务提交时若站点队列已被重建（不是当初修改的那个实例），
+ * 把本次加入/移除补到当前实例上，避免并发丢弃队列时丢失尚未提交的变更。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class QueueEngine {
+
+    private static final byte STATUS_QUEUING = 0;
+
+    private final QueueRecordRepository queueRecordRepository;
+
+    private final Map<Long, StationQueue> queues = new ConcurrentHashMap<>();
+
+    /**
+     * 站点队列版本：丢弃队列或排队变更提交时递增
+     */
+    private final Map<Long, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    /**
+     * 位置发生变化、等待回写的站点
+     */
+    private final Set<Long> dirtyStations = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 获取站点队列（不存在则从数据库加载）
+     *
+     * @param stationId 充电站ID
+     * @return 站点队列
+     */
+    public StationQueue queueOf(Long stationId) {
+        StationQueue queue = queues.get(stationId);
+        while (queue == null) {
+            long version = versionOf(stationId).get();
+            StationQueue loaded = load(stationId);
+            // 加载期间版本变化说明快照可能缺少刚提交的变更，放弃并重新加载
+            queue = queues.compute(stationId, (id, current) ->
+                    current != null ? current : versionOf(id).get() == version ? loaded : null);
+        }
+        return queue;
+    }
+
+    /**
+     * 当前排队人数
+     *
+     * @param stationId 充电站ID
+     * @return 排队人数
+     */
+    public int size(Long stationId) {
+        return queueOf(stationId).size();
+    }
+
+    /**
+     * 批量查询多个站点的排队人数：已加载的取内存队列，其余用一次分组查询统计（不加载队列）
+     *
+     * @param stationIds 充电站ID列表
+     * @return 站点ID -> 排队人数（包含每个传入的站点）
+     */
+    public Map<Long, Integer> sizes(Collection<Long> stationIds) {
+        Map<Long, Integer> sizes = new HashMap<>(stationIds.size() * 4 / 3 + 1);
+        List<Long> missing = new ArrayList<>();
+        for (Long stationId : stationIds) {
+            StationQueue queue = queues.get(stationId);
+            if (queue != null) {
+                sizes.put(stationId, queue.size());
+            } else {
+                sizes.put(stationId, 0);
+                missing.add(stationId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (Object[] row : queueRecordRepository.countByStationIdInAndStatus(missing, STATUS_QUEUING)) {
+                sizes.put((Long) row[0], ((Number) row[1]).intValue());
+            }
+        }
+        return sizes;
+    }
+
+    /**
+     * 查询排队记录的当前位置
+     * 本地队列中找不到时（例如由其他节点加入）重新加载一次
+     *
+     * @param stationId 充电站ID
+     * @param recordId  排队记录ID
+     * @return 队列位置（从1开始），不在队列中返回0
+     */
+    public int positionOf(Long stationId, Long recordId) {
+        int position = queueOf(stationId).positionOf(recordId);
+        if (position == 0) {
+            invalidate(stationId);
+            position = queueOf(stationId).positionOf(recordId);
+        }
+        return position;
+    }
+
+    /**
+     * 查看队首
+     *
+     * @param stationId 充电站ID
+     * @return 队首条目，队列为空返回null
+     */
+    public StationQueue.Entry peek(Long stationId) {
+        return queueOf(stationId).peek();
+    }
+
+    /**
+     * 加入队尾
+     *
+     * @param record 已保存的排队记录
+     */
+    public void enqueue(QueueRecord record) {
+        Long stationId = record.getStationId();
+        StationQueue queue = queueOf(stationId);
+        queue.add(record);
+        dirtyStations.add(stationId);
+        completionGuard(stationId, queue, current -> current.add(record));
+    }
+
+    /**
+     * 移出队列
+     *
+     * @param stationId 充电站ID
+     * @param recordId  排队记录ID
+     * @return 是否移除成功
+     */
+    public boolean remove(Long stationId, Long recordId) {
+        StationQueue queue = queueOf(stationId);
+        boolean removed = queue.remove(recordId);
+        if (removed) {
+            dirtyStations.add(stationId);
+            completionGuard(stationId, queue, current -> current.remove(recordId));
+        }
+        return removed;
+    }
+
+    /**
+     * 丢弃站点的内存队列，下次访问时从数据库重建
+     *
+     * @param stationId 充电站ID
+     */
+    public void invalidate(Long stationId) {
+        versionOf(stationId).incrementAndGet();
+        queues.remove(stationId);
+        dirtyStations.add(stationId);
+    }
+
+    /**
+     * 取出并清空待回写的站点
+     *
+     * @return 站点ID列表
+     */
+    public List<Long> drainDirtyStations() {
+        List<Long> drained = new ArrayList<>(dirtyStations.size());
+        for (Long stationId : dirtyStations) {
+            if (dirtyStations.remove(stationId)) {
+                drained.add(stationId);
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * 重新标记站点待回写（回写失败时使用）
+     *
+     * @param stationId 充电站ID
+     */
+    public void markDirty(Long stationId) {
+        dirtyStations.add(stationId);
+    }
+
+    private StationQueue load(Long stationId) {
+        List<QueueRecord> records = queueRecordRepository.findByStationIdAndStatusOrderByJoinTimeAsc(
+                stationId, STATUS_QUEUING
+        );
+
+        StationQueue queue = new StationQueue(stationId);
+        records.forEach(queue::add);
+
+        log.debug("加载站点{}排队队列，排队人数：{}", stationId, queue.size());
+        return queue;
+    }
+
+    private AtomicLong versionOf(Long stationId) {
+        return versions.computeIfAbsent(stationId, id -> new AtomicLong());
+    }
+
+    /**
+     * 内存队列先于事务提交变更：若事务回滚则丢弃该站点队列，下次访问时按数据库重建；
+     * 提交后使进行中的加载作废，并在队列已被重建时把变更补到当前实例上
+     */
+    private void completionGuard(Long stationId, StationQueue mutated, Consumer<StationQueue> replay) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            settle(stationId, mutated, replay);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    settle(stationId, mutated, replay);
+                } else {
+                    log.warn("排队事务未提交，重建站点{}排队队列", stationId);
+                    invalidate(stationId);
+                }
+            }
+        });
+    }
+
+    private void settle(Long stationId, StationQueue mutated, Consumer<StationQueue> replay) {
+        versionOf(stationId).incrementAndGet();
+        StationQueue current = queues.get(stationId);
+        if (current != null && current != mutated) {
+            replay.accept(current);
+            dirtyStations.add(stationId);
+        }
+    }
+}
@@ -0,0 +1,423 @@
+package com.ev.charging.queue;
+
+import com.ev.charging.event.OrderChangedEvent;
+import com.ev.charging.event.PileStatusChangedEvent;
+import com.ev.charging.event.QueueChangedEvent;
+import com.ev.charging.vo.QueueStatusVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 用户排队事件推送（SSE）
+ * <p>
+ * 用户连接后先收到 status 事件（当前排队状态），之后按站点队列变化推送：
+ * <ul>
+ *     <li>position：位置或预计等待时间变化 {queuePosition, peopleAhead, estimatedWaitTime}</li>
+ *     <li>called：已叫号 {queueNo, pileId, expireTime}</li>
+ *     <li>expiring：叫号即将过期 {queueNo, pileId, expireTime, remainingMinutes}</li>
+ *     <li>expired：已过号；left：已离开队列；completed：叫号后已开始充电</li>
+ * </ul>
+ * 只为本节点有连接的用户计算位置，且位置与等待时间都未变化时不推送；客户端不再轮询排队状态。
+ * 每个连接有自己的待发队列，由专用线程池按顺序发送，事件监听与定时任务线程不执行阻塞的发送。
+ */
+@Slf4j
+@Component
+public class QueueEventStream {
+
+    private static final byte STATUS_QUEUING = 0;
+    private static final byte STATUS_CALLED = 1;
+
+    /**
+     * 单次连续发送的最大事件数
+     */
+    private static final int DRAIN_BATCH = 64;
+
+    private final QueueEngine queueEngine;
+    private final WaitTimeEstimator waitTimeEstimator;
+    private final TaskExecutor sendExecutor;
+    private final int outboxLimit;
+    private final long timeout;
+    private final Duration expiringNotice;
+
+    /**
+     * 用户ID -> 推送状态
+     */
+    private final Map<Long, UserStream> users = new ConcurrentHashMap<>();
+
+    /**
+     * 站点ID -> 在该站点排队且有连接的用户
+     */
+    private final Map<Long, Set<Long>> usersByStation = new ConcurrentHashMap<>();
+
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    public QueueEventStream(QueueEngine queueEngine,
+                            WaitTimeEstimator waitTimeEstimator,
+                            @Qualifier("sseSendExecutor") TaskExecutor sendExecutor,
+                            @Value("${queue.stream.outbox-limit:100}") int outboxLimit,
+                            @Value("${queue.stream.timeout:1800000}") long timeout,
+                            @Value("${queue.stream.expiring-notice:5}") long expiringNoticeMinutes) {
+        this.queueEngine = queueEngine;
+        this.waitTimeEstimator = waitTimeEstimator;
+        this.sendExecutor = sendExecutor;
+        this.outboxLimit = outboxLimit;
+        this.timeout = timeout;
+        this.expiringNotice = Duration.ofMinutes(expiringNoticeMinutes);
+    }
+
+    /**
+     * 建立用户的推送连接
+     *
+     * @param userId  用户ID
+     * @param current 当前排队状态，没有排队记录时为null
+     * @return SSE连接
+     */
+    public SseEmitter subscribe(Long userId, QueueStatusVO current) {
+        SseEmitter emitter = new SseEmitter(timeout);
+        UserStream stream = users.computeIfAbsent(userId, UserStream::new);
+        Connection connection = new Connection(emitter);
+        stream.connections.add(connection);
+
+        Runnable cleanup = () -> remove(stream, connection);
+        emitter.onCompletion(cleanup);
+        emitter.onTimeout(cleanup);
+        emitter.onError(error -> cleanup.run());
+
+        if (current != null && current.getStatus() != null) {
+            if (current.getStatus() == STATUS_QUEUING) {
+                track(stream, current.getStationId());
+                synchronized (stream) {
+                    stream.position = current.getQueuePosition() != null ? current.getQueuePosition() : 0;
+                    stream.waitTime = current.getEstimatedWaitTime() != null ? current.getEstimatedWaitTime() : 0;
+                }
+            } else if (current.getStatus() == STATUS_CALLED) {
+                synchronized (stream) {
+                    stream.queueNo = current.getQueueNo();
+                    stream.expireTime = current.getExpireTime();
+                }
+            }
+        }
+        enqueue(stream, connection, SseEmitter.event().name("status").data(current != null ? current : Map.of()));
+        return emitter;
+    }
+
+    /**
+     * 排队变更后推送给相关用户
+     */
+    @Async("pileEventExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onQueueChanged(QueueChangedEvent event) {
+        UserStream stream = users.get(event.getUserId());
+        if (stream != null) {
+            switch (event.getType()) {
+                case JOINED -> track(stream, event.getStationId());
+                case CALLED -> {
+                    synchronized (stream) {
+                        stream.queueNo = event.getQueueNo();
+                        stream.pileId = event.getPileId();
+                        stream.expireTime = event.getExpireTime();
+                        stream.expiringNotified = false;
+                    }
+                    untrack(stream);
+                    Map<String, Object> data = new HashMap<>();
+                    data.put("queueNo", event.getQueueNo());
+                    data.put("pileId", event.getPileId());
+                    data.put("expireTime", event.getExpireTime());
+                    sendAll(stream, "called", data);
+                }
+                case EXPIRED -> {
+                    clearCall(stream);
+                    sendAll(stream, "expired", Map.of("queueNo", event.getQueueNo()));
+                }
+                case LEFT -> {
+                    clearCall(stream);
+                    untrack(stream);
+                    sendAll(stream, "left", Map.of("queueNo", event.getQueueNo()));
+                }
+                case COMPLETED -> {
+                    clearCall(stream);
+                    untrack(stream);
+                    sendAll(stream, "completed", Map.of("queueNo", event.getQueueNo()));
+                }
+            }
+        }
+
+        // 站点队列变化：其余排队者的位置与等待时间可能变化
+        refreshStation(event.getStationId());
+    }
+
+    /**
+     * 充电桩状态或订单变化会改变站点的预计等待时间（释放时间由 {@link PileReleaseTracker} 先行更新）
+     */
+    @Async("pileEventExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPileStatusChanged(PileStatusChangedEvent event) {
+        refreshStation(event.getStationId());
+    }
+
+    @Async("pileEventExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderChanged(OrderChangedEvent event) {
+        if (event.getType() == OrderChangedEvent.Type.CREATED || event.getType() == OrderChangedEvent.Type.COMPLETED) {
+            refreshStation(event.getStationId());
+        }
+    }
+
+    /**
+     * 重新计算站点内有连接用户的位置，只推送发生变化的
+     *
+     * @param stationId 充电站ID
+     */
+    public void refreshStation(Long stationId) {
+        Set<Long> userIds = stationId != null ? usersByStation.get(stationId) : null;
+        if (userIds == null || userIds.isEmpty()) {
+            return;
+        }
+        StationQueue queue = queueEngine.queueOf(stationId);
+        for (Long userId : userIds) {
+            UserStream stream = users.get(userId);
+            if (stream == null) {
+                continue;
+            }
+            int position = queue.positionOfUser(userId);
+            if (position == 0) {
+                continue;
+            }
+            int waitTime = waitTimeEstimator.estimate(stationId, position);
+            synchronized (stream) {
+                if (stream.position == position && stream.waitTime == waitTime) {
+                    continue;
+                }
+                stream.position = position;
+                stream.waitTime = waitTime;
+            }
+            sendAll(stream, "position", Map.of(
+                    "stationId", stationId,
+                    "queuePosition", position,
+                    "peopleAhead", position - 1,
+                    "estimatedWaitTime", waitTime
+            ));
+        }
+    }
+
+    /**
+     * 定时检查叫号即将过期的用户（只检查本节点有连接的用户）
+     */
+    @Scheduled(fixedDelayString = "${queue.stream.expiry-check-interval:30000}")
+    public void notifyExpiring() {
+        LocalDateTime deadline = LocalDateTime.now().plus(expiringNotice);
+        for (UserStream stream : users.values()) {
+            Map<String, Object> data;
+            synchronized (stream) {
+                if (stream.expireTime == null || stream.expiringNotified || stream.expireTime.isAfter(deadline)) {
+                    continue;
+                }
+                stream.expiringNotified = true;
+                data = new HashMap<>();
+                data.put("queueNo", stream.queueNo);
+                data.put("pileId", stream.pileId);
+                data.put("expireTime", stream.expireTime);
+                data.put("remainingMinutes", Math.max(0, Duration.between(LocalDateTime.now(), stream.expireTime).toMinutes()));
+            }
+            sendAll(stream, "expiring", data);
+        }
+    }
+
+    /**
+     * 定时发送心跳注释，防止代理断开空闲连接
+     */
+    @Scheduled(fixedDelayString = "${queue.stream.heartbeat-interval:25000}")
+    public void heartbeat() {
+        for (UserStream stream : users.values()) {
+            for (Connection connection : stream.connections) {
+                enqueue(stream, connection, SseEmitter.event().comment("ping"));
+            }
+        }
+    }
+
+    /**
+     * 推送统计
+     */
+    public Map<String, Object> stats() {
+        int connections = 0;
+        for (UserStream stream : users.values()) {
+            connections += stream.connections.size();
+        }
+        return Map.of(
+                "users", users.size(),
+                "connections", connections,
+                "stations", usersByStation.size(),
+                "sent", sentCount.get(),
+                "dropped", droppedCount.get()
+        );
+    }
+
+    private void track(UserStream stream, Long stationId) {
+        untrack(stream);
+        synchronized (stream) {
+            stream.stationId = stationId;
+            stream.position = 0;
+            stream.waitTime = 0;
+        }
+        usersByStation.computeIfAbsent(stationId, key -> ConcurrentHashMap.newKeySet()).add(stream.userId);
+    }
+
+    private void untrack(UserStream stream) {
+        Long stationId;
+        synchronized (stream) {
+            stationId = stream.stationId;
+            stream.stationId = null;
+        }
+        if (stationId != null) {
+            usersByStation.computeIfPresent(stationId, (key, userIds) -> {
+                userIds.remove(stream.userId);
+                return userIds.isEmpty() ? null : userIds;
+            });
+        }
+    }
+
+    private static void clearCall(UserStream stream) {
+        synchronized (stream) {
+            stream.expireTime = null;
+            stream.pileId = null;
+            stream.expiringNotified = false;
+        }
+    }
+
+    private void remove(UserStream stream, Connection connection) {
+        stream.connections.remove(connection);
+        if (stream.connections.isEmpty() && users.remove(stream.userId, stream)) {
+            untrack(stream);
+        }
+    }
+
+    private void sendAll(UserStream stream, String name, Object data) {
+        for (Connection connection : stream.connections) {
+            enqueue(stream, connection, SseEmitter.event().name(name).data(data));
+        }
+    }
+
+    /**
+     * 事件进入连接的待发队列，由线程池串行发送，同一连接的事件保持发布顺序；
+     * 待发队列超过上限时丢弃新事件（位置会在下次变化时重新推送）
+     */
+    private void enqueue(UserStream stream, Connection connection, SseEmitter.SseEventBuilder event) {
+        if (connection.outboxSize.incrementAndGet() > outboxLimit) {
+            connection.outboxSize.decrementAndGet();
+            droppedCount.incrementAndGet();
+            return;
+        }
+        connection.outbox.offer(event);
+        scheduleDrain(stream, connection);
+    }
+
+    private void scheduleDrain(UserStream stream, Connection connection) {
+        if (!connection.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            sendExecutor.execute(() -> drain(stream, connection));
+        } catch (RejectedExecutionException e) {
+            int dropped = discard(connection);
+            connection.draining.set(false);
+            log.warn("排队事件发送队列已满，丢弃事件: userId={}, count={}", stream.userId, dropped);
+        }
+    }
+
+    /**
+     * 发送连接的待发事件，单次最多 DRAIN_BATCH 条，剩余的重新提交；发送失败的连接直接移除
+     */
+    private void drain(UserStream stream, Connection connection) {
+        SseEmitter.SseEventBuilder event;
+        int sent = 0;
+        while (sent < DRAIN_BATCH && (event = connection.outbox.poll()) != null) {
+            connection.outboxSize.decrementAndGet();
+            sent++;
+            try {
+                connection.emitter.send(event);
+                sentCount.incrementAndGet();
+            } catch (IOException | IllegalStateException e) {
+                log.debug("排队事件推送失败: userId={}, {}", stream.userId, e.getMessage());
+                remove(stream, connection);
+                discard(connection);
+                break;
+            }
+        }
+        connection.draining.set(false);
+        if (!connection.outbox.isEmpty()) {
+            scheduleDrain(stream, connection);
+        }
+    }
+
+    private int discard(Connection connection) {
+        int dropped = 0;
+        while (connection.outbox.poll() != null) {
+            connection.outboxSize.decrementAndGet();
+            dropped++;
+        }
+        droppedCount.addAndGet(dropped);
+        return dropped;
+    }
+
+    /**
+     * 单个用户的推送状态（同一用户可能打开多个页面）
+     */
+    private static final class UserStream {
+
+        private final Long userId;
+        private final List<Connection> connections = new CopyOnWriteArrayList<>();
+
+        private Long stationId;
+        private int position;
+        private int waitTime;
+
+        private String queueNo;
+        private Long pileId;
+        private LocalDateTime expireTime;
+        private boolean expiringNotified;
+
+        private UserStream(Long userId) {
+            this.userId = userId;
+        }
+    }
+
+    /**
+     * 单个SSE连接及其待发事件
+     */
+    private static final class Connection {
+
+        private final SseEmitter emitter;
+        private final Queue<SseEmitter.SseEventBuilder> outbox = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger outboxSize = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Connection(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.ev.charging.queue;
+
+import com.ev.charging.repository.QueueRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 排队号分配器
+ * 按站点、按天分配序号：每次从Redis INCRBY 预取一段号段，段内用原子计数器无锁分配，
+ * 跨天自动换段从1重新开始。多节点之间号段互不重叠，保证排队号唯一；
+ * 节点重启时未用完的号段会被跳过，排队号可能不连续。
+ * <p>
+ * 号段必须在已发出的号之后：新建的键（首次使用、过期或Redis数据丢失）以及比本节点上一段更小的号段，
+ * 都先按数据库中已发出的最大序号把计数器推到其后再分配。queue_no 上的唯一索引兜底。
+ */
+@Slf4j
+@Component
+public class QueueNoAllocator {
+
+    private static final String KEY_PREFIX = "queue:no:";
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.BASIC_ISO_DATE;
+
+    /**
+     * 号段键保留时间，覆盖跨天的号段
+     */
+    private static final Duration KEY_TTL = Duration.ofDays(2);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private QueueRecordRepository queueRecordRepository;
+
+    /**
+     * 每次预取的号段大小
+     */
+    @Value("${queue.number-block-size:20}")
+    private int blockSize;
+
+    private final Map<Long, StationSequence> sequences = new ConcurrentHashMap<>();
+
+    /**
+     * 生成排队号
+     * 格式：站点ID-日期-序号（例如：1-20250108-001）
+     *
+     * @param stationId 充电站ID
+     * @return 排队号
+     */
+    public String nextQueueNo(Long stationId) {
+        StationSequence sequence = sequences.computeIfAbsent(stationId, id -> new StationSequence());
+        LocalDate today = LocalDate.now();
+
+        while (true) {
+            Block block = sequence.current;
+            if (block != null && block.day.equals(today)) {
+                long value = block.cursor.getAndIncrement();
+                if (value <= block.end) {
+                    return format(stationId, block.day, value);
+                }
+            }
+
+            // 号段用完或跨天：加锁换段（其他线程可能已换好）
+            synchronized (sequence) {
+                if (sequence.current == block) {
+                    sequence.current = allocateBlock(stationId, today, block);
+                }
+            }
+        }
+    }
+
+    private Block allocateBlock(Long stationId, LocalDate day, Block previous) {
+        String key = KEY_PREFIX + stationId + ":" + day.format(DATE_FORMATTER);
+        try {
+            Long end = stringRedisTemplate.opsForValue().increment(key, blockSize);
+            if (end != null) {
+                if (end == blockSize) {
+                    stringRedisTemplate.expire(key, KEY_TTL);
+                }
+                long issued = lastIssued(previous, day);
+                if (end == blockSize || end - blockSize < issued) {
+                    long floor = Math.max(issued, maxIssued(stationId, day));
+                    if (end - blockSize < floor) {
+                        log.warn("站点{}排队号计数器落后于已发出的号{}，重新设置", stationId, floor);
+                        end = stringRedisTemplate.opsForValue().increment(key, floor + blockSize - end);
+                    }
+                }
+                if (end != null) {
+                    return new Block(day, end - blockSize + 1, end);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Redis分配排队号段失败，降级为数据库计数: stationId={}, error={}", stationId, e.getMessage());
+        }
+
+        // 降级：从当天已发出的最大序号之后开始，仅保证本节点内不重复
+        long start = Math.max(maxIssued(stationId, day), lastIssued(previous, day)) + 1;
+        return new Block(day, start, start + blockSize - 1);
+    }
+
+    private static long lastIssued(Block previous, LocalDate day) {
+        return previous != null && previous.day.equals(day) ? previous.end : 0;
+    }
+
+    /**
+     * 数据库中当天已发出的最大序号
+     */
+    private long maxIssued(Long stationId, LocalDate day) {
+        String prefix = stationId + "-" + day.format(DATE_FORMATTER) + "-";
+        return queueRecordRepository.findMaxQueueSequence(prefix + "%", prefix.length() + 1);
+    }
+
+    private String format(Long stationId, LocalDate day, long value) {
+        return stationId + "-" + day.format(DATE_FORMATTER) + "-" + String.format("%03d", value);
+    }
+
+    /**
+     * 站点序号状态
+     */
+    private static final class StationSequence {
+
+        private volatile Block current;
+    }
+
+    /**
+     * 号段 [start, end]
+     */
+    private static final class Block {
+
+        private final LocalDate day;
+        private final AtomicLong cursor;
+        private final long end;
+
+        Block(LocalDate day, long start, long end) {
+            this.day = day;
+            this.cursor = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
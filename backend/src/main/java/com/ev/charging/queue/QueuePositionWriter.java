@@ -0,0 +1,59 @@
+package com.ev.charging.queue;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 排队位置回写（write-behind）
+ * 定时把内存队列中位置或等待时间发生变化的行批量写回 queue_record，
+ * 同一行在一个周期内的多次变化只写一次，未变化的行不写
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class QueuePositionWriter {
+
+    private static final String UPDATE_SQL =
+            "UPDATE queue_record SET queue_position = ?, estimated_wait_time = ?, update_time = NOW() " +
+                    "WHERE id = ? AND status = 0";
+
+    private final QueueEngine queueEngine;
+    private final WaitTimeEstimator waitTimeEstimator;
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 定时回写，默认每秒一次
+     */
+    @Scheduled(fixedDelayString = "${queue.position-flush-interval:1000}")
+    public void flush() {
+        for (Long stationId : queueEngine.drainDirtyStations()) {
+            try {
+                flushStation(stationId);
+            } catch (Exception e) {
+                log.error("排队位置回写失败: stationId={}", stationId, e);
+                queueEngine.markDirty(stationId);
+            }
+        }
+    }
+
+    private void flushStation(Long stationId) {
+        StationQueue queue = queueEngine.queueOf(stationId);
+        List<StationQueue.PositionUpdate> changed = queue.collectChanged(waitTimeEstimator.forStation(stationId));
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(UPDATE_SQL, changed.stream()
+                .map(u -> new Object[]{u.getQueuePosition(), u.getEstimatedWaitTime(), u.getRecordId()})
+                .collect(Collectors.toList()));
+        queue.acknowledge(changed);
+
+        log.debug("站点{}排队位置回写{}行", stationId, changed.size());
+    }
+}
@@ -0,0 +1,155 @@
+package com.ev.charging.queue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 充电桩释放时间最小堆（按充电桩ID索引）
+ * 更新、删除某个充电桩的释放时间为 O(log n)，堆顶为最早释放的充电桩
+ */
+final class ReleaseHeap {
+
+    private long[] times = new long[8];
+    private long[] pileIds = new long[8];
+    private final Map<Long, Integer> indexOf = new HashMap<>();
+    private int size;
+
+    /**
+     * 设置充电桩的释放时间（不存在则加入）
+     */
+    void upsert(long pileId, long releaseSecond) {
+        Integer index = indexOf.get(pileId);
+        if (index == null) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+                pileIds = Arrays.copyOf(pileIds, size * 2);
+            }
+            times[size] = releaseSecond;
+            pileIds[size] = pileId;
+            indexOf.put(pileId, size);
+            siftUp(size++);
+            return;
+        }
+        long old = times[index];
+        times[index] = releaseSecond;
+        if (releaseSecond < old) {
+            siftUp(index);
+        } else {
+            siftDown(index);
+        }
+    }
+
+    /**
+     * 移除充电桩（故障、离线、删除）
+     */
+    void remove(long pileId) {
+        Integer index = indexOf.remove(pileId);
+        if (index == null) {
+            return;
+        }
+        int last = --size;
+        if (index != last) {
+            move(last, index);
+            siftDown(index);
+            siftUp(index);
+        }
+    }
+
+    boolean contains(long pileId) {
+        return indexOf.containsKey(pileId);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 释放时间数组副本（本身满足堆序，可直接用于推演）
+     */
+    long[] copyTimes() {
+        return Arrays.copyOf(times, size);
+    }
+
+    /**
+     * 在堆数组上推演：依次取最早释放的充电桩分配给下一位排队者，占用 holdSeconds 后再次释放
+     *
+     * @param heap        释放时间堆（会被修改）
+     * @param now         当前时间（秒）
+     * @param holdSeconds 每位排队者占用充电桩的时长（秒）
+     * @param etaSeconds  输出：第 k 位排队者的预计等待秒数
+     */
+    static void project(long[] heap, long now, long holdSeconds, long[] etaSeconds) {
+        int n = heap.length;
+        for (int k = 0; k < etaSeconds.length; k++) {
+            long start = Math.max(heap[0], now);
+            etaSeconds[k] = start - now;
+            heap[0] = start + holdSeconds;
+            siftDown(heap, 0, n);
+        }
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (times[parent] <= times[index]) {
+                break;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && times[child + 1] < times[child]) {
+                child++;
+            }
+            if (times[index] <= times[child]) {
+                return;
+            }
+            swap(index, child);
+            index = child;
+        }
+    }
+
+    private static void siftDown(long[] heap, int index, int n) {
+        long value = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= n) {
+                break;
+            }
+            if (child + 1 < n && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (value <= heap[child]) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = value;
+    }
+
+    private void swap(int a, int b) {
+        long time = times[a];
+        long pile = pileIds[a];
+        times[a] = times[b];
+        pileIds[a] = pileIds[b];
+        times[b] = time;
+        pileIds[b] = pile;
+        indexOf.put(pileIds[a], a);
+        indexOf.put(pileIds[b], b);
+    }
+
+    private void move(int from, int to) {
+        times[to] = times[from];
+        pileIds[to] = pileIds[from];
+        indexOf.put(pileIds[to], to);
+    }
+}
@@ -0,0 +1,285 @@
+package com.ev.charging.queue;
+
+import com.ev.charging.entity.QueueRecord;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * 单个充电站的内存排队队列
+ * 按加入顺序为每个排队者分配递增槽位，并用树状数组（Fenwick树）记录槽位占用，
+ * 查询排名、取队首、加入、离开均为 O(log n)，不再依赖数据库全量扫描
+ */
+public class StationQueue {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Long stationId;
+
+    /**
+     * 树状数组（下标从1开始），记录每个槽位是否有人
+     */
+    private int[] tree;
+
+    /**
+     * 槽位 -> 排队条目（已离开的槽位置为null）
+     */
+    private Entry[] slots;
+
+    /**
+     * 下一个可分配的槽位
+     */
+    private int nextSlot;
+
+    /**
+     * 当前排队人数
+     */
+    private int size;
+
+    private final Map<Long, Entry> byRecordId = new HashMap<>();
+    private final Map<Long, Entry> byUserId = new HashMap<>();
+
+    public StationQueue(Long stationId) {
+        this.stationId = stationId;
+        this.tree = new int[INITIAL_CAPACITY + 1];
+        this.slots = new Entry[INITIAL_CAPACITY];
+    }
+
+    public Long getStationId() {
+        return stationId;
+    }
+
+    /**
+     * 排队者加入队尾
+     *
+     * @param record 排队记录（需已持久化，拥有ID）
+     * @return 排队条目
+     */
+    public synchronized Entry add(QueueRecord record) {
+        Entry existing = byRecordId.get(record.getId());
+        if (existing != null) {
+            return existing;
+        }
+
+        ensureCapacity();
+
+        Entry entry = new Entry(record.getId(), record.getUserId(), record.getQueueNo(), record.getJoinTime());
+        entry.slot = nextSlot++;
+        entry.persistedPosition = record.getQueuePosition() != null ? record.getQueuePosition() : -1;
+        entry.persistedWaitTime = record.getEstimatedWaitTime() != null ? record.getEstimatedWaitTime() : -1;
+
+        slots[entry.slot] = entry;
+        update(entry.slot, 1);
+        size++;
+
+        byRecordId.put(entry.recordId, entry);
+        byUserId.put(entry.userId, entry);
+        return entry;
+    }
+
+    /**
+     * 移除排队者（离开、被叫号）
+     *
+     * @param recordId 排队记录ID
+     * @return 是否移除成功
+     */
+    public synchronized boolean remove(Long recordId) {
+        Entry entry = byRecordId.remove(recordId);
+        if (entry == null) {
+            return false;
+        }
+        byUserId.remove(entry.userId, entry);
+
+        slots[entry.slot] = null;
+        update(entry.slot, -1);
+        size--;
+        return true;
+    }
+
+    /**
+     * 查询排队记录的当前位置
+     *
+     * @param recordId 排队记录ID
+     * @return 队列位置（从1开始），不在队列中返回0
+     */
+    public synchronized int positionOf(Long recordId) {
+        Entry entry = byRecordId.get(recordId);
+        return entry == null ? 0 : prefixSum(entry.slot);
+    }
+
+    /**
+     * 查询用户的当前位置
+     *
+     * @param userId 用户ID
+     * @return 队列位置（从1开始），不在队列中返回0
+     */
+    public synchronized int positionOfUser(Long userId) {
+        Entry entry = byUserId.get(userId);
+        return entry == null ? 0 : prefixSum(entry.slot);
+    }
+
+    /**
+     * 查看队首（不移除）
+     *
+     * @return 队首条目，队列为空返回null
+     */
+    public synchronized Entry peek() {
+        if (size == 0) {
+            return null;
+        }
+        return slots[findKth(1)];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean contains(Long recordId) {
+        return byRecordId.containsKey(recordId);
+    }
+
+    /**
+     * 收集位置或等待时间与已持久化值不一致的记录
+     * 只在内存中顺序遍历一次，不产生任何SQL
+     *
+     * @param waitTimeFn 根据位置计算预计等待时间
+     * @return 需要回写的记录
+     */
+    public synchronized List<PositionUpdate> collectChanged(IntUnaryOperator waitTimeFn) {
+        List<PositionUpdate> changed = new ArrayList<>();
+        int position = 0;
+        for (int i = 0; i < nextSlot; i++) {
+            Entry entry = slots[i];
+            if (entry == null) {
+                continue;
+            }
+            position++;
+            int waitTime = waitTimeFn.applyAsInt(position);
+            if (entry.persistedPosition != position || entry.persistedWaitTime != waitTime) {
+                changed.add(new PositionUpdate(entry.recordId, position, waitTime));
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * 回写成功后记录已持久化的值
+     *
+     * @param updates 已回写的记录
+     */
+    public synchronized void acknowledge(List<PositionUpdate> updates) {
+        for (PositionUpdate update : updates) {
+            Entry entry = byRecordId.get(update.getRecordId());
+            if (entry != null) {
+                entry.persistedPosition = update.getQueuePosition();
+                entry.persistedWaitTime = update.getEstimatedWaitTime();
+            }
+        }
+    }
+
+    /**
+     * 槽位用尽时压缩（离开的人较多）或扩容
+     */
+    private void ensureCapacity() {
+        if (nextSlot < slots.length) {
+            return;
+        }
+
+        int capacity = size * 2 > slots.length ? slots.length * 2 : slots.length;
+        Entry[] compacted = new Entry[capacity];
+        int count = 0;
+        for (int i = 0; i < nextSlot; i++) {
+            Entry entry = slots[i];
+            if (entry != null) {
+                entry.slot = count;
+                compacted[count++] = entry;
+            }
+        }
+
+        // 线性建树
+        int[] rebuilt = new int[capacity + 1];
+        for (int i = 1; i <= capacity; i++) {
+            if (i <= count) {
+                rebuilt[i] += 1;
+            }
+            int parent = i + (i & -i);
+            if (parent <= capacity) {
+                rebuilt[parent] += rebuilt[i];
+            }
+        }
+
+        slots = compacted;
+        tree = rebuilt;
+        nextSlot = count;
+    }
+
+    private void update(int slot, int delta) {
+        for (int i = slot + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    private int prefixSum(int slot) {
+        int sum = 0;
+        for (int i = slot + 1; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * 查找第k个有人的槽位（树状数组二分）
+     */
+    private int findKth(int k) {
+        int pos = 0;
+        for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+            int next = pos + step;
+            if (next < tree.length && tree[next] < k) {
+                pos = next;
+                k -= tree[next];
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * 排队条目
+     */
+    @Getter
+    public static final class Entry {
+
+        private final Long recordId;
+        private final Long userId;
+        private final String queueNo;
+        private final LocalDateTime joinTime;
+
+        private int slot;
+        private int persistedPosition;
+        private int persistedWaitTime;
+
+        Entry(Long recordId, Long userId, String queueNo, LocalDateTime joinTime) {
+            this.recordId = recordId;
+            this.userId = userId;
+            this.queueNo = queueNo;
+            this.joinTime = joinTime;
+        }
+    }
+
+    /**
+     * 待回写的位置变更
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class PositionUpdate {
+
+        private final Long recordId;
+        private final int queuePosition;
+        private final int estimatedWaitTime;
+    }
+}
@@ -0,0 +1,240 @@
+package com.ev.charging.queue;
+
+import com.ev.charging.catalog.CatalogCache;
+import com.ev.charging.catalog.StationSnapshot;
+import com.ev.charging.geo.StationGeoIndex;
+import com.ev.charging.stats.PileStatusCounters;
+import com.ev.charging.util.DistanceUtil;
+import com.ev.charging.vo.StationRecommendationVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 跨站点分流推荐
+ * <p>
+ * 预先为每个营业中的充电站计算邻居（半径内最近的若干站点及距离），目录变化后重建；
+ * 推荐时只遍历原站点的邻居：排队人数取本节点已加载的队列，其余邻居用一次分组查询统计；
+ * 空闲桩数取自 {@link PileStatusCounters}；有空闲桩且无人排队的邻居等待时间为0，
+ * 其余优先使用已加载的释放时间推演（{@link PileReleaseTracker}），未加载时按充电桩数粗略估计，
+ * 推荐不会逐个站点访问数据库；按"行驶时间 + 等待时间"排序，只返回比在原站点排队更快开始充电的站点。
+ */
+@Slf4j
+@Component
+public class StationRecommender {
+
+    private static final byte PILE_FREE = 1;
+    private static final byte PILE_CHARGING = 2;
+    private static final byte PILE_RESERVED = 3;
+
+    private final CatalogCache catalogCache;
+    private final StationGeoIndex stationGeoIndex;
+    private final QueueEngine queueEngine;
+    private final PileStatusCounters pileStatusCounters;
+    private final WaitTimeEstimator waitTimeEstimator;
+    private final int neighborCount;
+    private final double neighborRadiusKm;
+    private final double averageSpeedKmh;
+
+    /**
+     * 邻居图：充电站ID -> 邻居（不可变，整体替换）
+     */
+    private volatile Map<Long, Neighbors> graph = Collections.emptyMap();
+
+    /**
+     * 构建邻居图时的营业站点列表，目录变化后列表对象会被替换
+     */
+    private volatile List<StationSnapshot> graphSource;
+
+    public StationRecommender(CatalogCache catalogCache,
+                              StationGeoIndex stationGeoIndex,
+                              QueueEngine queueEngine,
+                              PileStatusCounters pileStatusCounters,
+                              WaitTimeEstimator waitTimeEstimator,
+                              @Value("${queue.recommend.neighbor-count:10}") int neighborCount,
+                              @Value("${queue.recommend.neighbor-radius:20}") double neighborRadiusKm,
+                              @Value("${queue.recommend.average-speed:30}") double averageSpeedKmh) {
+        this.catalogCache = catalogCache;
+        this.stationGeoIndex = stationGeoIndex;
+        this.queueEngine = queueEngine;
+        this.pileStatusCounters = pileStatusCounters;
+        this.waitTimeEstimator = waitTimeEstimator;
+        this.neighborCount = neighborCount;
+        this.neighborRadiusKm = neighborRadiusKm;
+        this.averageSpeedKmh = averageSpeedKmh;
+    }
+
+    /**
+     * 推荐备选充电站
+     *
+     * @param stationId 原站点ID
+     * @param latitude  用户纬度，为空时按原站点位置计算距离
+     * @param longitude 用户经度
+     * @param limit     返回数量
+     * @return 比原站点更快开始充电的站点，按总时间升序
+     */
+    public List<StationRecommendationVO> recommend(Long stationId, Double latitude, Double longitude, int limit) {
+        StationSnapshot origin = catalogCache.station(stationId);
+        Neighbors neighbors = graph().get(stationId);
+        if (origin == null || neighbors == null || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        boolean atOrigin = latitude == null || longitude == null;
+        double userLat = atOrigin ? origin.getLatitude() : latitude;
+        double userLon = atOrigin ? origin.getLongitude() : longitude;
+
+        int originTotal = travelMinutes(atOrigin ? 0 : DistanceUtil.calculateDistance(
+                userLat, userLon, origin.getLatitude(), origin.getLongitude())) + waitMinutes(stationId);
+
+        // 只行驶就已不比原站点快的邻居不必统计排队人数
+        int n = neighbors.stations.length;
+        double[] distances = new double[n];
+        List<Long> reachable = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            StationSnapshot station = neighbors.stations[i];
+            distances[i] = atOrigin ? neighbors.distances[i] : DistanceUtil.calculateDistance(
+                    userLat, userLon, station.getLatitude(), station.getLongitude());
+            if (travelMinutes(distances[i]) < originTotal) {
+                reachable.add(station.getId());
+            }
+        }
+        if (reachable.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Integer> queueCounts = queueEngine.sizes(reachable);
+
+        List<StationRecommendationVO> candidates = new ArrayList<>(reachable.size());
+        for (int i = 0; i < n; i++) {
+            StationSnapshot station = neighbors.stations[i];
+            Integer queueCount = queueCounts.get(station.getId());
+            if (queueCount == null) {
+                continue;
+            }
+            double distance = distances[i];
+            int travel = travelMinutes(distance);
+            int wait = neighborWaitMinutes(station.getId(), queueCount);
+            int total = travel + wait;
+            if (total >= originTotal) {
+                continue;
+            }
+            candidates.add(StationRecommendationVO.builder()
+                    .stationId(station.getId())
+                    .stationName(station.getName())
+                    .address(station.getAddress())
+                    .distance(Math.round(distance * 100) / 100.0)
+                    .travelTime(travel)
+                    .queueCount(queueCount)
+                    .availablePiles((int) pileStatusCounters.count(station.getId(), PILE_FREE))
+                    .estimatedWaitTime(wait)
+                    .totalTime(total)
+                    .savedTime(originTotal - total)
+                    .build());
+        }
+
+        candidates.sort(Comparator.comparingInt(StationRecommendationVO::getTotalTime));
+        return candidates.size() > limit ? new ArrayList<>(candidates.subList(0, limit)) : candidates;
+    }
+
+    /**
+     * 在站点排队的预计等待时间（分钟）：有空闲充电桩且无人排队时为0
+     *
+     * @param stationId 充电站ID
+     * @return 预计等待时间
+     */
+    public int waitMinutes(Long stationId) {
+        return waitMinutes(stationId, queueEngine.size(stationId));
+    }
+
+    private int waitMinutes(Long stationId, int queueCount) {
+        if (queueCount == 0 && pileStatusCounters.count(stationId, PILE_FREE) > 0) {
+            return 0;
+        }
+        return waitTimeEstimator.estimate(stationId, queueCount + 1);
+    }
+
+    /**
+     * 邻居的预计等待时间（不访问数据库）：有空闲桩且无人排队时为0，
+     * 否则优先用已加载的释放时间推演，未加载时按充电桩数粗略估计
+     */
+    private int neighborWaitMinutes(Long stationId, int queueCount) {
+        long free = pileStatusCounters.count(stationId, PILE_FREE);
+        if (queueCount == 0 && free > 0) {
+            return 0;
+        }
+        int wait = waitTimeEstimator.estimateCached(stationId, queueCount + 1);
+        if (wait >= 0) {
+            return wait;
+        }
+        long active = free + pileStatusCounters.count(stationId, PILE_CHARGING)
+                + pileStatusCounters.count(stationId, PILE_RESERVED);
+        return waitTimeEstimator.estimateWithoutReleases(queueCount + 1, free, active);
+    }
+
+    private int travelMinutes(double distanceKm) {
+        return (int) Math.ceil(distanceKm / averageSpeedKmh * 60);
+    }
+
+    /**
+     * 当前邻居图，目录变化后重建
+     */
+    private Map<Long, Neighbors> graph() {
+        List<StationSnapshot> active = catalogCache.activeStations();
+        if (active != graphSource) {
+            synchronized (this) {
+                if (active != graphSource) {
+                    graph = buildGraph(active);
+                    graphSource = active;
+                }
+            }
+        }
+        return graph;
+    }
+
+    private Map<Long, Neighbors> buildGraph(List<StationSnapshot> active) {
+        Map<Long, Neighbors> built = new HashMap<>(active.size() * 4 / 3 + 1);
+        for (StationSnapshot station : active) {
+            if (station.getLatitude() == null || station.getLongitude() == null) {
+                continue;
+            }
+            List<StationGeoIndex.Hit> hits = stationGeoIndex.nearest(
+                    station.getLatitude(), station.getLongitude(), neighborCount + 1);
+            List<StationGeoIndex.Hit> kept = new ArrayList<>(hits.size());
+            for (StationGeoIndex.Hit hit : hits) {
+                if (!hit.getStation().getId().equals(station.getId()) && hit.getDistance() <= neighborRadiusKm) {
+                    kept.add(hit);
+                }
+            }
+            StationSnapshot[] stations = new StationSnapshot[kept.size()];
+            double[] distances = new double[kept.size()];
+            for (int i = 0; i < kept.size(); i++) {
+                stations[i] = kept.get(i).getStation();
+                distances[i] = kept.get(i).getDistance();
+            }
+            built.put(station.getId(), new Neighbors(stations, distances));
+        }
+        log.info("充电站邻居图构建完成，站点数：{}", built.size());
+        return Collections.unmodifiableMap(built);
+    }
+
+    /**
+     * 站点的邻居及到原站点的距离（千米），按距离升序
+     */
+    private static final class Neighbors {
+
+        private final StationSnapshot[] stations;
+        private final double[] distances;
+
+        private Neighbors(StationSnapshot[] stations, double[] distances) {
+            this.stations = stations;
+            this.distances = distances;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.ev.charging.queue;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * 排队预计等待时间估算
+ * 基于 {@link PileReleaseTracker} 维护的各充电桩释放时间推演：第 k 位排队者等到第 k 个释放的充电桩
+ */
+@Component
+@RequiredArgsConstructor
+public class WaitTimeEstimator {
+
+    private final PileReleaseTracker releaseTracker;
+
+    /**
+     * 计算预计等待时间
+     *
+     * @param stationId     充电站ID
+     * @param queuePosition 队列位置
+     * @return 预计等待时间（分钟）
+     */
+    public int estimate(Long stationId, int queuePosition) {
+        return releaseTracker.etaMinutes(stationId, queuePosition);
+    }
+
+    /**
+     * 只用已加载的站点状态计算预计等待时间（不访问数据库）
+     *
+     * @param stationId     充电站ID
+     * @param queuePosition 队列位置
+     * @return 预计等待时间（分钟），站点未加载时返回-1
+     */
+    public int estimateCached(Long stationId, int queuePosition) {
+        return releaseTracker.cachedEtaMinutes(stationId, queuePosition);
+    }
+
+    /**
+     * 站点释放时间未加载时的粗略估计（不访问数据库）：排在空闲桩数以内的不用等待，
+     * 其余按可用充电桩轮转、每位占用 {@link PileReleaseTracker#DEFAULT_SESSION_MINUTES} 估计
+     *
+     * @param queuePosition 队列位置
+     * @param freePiles     空闲充电桩数
+     * @param activePiles   可用于排队的充电桩数（空闲、充电中、预约中）
+     * @return 预计等待时间（分钟）
+     */
+    public int estimateWithoutReleases(int queuePosition, long freePiles, long activePiles) {
+        long waiting = queuePosition - freePiles;
+        if (waiting <= 0) {
+            return 0;
+        }
+        long piles = Math.max(activePiles, 1);
+        return (int) ((waiting + piles - 1) / piles * PileReleaseTracker.DEFAULT_SESSION_MINUTES);
+    }
+
+    /**
+     * 获取站点的等待时间计算函数，批量计算多个位置时使用
+     *
+     * @param stationId 充电站ID
+     * @return 位置 -> 预计等待时间（分钟）
+     */
+    public IntUnaryOperator forStation(Long stationId) {
+        return position -> releaseTracker.etaMinutes(stationId, position);
+    }
+}
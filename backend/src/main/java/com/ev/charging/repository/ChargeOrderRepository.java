@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -54,4 +55,9 @@ public interface ChargeOrderRepository extends JpaRepository<ChargeOrder, Long>
      * 查询充电桩的进行中订单
      */
     Optional<ChargeOrder> findByPileIdAndOrderStatus(Long pileId, Byte orderStatus);
+
+    /**
+     * 查询充电站的指定状态订单
+     */
+    List<ChargeOrder> findByStationIdAndOrderStatus(Long stationId, Byte orderStatus);
 }
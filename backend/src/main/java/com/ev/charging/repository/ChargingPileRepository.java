@@ -2,7 +2,9 @@ package com.ev.charging.repository;
 
 import com.ev.charging.entity.ChargingPile;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -71,4 +73,19 @@ public interface ChargingPileRepository extends JpaRepository<ChargingPile, Long
      * @return true-存在，false-不存在
      */
     boolean existsByPileNo(String pileNo);
+
+    /**
+     * 条件更新充电桩状态（仅当当前状态等于期望状态时更新）
+     *
+     * @param id             充电桩ID
+     * @param expectedStatus 期望的当前状态
+     * @param newStatus      新状态
+     * @return 更新行数，0表示状态已被其他请求修改
+     */
+    @Modifying
+    @Query("UPDATE ChargingPile p SET p.status = :newStatus, p.updateTime = CURRENT_TIMESTAMP " +
+            "WHERE p.id = :id AND p.status = :expectedStatus")
+    int compareAndSetStatus(@Param("id") Long id,
+                            @Param("expectedStatus") Byte expectedStatus,
+                            @Param("newStatus") Byte newStatus);
 }
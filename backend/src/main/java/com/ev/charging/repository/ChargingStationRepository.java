@@ -39,7 +39,7 @@ public interface ChargingStationRepository extends JpaRepository<ChargingStation
 
     /**
      * 根据经纬度范围查询附近的充电站
-     * 简单的矩形范围查询（实际项目中应使用空间索引）
+     * 简单的矩形范围查询（空间索引未加载完成时使用）
      *
      * @param minLat 最小纬度
      * @param maxLat 最大纬度
@@ -2,11 +2,13 @@ package com.ev.charging.repository;
 
 import com.ev.charging.entity.QueueRecord;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -34,6 +36,14 @@ public interface QueueRecordRepository extends JpaRepository<QueueRecord, Long>
      */
     List<QueueRecord> findByStationIdAndStatusOrderByJoinTimeAsc(Long stationId, Byte status);
 
+    /**
+     * 按状态查询排队记录
+     *
+     * @param status 状态
+     * @return 排队记录列表
+     */
+    List<QueueRecord> findByStatus(Byte status);
+
     /**
      * 统计站点当前排队人数
      *
@@ -43,6 +53,18 @@ public interface QueueRecordRepository extends JpaRepository<QueueRecord, Long>
      */
     long countByStationIdAndStatus(Long stationId, Byte status);
 
+    /**
+     * 批量统计多个站点的排队人数（没有记录的站点不返回）
+     *
+     * @param stationIds 充电站ID列表
+     * @param status     状态
+     * @return [站点ID, 人数] 列表
+     */
+    @Query("SELECT q.stationId, COUNT(q) FROM QueueRecord q WHERE q.stationId IN :stationIds AND q.status = :status " +
+            "GROUP BY q.stationId")
+    List<Object[]> countByStationIdInAndStatus(@Param("stationIds") Collection<Long> stationIds,
+                                               @Param("status") Byte status);
+
     /**
      * 查询指定站点和状态的排队记录
      *
@@ -72,6 +94,43 @@ public interface QueueRecordRepository extends JpaRepository<QueueRecord, Long>
      */
     Optional<QueueRecord> findByUserIdAndStationIdAndStatusIn(Long userId, Long stationId, List<Byte> statusList);
 
+    /**
+     * 条件更新状态（仅当记录仍为期望状态时更新），用于过号与叫号后开始充电的互斥
+     *
+     * @param id        排队记录ID
+     * @param expected  期望的当前状态
+     * @param newStatus 新状态
+     * @return 更新行数，0表示记录状态已被其他事务改变
+     */
+    @Modifying
+    @Query("UPDATE QueueRecord q SET q.status = :newStatus, q.updateTime = CURRENT_TIMESTAMP " +
+            "WHERE q.id = :id AND q.status = :expected")
+    int compareAndSetStatus(@Param("id") Long id,
+                            @Param("expected") Byte expected,
+                            @Param("newStatus") Byte newStatus);
+
+    /**
+     * 条件叫号（仅当记录仍在排队中时更新），多个节点同时叫同一条记录时只有一个成功
+     *
+     * @param id            排队记录ID
+     * @param queuingStatus 期望的当前状态（排队中）
+     * @param calledStatus  新状态（已叫号）
+     * @param pileId        分配的充电桩ID
+     * @param callTime      叫号时间
+     * @param expireTime    过期时间
+     * @return 更新行数，0表示记录已被叫号或已离开
+     */
+    @Modifying
+    @Query("UPDATE QueueRecord q SET q.status = :calledStatus, q.pileId = :pileId, q.callTime = :callTime, " +
+            "q.expireTime = :expireTime, q.updateTime = CURRENT_TIMESTAMP " +
+            "WHERE q.id = :id AND q.status = :queuingStatus")
+    int markCalled(@Param("id") Long id,
+                   @Param("queuingStatus") Byte queuingStatus,
+                   @Param("calledStatus") Byte calledStatus,
+                   @Param("pileId") Long pileId,
+                   @Param("callTime") LocalDateTime callTime,
+                   @Param("expireTime") LocalDateTime expireTime);
+
     /**
      * 根据排队号查询
      *
@@ -81,7 +140,7 @@ public interface QueueRecordRepository extends JpaRepository<QueueRecord, Long>
     Optional<QueueRecord> findByQueueNo(String queueNo);
 
     /**
-     * 查询站点当天的排队记录数（用于生成排队号）
+     * 查询站点当天的排队记录数（Redis不可用时用于生成排队号）
      *
      * @param stationId 充电站ID
      * @param startTime 开始时间
@@ -89,4 +148,15 @@ public interface QueueRecordRepository extends JpaRepository<QueueRecord, Long>
      */
     @Query("SELECT COUNT(q) FROM QueueRecord q WHERE q.stationId = :stationId AND q.joinTime >= :startTime")
     long countTodayQueue(@Param("stationId") Long stationId, @Param("startTime") LocalDateTime startTime);
+
+    /**
+     * 查询已发出的最大序号（排队号为 站点ID-日期-序号，按前缀匹配当天该站点的排队号）
+     *
+     * @param prefix 排队号前缀匹配模式（例如：1-20250108-%）
+     * @param offset 序号在排队号中的起始位置（从1开始）
+     * @return 最大序号，没有记录返回0
+     */
+    @Query("SELECT COALESCE(MAX(CAST(SUBSTRING(q.queueNo, :offset) AS Long)), 0) FROM QueueRecord q " +
+            "WHERE q.queueNo LIKE :prefix")
+    long findMaxQueueSequence(@Param("prefix") String prefix, @Param("offset") int offset);
 }
@@ -1,33 +1,90 @@
 package com.ev.charging.service;
 
+import com.ev.charging.ai.AIServiceClient;
+import com.ev.charging.ai.JvmPredictionEngine;
+import com.ev.charging.ai.LocalPredictionModel;
+import com.ev.charging.ai.PredictionCache;
+import com.ev.charging.ai.PredictionEngine;
+import com.ev.charging.ai.RemotePredictionEngine;
 import com.ev.charging.dto.AIPredictionDTO.*;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.HttpServerErrorException;
-import org.springframework.web.client.ResourceAccessException;
-import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * AI预测服务
  * 调用Python Flask AI服务进行充电时长预测和故障预测
+ * <p>
+ * 充电时长按 ai.engine.primary 配置的主引擎预测（jvm-进程内模型，remote-AI服务），主引擎不可用时依次改用另一个引擎
+ * 和 {@link LocalPredictionModel}；充电量与费用始终按原始输入计算。
+ * 故障预测的输入先量化到区间（充电次数50次、健康度5分等），以量化后的请求作为缓存键并发送给AI服务，
+ * 相同区间的并发请求合并为一次调用；AI服务熔断、繁忙或失败时使用本地规则（不缓存）。
  */
 @Service
 @Slf4j
 public class AIPredictionService {
 
-    @Autowired
-    private RestTemplate restTemplate;
+    public static final String SOURCE_REMOTE = RemotePredictionEngine.NAME;
+    public static final String SOURCE_LOCAL = LocalPredictionModel.NAME;
+
+    private static final BigDecimal HUNDRED = new BigDecimal("100");
+
+    /**
+     * 预计费用使用的平均电价（元/kWh），与AI服务一致
+     */
+    private static final BigDecimal AVERAGE_PRICE = new BigDecimal("0.8");
+
+    private static final BigDecimal DEFAULT_TEMPERATURE = new BigDecimal("25");
+
+    private final AIServiceClient aiServiceClient;
+    private final JvmPredictionEngine jvmEngine;
+    private final RemotePredictionEngine remoteEngine;
+    private final LocalPredictionModel localModel;
+    private final PredictionCache<FaultPredictRequest, FaultPredictResponse> faultCache;
+
+    /**
+     * 充电时长引擎的尝试顺序：主引擎、另一个引擎、本地解析模型
+     */
+    private final List<PredictionEngine> durationEngines;
 
     /**
-     * AI服务基础URL，从配置文件读取
+     * 合并等待的最长时间，与AI服务读取超时一致
      */
-    @Value("${ai.service.url:http://localhost:5000}")
-    private String aiServiceUrl;
+    private final long waitMillis;
+
+    private final AtomicLong localCount = new AtomicLong();
+    private final Map<String, AtomicLong> durationCounts = new HashMap<>();
+
+    public AIPredictionService(AIServiceClient aiServiceClient,
+                               JvmPredictionEngine jvmEngine,
+                               RemotePredictionEngine remoteEngine,
+                               LocalPredictionModel localModel,
+                               @Value("${ai.engine.primary:jvm}") String primaryEngine,
+                               @Value("${ai.service.read-timeout:3000}") long waitMillis,
+                               @Value("${ai.cache.max-size:10000}") int cacheSize,
+                               @Value("${ai.cache.ttl:600000}") long cacheTtl) {
+        this.aiServiceClient = aiServiceClient;
+        this.jvmEngine = jvmEngine;
+        this.remoteEngine = remoteEngine;
+        this.localModel = localModel;
+        this.waitMillis = waitMillis;
+        this.faultCache = new PredictionCache<>(cacheSize, cacheTtl);
+        this.durationEngines = switch (primaryEngine) {
+            case JvmPredictionEngine.NAME -> List.of(jvmEngine, remoteEngine, localModel);
+            case RemotePredictionEngine.NAME -> List.of(remoteEngine, jvmEngine, localModel);
+            default -> throw new IllegalArgumentException("不支持的预测引擎: " + primaryEngine);
+        };
+        for (PredictionEngine engine : durationEngines) {
+            durationCounts.put(engine.name(), new AtomicLong());
+        }
+    }
 
     /**
      * 预测充电时长
@@ -36,47 +93,33 @@ public class AIPredictionService {
      * @return 预测结果
      */
     public DurationPredictResponse predictChargeDuration(DurationPredictRequest request) {
-        String url = aiServiceUrl + "/api/ai/predict/duration";
-
-        log.info("调用AI服务预测充电时长: url={}, request={}", url, request);
-
-        try {
-            // 验证请求参数
-            validateDurationRequest(request);
-
-            // 调用AI服务
-            DurationPredictResponse response = restTemplate.postForObject(
-                    url,
-                    request,
-                    DurationPredictResponse.class
-            );
-
-            if (response == null) {
-                log.error("AI服务返回空响应");
-                throw new RuntimeException("AI服务返回空响应");
+        // 验证请求参数
+        validateDurationRequest(request);
+
+        double capacity = request.getBatteryCapacity().doubleValue();
+        double currentSoc = request.getCurrentSoc().doubleValue();
+        double targetSoc = request.getTargetSoc().doubleValue();
+        double chargePower = request.getChargePower().doubleValue();
+        double temperature = request.getTemperature().doubleValue();
+
+        double minutes = Double.NaN;
+        String source = SOURCE_LOCAL;
+        for (PredictionEngine engine : durationEngines) {
+            minutes = engine.predictDurationMinutes(capacity, currentSoc, targetSoc, chargePower, temperature);
+            if (Double.isFinite(minutes)) {
+                source = engine.name();
+                break;
             }
+        }
+        durationCounts.get(source).incrementAndGet();
 
-            log.info("充电时长预测成功: duration={}分钟, chargeAmount={}kWh, estimatedCost={}元",
-                    response.getDuration(), response.getChargeAmount(), response.getEstimatedCost());
-
-            return response;
-
-        } catch (HttpClientErrorException e) {
-            log.error("AI服务调用失败(客户端错误): status={}, body={}", e.getStatusCode(), e.getResponseBodyAsString());
-            throw new RuntimeException("AI服务调用失败: " + e.getMessage());
-
-        } catch (HttpServerErrorException e) {
-            log.error("AI服务调用失败(服务器错误): status={}, body={}", e.getStatusCode(), e.getResponseBodyAsString());
-            throw new RuntimeException("AI服务内部错误，请稍后重试");
-
-        } catch (ResourceAccessException e) {
-            log.error("AI服务连接超时或无法访问: {}", e.getMessage());
-            throw new RuntimeException("AI服务暂时不可用，请稍后重试");
+        BigDecimal duration = BigDecimal.valueOf(Math.max(minutes, 0)).setScale(2, RoundingMode.HALF_UP);
+        BigDecimal chargeAmount = chargeAmount(request).setScale(2, RoundingMode.HALF_UP);
+        BigDecimal estimatedCost = chargeAmount(request).multiply(AVERAGE_PRICE).setScale(2, RoundingMode.HALF_UP);
 
-        } catch (Exception e) {
-            log.error("充电时长预测失败: {}", e.getMessage(), e);
-            throw new RuntimeException("充电时长预测失败: " + e.getMessage());
-        }
+        log.debug("充电时长预测: duration={}分钟, chargeAmount={}kWh, estimatedCost={}元, source={}",
+                duration, chargeAmount, estimatedCost, source);
+        return new DurationPredictResponse(duration, chargeAmount, estimatedCost, source);
     }
 
     /**
@@ -86,51 +129,64 @@ public class AIPredictionService {
      * @return 预测结果
      */
     public FaultPredictResponse predictFault(FaultPredictRequest request) {
-        String url = aiServiceUrl + "/api/ai/predict/fault";
-
-        log.info("调用AI服务预测故障概率: url={}, request={}", url, request);
-
-        try {
-            // 验证请求参数
-            validateFaultRequest(request);
-
-            // 调用AI服务
-            FaultPredictResponse response = restTemplate.postForObject(
-                    url,
-                    request,
-                    FaultPredictResponse.class
-            );
-
-            if (response == null) {
-                log.error("AI服务返回空响应");
-                throw new RuntimeException("AI服务返回空响应");
+        // 验证请求参数
+        validateFaultRequest(request);
+
+        FaultPredictRequest key = quantize(request);
+        FaultPredictResponse cached = faultCache.get(key, () -> {
+            FaultPredictResponse response = aiServiceClient.predictFault(key);
+            if (response == null || response.getFaultProbability() == null) {
+                return null;
             }
-
             // 计算风险等级
             response.calculateRiskLevel();
-
-            log.info("故障预测成功: faultProbability={}%, willFault={}, riskLevel={}, suggestion={}",
-                    response.getFaultProbability(), response.getWillFault(),
-                    response.getRiskLevel(), response.getSuggestion());
-
+            response.setSource(SOURCE_REMOTE);
             return response;
+        }, waitMillis);
+
+        FaultPredictResponse response;
+        if (cached != null) {
+            // 缓存对象共享，返回副本
+            response = new FaultPredictResponse(cached.getFaultProbability(), cached.getWillFault(),
+                    cached.getSuggestion(), cached.getRiskLevel(), cached.getSource());
+        } else {
+            double probability = localModel.predictFaultProbability(request);
+            response = new FaultPredictResponse();
+            response.setFaultProbability(BigDecimal.valueOf(probability * 100).setScale(2, RoundingMode.HALF_UP));
+            response.setWillFault(probability > 0.5);
+            response.setSuggestion(localModel.suggestion(probability));
+            response.setSource(SOURCE_LOCAL);
+            response.calculateRiskLevel();
+            localCount.incrementAndGet();
+        }
 
-        } catch (HttpClientErrorException e) {
-            log.error("AI服务调用失败(客户端错误): status={}, body={}", e.getStatusCode(), e.getResponseBodyAsString());
-            throw new RuntimeException("AI服务调用失败: " + e.getMessage());
-
-        } catch (HttpServerErrorException e) {
-            log.error("AI服务调用失败(服务器错误): status={}, body={}", e.getStatusCode(), e.getResponseBodyAsString());
-            throw new RuntimeException("AI服务内部错误，请稍后重试");
+        log.debug("故障预测: faultProbability={}%, riskLevel={}, source={}",
+                response.getFaultProbability(), response.getRiskLevel(), response.getSource());
+        return response;
+    }
 
-        } catch (ResourceAccessException e) {
-            log.error("AI服务连接超时或无法访问: {}", e.getMessage());
-            throw new RuntimeException("AI服务暂时不可用，请稍后重试");
+    /**
+     * 检查AI服务是否可用
+     *
+     * @return true-可用，false-不可用
+     */
+    public boolean isAIServiceAvailable() {
+        return aiServiceClient.isAvailable();
+    }
 
-        } catch (Exception e) {
-            log.error("故障预测失败: {}", e.getMessage(), e);
-            throw new RuntimeException("故障预测失败: " + e.getMessage());
-        }
+    /**
+     * 预测统计：各引擎的充电时长预测次数、进程内模型状态、AI服务熔断状态与调用次数、缓存命中与合并、故障预测本地降级次数
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>(aiServiceClient.stats());
+        Map<String, Long> durationBySource = new HashMap<>();
+        durationCounts.forEach((name, count) -> durationBySource.put(name, count.get()));
+        stats.put("durationPredictions", durationBySource);
+        stats.put("jvmEngine", jvmEngine.stats());
+        stats.put("durationCache", remoteEngine.stats());
+        stats.put("faultCache", faultCache.stats());
+        stats.put("localFaultPredictions", localCount.get());
+        return stats;
     }
 
     /**
@@ -151,7 +207,7 @@ public class AIPredictionService {
 
         // 如果没有提供温度，设置默认值为25℃
         if (request.getTemperature() == null) {
-            request.setTemperature(new BigDecimal("25"));
+            request.setTemperature(DEFAULT_TEMPERATURE);
         }
     }
 
@@ -177,19 +233,37 @@ public class AIPredictionService {
     }
 
     /**
-     * 检查AI服务是否可用
-     *
-     * @return true-可用，false-不可用
+     * 故障请求量化：充电次数50次、充电量500kWh、维护天数5天、健康度5分（向下，偏保守）、
+     * 日均使用0.5次、电压波动5V（向上，偏保守），历史故障次数保持原值
      */
-    public boolean isAIServiceAvailable() {
-        String url = aiServiceUrl + "/health";
-
-        try {
-            String response = restTemplate.getForObject(url, String.class);
-            return response != null;
-        } catch (Exception e) {
-            log.warn("AI服务健康检查失败: {}", e.getMessage());
-            return false;
-        }
+    private static FaultPredictRequest quantize(FaultPredictRequest request) {
+        return FaultPredictRequest.builder()
+                .totalChargeCount(request.getTotalChargeCount() / 50 * 50)
+                .totalChargeAmount(floor(request.getTotalChargeAmount(), 500))
+                .daysSinceLastMaintenance(request.getDaysSinceLastMaintenance() / 5 * 5)
+                .healthScore(request.getHealthScore() / 5 * 5)
+                .avgDailyUsage(nearest(request.getAvgDailyUsage().multiply(BigDecimal.valueOf(2)), 1)
+                        .divide(BigDecimal.valueOf(2), 1, RoundingMode.UNNECESSARY))
+                .voltageFluctuation(ceil(request.getVoltageFluctuation(), 5))
+                .faultHistoryCount(request.getFaultHistoryCount())
+                .build();
+    }
+
+    private static BigDecimal chargeAmount(DurationPredictRequest request) {
+        return request.getBatteryCapacity()
+                .multiply(request.getTargetSoc().subtract(request.getCurrentSoc()))
+                .divide(HUNDRED, 4, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal nearest(BigDecimal value, int step) {
+        return value.divide(BigDecimal.valueOf(step), 0, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(step));
+    }
+
+    private static BigDecimal floor(BigDecimal value, int step) {
+        return value.divide(BigDecimal.valueOf(step), 0, RoundingMode.FLOOR).multiply(BigDecimal.valueOf(step));
+    }
+
+    private static BigDecimal ceil(BigDecimal value, int step) {
+        return value.divide(BigDecimal.valueOf(step), 0, RoundingMode.CEILING).multiply(BigDecimal.valueOf(step));
     }
 }
@@ -1,8 +1,11 @@
 package com.ev.charging.service;
 
+import com.ev.charging.catalog.CatalogCache;
 import com.ev.charging.common.ResultCode;
 import com.ev.charging.entity.ChargingPile;
+import com.ev.charging.event.PileEventPublisher;
 import com.ev.charging.repository.ChargingPileRepository;
+import com.ev.charging.telemetry.TelemetryPipeline;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.BeanUtils;
 import org.springframework.stereotype.Service;
@@ -20,6 +23,9 @@ public class ChargingPileService {
 
     private final ChargingPileRepository pileRepository;
     private final ChargingStationService stationService;
+    private final PileEventPublisher pileEventPublisher;
+    private final CatalogCache catalogCache;
+    private final TelemetryPipeline telemetryPipeline;
 
     /**
      * 获取所有充电桩
@@ -112,6 +118,8 @@ public class ChargingPileService {
         }
 
         ChargingPile savedPile = pileRepository.save(pile);
+        pileEventPublisher.statusChanged(savedPile, null);
+        catalogCache.pileSaved(savedPile);
 
         // 更新充电站的充电桩统计
         stationService.updateStationPileCount(pile.getStationId());
@@ -137,6 +145,15 @@ public class ChargingPileService {
         BeanUtils.copyProperties(pile, existing, "id", "pileNo", "createTime", "updateTime");
 
         ChargingPile savedPile = pileRepository.save(existing);
+        catalogCache.pileSaved(savedPile);
+
+        if (!oldStationId.equals(existing.getStationId())) {
+            // 换站视为从原站点移除、加入新站点
+            pileEventPublisher.statusChanged(savedPile.getId(), oldStationId, oldStatus, null);
+            pileEventPublisher.statusChanged(savedPile, null);
+        } else {
+            pileEventPublisher.statusChanged(savedPile, oldStatus);
+        }
 
         // 如果充电站ID或状态发生变化，更新充电站统计
         if (!oldStationId.equals(existing.getStationId()) ||
@@ -162,8 +179,10 @@ public class ChargingPileService {
     @Transactional
     public ChargingPile updatePileStatus(Long id, Byte status) {
         ChargingPile pile = getPileById(id);
+        Byte oldStatus = pile.getStatus();
         pile.setStatus(status);
         ChargingPile savedPile = pileRepository.save(pile);
+        pileEventPublisher.statusChanged(savedPile, oldStatus);
 
         // 更新充电站统计
         stationService.updateStationPileCount(pile.getStationId());
@@ -172,20 +191,17 @@ public class ChargingPileService {
     }
 
     /**
-     * 更新充电桩实时数据
+     * 更新充电桩实时数据（写入遥测流水线，异步批量落库）
      *
      * @param id          充电桩ID
      * @param voltage     电压
      * @param current     电流
-     * @return 更新后的充电桩
+     * @return 是否被接收（遥测缓冲区满时返回false）
      */
-    @Transactional
-    public ChargingPile updatePileRealTimeData(Long id, Integer voltage, Double current) {
-        ChargingPile pile = getPileById(id);
-        pile.setVoltage(voltage);
-        pile.setCurrent(current);
-
-        return pileRepository.save(pile);
+    public boolean updatePileRealTimeData(Long id, Integer voltage, Double current) {
+        return telemetryPipeline.offer(id, System.currentTimeMillis(),
+                voltage != null ? voltage : 0,
+                current != null ? (int) Math.round(current * 100) : 0);
     }
 
     /**
@@ -197,11 +213,13 @@ public class ChargingPileService {
     @Transactional
     public ChargingPile recordMaintenance(Long id) {
         ChargingPile pile = getPileById(id);
+        Byte oldStatus = pile.getStatus();
         pile.setLastMaintenanceTime(LocalDateTime.now());
         pile.setStatus((byte) 5); // 5-离线（维护中）
         pile.setHealthScore((byte) 100); // 维护后重置健康度
 
         ChargingPile savedPile = pileRepository.save(pile);
+        pileEventPublisher.statusChanged(savedPile, oldStatus);
 
         // 更新充电站统计
         stationService.updateStationPileCount(pile.getStationId());
@@ -220,6 +238,8 @@ public class ChargingPileService {
         Long stationId = pile.getStationId();
 
         pileRepository.deleteById(id);
+        pileEventPublisher.statusChanged(id, stationId, pile.getStatus(), null);
+        catalogCache.pileDeleted(id);
 
         // 更新充电站统计
         stationService.updateStationPileCount(stationId);
@@ -1,7 +1,10 @@
 package com.ev.charging.service;
 
+import com.ev.charging.catalog.CatalogCache;
+import com.ev.charging.catalog.StationSnapshot;
 import com.ev.charging.common.ResultCode;
 import com.ev.charging.entity.ChargingStation;
+import com.ev.charging.geo.StationGeoIndex;
 import com.ev.charging.repository.ChargingPileRepository;
 import com.ev.charging.repository.ChargingStationRepository;
 import com.ev.charging.util.DistanceUtil;
@@ -14,6 +17,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
 import java.util.stream.Collectors;
 
 /**
@@ -25,6 +29,8 @@ public class ChargingStationService {
 
     private final ChargingStationRepository stationRepository;
     private final ChargingPileRepository pileRepository;
+    private final StationGeoIndex stationGeoIndex;
+    private final CatalogCache catalogCache;
 
     /**
      * 获取所有充电站
@@ -41,8 +47,15 @@ public class ChargingStationService {
      * @return 充电站列表
      */
     public List<StationVO> getActiveStations() {
+        if (catalogCache.isReady()) {
+            return catalogCache.activeStations().stream()
+                    .map(this::convertToVO)
+                    .collect(Collectors.toList());
+        }
+
         List<ChargingStation> stations = stationRepository.findActiveStationsOrderByRating();
         return stations.stream()
+                .map(StationSnapshot::from)
                 .map(this::convertToVO)
                 .collect(Collectors.toList());
     }
@@ -65,7 +78,10 @@ public class ChargingStationService {
      * @return 充电站VO
      */
     public StationVO getStationVOById(Long id) {
-        ChargingStation station = getStationById(id);
+        StationSnapshot station = catalogCache.station(id);
+        if (station == null) {
+            throw new IllegalArgumentException(ResultCode.STATION_NOT_FOUND.getMessage());
+        }
         return convertToVO(station);
     }
 
@@ -76,9 +92,18 @@ public class ChargingStationService {
      * @return 充电站列表
      */
     public List<StationVO> searchStations(String keyword) {
+        if (catalogCache.isReady()) {
+            String lowerKeyword = keyword.toLowerCase(Locale.ROOT);
+            return catalogCache.activeStations().stream()
+                    .filter(s -> s.nameContains(lowerKeyword))
+                    .map(this::convertToVO)
+                    .collect(Collectors.toList());
+        }
+
         List<ChargingStation> stations = stationRepository.findByNameContaining(keyword);
         return stations.stream()
                 .filter(s -> s.getStatus() != null && s.getStatus() == 1)
+                .map(StationSnapshot::from)
                 .map(this::convertToVO)
                 .collect(Collectors.toList());
     }
@@ -92,6 +117,11 @@ public class ChargingStationService {
      * @return 充电站列表（按距离排序）
      */
     public List<StationVO> getNearbyStations(Double latitude, Double longitude, Double radius) {
+        // 优先使用内存空间索引
+        if (stationGeoIndex.isReady()) {
+            return toDistanceVOs(stationGeoIndex.withinRadius(latitude, longitude, radius));
+        }
+
         // 计算经纬度范围（简化算法，实际应考虑地球曲率）
         double lat = radius / 111.0; // 纬度1度约111km
         double lon = radius / (111.0 * Math.cos(Math.toRadians(latitude)));
@@ -114,7 +144,7 @@ public class ChargingStationService {
 
             // 只保留在指定半径内的充电站
             if (distance <= radius) {
-                StationVO vo = convertToVO(station);
+                StationVO vo = convertToVO(StationSnapshot.from(station));
                 vo.setDistance(distance);
                 vo.setDistanceText(DistanceUtil.formatDistance(distance));
                 result.add(vo);
@@ -127,6 +157,41 @@ public class ChargingStationService {
         return result;
     }
 
+    /**
+     * 查询最近的K个充电站
+     *
+     * @param latitude  用户当前纬度
+     * @param longitude 用户当前经度
+     * @param limit     返回数量
+     * @return 充电站列表（按距离排序）
+     */
+    public List<StationVO> getNearestStations(Double latitude, Double longitude, Integer limit) {
+        // 优先使用内存空间索引
+        if (stationGeoIndex.isReady()) {
+            return toDistanceVOs(stationGeoIndex.nearest(latitude, longitude, limit));
+        }
+
+        // 索引未就绪时计算所有营业中充电站的距离
+        List<StationVO> result = new ArrayList<>();
+        for (ChargingStation station : stationRepository.findByStatus((byte) 1)) {
+            if (station.getLatitude() == null || station.getLongitude() == null) {
+                continue;
+            }
+            double distance = DistanceUtil.calculateDistance(
+                    latitude, longitude,
+                    station.getLatitude(), station.getLongitude()
+            );
+            StationVO vo = convertToVO(StationSnapshot.from(station));
+            vo.setDistance(distance);
+            vo.setDistanceText(DistanceUtil.formatDistance(distance));
+            result.add(vo);
+        }
+
+        // 按距离排序后取前K个
+        result.sort(Comparator.comparing(StationVO::getDistance));
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
     /**
      * 创建充电站
      *
@@ -152,7 +217,9 @@ public class ChargingStationService {
             station.setReviewCount(0);
         }
 
-        return stationRepository.save(station);
+        ChargingStation saved = stationRepository.save(station);
+        catalogCache.stationSaved(saved);
+        return saved;
     }
 
     /**
@@ -168,7 +235,9 @@ public class ChargingStationService {
         // 更新字段
         BeanUtils.copyProperties(station, existing, "id", "createTime", "updateTime");
 
-        return stationRepository.save(existing);
+        ChargingStation saved = stationRepository.save(existing);
+        catalogCache.stationSaved(saved);
+        return saved;
     }
 
     /**
@@ -186,7 +255,8 @@ public class ChargingStationService {
         station.setTotalPiles((int) totalPiles);
         station.setAvailablePiles((int) availablePiles);
 
-        stationRepository.save(station);
+        ChargingStation saved = stationRepository.save(station);
+        catalogCache.stationSaved(saved);
     }
 
     /**
@@ -197,17 +267,48 @@ public class ChargingStationService {
     @Transactional
     public void deleteStation(Long id) {
         stationRepository.deleteById(id);
+        catalogCache.stationDeleted(id);
+    }
+
+    /**
+     * 将空间索引查询结果转换为带距离的VO
+     *
+     * @param hits 查询结果（已按距离排序）
+     * @return 充电站VO列表
+     */
+    private List<StationVO> toDistanceVOs(List<StationGeoIndex.Hit> hits) {
+        List<StationVO> result = new ArrayList<>(hits.size());
+        for (StationGeoIndex.Hit hit : hits) {
+            StationVO vo = convertToVO(hit.getStation());
+            vo.setDistance(hit.getDistance());
+            vo.setDistanceText(DistanceUtil.formatDistance(hit.getDistance()));
+            result.add(vo);
+        }
+        return result;
     }
 
     /**
-     * 将实体转换为VO
+     * 将充电站快照转换为VO
      *
-     * @param station 充电站实体
+     * @param station 充电站快照
      * @return 充电站VO
      */
-    private StationVO convertToVO(ChargingStation station) {
+    private StationVO convertToVO(StationSnapshot station) {
         StationVO vo = new StationVO();
-        BeanUtils.copyProperties(station, vo, "status");
+        vo.setId(station.getId());
+        vo.setName(station.getName());
+        vo.setAddress(station.getAddress());
+        vo.setLongitude(station.getLongitude());
+        vo.setLatitude(station.getLatitude());
+        vo.setPhone(station.getPhone());
+        vo.setBusinessHours(station.getBusinessHours());
+        vo.setTotalPiles(station.getTotalPiles());
+        vo.setAvailablePiles(station.getAvailablePiles());
+        vo.setImageUrl(station.getImageUrl());
+        vo.setDescription(station.getDescription());
+        vo.setRating(station.getRating());
+        vo.setReviewCount(station.getReviewCount());
+        vo.setCreateTime(station.getCreateTime());
 
         // 转换状态：Byte -> String
         if (station.getStatus() != null) {
@@ -1,16 +1,18 @@
 package com.ev.charging.service;
 
+import com.ev.charging.catalog.CatalogCache;
+import com.ev.charging.catalog.CatalogLookup;
+import com.ev.charging.catalog.PileSnapshot;
 import com.ev.charging.dto.FaultQueryDTO;
 import com.ev.charging.dto.FaultReportDTO;
 import com.ev.charging.dto.RepairUpdateDTO;
 import com.ev.charging.entity.ChargingPile;
-import com.ev.charging.entity.ChargingStation;
 import com.ev.charging.entity.FaultRecord;
+import com.ev.charging.event.PileEventPublisher;
 import com.ev.charging.repository.ChargingPileRepository;
-import com.ev.charging.repository.ChargingStationRepository;
 import com.ev.charging.repository.FaultRecordRepository;
 import com.ev.charging.vo.FaultRecordVO;
-import com.ev.charging.websocket.PileStatusHandler;
+import com.ev.charging.websocket.WebSocketPublisher;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,6 +24,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -41,7 +44,13 @@ public class FaultService {
     private ChargingPileRepository chargingPileRepository;
 
     @Autowired
-    private ChargingStationRepository chargingStationRepository;
+    private PileEventPublisher pileEventPublisher;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private WebSocketPublisher webSocketPublisher;
 
     /**
      * 上报故障
@@ -69,19 +78,20 @@ public class FaultService {
         // 更新充电桩状态为故障
         ChargingPile pile = chargingPileRepository.findById(dto.getPileId())
                 .orElseThrow(() -> new RuntimeException("充电桩不存在"));
+        Byte oldStatus = pile.getStatus();
         pile.setStatus((byte) 4); // 4-故障
         chargingPileRepository.save(pile);
-
-        // 发送WebSocket通知
-        try {
-            String wsMessage = String.format(
-                    "{\"type\":\"fault_alert\",\"pileId\":%d,\"pileNo\":\"%s\",\"severity\":%d,\"faultDescription\":\"%s\"}",
-                    dto.getPileId(), pile.getPileNo(), dto.getSeverity(), dto.getFaultDescription()
-            );
-            PileStatusHandler.broadcast(wsMessage);
-        } catch (Exception e) {
-            log.error("WebSocket广播失败", e);
-        }
+        pileEventPublisher.statusChanged(pile, oldStatus);
+
+        // 事务提交后向该站点的订阅者推送故障告警
+        Map<String, Object> alert = new HashMap<>();
+        alert.put("type", "fault_alert");
+        alert.put("pileId", dto.getPileId());
+        alert.put("pileNo", pile.getPileNo());
+        alert.put("stationId", pile.getStationId());
+        alert.put("severity", dto.getSeverity());
+        alert.put("faultDescription", dto.getFaultDescription());
+        webSocketPublisher.publishToStationAfterCommit(pile.getStationId(), alert);
 
         log.info("故障记录创建成功: id={}", saved.getId());
         return saved.getId();
@@ -105,7 +115,8 @@ public class FaultService {
                 pageable
         );
 
-        return page.map(this::convertToVO);
+        CatalogLookup lookup = lookupFor(page.getContent());
+        return page.map(faultRecord -> convertToVO(faultRecord, lookup));
     }
 
     /**
@@ -114,7 +125,7 @@ public class FaultService {
     public FaultRecordVO getFaultById(Long id) {
         FaultRecord faultRecord = faultRecordRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("故障记录不存在"));
-        return convertToVO(faultRecord);
+        return convertToVO(faultRecord, lookupFor(Collections.singletonList(faultRecord)));
     }
 
     /**
@@ -140,10 +151,12 @@ public class FaultService {
         if (dto.getRepairStatus() == 2) {
             ChargingPile pile = chargingPileRepository.findById(faultRecord.getPileId())
                     .orElseThrow(() -> new RuntimeException("充电桩不存在"));
+            Byte oldStatus = pile.getStatus();
             pile.setStatus((byte) 1); // 1-空闲
             pile.setHealthScore((byte) 100); // 重置健康度
             pile.setLastMaintenanceTime(LocalDateTime.now());
             chargingPileRepository.save(pile);
+            pileEventPublisher.statusChanged(pile, oldStatus);
             log.info("充电桩状态已更新为空闲: pileId={}", pile.getId());
         }
     }
@@ -179,30 +192,40 @@ public class FaultService {
         // 查询紧急待维修故障
         List<FaultRecord> urgentFaults = faultRecordRepository.findUrgentPendingFaults();
         statistics.put("urgentFaultCount", urgentFaults.size());
+        CatalogLookup lookup = lookupFor(urgentFaults);
         statistics.put("urgentFaults", urgentFaults.stream()
-                .map(this::convertToVO)
+                .map(faultRecord -> convertToVO(faultRecord, lookup))
                 .collect(Collectors.toList()));
 
         return statistics;
     }
 
+    /**
+     * 批量解析故障记录关联的充电站和充电桩
+     */
+    private CatalogLookup lookupFor(List<FaultRecord> faultRecords) {
+        return catalogCache.lookup(
+                faultRecords.stream().map(FaultRecord::getStationId).collect(Collectors.toList()),
+                faultRecords.stream().map(FaultRecord::getPileId).collect(Collectors.toList())
+        );
+    }
+
     /**
      * 转换为VO
      */
-    private FaultRecordVO convertToVO(FaultRecord faultRecord) {
+    private FaultRecordVO convertToVO(FaultRecord faultRecord, CatalogLookup lookup) {
         FaultRecordVO vo = new FaultRecordVO();
         BeanUtils.copyProperties(faultRecord, vo);
 
         // 获取充电桩信息
-        chargingPileRepository.findById(faultRecord.getPileId()).ifPresent(pile -> {
+        PileSnapshot pile = lookup.pile(faultRecord.getPileId());
+        if (pile != null) {
             vo.setPileNo(pile.getPileNo());
             vo.setPileName(pile.getPileName());
-        });
+        }
 
         // 获取站点信息
-        chargingStationRepository.findById(faultRecord.getStationId()).ifPresent(station -> {
-            vo.setStationName(station.getName());
-        });
+        vo.setStationName(lookup.stationName(faultRecord.getStationId()));
 
         // 设置文本描述
         vo.setFaultTypeText(getFaultTypeText(faultRecord.getFaultType()));
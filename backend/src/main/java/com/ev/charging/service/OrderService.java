@@ -1,13 +1,19 @@
 package com.ev.charging.service;
 
+import com.ev.charging.billing.TariffEngine;
+import com.ev.charging.catalog.CatalogCache;
+import com.ev.charging.catalog.CatalogLookup;
+import com.ev.charging.catalog.PileSnapshot;
 import com.ev.charging.dto.CreateOrderDTO;
 import com.ev.charging.entity.ChargeOrder;
 import com.ev.charging.entity.ChargingPile;
-import com.ev.charging.entity.ChargingStation;
 import com.ev.charging.entity.Payment;
+import com.ev.charging.entity.QueueRecord;
+import com.ev.charging.event.OrderChangedEvent;
+import com.ev.charging.event.OrderEventPublisher;
+import com.ev.charging.event.PileEventPublisher;
 import com.ev.charging.repository.ChargeOrderRepository;
 import com.ev.charging.repository.ChargingPileRepository;
-import com.ev.charging.repository.ChargingStationRepository;
 import com.ev.charging.repository.PaymentRepository;
 import com.ev.charging.vo.OrderDetailVO;
 import lombok.extern.slf4j.Slf4j;
@@ -19,12 +25,13 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 /**
  * 订单服务
@@ -39,26 +46,39 @@ public class OrderService {
     @Autowired
     private ChargingPileRepository pileRepository;
 
-    @Autowired
-    private ChargingStationRepository stationRepository;
-
     @Autowired
     private PaymentRepository paymentRepository;
 
     @Autowired
     private CarbonCreditService carbonCreditService;
 
+    @Autowired
+    private PileEventPublisher pileEventPublisher;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private OrderEventPublisher orderEventPublisher;
+
+    @Autowired
+    private TariffEngine tariffEngine;
+
+    @Autowired
+    private PileClaimGuard pileClaimGuard;
+
+    @Autowired
+    private QueueService queueService;
+
     /**
      * 创建订单（开始充电）
      */
     @Transactional
     public Long createOrder(Long userId, CreateOrderDTO dto) {
-        // 1. 检查充电桩状态
-        ChargingPile pile = pileRepository.findById(dto.getPileId())
-                .orElseThrow(() -> new RuntimeException("充电桩不存在"));
-
-        if (pile.getStatus() != 1) {
-            throw new RuntimeException("充电桩不可用，当前状态：" + getStatusText(pile.getStatus()));
+        // 1. 检查充电桩是否存在
+        PileSnapshot pile = catalogCache.pile(dto.getPileId());
+        if (pile == null) {
+            throw new RuntimeException("充电桩不存在");
         }
 
         // 2. 检查用户是否有进行中的订单
@@ -67,11 +87,25 @@ public class OrderService {
             throw new RuntimeException("您有正在进行的充电订单，请先结束后再开始新的充电");
         }
 
-        // 3. 检查充电桩是否被占用
-        Optional<ChargeOrder> pileOrder = orderRepository.findByPileIdAndOrderStatus(dto.getPileId(), (byte) 0);
-        if (pileOrder.isPresent()) {
+        // 3. 占用充电桩：先过进程内守卫，再以条件更新把状态改为"充电中"，并发请求只有一个成功。
+        //    预约中的充电桩只有被叫号的用户可以占用；叫号已过期时该桩已改回空闲，按空闲桩占用
+        if (!pileClaimGuard.tryClaim(dto.getPileId())) {
             throw new RuntimeException("该充电桩正在使用中");
         }
+        Optional<QueueRecord> call = queueService.findCalled(userId);
+        boolean reservedForUser = call.isPresent() && dto.getPileId().equals(call.get().getPileId())
+                && pileRepository.compareAndSetStatus(dto.getPileId(), (byte) 3, (byte) 2) > 0;
+        if (!reservedForUser && pileRepository.compareAndSetStatus(dto.getPileId(), (byte) 1, (byte) 2) == 0) {
+            ChargingPile current = pileRepository.findById(dto.getPileId())
+                    .orElseThrow(() -> new RuntimeException("充电桩不存在"));
+            if (current.getStatus() != null && current.getStatus() == 3) {
+                throw new RuntimeException("该充电桩已为叫号用户预留，请等待叫号");
+            }
+            throw new RuntimeException("充电桩不可用，当前状态：" + getStatusText(current.getStatus()));
+        }
+
+        // 叫号的排队记录在同一事务内标记为已完成，在其他充电桩开始充电时释放预留的充电桩
+        call.ifPresent(record -> queueService.completeCall(record, reservedForUser));
 
         // 4. 生成订单号
         String orderNo = generateOrderNo();
@@ -95,10 +129,8 @@ public class OrderService {
                 .build();
 
         order = orderRepository.save(order);
-
-        // 6. 更新充电桩状态为"充电中"
-        pile.setStatus((byte) 2);
-        pileRepository.save(pile);
+        orderEventPublisher.orderChanged(OrderChangedEvent.Type.CREATED, order);
+        pileEventPublisher.statusChanged(pile.getId(), pile.getStationId(), reservedForUser ? (byte) 3 : (byte) 1, (byte) 2);
 
         log.info("创建订单成功: orderNo={}, userId={}, pileId={}", orderNo, userId, dto.getPileId());
 
@@ -129,10 +161,11 @@ public class OrderService {
         order.setEndSoc(endSoc);
         order.setChargeAmount(actualChargeAmount);
 
-        // 4. 计算费用（峰谷平电价）
-        BigDecimal electricityFee = calculateElectricityFee(order.getStartTime(), endTime, actualChargeAmount);
-        BigDecimal serviceFee = actualChargeAmount.multiply(BigDecimal.valueOf(0.5)).setScale(2, RoundingMode.HALF_UP); // 服务费：0.5元/kWh
-        BigDecimal totalFee = electricityFee.add(serviceFee);
+        // 4. 计算费用（按充电桩峰谷平电价分时段计费）
+        TariffEngine.Settlement settlement = tariffEngine.settle(order.getPileId(), order.getStartTime(), endTime, actualChargeAmount);
+        BigDecimal electricityFee = settlement.getElectricityFee();
+        BigDecimal serviceFee = settlement.getServiceFee();
+        BigDecimal totalFee = settlement.getTotalFee();
 
         order.setElectricityFee(electricityFee);
         order.setServiceFee(serviceFee);
@@ -142,56 +175,19 @@ public class OrderService {
         order.setOrderStatus((byte) 1);
 
         orderRepository.save(order);
+        orderEventPublisher.orderChanged(OrderChangedEvent.Type.COMPLETED, order);
 
-        // 6. 更新充电桩状态为"空闲"
+        // 6. 更新充电桩状态为"空闲"（事务提交后自动为排队用户叫号）
         ChargingPile pile = pileRepository.findById(order.getPileId()).orElseThrow();
+        Byte oldStatus = pile.getStatus();
         pile.setStatus((byte) 1);
         pileRepository.save(pile);
+        pileEventPublisher.statusChanged(pile, oldStatus);
 
         log.info("结束充电: orderId={}, chargeDuration={}分钟, chargeAmount={}kWh, totalFee={}元",
                 orderId, chargeDuration, actualChargeAmount, totalFee);
     }
 
-    /**
-     * 计算电费（峰谷平电价）
-     * 谷时（23:00-07:00）: 0.4元/kWh
-     * 平时（07:00-10:00, 15:00-18:00, 21:00-23:00）: 0.8元/kWh
-     * 峰时（10:00-15:00, 18:00-21:00）: 1.2元/kWh
-     */
-    private BigDecimal calculateElectricityFee(LocalDateTime startTime, LocalDateTime endTime, BigDecimal totalAmount) {
-        // 简化计算：基于开始时间所在时段的电价
-        LocalTime startTimeOfDay = startTime.toLocalTime();
-        BigDecimal pricePerKwh = getPriceByTime(startTimeOfDay);
-
-        // 更精确的方式是按分钟计算不同时段的电量，这里为简化处理采用开始时间的电价
-        BigDecimal fee = totalAmount.multiply(pricePerKwh).setScale(2, RoundingMode.HALF_UP);
-
-        log.debug("计算电费: startTime={}, pricePerKwh={}, totalAmount={}, fee={}",
-                startTime, pricePerKwh, totalAmount, fee);
-
-        return fee;
-    }
-
-    /**
-     * 根据时间获取电价
-     */
-    private BigDecimal getPriceByTime(LocalTime time) {
-        int hour = time.getHour();
-
-        // 谷时（23:00-07:00）
-        if (hour >= 23 || hour < 7) {
-            return BigDecimal.valueOf(0.4);
-        }
-        // 峰时（10:00-15:00, 18:00-21:00）
-        else if ((hour >= 10 && hour < 15) || (hour >= 18 && hour < 21)) {
-            return BigDecimal.valueOf(1.2);
-        }
-        // 平时（07:00-10:00, 15:00-18:00, 21:00-23:00）
-        else {
-            return BigDecimal.valueOf(0.8);
-        }
-    }
-
     /**
      * 获取订单列表（分页）
      */
@@ -205,7 +201,14 @@ public class OrderService {
             orderPage = orderRepository.findByUserIdOrderByCreateTimeDesc(userId, pageable);
         }
 
-        return orderPage.map(this::convertToVO);
+        // 批量解析本页关联的充电站和充电桩，避免逐行查询
+        List<ChargeOrder> orders = orderPage.getContent();
+        CatalogLookup lookup = catalogCache.lookup(
+                orders.stream().map(ChargeOrder::getStationId).collect(Collectors.toList()),
+                orders.stream().map(ChargeOrder::getPileId).collect(Collectors.toList())
+        );
+
+        return orderPage.map(order -> convertToVO(order, lookup));
     }
 
     /**
@@ -215,7 +218,11 @@ public class OrderService {
         ChargeOrder order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("订单不存在"));
 
-        return convertToVO(order);
+        CatalogLookup lookup = catalogCache.lookup(
+                Collections.singletonList(order.getStationId()),
+                Collections.singletonList(order.getPileId())
+        );
+        return convertToVO(order, lookup);
     }
 
     /**
@@ -238,11 +245,14 @@ public class OrderService {
         order.setOrderStatus((byte) 2);
         order.setEndTime(LocalDateTime.now());
         orderRepository.save(order);
+        orderEventPublisher.orderChanged(OrderChangedEvent.Type.CANCELLED, order);
 
-        // 更新充电桩状态为"空闲"
+        // 更新充电桩状态为"空闲"（事务提交后自动为排队用户叫号）
         ChargingPile pile = pileRepository.findById(order.getPileId()).orElseThrow();
+        Byte oldStatus = pile.getStatus();
         pile.setStatus((byte) 1);
         pileRepository.save(pile);
+        pileEventPublisher.statusChanged(pile, oldStatus);
 
         log.info("取消订单: orderId={}, userId={}", orderId, userId);
     }
@@ -288,6 +298,7 @@ public class OrderService {
         order.setPaymentMethod(paymentMethod);
         order.setPaymentTime(LocalDateTime.now());
         orderRepository.save(order);
+        orderEventPublisher.orderChanged(OrderChangedEvent.Type.PAID, order);
 
         // 7. 支付成功后发放碳积分
         try {
@@ -308,15 +319,15 @@ public class OrderService {
     /**
      * 转换为VO
      */
-    private OrderDetailVO convertToVO(ChargeOrder order) {
-        ChargingPile pile = pileRepository.findById(order.getPileId()).orElse(null);
-        ChargingStation station = stationRepository.findById(order.getStationId()).orElse(null);
+    private OrderDetailVO convertToVO(ChargeOrder order, CatalogLookup lookup) {
+        PileSnapshot pile = lookup.pile(order.getPileId());
+        String stationName = lookup.stationName(order.getStationId());
 
         return OrderDetailVO.builder()
                 .id(order.getId())
                 .orderNo(order.getOrderNo())
                 .userId(order.getUserId())
-                .stationName(station != null ? station.getName() : "未知站点")
+                .stationName(stationName != null ? stationName : "未知站点")
                 .pileNo(pile != null ? pile.getPileNo() : "未知充电桩")
                 .pilePower(pile != null ? BigDecimal.valueOf(pile.getPower()) : BigDecimal.ZERO)
                 .startTime(order.getStartTime())
@@ -0,0 +1,43 @@
+package com.ev.charging.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 充电桩占用的进程内守卫
+ * 同一充电桩的并发开始充电请求在进入数据库前先做一次内存CAS，失败的请求直接返回，
+ * 不去争抢行锁；数据库中的条件更新仍是最终判定（多实例部署时由它兜底）。
+ * 守卫在当前事务结束（提交或回滚）后释放。
+ */
+@Component
+public class PileClaimGuard {
+
+    private final Set<Long> claiming = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 尝试占用充电桩，成功时在当前事务结束后自动释放
+     *
+     * @param pileId 充电桩ID
+     * @return 是否占用成功
+     */
+    public boolean tryClaim(Long pileId) {
+        if (!claiming.add(pileId)) {
+            return false;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    claiming.remove(pileId);
+                }
+            });
+        } else {
+            claiming.remove(pileId);
+        }
+        return true;
+    }
+}
@@ -1,14 +1,26 @@
 package com.ev.charging.service;
 
+import com.ev.charging.catalog.CatalogCache;
+import com.ev.charging.catalog.StationSnapshot;
 import com.ev.charging.dto.JoinQueueDTO;
 import com.ev.charging.entity.ChargingPile;
 import com.ev.charging.entity.ChargingStation;
 import com.ev.charging.entity.QueueRecord;
+import com.ev.charging.event.PileEventPublisher;
+import com.ev.charging.event.QueueChangedEvent;
+import com.ev.charging.event.QueueEventPublisher;
+import com.ev.charging.queue.CallExpiryQueue;
+import com.ev.charging.queue.QueueEngine;
+import com.ev.charging.queue.QueueNoAllocator;
+import com.ev.charging.queue.StationQueue;
+import com.ev.charging.queue.StationRecommender;
+import com.ev.charging.queue.WaitTimeEstimator;
 import com.ev.charging.repository.ChargingPileRepository;
 import com.ev.charging.repository.ChargingStationRepository;
 import com.ev.charging.repository.QueueRecordRepository;
 import com.ev.charging.vo.QueueStatusVO;
 import com.ev.charging.vo.StationQueueInfoVO;
+import com.ev.charging.vo.StationRecommendationVO;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -16,10 +28,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Duration;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -34,18 +46,35 @@ public class QueueService {
     private final QueueRecordRepository queueRecordRepository;
     private final ChargingStationRepository stationRepository;
     private final ChargingPileRepository pileRepository;
+    private final QueueEngine queueEngine;
+    private final WaitTimeEstimator waitTimeEstimator;
+    private final CallExpiryQueue callExpiryQueue;
+    private final QueueNoAllocator queueNoAllocator;
+    private final CatalogCache catalogCache;
+    private final QueueEventPublisher queueEventPublisher;
+    private final StationRecommender stationRecommender;
+    private final PileClaimGuard pileClaimGuard;
+    private final PileEventPublisher pileEventPublisher;
+
+    private static final byte STATION_OPEN = 1;      // 充电站营业中
+
+    // 充电桩状态常量
+    private static final byte PILE_FREE = 1;         // 空闲
+    private static final byte PILE_RESERVED = 3;     // 预约中（已为叫号的排队者预留）
 
     // 排队状态常量
     private static final byte STATUS_QUEUING = 0;    // 排队中
     private static final byte STATUS_CALLED = 1;     // 已叫号
     private static final byte STATUS_EXPIRED = 2;    // 已过号
     private static final byte STATUS_CANCELLED = 3;  // 已取消
+    private static final byte STATUS_COMPLETED = 4;  // 已完成（叫号后开始充电）
 
     // 叫号后的等待时间（分钟）
     private static final int CALL_TIMEOUT_MINUTES = 15;
 
-    // 预估平均充电时长（分钟）
-    private static final int AVERAGE_CHARGE_DURATION = 30;
+    // 排队人数达到该值时推荐备选站点
+    private static final int ALTERNATIVE_QUEUE_THRESHOLD = 5;
+    private static final int ALTERNATIVE_LIMIT = 3;
 
     /**
      * 加入排队
@@ -62,7 +91,7 @@ public class QueueService {
         ChargingStation station = stationRepository.findById(stationId)
                 .orElseThrow(() -> new IllegalArgumentException("充电站不存在"));
 
-        if (!"ACTIVE".equals(station.getStatus())) {
+        if (station.getStatus() == null || station.getStatus() != STATION_OPEN) {
             throw new IllegalArgumentException("该充电站暂停营业");
         }
 
@@ -75,19 +104,18 @@ public class QueueService {
             throw new IllegalArgumentException("您已在该站点排队，请勿重复排队");
         }
 
-        // 3. 检查是否有空闲充电桩
-        long availablePiles = pileRepository.countByStationIdAndStatus(stationId, (byte) 1);
+        // 3. 检查是否有空闲充电桩（为叫号者预留的充电桩状态为预约中，不计入）
+        long availablePiles = pileRepository.countByStationIdAndStatus(stationId, PILE_FREE);
         if (availablePiles > 0) {
             throw new IllegalArgumentException("当前有空闲充电桩，无需排队，请直接开始充电");
         }
 
         // 4. 生成排队号
-        String queueNo = generateQueueNo(stationId);
+        String queueNo = queueNoAllocator.nextQueueNo(stationId);
 
         // 5. 计算当前队列位置和预计等待时间
-        long currentQueueCount = queueRecordRepository.countByStationIdAndStatus(stationId, STATUS_QUEUING);
-        int queuePosition = (int) currentQueueCount + 1;
-        int estimatedWaitTime = calculateEstimatedWaitTime(stationId, queuePosition);
+        int queuePosition = queueEngine.size(stationId) + 1;
+        int estimatedWaitTime = waitTimeEstimator.estimate(stationId, queuePosition);
 
         // 6. 创建排队记录
         QueueRecord queueRecord = QueueRecord.builder()
@@ -101,6 +129,8 @@ public class QueueService {
                 .build();
 
         QueueRecord saved = queueRecordRepository.save(queueRecord);
+        queueEngine.enqueue(saved);
+        queueEventPublisher.queueChanged(QueueChangedEvent.Type.JOINED, saved);
 
         log.info("用户{}加入站点{}排队，排队号：{}, 位置：{}", userId, stationId, queueNo, queuePosition);
 
@@ -109,6 +139,7 @@ public class QueueService {
 
     /**
      * 获取我的排队状态
+     * 只读：位置和等待时间从内存队列实时计算，不再回写数据库
      *
      * @param userId 用户ID
      * @return 排队状态
@@ -124,13 +155,19 @@ public class QueueService {
         }
 
         QueueRecord record = recordOpt.get();
+        Integer queuePosition = record.getQueuePosition();
+        Integer estimatedWaitTime = record.getEstimatedWaitTime();
 
-        // 如果是排队中，需要重新计算位置
+        // 如果是排队中，从内存队列获取实时位置
         if (record.getStatus() == STATUS_QUEUING) {
-            updateQueuePosition(record);
+            int position = queueEngine.positionOf(record.getStationId(), record.getId());
+            if (position > 0) {
+                queuePosition = position;
+                estimatedWaitTime = waitTimeEstimator.estimate(record.getStationId(), position);
+            }
         }
 
-        return convertToQueueStatusVO(record);
+        return convertToQueueStatusVO(record, queuePosition, estimatedWaitTime);
     }
 
     /**
@@ -149,13 +186,19 @@ public class QueueService {
         }
 
         QueueRecord record = recordOpt.get();
+        boolean called = record.getStatus() == STATUS_CALLED;
         record.setStatus(STATUS_CANCELLED);
         queueRecordRepository.save(record);
 
-        log.info("用户{}离开队列，排队号：{}", userId, record.getQueueNo());
+        // 移出内存队列，后续排队者的位置由回写任务异步更新；
+        // 已叫号的记录释放预留的充电桩，提交后由 QueueDispatchListener 为该桩重新叫号
+        queueEngine.remove(record.getStationId(), record.getId());
+        if (called) {
+            releaseReservedPile(record);
+        }
+        queueEventPublisher.queueChanged(QueueChangedEvent.Type.LEFT, record);
 
-        // 更新后续排队者的位置
-        updateSubsequentQueuePositions(record.getStationId(), record.getJoinTime());
+        log.info("用户{}离开队列，排队号：{}", userId, record.getQueueNo());
     }
 
     /**
@@ -165,24 +208,29 @@ public class QueueService {
      * @return 排队信息
      */
     public StationQueueInfoVO getStationQueueInfo(Long stationId) {
-        ChargingStation station = stationRepository.findById(stationId)
-                .orElseThrow(() -> new IllegalArgumentException("充电站不存在"));
+        StationSnapshot station = catalogCache.station(stationId);
+        if (station == null) {
+            throw new IllegalArgumentException("充电站不存在");
+        }
 
         // 统计排队人数
-        long queueCount = queueRecordRepository.countByStationIdAndStatus(stationId, STATUS_QUEUING);
+        long queueCount = queueEngine.size(stationId);
 
-        // 查询可用充电桩数量
-        long availablePiles = pileRepository.countByStationIdAndStatus(stationId, (byte) 1);
+        // 查询可用充电桩数量（预约中的充电桩已分配给叫号者，不计入）
+        long availablePiles = pileRepository.countByStationIdAndStatus(stationId, PILE_FREE);
 
-        // 计算平均等待时间
+        // 现在加入排队的预计等待时间（有空闲充电桩时无需等待）
         int averageWaitTime = 0;
-        if (queueCount > 0 && availablePiles > 0) {
-            averageWaitTime = (int) ((queueCount * AVERAGE_CHARGE_DURATION) / availablePiles);
+        if (availablePiles == 0) {
+            averageWaitTime = waitTimeEstimator.estimate(stationId, (int) queueCount + 1);
         }
 
-        // 判断是否建议排队
+        // 判断是否建议排队；排队较长时推荐附近更快开始充电的站点
         boolean recommendQueue = queueCount < 10 && averageWaitTime < 60;
-        String suggestion = getSuggestion(queueCount, availablePiles, averageWaitTime);
+        List<StationRecommendationVO> alternatives = queueCount >= ALTERNATIVE_QUEUE_THRESHOLD || averageWaitTime >= 60
+                ? stationRecommender.recommend(stationId, null, null, ALTERNATIVE_LIMIT)
+                : List.of();
+        String suggestion = getSuggestion(queueCount, availablePiles, averageWaitTime, alternatives);
 
         return StationQueueInfoVO.builder()
                 .stationId(stationId)
@@ -192,162 +240,221 @@ public class QueueService {
                 .averageWaitTime(averageWaitTime)
                 .recommendQueue(recommendQueue)
                 .suggestion(suggestion)
+                .alternatives(alternatives)
                 .build();
     }
 
+    /**
+     * 推荐备选充电站：按行驶时间加预计等待时间排序，只返回比在该站点排队更快开始充电的站点
+     *
+     * @param stationId 原站点ID
+     * @param latitude  用户纬度（可选）
+     * @param longitude 用户经度（可选）
+     * @param limit     返回数量
+     * @return 备选站点
+     */
+    public List<StationRecommendationVO> recommendAlternatives(Long stationId, Double latitude, Double longitude, int limit) {
+        if (catalogCache.station(stationId) == null) {
+            throw new IllegalArgumentException("充电站不存在");
+        }
+        return stationRecommender.recommend(stationId, latitude, longitude, limit);
+    }
+
     /**
      * 叫下一号（内部方法）
-     * 当充电桩变为可用时，自动叫号
+     * 当充电桩变为可用时，自动叫号，并把充电桩从"空闲"改为"预约中"，只有被叫号的用户可以在该桩开始充电。
+     * 同一充电桩的并发叫号（空闲事件、过号、离开）先过进程内守卫，守卫在事务结束后释放；
+     * 充电桩与排队记录都以条件更新修改状态，多节点同时叫号时只有一个成功
      *
      * @param stationId 充电站ID
      * @param pileId    充电桩ID
      */
     @Transactional
     public void callNext(Long stationId, Long pileId) {
-        // 查询该站点排队中的第一个人
-        List<QueueRecord> queueList = queueRecordRepository.findByStationIdAndStatusOrderByJoinTimeAsc(
-                stationId, STATUS_QUEUING
-        );
-
-        if (queueList.isEmpty()) {
+        if (queueEngine.size(stationId) == 0) {
             log.info("站点{}暂无排队，充电桩{}空闲", stationId, pileId);
             return;
         }
 
-        QueueRecord firstInQueue = queueList.get(0);
+        if (!pileClaimGuard.tryClaim(pileId)) {
+            log.debug("充电桩{}正在叫号或开始充电，跳过叫号", pileId);
+            return;
+        }
 
-        // 更新状态为已叫号
-        firstInQueue.setStatus(STATUS_CALLED);
-        firstInQueue.setCallTime(LocalDateTime.now());
-        firstInQueue.setExpireTime(LocalDateTime.now().plusMinutes(CALL_TIMEOUT_MINUTES));
-        firstInQueue.setPileId(pileId);
+        // 预留充电桩：已被占用、已为其他排队者预留或故障时条件更新失败，不再叫号
+        if (pileRepository.compareAndSetStatus(pileId, PILE_FREE, PILE_RESERVED) == 0) {
+            log.debug("充电桩{}不可分配，跳过叫号", pileId);
+            return;
+        }
 
-        queueRecordRepository.save(firstInQueue);
+        // 取该站点排队中的第一个人并标记为已叫号
+        LocalDateTime callTime = LocalDateTime.now();
+        QueueRecord firstInQueue = pollHead(stationId, pileId, callTime, callTime.plusMinutes(CALL_TIMEOUT_MINUTES));
 
-        log.info("叫号成功：排队号{}，用户{}，充电桩{}", firstInQueue.getQueueNo(), firstInQueue.getUserId(), pileId);
+        if (firstInQueue == null) {
+            pileRepository.compareAndSetStatus(pileId, PILE_RESERVED, PILE_FREE);
+            log.info("站点{}暂无排队，充电桩{}空闲", stationId, pileId);
+            return;
+        }
 
-        // TODO: 发送通知给用户（可通过WebSocket或短信）
+        callExpiryQueue.schedule(firstInQueue);
+        pileEventPublisher.statusChanged(pileId, stationId, PILE_FREE, PILE_RESERVED);
+        queueEventPublisher.queueChanged(QueueChangedEvent.Type.CALLED, firstInQueue);
 
-        // 更新后续排队者的位置
-        updateSubsequentQueuePositions(stationId, firstInQueue.getJoinTime());
+        log.info("叫号成功：排队号{}，用户{}，充电桩{}", firstInQueue.getQueueNo(), firstInQueue.getUserId(), pileId);
     }
 
     /**
-     * 定时任务：检查过号
-     * 每分钟执行一次
+     * 批量标记过号
+     * 由叫号过期队列按到期时间触发，预留的充电桩改回空闲；
+     * 提交后由 QueueDispatchListener 按充电桩空闲事件逐个重新叫号。
+     * 以条件更新标记过号，与同时开始充电的用户互斥
+     *
+     * @param recordIds 到期的排队记录ID
+     * @return 实际过号的记录
      */
-    @Scheduled(fixedRate = 60000)
     @Transactional
-    public void checkExpiredCalls() {
-        List<QueueRecord> expiredRecords = queueRecordRepository.findExpiredRecords(
-                LocalDateTime.now(), STATUS_CALLED
-        );
+    public List<QueueRecord> expireCalls(Collection<Long> recordIds) {
+        LocalDateTime now = LocalDateTime.now();
+        List<QueueRecord> expiredRecords = new ArrayList<>();
 
-        for (QueueRecord record : expiredRecords) {
-            record.setStatus(STATUS_EXPIRED);
-            queueRecordRepository.save(record);
-
-            log.warn("排队记录过号：排队号{}，用户{}", record.getQueueNo(), record.getUserId());
+        for (QueueRecord record : queueRecordRepository.findAllById(recordIds)) {
+            if (record.getStatus() != STATUS_CALLED || record.getExpireTime() == null) {
+                continue;
+            }
+            // 数据库时间精度为秒，可能比内存中的到期时间略晚，重新登记
+            if (record.getExpireTime().isAfter(now)) {
+                callExpiryQueue.schedule(record);
+                continue;
+            }
 
-            // 如果有分配的充电桩，重新叫号
-            if (record.getPileId() != null) {
-                callNext(record.getStationId(), record.getPileId());
+            if (queueRecordRepository.compareAndSetStatus(record.getId(), STATUS_CALLED, STATUS_EXPIRED) == 0) {
+                continue;
             }
+            record.setStatus(STATUS_EXPIRED);
+            releaseReservedPile(record);
+            expiredRecords.add(record);
+            log.warn("排队记录过号：排队号{}，用户{}", record.getQueueNo(), record.getUserId());
         }
+
+        expiredRecords.forEach(record -> queueEventPublisher.queueChanged(QueueChangedEvent.Type.EXPIRED, record));
+        return expiredRecords;
     }
 
     /**
-     * 生成排队号
-     * 格式：站点ID-日期-序号（例如：1-20250108-001）
+     * 查询用户已叫号的排队记录（开始充电时判断能否使用预约中的充电桩）
      *
-     * @param stationId 充电站ID
-     * @return 排队号
+     * @param userId 用户ID
+     * @return 已叫号的排队记录
      */
-    private String generateQueueNo(Long stationId) {
-        LocalDate today = LocalDate.now();
-        LocalDateTime startOfDay = LocalDateTime.of(today, LocalTime.MIN);
-
-        long todayCount = queueRecordRepository.countTodayQueue(stationId, startOfDay);
-
-        String dateStr = today.toString().replace("-", "");
-        String sequenceStr = String.format("%03d", todayCount + 1);
-
-        return stationId + "-" + dateStr + "-" + sequenceStr;
+    public Optional<QueueRecord> findCalled(Long userId) {
+        return queueRecordRepository.findByUserIdAndStatusIn(userId, List.of(STATUS_CALLED));
     }
 
     /**
-     * 计算预计等待时间
+     * 叫号后开始充电：在调用方（创建订单）的事务内把已叫号记录标记为已完成。
+     * 在其他充电桩开始充电时释放为其预留的充电桩，提交后为下一位叫号；
+     * 记录已在其他事务中过号或离开时不做处理
      *
-     * @param stationId     充电站ID
-     * @param queuePosition 队列位置
-     * @return 预计等待时间（分钟）
+     * @param record         已叫号的排队记录
+     * @param onReservedPile 是否在为其预留的充电桩上开始充电（该桩已由调用方改为充电中）
      */
-    private int calculateEstimatedWaitTime(Long stationId, int queuePosition) {
-        // 查询可用充电桩数量
-        long availablePiles = pileRepository.countByStationIdAndStatus(stationId, (byte) 1);
-
-        if (availablePiles == 0) {
-            availablePiles = 1; // 避免除零
+    @Transactional
+    public void completeCall(QueueRecord record, boolean onReservedPile) {
+        if (queueRecordRepository.compareAndSetStatus(record.getId(), STATUS_CALLED, STATUS_COMPLETED) == 0) {
+            return;
         }
+        record.setStatus(STATUS_COMPLETED);
+        if (!onReservedPile) {
+            releaseReservedPile(record);
+        }
+        queueEventPublisher.queueChanged(QueueChangedEvent.Type.COMPLETED, record);
 
-        // 简单算法：(队列位置 * 平均充电时长) / 充电桩数量
-        return (int) ((queuePosition * AVERAGE_CHARGE_DURATION) / availablePiles);
+        log.info("叫号完成：排队号{}，用户{}开始充电", record.getQueueNo(), record.getUserId());
     }
 
     /**
-     * 更新队列位置
-     *
-     * @param record 排队记录
+     * 定时任务：兜底检查过号
+     * 叫号过期队列只登记本节点叫出的号，这里低频扫描，把遗漏的过期记录交给过期队列处理
      */
-    private void updateQueuePosition(QueueRecord record) {
-        // 统计在该记录之前加入且仍在排队的人数
-        List<QueueRecord> beforeRecords = queueRecordRepository.findByStationIdAndStatusInOrderByJoinTimeAsc(
-                record.getStationId(), Arrays.asList(STATUS_QUEUING)
+    @Scheduled(fixedRateString = "${queue.expiry-sweep-interval:300000}")
+    public void sweepExpiredCalls() {
+        List<QueueRecord> expiredRecords = queueRecordRepository.findExpiredRecords(
+                LocalDateTime.now(), STATUS_CALLED
         );
+        expiredRecords.forEach(callExpiryQueue::schedule);
 
-        int position = 1;
-        for (QueueRecord qr : beforeRecords) {
-            if (qr.getJoinTime().isBefore(record.getJoinTime())) {
-                position++;
-            }
+        if (!expiredRecords.isEmpty()) {
+            log.info("兜底扫描发现{}条过期叫号", expiredRecords.size());
         }
+    }
 
-        record.setQueuePosition(position);
-        record.setEstimatedWaitTime(calculateEstimatedWaitTime(record.getStationId(), position));
-        queueRecordRepository.save(record);
+    /**
+     * 释放已叫号记录预留的充电桩（预约中 -> 空闲），提交后空闲事件触发重新叫号；
+     * 充电桩已被管理员改为故障或离线时保持不变
+     *
+     * @param record 已叫号的排队记录
+     */
+    private void releaseReservedPile(QueueRecord record) {
+        Long pileId = record.getPileId();
+        if (pileId != null && pileRepository.compareAndSetStatus(pileId, PILE_RESERVED, PILE_FREE) > 0) {
+            pileEventPublisher.statusChanged(pileId, record.getStationId(), PILE_RESERVED, PILE_FREE);
+        }
     }
 
     /**
-     * 更新后续排队者的位置
+     * 从内存队列取出队首并标记为已叫号
+     * 先从内存队列移除（本节点并发叫号时只有一个线程取得该条目，其余线程改取下一位），
+     * 再以条件更新写数据库；更新失败说明记录已在其他节点被叫号或已离开，重建队列后重试
      *
-     * @param stationId 充电站ID
-     * @param afterTime 在此时间之后加入的排队者
+     * @param stationId  充电站ID
+     * @param pileId     分配的充电桩ID
+     * @param callTime   叫号时间
+     * @param expireTime 过期时间
+     * @return 已叫号的排队记录，队列为空返回null
      */
-    private void updateSubsequentQueuePositions(Long stationId, LocalDateTime afterTime) {
-        List<QueueRecord> subsequentRecords = queueRecordRepository.findByStationIdAndStatusOrderByJoinTimeAsc(
-                stationId, STATUS_QUEUING
-        );
+    private QueueRecord pollHead(Long stationId, Long pileId, LocalDateTime callTime, LocalDateTime expireTime) {
+        int rebuilds = 0;
+        while (true) {
+            StationQueue.Entry head = queueEngine.peek(stationId);
+            if (head == null) {
+                return null;
+            }
+            if (!queueEngine.remove(stationId, head.getRecordId())) {
+                continue;
+            }
+
+            if (queueRecordRepository.markCalled(head.getRecordId(), STATUS_QUEUING, STATUS_CALLED,
+                    pileId, callTime, expireTime) > 0) {
+                QueueRecord record = queueRecordRepository.findById(head.getRecordId()).orElseThrow();
+                record.setStatus(STATUS_CALLED);
+                record.setPileId(pileId);
+                record.setCallTime(callTime);
+                record.setExpireTime(expireTime);
+                return record;
+            }
 
-        int position = 1;
-        for (QueueRecord record : subsequentRecords) {
-            record.setQueuePosition(position);
-            record.setEstimatedWaitTime(calculateEstimatedWaitTime(stationId, position));
-            queueRecordRepository.save(record);
-            position++;
+            if (++rebuilds > 2) {
+                return null;
+            }
+            log.warn("站点{}内存队列与数据库不一致，重建队列", stationId);
+            queueEngine.invalidate(stationId);
         }
     }
 
     /**
      * 转换为VO
      *
-     * @param record 排队记录
+     * @param record            排队记录
+     * @param queuePosition     当前队列位置
+     * @param estimatedWaitTime 预计等待时间
      * @return QueueStatusVO
      */
-    private QueueStatusVO convertToQueueStatusVO(QueueRecord record) {
-        ChargingStation station = stationRepository.findById(record.getStationId()).orElse(null);
+    private QueueStatusVO convertToQueueStatusVO(QueueRecord record, Integer queuePosition, Integer estimatedWaitTime) {
+        String stationName = catalogCache.stationName(record.getStationId());
 
         // 计算前面排队人数
-        int peopleAhead = record.getQueuePosition() - 1;
+        int peopleAhead = queuePosition - 1;
         if (record.getStatus() == STATUS_CALLED) {
             peopleAhead = 0;
         }
@@ -363,10 +470,10 @@ public class QueueService {
                 .id(record.getId())
                 .queueNo(record.getQueueNo())
                 .stationId(record.getStationId())
-                .stationName(station != null ? station.getName() : "未知站点")
-                .queuePosition(record.getQueuePosition())
+                .stationName(stationName != null ? stationName : "未知站点")
+                .queuePosition(queuePosition)
                 .peopleAhead(peopleAhead)
-                .estimatedWaitTime(record.getEstimatedWaitTime())
+                .estimatedWaitTime(estimatedWaitTime)
                 .status(record.getStatus())
                 .statusText(getStatusText(record.getStatus()))
                 .joinTime(record.getJoinTime())
@@ -392,6 +499,8 @@ public class QueueService {
                 return "已过号";
             case STATUS_CANCELLED:
                 return "已取消";
+            case STATUS_COMPLETED:
+                return "已完成";
             default:
                 return "未知状态";
         }
@@ -405,9 +514,14 @@ public class QueueService {
      * @param averageWaitTime 平均等待时间
      * @return 建议文本
      */
-    private String getSuggestion(long queueCount, long availablePiles, int averageWaitTime) {
+    private String getSuggestion(long queueCount, long availablePiles, int averageWaitTime,
+                                 List<StationRecommendationVO> alternatives) {
         if (availablePiles > 0 && queueCount == 0) {
             return "当前无需排队，可直接充电";
+        } else if (!alternatives.isEmpty()) {
+            StationRecommendationVO best = alternatives.get(0);
+            return "排队较长，建议前往" + best.getStationName() + "（距离" + best.getDistance()
+                    + "公里，预计" + best.getTotalTime() + "分钟后可充电，节省" + best.getSavedTime() + "分钟）";
         } else if (queueCount < 5) {
             return "排队人数较少，建议排队";
         } else if (queueCount < 10) {
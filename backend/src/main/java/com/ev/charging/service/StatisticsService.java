@@ -1,9 +1,12 @@
 package com.ev.charging.service;
 
-import com.ev.charging.entity.ChargingPile;
-import com.ev.charging.repository.ChargingPileRepository;
+import com.ev.charging.catalog.CatalogCache;
+import com.ev.charging.catalog.StationSnapshot;
 import com.ev.charging.repository.ChargingStationRepository;
 import com.ev.charging.repository.FaultRecordRepository;
+import com.ev.charging.stats.ChargeTrendEngine;
+import com.ev.charging.stats.OrderRollupPipeline;
+import com.ev.charging.stats.PileStatusCounters;
 import com.ev.charging.vo.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,7 +15,6 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -24,9 +26,6 @@ import java.util.stream.Collectors;
 @Service
 public class StatisticsService {
 
-    @Autowired
-    private ChargingPileRepository chargingPileRepository;
-
     @Autowired
     private ChargingStationRepository chargingStationRepository;
 
@@ -36,44 +35,29 @@ public class StatisticsService {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private PileStatusCounters pileStatusCounters;
+
+    @Autowired
+    private ChargeTrendEngine chargeTrendEngine;
+
+    @Autowired
+    private OrderRollupPipeline orderRollupPipeline;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
     /**
      * 获取仪表板数据
      */
     public DashboardVO getDashboardData() {
-        LocalDateTime todayStart = LocalDate.now().atStartOfDay();
-        LocalDateTime todayEnd = LocalDate.now().plusDays(1).atStartOfDay();
-
-        // 今日充电量和收入（从订单表查询）
-        String orderSql = "SELECT " +
-                "COALESCE(SUM(charge_amount), 0) as todayChargeAmount, " +
-                "COALESCE(SUM(total_fee), 0) as todayIncome, " +
-                "COUNT(*) as todayOrderCount " +
-                "FROM charge_order " +
-                "WHERE create_time >= ? AND create_time < ? AND order_status != 4";
-
-        Map<String, Object> orderStats = jdbcTemplate.queryForMap(orderSql, todayStart, todayEnd);
-
-        // 充电桩状态统计
-        List<ChargingPile> allPiles = chargingPileRepository.findAll();
-        int onlineCount = 0;
-        int faultCount = 0;
-        int chargingCount = 0;
-
-        for (ChargingPile pile : allPiles) {
-            switch (pile.getStatus()) {
-                case 1: // 空闲
-                case 3: // 预约中
-                    onlineCount++;
-                    break;
-                case 2: // 充电中
-                    chargingCount++;
-                    onlineCount++;
-                    break;
-                case 4: // 故障
-                    faultCount++;
-                    break;
-            }
-        }
+        // 今日充电量和收入（增量汇总）
+        ChargeTrendEngine.DayTotals todayTotals = chargeTrendEngine.today();
+
+        // 充电桩状态统计（空闲、充电中、预约中均视为在线）
+        int chargingCount = (int) pileStatusCounters.count((byte) 2);
+        int onlineCount = (int) (pileStatusCounters.count((byte) 1) + chargingCount + pileStatusCounters.count((byte) 3));
+        int faultCount = (int) pileStatusCounters.count((byte) 4);
 
         // 待维修故障数
         Long pendingFaultCount = faultRecordRepository.countByStationIdAndRepairStatus(null, (byte) 0);
@@ -82,15 +66,15 @@ public class StatisticsService {
         List<?> urgentFaults = faultRecordRepository.findUrgentPendingFaults();
 
         return DashboardVO.builder()
-                .todayChargeAmount(new BigDecimal(orderStats.get("todayChargeAmount").toString()))
-                .todayIncome(new BigDecimal(orderStats.get("todayIncome").toString()))
-                .todayOrderCount(((Number) orderStats.get("todayOrderCount")).intValue())
+                .todayChargeAmount(todayTotals.getChargeAmount())
+                .todayIncome(todayTotals.getIncome())
+                .todayOrderCount(todayTotals.getOrderCount())
                 .onlinePileCount(onlineCount)
                 .faultPileCount(faultCount)
                 .chargingPileCount(chargingCount)
                 .pendingFaultCount(pendingFaultCount != null ? pendingFaultCount.intValue() : 0)
                 .urgentFaultCount(urgentFaults.size())
-                .totalPileCount(allPiles.size())
+                .totalPileCount((int) pileStatusCounters.total())
                 .totalStationCount((int) chargingStationRepository.count())
                 .build();
     }
@@ -110,28 +94,22 @@ public class StatisticsService {
 
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
-        for (int i = days - 1; i >= 0; i--) {
-            LocalDate date = LocalDate.now().minusDays(i);
-            LocalDateTime dayStart = date.atStartOfDay();
-            LocalDateTime dayEnd = date.plusDays(1).atStartOfDay();
-
-            dates.add(date.format(formatter));
-
-            // 查询当天统计数据
-            String sql = "SELECT " +
-                    "COALESCE(SUM(charge_amount), 0) as chargeAmount, " +
-                    "COALESCE(SUM(total_fee), 0) as income, " +
-                    "COUNT(*) as orderCount " +
-                    "FROM charge_order " +
-                    "WHERE create_time >= ? AND create_time < ? AND order_status != 4";
-
-            try {
-                Map<String, Object> stats = jdbcTemplate.queryForMap(sql, dayStart, dayEnd);
-                chargeAmounts.add(new BigDecimal(stats.get("chargeAmount").toString()));
-                incomes.add(new BigDecimal(stats.get("income").toString()));
-                orderCounts.add(((Number) stats.get("orderCount")).intValue());
-            } catch (Exception e) {
-                log.warn("查询日期{}的数据失败: {}", date, e.getMessage());
+        try {
+            Map<LocalDate, ChargeTrendEngine.DayTotals> trend = chargeTrendEngine.trend(days);
+            trend.forEach((date, totals) -> {
+                dates.add(date.format(formatter));
+                chargeAmounts.add(totals.getChargeAmount());
+                incomes.add(totals.getIncome());
+                orderCounts.add(totals.getOrderCount());
+            });
+        } catch (Exception e) {
+            log.warn("查询充电趋势失败: {}", e.getMessage());
+            dates.clear();
+            chargeAmounts.clear();
+            incomes.clear();
+            orderCounts.clear();
+            for (int i = days - 1; i >= 0; i--) {
+                dates.add(LocalDate.now().minusDays(i).format(formatter));
                 chargeAmounts.add(BigDecimal.ZERO);
                 incomes.add(BigDecimal.ZERO);
                 orderCounts.add(0);
@@ -150,40 +128,12 @@ public class StatisticsService {
      * 获取充电桩状态分布
      */
     public PileStatusDistributionVO getPileStatusDistribution() {
-        List<ChargingPile> allPiles = chargingPileRepository.findAll();
-
-        int availableCount = 0;
-        int chargingCount = 0;
-        int reservedCount = 0;
-        int faultCount = 0;
-        int offlineCount = 0;
-
-        for (ChargingPile pile : allPiles) {
-            switch (pile.getStatus()) {
-                case 1:
-                    availableCount++;
-                    break;
-                case 2:
-                    chargingCount++;
-                    break;
-                case 3:
-                    reservedCount++;
-                    break;
-                case 4:
-                    faultCount++;
-                    break;
-                case 5:
-                    offlineCount++;
-                    break;
-            }
-        }
-
         return PileStatusDistributionVO.builder()
-                .availableCount(availableCount)
-                .chargingCount(chargingCount)
-                .reservedCount(reservedCount)
-                .faultCount(faultCount)
-                .offlineCount(offlineCount)
+                .availableCount((int) pileStatusCounters.count((byte) 1))
+                .chargingCount((int) pileStatusCounters.count((byte) 2))
+                .reservedCount((int) pileStatusCounters.count((byte) 3))
+                .faultCount((int) pileStatusCounters.count((byte) 4))
+                .offlineCount((int) pileStatusCounters.count((byte) 5))
                 .build();
     }
 
@@ -195,28 +145,47 @@ public class StatisticsService {
             limit = 10;
         }
 
-        String sql = "SELECT " +
-                "s.id as stationId, " +
-                "s.name as stationName, " +
-                "COALESCE(SUM(o.total_fee), 0) as totalIncome, " +
-                "COALESCE(SUM(o.charge_amount), 0) as totalChargeAmount, " +
-                "COUNT(o.id) as totalOrderCount " +
-                "FROM charging_station s " +
-                "LEFT JOIN charge_order o ON s.id = o.station_id AND o.order_status != 4 " +
-                "GROUP BY s.id, s.name " +
-                "ORDER BY totalIncome DESC " +
+        String sql = "SELECT station_id as stationId, " +
+                "revenue as totalIncome, " +
+                "charge_amount as totalChargeAmount, " +
+                "order_count as totalOrderCount " +
+                "FROM order_rollup_station " +
+                "ORDER BY revenue DESC " +
                 "LIMIT ?";
 
         try {
             List<Map<String, Object>> results = jdbcTemplate.queryForList(sql, limit);
 
-            return results.stream().map(row -> StationRankingVO.builder()
-                    .stationId(((Number) row.get("stationId")).longValue())
-                    .stationName((String) row.get("stationName"))
-                    .totalIncome(new BigDecimal(row.get("totalIncome").toString()))
-                    .totalChargeAmount(new BigDecimal(row.get("totalChargeAmount").toString()))
-                    .totalOrderCount(((Number) row.get("totalOrderCount")).intValue())
-                    .build()).collect(Collectors.toList());
+            List<StationRankingVO> ranking = results.stream().map(row -> {
+                Long stationId = ((Number) row.get("stationId")).longValue();
+                return StationRankingVO.builder()
+                        .stationId(stationId)
+                        .stationName(catalogCache.stationName(stationId))
+                        .totalIncome(new BigDecimal(row.get("totalIncome").toString()))
+                        .totalChargeAmount(new BigDecimal(row.get("totalChargeAmount").toString()))
+                        .totalOrderCount(((Number) row.get("totalOrderCount")).intValue())
+                        .build();
+            }).collect(Collectors.toList());
+
+            // 不足时用没有订单的站点补齐
+            if (ranking.size() < limit) {
+                Set<Long> ranked = ranking.stream().map(StationRankingVO::getStationId).collect(Collectors.toSet());
+                for (StationSnapshot station : catalogCache.allStations()) {
+                    if (ranking.size() >= limit) {
+                        break;
+                    }
+                    if (!ranked.contains(station.getId())) {
+                        ranking.add(StationRankingVO.builder()
+                                .stationId(station.getId())
+                                .stationName(station.getName())
+                                .totalIncome(BigDecimal.ZERO)
+                                .totalChargeAmount(BigDecimal.ZERO)
+                                .totalOrderCount(0)
+                                .build());
+                    }
+                }
+            }
+            return ranking;
         } catch (Exception e) {
             log.error("查询站点排行失败", e);
             return Collections.emptyList();
@@ -231,14 +200,14 @@ public class StatisticsService {
 
         try {
             String sql = "SELECT " +
-                    "COUNT(*) as totalCount, " +
-                    "SUM(CASE WHEN order_status = 3 THEN 1 ELSE 0 END) as completedCount, " +
-                    "SUM(CASE WHEN order_status IN (1, 2) THEN 1 ELSE 0 END) as inProgressCount, " +
-                    "SUM(CASE WHEN order_status = 4 THEN 1 ELSE 0 END) as cancelledCount, " +
+                    "COALESCE(SUM(order_count), 0) as totalCount, " +
+                    "COALESCE(SUM(completed_count), 0) as completedCount, " +
+                    "COALESCE(SUM(in_progress_count), 0) as inProgressCount, " +
+                    "COALESCE(SUM(cancelled_count), 0) as cancelledCount, " +
                     "COALESCE(SUM(charge_amount), 0) as totalChargeAmount, " +
-                    "COALESCE(SUM(total_fee), 0) as totalRevenue " +
-                    "FROM charge_order " +
-                    "WHERE DATE(create_time) >= ? AND DATE(create_time) <= ?";
+                    "COALESCE(SUM(revenue), 0) as totalRevenue " +
+                    "FROM order_rollup_daily " +
+                    "WHERE bucket_date >= ? AND bucket_date <= ?";
 
             Map<String, Object> stats = jdbcTemplate.queryForMap(sql, startDate, endDate);
 
@@ -273,42 +242,30 @@ public class StatisticsService {
         LocalDate today = LocalDate.now();
 
         int days;
-        String dateFormat;
-        String groupBy;
 
         switch (period) {
-            case "week":
-                days = 7;
-                dateFormat = "%Y-%m-%d";
-                groupBy = "DATE(create_time)";
-                break;
             case "month":
                 days = 30;
-                dateFormat = "%Y-%m-%d";
-                groupBy = "DATE(create_time)";
                 break;
+            case "week":
             default: // day
                 days = 7;
-                dateFormat = "%Y-%m-%d";
-                groupBy = "DATE(create_time)";
                 break;
         }
 
         try {
-            String sql = "SELECT DATE_FORMAT(create_time, ?) as dateKey, " +
-                    "COALESCE(SUM(total_fee), 0) as revenue " +
-                    "FROM charge_order " +
-                    "WHERE create_time >= DATE_SUB(NOW(), INTERVAL ? DAY) " +
-                    "AND order_status != 4 " +
-                    "GROUP BY dateKey " +
-                    "ORDER BY dateKey";
+            String sql = "SELECT bucket_date as dateKey, " +
+                    "COALESCE(SUM(revenue), 0) as revenue " +
+                    "FROM order_rollup_daily " +
+                    "WHERE bucket_date >= ? " +
+                    "GROUP BY bucket_date";
 
-            List<Map<String, Object>> queryResults = jdbcTemplate.queryForList(sql, dateFormat, days);
+            List<Map<String, Object>> queryResults = jdbcTemplate.queryForList(sql, today.minusDays(days - 1L));
 
             // 构建日期到收入的映射
             Map<String, BigDecimal> revenueMap = new HashMap<>();
             for (Map<String, Object> row : queryResults) {
-                String dateKey = (String) row.get("dateKey");
+                String dateKey = row.get("dateKey").toString();
                 BigDecimal revenue = new BigDecimal(row.get("revenue").toString());
                 revenueMap.put(dateKey, revenue);
             }
@@ -324,6 +281,8 @@ public class StatisticsService {
         } catch (Exception e) {
             log.error("查询收入统计失败", e);
             // 返回空数据
+            dates.clear();
+            revenues.clear();
             for (int i = days - 1; i >= 0; i--) {
                 LocalDate date = today.minusDays(i);
                 dates.add(date.format(formatter));
@@ -335,4 +294,14 @@ public class StatisticsService {
         result.put("revenues", revenues);
         return result;
     }
+
+    /**
+     * 从订单表重建统计汇总
+     *
+     * @param startDate 开始日期（含）
+     * @param endDate   结束日期（含）
+     */
+    public void rebuildRollups(LocalDate startDate, LocalDate endDate) {
+        orderRollupPipeline.rebuild(startDate, endDate);
+    }
 }
@@ -0,0 +1,143 @@
+package com.ev.charging.stats;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 充电趋势引擎
+ * 从订单日汇总表（{@link OrderRollupPipeline} 维护）读取每日数据。
+ * 历史日期的汇总一次查询后永久缓存（当天所有订单均已结束才视为已关闭），
+ * 缺失的日期用一条 GROUP BY 查询补齐；当天数据由汇总流水线增量维护，直接读取当天的汇总行。
+ */
+@Component
+@RequiredArgsConstructor
+public class ChargeTrendEngine {
+
+    private static final String DAILY_SQL =
+            "SELECT bucket_date AS day, " +
+                    "COALESCE(SUM(charge_amount), 0) AS chargeAmount, " +
+                    "COALESCE(SUM(revenue), 0) AS income, " +
+                    "COALESCE(SUM(order_count), 0) AS orderCount, " +
+                    "COALESCE(SUM(in_progress_count), 0) AS openCount " +
+                    "FROM order_rollup_daily " +
+                    "WHERE bucket_date >= ? AND bucket_date < ? " +
+                    "GROUP BY bucket_date";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 已关闭日期的汇总（永久缓存）
+     */
+    private final Map<LocalDate, DayTotals> closedDays = new ConcurrentHashMap<>();
+
+    /**
+     * 查询最近若干天的每日汇总
+     *
+     * @param days 天数（含今天）
+     * @return 日期 -> 汇总，按日期升序
+     */
+    public Map<LocalDate, DayTotals> trend(int days) {
+        LocalDate now = LocalDate.now();
+        LocalDate from = now.minusDays(days - 1L);
+
+        // 找到最早的未缓存历史日期，用一条查询补齐到今天
+        LocalDate firstMissing = now;
+        for (LocalDate date = from; date.isBefore(now); date = date.plusDays(1)) {
+            if (!closedDays.containsKey(date)) {
+                firstMissing = date;
+                break;
+            }
+        }
+        Map<LocalDate, DayTotals> fetched = queryDaily(firstMissing, now.plusDays(1));
+
+        Map<LocalDate, DayTotals> result = new LinkedHashMap<>();
+        for (LocalDate date = from; date.isBefore(now); date = date.plusDays(1)) {
+            DayTotals totals = closedDays.get(date);
+            if (totals == null) {
+                totals = fetched.getOrDefault(date, DayTotals.ZERO);
+                if (totals.openCount == 0) {
+                    closedDays.put(date, totals);
+                }
+            }
+            result.put(date, totals);
+        }
+        result.put(now, fetched.getOrDefault(now, DayTotals.ZERO));
+        return result;
+    }
+
+    /**
+     * 当天汇总
+     *
+     * @return 当天汇总
+     */
+    public DayTotals today() {
+        LocalDate now = LocalDate.now();
+        return queryDaily(now, now.plusDays(1)).getOrDefault(now, DayTotals.ZERO);
+    }
+
+    /**
+     * 丢弃已缓存的历史日期（汇总重建后调用）
+     */
+    public void evictClosedDays() {
+        closedDays.clear();
+    }
+
+    private Map<LocalDate, DayTotals> queryDaily(LocalDate from, LocalDate toExclusive) {
+        Map<LocalDate, DayTotals> totals = new HashMap<>();
+        jdbcTemplate.query(DAILY_SQL, rs -> {
+            Date day = rs.getDate("day");
+            totals.put(day.toLocalDate(), new DayTotals(
+                    zeroIfNull(rs.getBigDecimal("chargeAmount")),
+                    zeroIfNull(rs.getBigDecimal("income")),
+                    rs.getInt("orderCount"),
+                    rs.getInt("openCount")));
+        }, Date.valueOf(from), Date.valueOf(toExclusive));
+
+        return totals;
+    }
+
+    private static BigDecimal zeroIfNull(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+
+    /**
+     * 单日汇总
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class DayTotals {
+
+        static final DayTotals ZERO = new DayTotals(BigDecimal.ZERO, BigDecimal.ZERO, 0, 0);
+
+        /**
+         * 充电量（kWh）
+         */
+        private final BigDecimal chargeAmount;
+
+        /**
+         * 收入（元）
+         */
+        private final BigDecimal income;
+
+        /**
+         * 订单数
+         */
+        private final int orderCount;
+
+        /**
+         * 尚未结束的订单数（大于0时该日不能永久缓存）
+         */
+        private final int openCount;
+    }
+}
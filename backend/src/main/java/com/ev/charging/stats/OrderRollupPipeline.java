@@ -0,0 +1,499 @@
+package com.ev.charging.stats;
+
+import com.ev.charging.cluster.ClusterJobLock;
+import com.ev.charging.event.OrderChangedEvent;
+import com.ev.charging.job.BatchJobRunner;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 订单统计汇总流水线
+ * 订单事件在事务提交后按（小时, 站点, 充电桩）合并为增量，定时批量累加到小时表、日表和站点累计表，
+ * 统计接口只读汇总表，查询代价与订单历史量无关。
+ * 未落库的增量在进程崩溃时会丢失，因此每晚从 charge_order 重建最近两天，启动时汇总表为空则全量回填。
+ * <p>
+ * 重建在集群任务锁下由一个节点执行。各节点落库增量时在同一事务内以共享锁读取该锁：
+ * 锁被持有期间不落库；获取锁需要等待正在进行的落库结束。锁的 fence 变化说明期间发生过重建，
+ * 此时待落库的增量可能已包含在重建结果中，改为按分桶从 charge_order 重新计算，不再累加。
+ * 重新计算期间到达这些分桶的事件只记录分桶，计算完成后再对它们重新计算一轮，直到没有新事件。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderRollupPipeline {
+
+    private static final String HOURLY_UPSERT_SQL =
+            "INSERT INTO order_rollup_hourly (bucket_hour, station_id, pile_id, order_count, in_progress_count, " +
+                    "completed_count, cancelled_count, paid_count, charge_amount, revenue, paid_amount) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE " +
+                    "order_count = order_count + VALUES(order_count), " +
+                    "in_progress_count = in_progress_count + VALUES(in_progress_count), " +
+                    "completed_count = completed_count + VALUES(completed_count), " +
+                    "cancelled_count = cancelled_count + VALUES(cancelled_count), " +
+                    "paid_count = paid_count + VALUES(paid_count), " +
+                    "charge_amount = charge_amount + VALUES(charge_amount), " +
+                    "revenue = revenue + VALUES(revenue), " +
+                    "paid_amount = paid_amount + VALUES(paid_amount)";
+
+    private static final String DAILY_UPSERT_SQL = HOURLY_UPSERT_SQL
+            .replace("order_rollup_hourly", "order_rollup_daily")
+            .replace("bucket_hour", "bucket_date");
+
+    private static final String STATION_UPSERT_SQL =
+            "INSERT INTO order_rollup_station (station_id, order_count, charge_amount, revenue) " +
+                    "VALUES (?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE " +
+                    "order_count = order_count + VALUES(order_count), " +
+                    "charge_amount = charge_amount + VALUES(charge_amount), " +
+                    "revenue = revenue + VALUES(revenue)";
+
+    /**
+     * 从订单表重建汇总的聚合列（订单状态：0进行中 1已完成 2已取消；支付状态：1已支付）
+     */
+    private static final String AGGREGATE_COLUMNS =
+            "COUNT(*), " +
+                    "SUM(CASE WHEN order_status = 0 THEN 1 ELSE 0 END), " +
+                    "SUM(CASE WHEN order_status = 1 THEN 1 ELSE 0 END), " +
+                    "SUM(CASE WHEN order_status = 2 THEN 1 ELSE 0 END), " +
+                    "SUM(CASE WHEN payment_status = 1 THEN 1 ELSE 0 END), " +
+                    "COALESCE(SUM(CASE WHEN order_status = 1 THEN charge_amount END), 0), " +
+                    "COALESCE(SUM(CASE WHEN order_status = 1 THEN total_fee END), 0), " +
+                    "COALESCE(SUM(CASE WHEN payment_status = 1 THEN total_fee END), 0) ";
+
+    private static final String REBUILD_LOCK = "order-rollup-rebuild";
+
+    private static final Duration REBUILD_LEASE = Duration.ofHours(1);
+
+    /**
+     * 一次落库中分桶重新计算的最大轮数，仍有新事件的分桶留到下次落库
+     */
+    private static final int MAX_RESYNC_PASSES = 3;
+
+    private static final String ROLLUP_COLUMNS =
+            "station_id, pile_id, order_count, in_progress_count, completed_count, cancelled_count, " +
+                    "paid_count, charge_amount, revenue, paid_amount";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ChargeTrendEngine chargeTrendEngine;
+    private final ClusterJobLock clusterJobLock;
+    private final BatchJobRunner batchJobRunner;
+
+    /**
+     * 待落库的增量：（小时, 站点, 充电桩） -> 增量
+     */
+    private final Map<BucketKey, Delta> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 正在从订单表重新计算的分桶；到达这些分桶的事件只记入 resyncHits
+     */
+    private final Set<BucketKey> resyncing = new HashSet<>();
+    private final Set<BucketKey> resyncHits = new HashSet<>();
+
+    /**
+     * 事件入账持读锁，切换重新计算的分桶持写锁
+     */
+    private final ReadWriteLock resyncLock = new ReentrantReadWriteLock();
+
+    /**
+     * 上次落库时看到的重建锁 fence，-1表示尚未读取
+     */
+    private long seenFence = -1;
+
+    /**
+     * 订单事件在事务提交后计入增量
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderChanged(OrderChangedEvent event) {
+        BucketKey key = new BucketKey(event.getOrderCreateTime().truncatedTo(ChronoUnit.HOURS),
+                event.getStationId(), event.getPileId());
+        resyncLock.readLock().lock();
+        try {
+            if (resyncing.contains(key)) {
+                synchronized (resyncHits) {
+                    resyncHits.add(key);
+                }
+                return;
+            }
+            pending.compute(key, (k, delta) -> {
+                Delta merged = delta != null ? delta : new Delta();
+                merged.apply(event);
+                return merged;
+            });
+        } finally {
+            resyncLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 定时落库，默认每5秒
+     */
+    @Scheduled(fixedDelayString = "${stats.rollup.flush-interval:5000}")
+    public synchronized void flush() {
+        if (!resyncing.isEmpty()) {
+            resync(Set.of());
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Map<BucketKey, Delta> drained = new HashMap<>();
+        for (BucketKey key : pending.keySet()) {
+            Delta delta = pending.remove(key);
+            if (delta != null) {
+                drained.put(key, delta);
+            }
+        }
+
+        FlushOutcome outcome;
+        try {
+            outcome = transactionTemplate.execute(status -> {
+                ClusterJobLock.State lock = clusterJobLock.inspect(REBUILD_LOCK);
+                if (lock.isLocked()) {
+                    return FlushOutcome.REBUILDING;
+                }
+                if (seenFence >= 0 && lock.getFence() != seenFence) {
+                    seenFence = lock.getFence();
+                    return FlushOutcome.REBUILT;
+                }
+                seenFence = lock.getFence();
+                write(drained);
+                return FlushOutcome.WRITTEN;
+            });
+        } catch (Exception e) {
+            log.error("订单汇总增量落库失败，下次重试", e);
+            outcome = FlushOutcome.REBUILDING;
+        }
+
+        switch (outcome) {
+            case WRITTEN -> log.debug("订单汇总增量落库{}项", drained.size());
+            case REBUILDING -> drained.forEach((key, delta) -> pending.merge(key, delta, Delta::merge));
+            case REBUILT -> {
+                log.info("订单汇总已被重建，{}个分桶改为从订单表重新计算", drained.size());
+                resync(drained.keySet());
+            }
+        }
+    }
+
+    /**
+     * 从订单表重新计算分桶
+     * 切换分桶时丢弃其未落库的增量；计算期间到达的事件在下一轮重新计算
+     *
+     * @param keys 新加入的分桶
+     */
+    private void resync(Set<BucketKey> keys) {
+        Set<BucketKey> round = new HashSet<>(keys);
+        resyncLock.writeLock().lock();
+        try {
+            round.addAll(resyncing);
+            resyncing.addAll(round);
+            round.forEach(pending::remove);
+        } finally {
+            resyncLock.writeLock().unlock();
+        }
+
+        for (int pass = 0; pass < MAX_RESYNC_PASSES && !round.isEmpty(); pass++) {
+            Set<BucketKey> current = round;
+            try {
+                transactionTemplate.executeWithoutResult(status -> rebuildBuckets(current));
+            } catch (Exception e) {
+                log.error("订单汇总分桶重新计算失败，下次重试", e);
+                return;
+            }
+
+            resyncLock.writeLock().lock();
+            try {
+                synchronized (resyncHits) {
+                    round = new HashSet<>(resyncHits);
+                    resyncHits.clear();
+                }
+                // 本轮没有新事件的分桶结束重新计算，之后的事件照常累加
+                resyncing.retainAll(round);
+            } finally {
+                resyncLock.writeLock().unlock();
+            }
+        }
+        if (!round.isEmpty()) {
+            log.debug("{}个订单汇总分桶仍有新事件，下次落库继续重新计算", round.size());
+        }
+    }
+
+    /**
+     * 启动时汇总表为空则从订单表全量回填
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        Integer rollups = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_rollup_station", Integer.class);
+        if (rollups != null && rollups > 0) {
+            return;
+        }
+
+        Timestamp first = jdbcTemplate.queryForObject("SELECT MIN(create_time) FROM charge_order", Timestamp.class);
+        if (first == null) {
+            return;
+        }
+        log.info("订单汇总表为空，开始全量回填");
+        rebuild(first.toLocalDateTime().toLocalDate(), LocalDate.now());
+    }
+
+    /**
+     * 每晚重建最近两天，修复进程崩溃丢失的增量
+     */
+    @Scheduled(cron = "${stats.rollup.rebuild-cron:0 30 3 * * ?}")
+    public void nightlyRebuild() {
+        LocalDate today = LocalDate.now();
+        batchJobRunner.submit("订单汇总夜间重建", () -> rebuild(today.minusDays(2), today.minusDays(1)));
+    }
+
+    /**
+     * 从订单表重建指定日期范围的汇总
+     *
+     * @param startDate 开始日期（含）
+     * @param endDate   结束日期（含）
+     */
+    public synchronized void rebuild(LocalDate startDate, LocalDate endDate) {
+        try (ClusterJobLock.Lease lease = clusterJobLock.tryAcquire(REBUILD_LOCK, REBUILD_LEASE)) {
+            if (lease == null) {
+                log.info("订单汇总正在其他节点重建，跳过：{} 至 {}", startDate, endDate);
+                return;
+            }
+            rebuildRange(startDate, endDate);
+        }
+    }
+
+    /**
+     * 重建日期范围（持有重建锁时调用）；本节点未落库的增量在锁释放后的落库中改为按分桶重新计算
+     */
+    private void rebuildRange(LocalDate startDate, LocalDate endDate) {
+        Timestamp from = Timestamp.valueOf(startDate.atStartOfDay());
+        Timestamp to = Timestamp.valueOf(endDate.plusDays(1).atStartOfDay());
+        long startMillis = System.currentTimeMillis();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM order_rollup_hourly WHERE bucket_hour >= ? AND bucket_hour < ?", from, to);
+            jdbcTemplate.update(
+                    "INSERT INTO order_rollup_hourly (bucket_hour, " + ROLLUP_COLUMNS + ") " +
+                            "SELECT DATE_FORMAT(create_time, '%Y-%m-%d %H:00:00'), station_id, pile_id, " + AGGREGATE_COLUMNS +
+                            "FROM charge_order WHERE create_time >= ? AND create_time < ? " +
+                            "GROUP BY DATE_FORMAT(create_time, '%Y-%m-%d %H:00:00'), station_id, pile_id",
+                    from, to);
+
+            jdbcTemplate.update("DELETE FROM order_rollup_daily WHERE bucket_date >= ? AND bucket_date < ?",
+                    startDate, endDate.plusDays(1));
+            jdbcTemplate.update(
+                    "INSERT INTO order_rollup_daily (bucket_date, " + ROLLUP_COLUMNS + ") " +
+                            "SELECT DATE(bucket_hour), station_id, pile_id, SUM(order_count), SUM(in_progress_count), " +
+                            "SUM(completed_count), SUM(cancelled_count), SUM(paid_count), SUM(charge_amount), " +
+                            "SUM(revenue), SUM(paid_amount) " +
+                            "FROM order_rollup_hourly WHERE bucket_hour >= ? AND bucket_hour < ? " +
+                            "GROUP BY DATE(bucket_hour), station_id, pile_id",
+                    from, to);
+
+            // 站点累计值由日表汇总（行数与天数×充电桩数相关，与订单量无关）
+            jdbcTemplate.update("DELETE FROM order_rollup_station");
+            jdbcTemplate.update(
+                    "INSERT INTO order_rollup_station (station_id, order_count, charge_amount, revenue) " +
+                            "SELECT station_id, SUM(order_count), SUM(charge_amount), SUM(revenue) " +
+                            "FROM order_rollup_daily GROUP BY station_id");
+        });
+        chargeTrendEngine.evictClosedDays();
+
+        log.info("订单汇总重建完成：{} 至 {}，耗时{}ms", startDate, endDate, System.currentTimeMillis() - startMillis);
+    }
+
+    /**
+     * 按（小时, 站点, 充电桩）从订单表重新计算，并重新汇总对应的日表行和站点累计值
+     */
+    private void rebuildBuckets(Set<BucketKey> keys) {
+        List<Object[]> hourKeys = new ArrayList<>(keys.size());
+        List<Object[]> hourSelects = new ArrayList<>(keys.size());
+        Set<BucketKey> days = new HashSet<>();
+        Set<Long> stationIds = new HashSet<>();
+        for (BucketKey key : keys) {
+            Timestamp hour = Timestamp.valueOf(key.bucket);
+            hourKeys.add(new Object[]{hour, key.stationId, key.pileId});
+            hourSelects.add(new Object[]{hour, hour, Timestamp.valueOf(key.bucket.plusHours(1)), key.stationId, key.pileId});
+            days.add(new BucketKey(key.bucket.toLocalDate().atStartOfDay(), key.stationId, key.pileId));
+            stationIds.add(key.stationId);
+        }
+
+        jdbcTemplate.batchUpdate(
+                "DELETE FROM order_rollup_hourly WHERE bucket_hour = ? AND station_id = ? AND pile_id = ?", hourKeys);
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO order_rollup_hourly (bucket_hour, " + ROLLUP_COLUMNS + ") " +
+                        "SELECT ?, station_id, pile_id, " + AGGREGATE_COLUMNS +
+                        "FROM charge_order WHERE create_time >= ? AND create_time < ? AND station_id = ? AND pile_id = ? " +
+                        "GROUP BY station_id, pile_id",
+                hourSelects);
+
+        List<Object[]> dayKeys = new ArrayList<>(days.size());
+        List<Object[]> daySelects = new ArrayList<>(days.size());
+        for (BucketKey day : days) {
+            dayKeys.add(new Object[]{day.bucket.toLocalDate(), day.stationId, day.pileId});
+            daySelects.add(new Object[]{day.bucket.toLocalDate(), Timestamp.valueOf(day.bucket),
+                    Timestamp.valueOf(day.bucket.plusDays(1)), day.stationId, day.pileId});
+        }
+        jdbcTemplate.batchUpdate(
+                "DELETE FROM order_rollup_daily WHERE bucket_date = ? AND station_id = ? AND pile_id = ?", dayKeys);
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO order_rollup_daily (bucket_date, " + ROLLUP_COLUMNS + ") " +
+                        "SELECT ?, station_id, pile_id, SUM(order_count), SUM(in_progress_count), " +
+                        "SUM(completed_count), SUM(cancelled_count), SUM(paid_count), SUM(charge_amount), " +
+                        "SUM(revenue), SUM(paid_amount) " +
+                        "FROM order_rollup_hourly WHERE bucket_hour >= ? AND bucket_hour < ? AND station_id = ? AND pile_id = ? " +
+                        "GROUP BY station_id, pile_id",
+                daySelects);
+
+        List<Object[]> stations = new ArrayList<>(stationIds.size());
+        stationIds.forEach(stationId -> stations.add(new Object[]{stationId}));
+        jdbcTemplate.batchUpdate("DELETE FROM order_rollup_station WHERE station_id = ?", stations);
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO order_rollup_station (station_id, order_count, charge_amount, revenue) " +
+                        "SELECT station_id, SUM(order_count), SUM(charge_amount), SUM(revenue) " +
+                        "FROM order_rollup_daily WHERE station_id = ? GROUP BY station_id",
+                stations);
+    }
+
+    private void write(Map<BucketKey, Delta> drained) {
+        List<Object[]> hourly = new ArrayList<>(drained.size());
+        Map<BucketKey, Delta> daily = new HashMap<>();
+        Map<Long, Delta> stations = new HashMap<>();
+
+        drained.forEach((key, delta) -> {
+            hourly.add(delta.toRow(Timestamp.valueOf(key.bucket), key.stationId, key.pileId));
+            BucketKey dayKey = new BucketKey(key.bucket.toLocalDate().atStartOfDay(), key.stationId, key.pileId);
+            daily.merge(dayKey, delta.copy(), Delta::merge);
+            stations.merge(key.stationId, delta.copy(), Delta::merge);
+        });
+
+        List<Object[]> dailyRows = new ArrayList<>(daily.size());
+        daily.forEach((key, delta) -> dailyRows.add(delta.toRow(key.bucket.toLocalDate(), key.stationId, key.pileId)));
+
+        List<Object[]> stationRows = new ArrayList<>(stations.size());
+        stations.forEach((stationId, delta) -> stationRows.add(
+                new Object[]{stationId, delta.orderCount, delta.chargeAmount, delta.revenue}));
+
+        jdbcTemplate.batchUpdate(HOURLY_UPSERT_SQL, hourly);
+        jdbcTemplate.batchUpdate(DAILY_UPSERT_SQL, dailyRows);
+        jdbcTemplate.batchUpdate(STATION_UPSERT_SQL, stationRows);
+    }
+
+    /**
+     * 落库结果
+     */
+    private enum FlushOutcome {
+        /**
+         * 增量已累加
+         */
+        WRITTEN,
+        /**
+         * 正在重建或落库失败，增量放回下次重试
+         */
+        REBUILDING,
+        /**
+         * 上次落库后发生过重建，增量改为按分桶重新计算
+         */
+        REBUILT
+    }
+
+    /**
+     * 汇总分桶键
+     */
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static final class BucketKey {
+
+        private final LocalDateTime bucket;
+        private final Long stationId;
+        private final Long pileId;
+    }
+
+    /**
+     * 汇总增量（只在 ConcurrentHashMap.compute 内或落库线程中修改）
+     */
+    private static final class Delta {
+
+        private long orderCount;
+        private long inProgressCount;
+        private long completedCount;
+        private long cancelledCount;
+        private long paidCount;
+        private BigDecimal chargeAmount = BigDecimal.ZERO;
+        private BigDecimal revenue = BigDecimal.ZERO;
+        private BigDecimal paidAmount = BigDecimal.ZERO;
+
+        void apply(OrderChangedEvent event) {
+            switch (event.getType()) {
+                case CREATED -> {
+                    orderCount++;
+                    inProgressCount++;
+                }
+                case COMPLETED -> {
+                    inProgressCount--;
+                    completedCount++;
+                    chargeAmount = chargeAmount.add(zeroIfNull(event.getChargeAmount()));
+                    revenue = revenue.add(zeroIfNull(event.getTotalFee()));
+                }
+                case CANCELLED -> {
+                    inProgressCount--;
+                    cancelledCount++;
+                }
+                case PAID -> {
+                    paidCount++;
+                    paidAmount = paidAmount.add(zeroIfNull(event.getTotalFee()));
+                }
+            }
+        }
+
+        Delta merge(Delta other) {
+            orderCount += other.orderCount;
+            inProgressCount += other.inProgressCount;
+            completedCount += other.completedCount;
+            cancelledCount += other.cancelledCount;
+            paidCount += other.paidCount;
+            chargeAmount = chargeAmount.add(other.chargeAmount);
+            revenue = revenue.add(other.revenue);
+            paidAmount = paidAmount.add(other.paidAmount);
+            return this;
+        }
+
+        Delta copy() {
+            return new Delta().merge(this);
+        }
+
+        Object[] toRow(Object bucket, Long stationId, Long pileId) {
+            return new Object[]{bucket, stationId, pileId, orderCount, inProgressCount, completedCount,
+                    cancelledCount, paidCount, chargeAmount, revenue, paidAmount};
+        }
+
+        private static BigDecimal zeroIfNull(BigDecimal value) {
+            return value != null ? value : BigDecimal.ZERO;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.ev.charging.stats;
+
+import com.ev.charging.event.PileStatusChangedEvent;
+import com.ev.charging.util.LongObjectMap;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 充电桩状态计数器
+ * 按状态维护全局和各站点的充电桩数量，由 {@link PileStatusChangedEvent}（所有状态变更的唯一出口）在事务提交后增量更新，
+ * 其他节点的变更经 {@link com.ev.charging.event.PileStatusClusterSync} 转发后同样计入。
+ * 仪表板读取为O(1)，不再全表加载充电桩。定时与 GROUP BY 结果对账，修正遗漏的变更。
+ * <p>
+ * 初始化时逐个读取充电桩状态：缓存开始前到达的变更已包含在查询结果中，直接丢弃；缓存开始后到达的变更
+ * 可能在查询之前或之后提交，重放时与查询到的充电桩状态比对，只重放 oldStatus 与该状态一致（即尚未包含在查询结果中）的变更，
+ * 避免同一变更被计入两次。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PileStatusCounters {
+
+    /**
+     * 状态取值上限：1空闲 2充电中 3预约中 4故障 5离线
+     */
+    private static final int STATUS_SLOTS = 8;
+
+    private static final String COUNT_SQL =
+            "SELECT station_id, status, COUNT(*) AS cnt FROM charging_pile GROUP BY station_id, status";
+
+    private static final String SNAPSHOT_SQL = "SELECT id, station_id, status FROM charging_pile";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final LongAdder[] global = newCounters();
+
+    private final Map<Long, LongAdder[]> byStation = new ConcurrentHashMap<>();
+
+    /**
+     * 上一轮对账发现的偏差，连续两轮相同才修正，避免把对账期间正在提交的变更误判为偏差
+     */
+    private Map<Long, Long> lastDrift = new HashMap<>();
+
+    private volatile boolean ready;
+
+    private final Object loadLock = new Object();
+
+    /**
+     * 初始化查询期间到达的变更，查询开始前为null
+     */
+    private List<PileStatusChangedEvent> pendingEvents;
+
+    /**
+     * 应用启动后按数据库初始化
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        synchronized (loadLock) {
+            pendingEvents = new ArrayList<>();
+        }
+        LongObjectMap<Byte> statuses = new LongObjectMap<>();
+        jdbcTemplate.query(SNAPSHOT_SQL, rs -> {
+            byte status = rs.getByte("status");
+            statuses.put(rs.getLong("id"), status);
+            add(rs.getLong("station_id"), status, 1);
+        });
+        int replayed = 0;
+        int skipped;
+        synchronized (loadLock) {
+            for (PileStatusChangedEvent event : pendingEvents) {
+                if (replay(event, statuses)) {
+                    replayed++;
+                }
+            }
+            skipped = pendingEvents.size() - replayed;
+            pendingEvents = null;
+            ready = true;
+        }
+        log.info("充电桩状态计数器初始化完成，充电桩总数：{}，重放变更：{}，已包含在查询结果中：{}", total(), replayed, skipped);
+    }
+
+    /**
+     * 重放缓存的变更：变更前状态与当前已计入的状态一致时才计入，并推进该充电桩的状态
+     *
+     * @param statuses 充电桩ID -> 已计入的状态（初始化查询结果，随重放更新）
+     * @return 是否计入
+     */
+    private boolean replay(PileStatusChangedEvent event, LongObjectMap<Byte> statuses) {
+        if (event.getPileId() == null) {
+            return false;
+        }
+        Byte counted = statuses.get(event.getPileId());
+        if (counted == null ? event.getOldStatus() != null : !counted.equals(event.getOldStatus())) {
+            return false;
+        }
+        apply(event);
+        if (event.getNewStatus() != null) {
+            statuses.put(event.getPileId(), event.getNewStatus());
+        } else {
+            statuses.remove(event.getPileId());
+        }
+        return true;
+    }
+
+    /**
+     * 状态变更在事务提交后计入
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPileStatusChanged(PileStatusChangedEvent event) {
+        if (!ready) {
+            synchronized (loadLock) {
+                if (!ready) {
+                    if (pendingEvents != null) {
+                        pendingEvents.add(event);
+                    }
+                    return;
+                }
+            }
+        }
+        apply(event);
+    }
+
+    private void apply(PileStatusChangedEvent event) {
+        if (event.getOldStatus() != null) {
+            add(event.getStationId(), event.getOldStatus(), -1);
+        }
+        if (event.getNewStatus() != null) {
+            add(event.getStationId(), event.getNewStatus(), 1);
+        }
+    }
+
+    /**
+     * 定时对账，默认每5分钟
+     */
+    @Scheduled(fixedDelayString = "${stats.pile-counter-reconcile-interval:300000}",
+            initialDelayString = "${stats.pile-counter-reconcile-interval:300000}")
+    public synchronized void reconcile() {
+        if (!ready) {
+            return;
+        }
+
+        Map<Long, Long> counts = queryCounts();
+
+        Set<Long> keys = new HashSet<>(counts.keySet());
+        byStation.forEach((stationId, counters) -> {
+            for (int status = 0; status < STATUS_SLOTS; status++) {
+                if (counters[status].sum() != 0) {
+                    keys.add(key(stationId, status));
+                }
+            }
+        });
+
+        Map<Long, Long> drift = new HashMap<>();
+        for (Long key : keys) {
+            long expected = counts.getOrDefault(key, 0L);
+            long actual = stationCount(stationOf(key), statusOf(key));
+            if (expected != actual) {
+                drift.put(key, expected - actual);
+            }
+        }
+
+        Map<Long, Long> pending = new HashMap<>();
+        int corrected = 0;
+        for (Map.Entry<Long, Long> entry : drift.entrySet()) {
+            if (entry.getValue().equals(lastDrift.get(entry.getKey()))) {
+                add(stationOf(entry.getKey()), statusOf(entry.getKey()), entry.getValue());
+                corrected++;
+            } else {
+                pending.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (corrected > 0) {
+            log.warn("充电桩状态计数器对账修正{}项", corrected);
+        }
+        lastDrift = pending;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 全局某状态的充电桩数量
+     *
+     * @param status 充电桩状态
+     * @return 数量
+     */
+    public long count(byte status) {
+        return validStatus(status) ? global[status].sum() : 0;
+    }
+
+    /**
+     * 站点某状态的充电桩数量
+     *
+     * @param stationId 充电站ID
+     * @param status    充电桩状态
+     * @return 数量
+     */
+    public long count(Long stationId, byte status) {
+        return stationCount(stationId, status);
+    }
+
+    /**
+     * 充电桩总数
+     */
+    public long total() {
+        long total = 0;
+        for (LongAdder counter : global) {
+            total += counter.sum();
+        }
+        return total;
+    }
+
+    private long stationCount(Long stationId, int status) {
+        LongAdder[] counters = byStation.get(stationId);
+        return counters != null && validStatus(status) ? counters[status].sum() : 0;
+    }
+
+    private void add(Long stationId, int status, long delta) {
+        if (!validStatus(status)) {
+            return;
+        }
+        global[status].add(delta);
+        if (stationId != null) {
+            byStation.computeIfAbsent(stationId, id -> newCounters())[status].add(delta);
+        }
+    }
+
+    private Map<Long, Long> queryCounts() {
+        Map<Long, Long> counts = new HashMap<>();
+        jdbcTemplate.query(COUNT_SQL, rs -> {
+            int status = rs.getInt("status");
+            if (validStatus(status)) {
+                counts.put(key(rs.getLong("station_id"), status), rs.getLong("cnt"));
+            }
+        });
+        return counts;
+    }
+
+    private static boolean validStatus(int status) {
+        return status >= 0 && status < STATUS_SLOTS;
+    }
+
+    private static long key(long stationId, int status) {
+        return stationId * STATUS_SLOTS + status;
+    }
+
+    private static long stationOf(long key) {
+        return key / STATUS_SLOTS;
+    }
+
+    private static int statusOf(long key) {
+        return (int) (key % STATUS_SLOTS);
+    }
+
+    private static LongAdder[] newCounters() {
+        LongAdder[] counters = new LongAdder[STATUS_SLOTS];
+        for (int i = 0; i < STATUS_SLOTS; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+}
@@ -0,0 +1,275 @@
+package com.ev.charging.telemetry;
+
+import com.ev.charging.catalog.CatalogCache;
+import com.ev.charging.dto.TelemetryDTO;
+import com.ev.charging.tsdb.SeriesNames;
+import com.ev.charging.tsdb.TimeSeriesStore;
+import com.ev.charging.util.LongObjectMap;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 充电桩遥测采集流水线
+ * 采样先写入 {@link TelemetryRingBuffer}，由单个落库线程定时批量取出：
+ * 原始采样（电压、电流、功率）追加到 {@link TimeSeriesStore}；同一批内每个充电桩只保留最新一条，
+ * 且只有电压电流与上次成功写入不同时才更新 charging_pile 行；更新失败的充电桩在下一条采样到达时重试。
+ * <p>
+ * 二进制帧格式（大端序，每条24字节，可连续多条）：
+ * pileId(int64) | timestamp毫秒(int64) | 电压V(int32) | 电流0.01A(int32)
+ */
+@Slf4j
+@Component
+public class TelemetryPipeline {
+
+    /**
+     * 二进制帧单条采样长度
+     */
+    public static final int FRAME_SIZE = 24;
+
+    private static final String UPDATE_PILE_SQL =
+            "UPDATE charging_pile SET voltage = ?, current = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CatalogCache catalogCache;
+    private final TimeSeriesStore timeSeriesStore;
+    private final TelemetryRingBuffer ringBuffer;
+
+    /**
+     * 落库线程的批量缓冲区
+     */
+    private final long[] pileIds;
+    private final long[] timestamps;
+    private final int[] voltages;
+    private final int[] currents;
+
+    /**
+     * 已写入 charging_pile 的最新值（只在落库线程中访问）
+     */
+    private final LongObjectMap<Latest> written = new LongObjectMap<>();
+
+    /**
+     * 充电桩ID -> 电压、电流、功率序列名（只在落库线程中访问）
+     */
+    private final LongObjectMap<String[]> seriesNames = new LongObjectMap<>();
+
+    private final AtomicLong acceptedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong storedCount = new AtomicLong();
+    private final AtomicLong pileUpdateCount = new AtomicLong();
+    private final AtomicLong pileUpdateFailedCount = new AtomicLong();
+
+    public TelemetryPipeline(JdbcTemplate jdbcTemplate,
+                             CatalogCache catalogCache,
+                             TimeSeriesStore timeSeriesStore,
+                             @Value("${telemetry.buffer-capacity:65536}") int bufferCapacity,
+                             @Value("${telemetry.batch-size:5000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.catalogCache = catalogCache;
+        this.timeSeriesStore = timeSeriesStore;
+        this.ringBuffer = new TelemetryRingBuffer(bufferCapacity);
+        this.pileIds = new long[batchSize];
+        this.timestamps = new long[batchSize];
+        this.voltages = new int[batchSize];
+        this.currents = new int[batchSize];
+    }
+
+    /**
+     * 写入一条采样
+     *
+     * @param pileId    充电桩ID
+     * @param timestamp 采样时间（毫秒时间戳）
+     * @param voltage   电压（V）
+     * @param current   电流（0.01A）
+     * @return 缓冲区已满被丢弃时返回false
+     */
+    public boolean offer(long pileId, long timestamp, int voltage, int current) {
+        if (ringBuffer.offer(pileId, timestamp, voltage, current)) {
+            acceptedCount.incrementAndGet();
+            return true;
+        }
+        droppedCount.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * 批量写入JSON采样
+     *
+     * @param samples 采样列表
+     * @return 接收的条数
+     */
+    public int ingest(List<TelemetryDTO> samples) {
+        long now = System.currentTimeMillis();
+        int count = 0;
+        for (TelemetryDTO sample : samples) {
+            if (sample.getPileId() == null) {
+                continue;
+            }
+            long timestamp = sample.getSampleTime() != null ? sample.getSampleTime() : now;
+            int voltage = sample.getVoltage() != null ? sample.getVoltage() : 0;
+            int current = sample.getCurrent() != null ? (int) Math.round(sample.getCurrent() * 100) : 0;
+            if (offer(sample.getPileId(), timestamp, voltage, current)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 写入二进制帧
+     *
+     * @param body 连续的24字节采样
+     * @return 接收的条数
+     */
+    public int ingestFrames(byte[] body) {
+        if (body.length % FRAME_SIZE != 0) {
+            throw new IllegalArgumentException("遥测帧长度错误，应为" + FRAME_SIZE + "字节的整数倍");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        int count = 0;
+        while (buffer.remaining() >= FRAME_SIZE) {
+            if (offer(buffer.getLong(), buffer.getLong(), buffer.getInt(), buffer.getInt())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 定时落库，默认每秒
+     */
+    @Scheduled(fixedDelayString = "${telemetry.flush-interval:1000}")
+    public synchronized void flush() {
+        int count;
+        while ((count = ringBuffer.drainTo(pileIds, timestamps, voltages, currents, pileIds.length)) > 0) {
+            write(count);
+            if (count < pileIds.length) {
+                break;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * 采集统计
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("accepted", acceptedCount.get());
+        stats.put("dropped", droppedCount.get());
+        stats.put("stored", storedCount.get());
+        stats.put("pileUpdates", pileUpdateCount.get());
+        stats.put("pileUpdateFailures", pileUpdateFailedCount.get());
+        stats.put("backlog", ringBuffer.size());
+        stats.put("capacity", ringBuffer.capacity());
+        return stats;
+    }
+
+    private void write(int count) {
+        // 过滤未知充电桩，写入时间序列，并找出每个充电桩在本批内的最新一条
+        LongObjectMap<Latest> latest = new LongObjectMap<>();
+        int stored = 0;
+        int processed = 0;
+        try {
+            for (; processed < count; processed++) {
+                int i = processed;
+                long pileId = pileIds[i];
+                String[] series = seriesNames.get(pileId);
+                if (series == null) {
+                    if (catalogCache.pile(pileId) == null) {
+                        continue;
+                    }
+                    series = SeriesNames.pileSeries(pileId);
+                    seriesNames.put(pileId, series);
+                }
+
+                double current = currents[i] / 100.0;
+                if (timeSeriesStore.append(series[0], timestamps[i], voltages[i])) {
+                    timeSeriesStore.append(series[1], timestamps[i], current);
+                    timeSeriesStore.append(series[2], timestamps[i], voltages[i] * current / 1000.0);
+                    stored++;
+                }
+
+                Latest value = latest.get(pileId);
+                if (value == null) {
+                    latest.put(pileId, new Latest(pileId, timestamps[i], voltages[i], currents[i]));
+                } else if (timestamps[i] >= value.timestamp) {
+                    value.timestamp = timestamps[i];
+                    value.voltage = voltages[i];
+                    value.current = currents[i];
+                }
+            }
+        } catch (RuntimeException e) {
+            // 出错的这条及之后的采样都没有写入
+            droppedCount.addAndGet(count - processed);
+            log.error("遥测数据写入时间序列失败，丢弃{}条", count - processed, e);
+        }
+        storedCount.addAndGet(stored);
+
+        updatePiles(latest);
+    }
+
+    /**
+     * 只更新电压电流与上次成功写入不同的充电桩，批量更新成功后才记录为已写入
+     */
+    private void updatePiles(LongObjectMap<Latest> latest) {
+        List<Latest> changed = new ArrayList<>();
+        latest.forEachValue(value -> {
+            Latest previous = written.get(value.pileId);
+            if (previous == null || previous.voltage != value.voltage || previous.current != value.current) {
+                changed.add(value);
+            }
+        });
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> updates = new ArrayList<>(changed.size());
+        for (Latest value : changed) {
+            updates.add(new Object[]{value.voltage, value.current / 100.0, value.pileId});
+        }
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_PILE_SQL, updates);
+        } catch (RuntimeException e) {
+            pileUpdateFailedCount.addAndGet(changed.size());
+            log.error("更新充电桩电压电流失败，{}个充电桩在下一条采样到达时重试", changed.size(), e);
+            return;
+        }
+        for (Latest value : changed) {
+            written.put(value.pileId, value);
+        }
+        pileUpdateCount.addAndGet(changed.size());
+    }
+
+    /**
+     * 充电桩的最新采样
+     */
+    private static final class Latest {
+
+        private final long pileId;
+        private long timestamp;
+        private int voltage;
+        private int current;
+
+        private Latest(long pileId, long timestamp, int voltage, int current) {
+            this.pileId = pileId;
+            this.timestamp = timestamp;
+            this.voltage = voltage;
+            this.current = current;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.ev.charging.telemetry;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 遥测采样的无锁环形缓冲区（多生产者、单消费者）
+ * 采样按列存放在基本类型数组中，不为每条采样创建对象。
+ * 生产者用CAS抢占序号后写入槽位，再以有序写发布；消费者按序号读取已发布的槽位，读完后推进head释放槽位。
+ * 缓冲区满时 {@link #offer} 直接返回false，由调用方决定丢弃或重试。
+ */
+public final class TelemetryRingBuffer {
+
+    private final int capacity;
+    private final int mask;
+
+    private final long[] pileIds;
+    private final long[] timestamps;
+    private final int[] voltages;
+    private final int[] currents;
+
+    /**
+     * 槽位发布标记：值为 序号+1 时表示该序号的采样已写完
+     */
+    private final AtomicLongArray published;
+
+    /**
+     * 下一个待分配的序号
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * 下一个待读取的序号（只由消费者写）
+     */
+    private volatile long head;
+
+    /**
+     * @param capacity 容量（向上取整为2的幂）
+     */
+    public TelemetryRingBuffer(int capacity) {
+        this.capacity = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.pileIds = new long[this.capacity];
+        this.timestamps = new long[this.capacity];
+        this.voltages = new int[this.capacity];
+        this.currents = new int[this.capacity];
+        this.published = new AtomicLongArray(this.capacity);
+    }
+
+    /**
+     * 写入一条采样
+     *
+     * @param pileId    充电桩ID
+     * @param timestamp 采样时间（毫秒时间戳）
+     * @param voltage   电压（V）
+     * @param current   电流（0.01A）
+     * @return 缓冲区已满时返回false
+     */
+    public boolean offer(long pileId, long timestamp, int voltage, int current) {
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head >= capacity) {
+                return false;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+
+        int slot = (int) sequence & mask;
+        pileIds[slot] = pileId;
+        timestamps[slot] = timestamp;
+        voltages[slot] = voltage;
+        currents[slot] = current;
+        published.lazySet(slot, sequence + 1);
+        return true;
+    }
+
+    /**
+     * 取出已发布的采样（只能由单个消费者线程调用）
+     *
+     * @param pileIdsOut    输出：充电桩ID
+     * @param timestampsOut 输出：采样时间
+     * @param voltagesOut   输出：电压
+     * @param currentsOut   输出：电流
+     * @param max           最多取出的条数
+     * @return 实际取出的条数
+     */
+    public int drainTo(long[] pileIdsOut, long[] timestampsOut, int[] voltagesOut, int[] currentsOut, int max) {
+        long sequence = head;
+        int count = 0;
+        while (count < max) {
+            int slot = (int) sequence & mask;
+            if (published.get(slot) != sequence + 1) {
+                break;
+            }
+            pileIdsOut[count] = pileIds[slot];
+            timestampsOut[count] = timestamps[slot];
+            voltagesOut[count] = voltages[slot];
+            currentsOut[count] = currents[slot];
+            count++;
+            sequence++;
+        }
+        head = sequence;
+        return count;
+    }
+
+    /**
+     * 当前积压的采样数（近似值）
+     */
+    public int size() {
+        return (int) Math.max(tail.get() - head, 0);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,12 @@
+package com.ev.charging.tsdb;
+
+/**
+ * 降采样聚合方式
+ */
+public enum Aggregation {
+    AVG,
+    MIN,
+    MAX,
+    SUM,
+    LAST
+}
@@ -0,0 +1,57 @@
+package com.ev.charging.tsdb;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 按位读取（直接读映射缓冲区中的64位字，不复制）
+ */
+final class BitReader {
+
+    private final ByteBuffer buffer;
+    private final int offset;
+    private long position;
+
+    /**
+     * @param buffer 缓冲区（只使用绝对位置读取，可多线程共享）
+     * @param offset 第一个字的字节偏移
+     */
+    BitReader(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+    }
+
+    /**
+     * 读取bits位，作为无符号数返回
+     *
+     * @param bits 位数（0-64）
+     */
+    long read(int bits) {
+        if (bits == 0) {
+            return 0L;
+        }
+        int index = (int) (position >>> 6);
+        int used = (int) (position & 63);
+        long word = buffer.getLong(offset + (index << 3));
+        long result = (word << used) >>> (64 - bits);
+        int available = 64 - used;
+        if (bits > available) {
+            int spill = bits - available;
+            long next = buffer.getLong(offset + ((index + 1) << 3));
+            result |= next >>> (64 - spill);
+        }
+        position += bits;
+        return result;
+    }
+
+    boolean readBit() {
+        return read(1) != 0;
+    }
+
+    /**
+     * 读取bits位有符号数（补码）
+     */
+    long readSigned(int bits) {
+        long value = read(bits);
+        return bits < 64 && (value & (1L << (bits - 1))) != 0 ? value - (1L << bits) : value;
+    }
+}
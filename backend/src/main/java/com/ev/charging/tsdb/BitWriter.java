@@ -0,0 +1,55 @@
+package com.ev.charging.tsdb;
+
+import java.util.Arrays;
+
+/**
+ * 按位写入的缓冲区（高位在前，按64位字存放）
+ */
+final class BitWriter {
+
+    private long[] words = new long[16];
+    private int bitCount;
+
+    /**
+     * 写入value的低bits位
+     *
+     * @param value 值
+     * @param bits  位数（0-64）
+     */
+    void write(long value, int bits) {
+        if (bits == 0) {
+            return;
+        }
+        ensureCapacity(bitCount + bits);
+        long masked = bits == 64 ? value : value & ((1L << bits) - 1);
+        int index = bitCount >>> 6;
+        int free = 64 - (bitCount & 63);
+        if (bits <= free) {
+            words[index] |= masked << (free - bits);
+        } else {
+            int spill = bits - free;
+            words[index] |= masked >>> spill;
+            words[index + 1] |= masked << (64 - spill);
+        }
+        bitCount += bits;
+    }
+
+    void writeBit(boolean bit) {
+        write(bit ? 1L : 0L, 1);
+    }
+
+    int wordCount() {
+        return (bitCount + 63) >>> 6;
+    }
+
+    long word(int index) {
+        return words[index];
+    }
+
+    private void ensureCapacity(int bits) {
+        int required = (bits + 63) >>> 6;
+        if (required > words.length) {
+            words = Arrays.copyOf(words, Math.max(required, words.length << 1));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.ev.charging.tsdb;
+
+/**
+ * 数据块编解码（Gorilla压缩）
+ * 时间戳：首个原样64位，之后对"差值的差值"按大小分档编码，等间隔采样每点只占1位；
+ * 数值：首个原样64位，之后与前值做XOR，相同占1位，否则只写有效位（可复用上一窗口时省去前导/尾随零长度）。
+ */
+final class ChunkCodec {
+
+    private ChunkCodec() {
+    }
+
+    /**
+     * 编码
+     *
+     * @param timestamps 时间戳（毫秒，非递减）
+     * @param values     数值
+     * @param count      点数（大于0）
+     * @param out        输出
+     */
+    static void encode(long[] timestamps, double[] values, int count, BitWriter out) {
+        long previousTimestamp = timestamps[0];
+        long previousDelta = 0;
+        long previousBits = Double.doubleToRawLongBits(values[0]);
+        int previousLeading = -1;
+        int previousTrailing = 0;
+        out.write(previousTimestamp, 64);
+        out.write(previousBits, 64);
+
+        for (int i = 1; i < count; i++) {
+            long delta = timestamps[i] - previousTimestamp;
+            long deltaOfDelta = delta - previousDelta;
+            if (deltaOfDelta == 0) {
+                out.write(0b0, 1);
+            } else if (deltaOfDelta >= -64 && deltaOfDelta <= 63) {
+                out.write(0b10, 2);
+                out.write(deltaOfDelta, 7);
+            } else if (deltaOfDelta >= -256 && deltaOfDelta <= 255) {
+                out.write(0b110, 3);
+                out.write(deltaOfDelta, 9);
+            } else if (deltaOfDelta >= -2048 && deltaOfDelta <= 2047) {
+                out.write(0b1110, 4);
+                out.write(deltaOfDelta, 12);
+            } else {
+                out.write(0b1111, 4);
+                out.write(deltaOfDelta, 64);
+            }
+            previousTimestamp = timestamps[i];
+            previousDelta = delta;
+
+            long bits = Double.doubleToRawLongBits(values[i]);
+            long xor = bits ^ previousBits;
+            if (xor == 0) {
+                out.writeBit(false);
+            } else {
+                out.writeBit(true);
+                int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+                int trailing = Long.numberOfTrailingZeros(xor);
+                if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                    out.writeBit(false);
+                    out.write(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+                } else {
+                    int meaningful = 64 - leading - trailing;
+                    out.writeBit(true);
+                    out.write(leading, 5);
+                    out.write(meaningful - 1, 6);
+                    out.write(xor >>> trailing, meaningful);
+                    previousLeading = leading;
+                    previousTrailing = trailing;
+                }
+            }
+            previousBits = bits;
+        }
+    }
+
+    /**
+     * 解码
+     *
+     * @param in            输入
+     * @param count         点数
+     * @param timestampsOut 输出：时间戳
+     * @param valuesOut     输出：数值
+     */
+    static void decode(BitReader in, int count, long[] timestampsOut, double[] valuesOut) {
+        long timestamp = in.read(64);
+        long bits = in.read(64);
+        long delta = 0;
+        int leading = 0;
+        int trailing = 0;
+        timestampsOut[0] = timestamp;
+        valuesOut[0] = Double.longBitsToDouble(bits);
+
+        for (int i = 1; i < count; i++) {
+            long deltaOfDelta;
+            if (!in.readBit()) {
+                deltaOfDelta = 0;
+            } else if (!in.readBit()) {
+                deltaOfDelta = in.readSigned(7);
+            } else if (!in.readBit()) {
+                deltaOfDelta = in.readSigned(9);
+            } else if (!in.readBit()) {
+                deltaOfDelta = in.readSigned(12);
+            } else {
+                deltaOfDelta = in.read(64);
+            }
+            delta += deltaOfDelta;
+            timestamp += delta;
+            timestampsOut[i] = timestamp;
+
+            if (in.readBit()) {
+                if (in.readBit()) {
+                    leading = (int) in.read(5);
+                    int meaningful = (int) in.read(6) + 1;
+                    trailing = 64 - leading - meaningful;
+                }
+                int meaningful = 64 - leading - trailing;
+                bits ^= in.read(meaningful) << trailing;
+            }
+            valuesOut[i] = Double.longBitsToDouble(bits);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.ev.charging.tsdb;
+
+import com.ev.charging.dto.EnergyDataDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * 站点能源数据的时间序列写入
+ * 新数据直接写入 {@link TimeSeriesStore}；首次启动时存储中没有任何站点序列，则从 energy_data 表导入历史数据。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EnergySeries {
+
+    private static final String IMPORT_SQL =
+            "SELECT station_id, record_time, solar_generation, grid_purchase, battery_charge, battery_discharge, " +
+                    "battery_soc, total_consumption FROM energy_data ORDER BY station_id, record_time";
+
+    private final TimeSeriesStore timeSeriesStore;
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 写入一条能源数据
+     *
+     * @param stationId 站点ID
+     * @param data      能源数据，记录时间为空时取当前时间
+     * @throws IllegalArgumentException 记录时间早于存储保留期或晚于当前时间
+     */
+    public void append(Long stationId, EnergyDataDTO data) {
+        long timestamp = data.getRecordTime() != null ? data.getRecordTime() : System.currentTimeMillis();
+        if (!timeSeriesStore.isWritable(timestamp)) {
+            throw new IllegalArgumentException("记录时间超出允许范围：须在数据保留期内且不晚于当前时间");
+        }
+        append(stationId, timestamp, new Double[]{
+                data.getSolarGeneration(), data.getGridPurchase(), data.getBatteryCharge(),
+                data.getBatteryDischarge(), data.getBatterySoc(), data.getTotalConsumption()});
+    }
+
+    /**
+     * 首次启动时从 energy_data 表导入
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void importIfEmpty() {
+        if (timeSeriesStore.hasSeriesWithPrefix(SeriesNames.STATION_PREFIX)) {
+            return;
+        }
+        int[] rows = {0};
+        jdbcTemplate.query(IMPORT_SQL, rs -> {
+            append(rs.getLong("station_id"), rs.getTimestamp("record_time").getTime(), new Double[]{
+                    rs.getDouble("solar_generation"), rs.getDouble("grid_purchase"), rs.getDouble("battery_charge"),
+                    rs.getDouble("battery_discharge"), rs.getObject("battery_soc") != null ? rs.getDouble("battery_soc") : null,
+                    rs.getDouble("total_consumption")});
+            rows[0]++;
+        });
+        if (rows[0] > 0) {
+            log.info("已从energy_data导入{}条能源数据到时间序列存储", rows[0]);
+        }
+    }
+
+    /**
+     * 按 {@link SeriesNames#ENERGY_METRICS} 的顺序写入各指标，空值跳过
+     */
+    private void append(long stationId, long timestamp, Double[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                timeSeriesStore.append(SeriesNames.station(stationId, SeriesNames.ENERGY_METRICS.get(i)), timestamp, values[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.ev.charging.tsdb;
+
+/**
+ * 查询时逐点接收解码结果（按时间顺序）
+ */
+@FunctionalInterface
+interface PointSink {
+
+    void add(long timestamp, double value);
+}
@@ -0,0 +1,226 @@
+package com.ev.charging.tsdb;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 段文件：某一天的只追加数据块集合，整个文件映射到内存
+ * <p>
+ * 文件格式：魔数(int64) 之后是连续的数据块记录，记录长度为0表示数据结束。
+ * 记录：记录长度(int32) | 序列名长度(int16) | 序列名UTF-8 | 最小时间(int64) | 最大时间(int64) | 点数(int32) | 字数(int32) | 位流(字数×8字节)
+ */
+@Slf4j
+final class Segment {
+
+    private static final long MAGIC = 0x4556545344423031L; // "EVTSDB01"
+    private static final int HEADER_SIZE = 8;
+
+    private final Path path;
+    private final long day;
+    private final int part;
+    private final MappedByteBuffer buffer;
+
+    /**
+     * 下一条记录的写入位置（只在持有本对象锁时修改）
+     */
+    private volatile int writePosition;
+    private volatile boolean dirty;
+
+    /**
+     * 序列名 -> 数据块索引（按写入顺序，即时间顺序）
+     */
+    private final Map<String, List<ChunkRef>> index = new ConcurrentHashMap<>();
+
+    private Segment(Path path, long day, int part, MappedByteBuffer buffer) {
+        this.path = path;
+        this.day = day;
+        this.part = part;
+        this.buffer = buffer;
+    }
+
+    /**
+     * 创建或打开段文件，打开时扫描已有记录重建索引
+     */
+    static Segment open(Path path, long day, int part, int size) throws IOException {
+        boolean exists = Files.exists(path);
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long mapSize = Math.max(size, channel.size());
+            Segment segment = new Segment(path, day, part, channel.map(FileChannel.MapMode.READ_WRITE, 0, mapSize));
+            if (exists && segment.buffer.getLong(0) == MAGIC) {
+                segment.recover();
+            } else {
+                segment.buffer.putLong(0, MAGIC);
+                segment.writePosition = HEADER_SIZE;
+                segment.dirty = true;
+            }
+            return segment;
+        }
+    }
+
+    /**
+     * 追加一个数据块
+     *
+     * @return 空间不足时返回false
+     */
+    synchronized boolean append(String series, byte[] seriesBytes, long minTimestamp, long maxTimestamp,
+                                int count, BitWriter bits) {
+        int words = bits.wordCount();
+        int recordLength = 4 + 2 + seriesBytes.length + 8 + 8 + 4 + 4 + words * 8;
+        int position = writePosition;
+        // 末尾保留4字节写结束标记
+        if (position + recordLength + 4 > buffer.capacity()) {
+            return false;
+        }
+
+        int cursor = position + 4;
+        buffer.putShort(cursor, (short) seriesBytes.length);
+        cursor += 2;
+        buffer.put(cursor, seriesBytes);
+        cursor += seriesBytes.length;
+        buffer.putLong(cursor, minTimestamp);
+        buffer.putLong(cursor + 8, maxTimestamp);
+        buffer.putInt(cursor + 16, count);
+        buffer.putInt(cursor + 20, words);
+        cursor += 24;
+        int payloadOffset = cursor;
+        for (int i = 0; i < words; i++) {
+            buffer.putLong(cursor, bits.word(i));
+            cursor += 8;
+        }
+        buffer.putInt(cursor, 0);
+        // 记录内容写完后再写长度，崩溃时半条记录会被当作数据结束
+        buffer.putInt(position, recordLength);
+
+        writePosition = cursor;
+        dirty = true;
+        index.computeIfAbsent(series, key -> new CopyOnWriteArrayList<>())
+                .add(new ChunkRef(payloadOffset, minTimestamp, maxTimestamp, count));
+        return true;
+    }
+
+    /**
+     * 把与时间范围重叠的数据块解码到结果中
+     */
+    void scan(String series, long from, long to, PointSink result, long[] timestampBuffer, double[] valueBuffer) {
+        List<ChunkRef> chunks = index.get(series);
+        if (chunks == null) {
+            return;
+        }
+        for (ChunkRef chunk : chunks) {
+            if (chunk.maxTimestamp < from || chunk.minTimestamp > to) {
+                continue;
+            }
+            ChunkCodec.decode(new BitReader(buffer, chunk.payloadOffset), chunk.count, timestampBuffer, valueBuffer);
+            for (int i = 0; i < chunk.count; i++) {
+                long timestamp = timestampBuffer[i];
+                if (timestamp >= from && timestamp <= to) {
+                    result.add(timestamp, valueBuffer[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * 序列在本段中的最大时间戳
+     *
+     * @return 没有该序列时返回 Long.MIN_VALUE
+     */
+    long maxTimestamp(String series) {
+        List<ChunkRef> chunks = index.get(series);
+        if (chunks == null || chunks.isEmpty()) {
+            return Long.MIN_VALUE;
+        }
+        return chunks.get(chunks.size() - 1).maxTimestamp;
+    }
+
+    boolean containsSeriesWithPrefix(String prefix) {
+        for (String series : index.keySet()) {
+            if (series.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 把映射内容刷到磁盘
+     */
+    void force() {
+        if (dirty) {
+            dirty = false;
+            buffer.force();
+        }
+    }
+
+    long day() {
+        return day;
+    }
+
+    int part() {
+        return part;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    int size() {
+        return writePosition;
+    }
+
+    private void recover() {
+        int position = HEADER_SIZE;
+        int chunks = 0;
+        while (position + 4 <= buffer.capacity()) {
+            int recordLength = buffer.getInt(position);
+            if (recordLength <= 0 || position + recordLength > buffer.capacity()) {
+                break;
+            }
+            int cursor = position + 4;
+            int seriesLength = buffer.getShort(cursor);
+            byte[] seriesBytes = new byte[seriesLength];
+            buffer.get(cursor + 2, seriesBytes);
+            cursor += 2 + seriesLength;
+            long minTimestamp = buffer.getLong(cursor);
+            long maxTimestamp = buffer.getLong(cursor + 8);
+            int count = buffer.getInt(cursor + 16);
+            cursor += 24;
+            index.computeIfAbsent(new String(seriesBytes, StandardCharsets.UTF_8), key -> new CopyOnWriteArrayList<>())
+                    .add(new ChunkRef(cursor, minTimestamp, maxTimestamp, count));
+            position += recordLength;
+            chunks++;
+        }
+        writePosition = position;
+        log.debug("段文件已加载: {}，{}个数据块", path.getFileName(), chunks);
+    }
+
+    /**
+     * 数据块位置
+     */
+    private static final class ChunkRef {
+
+        private final int payloadOffset;
+        private final long minTimestamp;
+        private final long maxTimestamp;
+        private final int count;
+
+        private ChunkRef(int payloadOffset, long minTimestamp, long maxTimestamp, int count) {
+            this.payloadOffset = payloadOffset;
+            this.minTimestamp = minTimestamp;
+            this.maxTimestamp = maxTimestamp;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.ev.charging.tsdb;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * 时间序列查询结果（列式：时间戳数组与数值数组一一对应）
+ */
+@Getter
+@AllArgsConstructor
+public final class SeriesData {
+
+    private final String series;
+    private final long[] timestamps;
+    private final double[] values;
+
+    public int size() {
+        return timestamps.length;
+    }
+
+    /**
+     * 结果构建器
+     */
+    static final class Builder implements PointSink {
+
+        private long[] timestamps = new long[256];
+        private double[] values = new double[256];
+        private int size;
+
+        @Override
+        public void add(long timestamp, double value) {
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size << 1);
+                values = Arrays.copyOf(values, size << 1);
+            }
+            timestamps[size] = timestamp;
+            values[size] = value;
+            size++;
+        }
+
+        SeriesData build(String series) {
+            return new SeriesData(series, Arrays.copyOf(timestamps, size), Arrays.copyOf(values, size));
+        }
+    }
+}
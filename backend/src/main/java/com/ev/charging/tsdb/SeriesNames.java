@@ -0,0 +1,47 @@
+package com.ev.charging.tsdb;
+
+import java.util.List;
+
+/**
+ * 时间序列命名：pile:{充电桩ID}:{指标}、station:{站点ID}:{指标}
+ */
+public final class SeriesNames {
+
+    /**
+     * 充电桩指标：电压(V)、电流(A)、功率(kW)
+     */
+    public static final List<String> PILE_METRICS = List.of("voltage", "current", "power");
+
+    /**
+     * 站点能源指标，与 energy_data 表的列一致
+     */
+    public static final List<String> ENERGY_METRICS = List.of(
+            "solar_generation", "grid_purchase", "battery_charge", "battery_discharge", "battery_soc", "total_consumption");
+
+    public static final String STATION_PREFIX = "station:";
+
+    private SeriesNames() {
+    }
+
+    /**
+     * 充电桩的电压、电流、功率序列名（顺序与 {@link #PILE_METRICS} 一致）
+     */
+    public static String[] pileSeries(long pileId) {
+        String prefix = "pile:" + pileId + ":";
+        return PILE_METRICS.stream().map(metric -> prefix + metric).toArray(String[]::new);
+    }
+
+    public static String pile(long pileId, String metric) {
+        if (!PILE_METRICS.contains(metric)) {
+            throw new IllegalArgumentException("不支持的充电桩指标: " + metric);
+        }
+        return "pile:" + pileId + ":" + metric;
+    }
+
+    public static String station(long stationId, String metric) {
+        if (!ENERGY_METRICS.contains(metric)) {
+            throw new IllegalArgumentException("不支持的能源指标: " + metric);
+        }
+        return STATION_PREFIX + stationId + ":" + metric;
+    }
+}
@@ -0,0 +1,446 @@
+package com.ev.charging.tsdb;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 嵌入式时间序列存储
+ * 每个序列（如 pile:12:power）在内存中维护一个未封口的数据块，写满 {@link #CHUNK_POINTS} 个点、
+ * 跨天或定时封口时用 {@link ChunkCodec} 压缩后追加到当天的段文件；段文件整体映射到内存，查询直接解码映射区。
+ * 数据块不跨天，因此过期清理只需删除整个段文件。同一序列的时间戳必须非递减，乱序点会被丢弃；
+ * 早于保留期或超前当前时间过多的点同样丢弃（否则会为过期的某天新建段文件，或使序列之后的正常点都成为乱序点）。
+ * 查询的时间跨度不超过保留期加一天。
+ */
+@Slf4j
+@Component
+public class TimeSeriesStore {
+
+    /**
+     * 每个数据块的最大点数
+     */
+    static final int CHUNK_POINTS = 1024;
+
+    private static final long DAY_MILLIS = 86_400_000L;
+
+    /**
+     * 单次降采样的最大桶数
+     */
+    private static final int MAX_BUCKETS = 10_000;
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("seg-(\\d+)-(\\d+)\\.tsd");
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int retentionDays;
+    private final long maxFutureSkewMillis;
+
+    /**
+     * 段文件：天 -> 分片序号 -> 段
+     */
+    private final ConcurrentSkipListMap<Long, ConcurrentSkipListMap<Integer, Segment>> segments = new ConcurrentSkipListMap<>();
+
+    /**
+     * 未封口的数据块
+     */
+    private final Map<String, Head> heads = new ConcurrentHashMap<>();
+
+    private final AtomicLong appendedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public TimeSeriesStore(@Value("${tsdb.data-dir:./data/tsdb}") String directory,
+                           @Value("${tsdb.segment-size-mb:64}") int segmentSizeMb,
+                           @Value("${tsdb.retention-days:30}") int retentionDays,
+                           @Value("${tsdb.max-future-skew:300000}") long maxFutureSkewMillis) {
+        this.directory = Paths.get(directory);
+        this.segmentSize = segmentSizeMb * 1024 * 1024;
+        this.retentionDays = retentionDays;
+        this.maxFutureSkewMillis = maxFutureSkewMillis;
+    }
+
+    /**
+     * 启动时加载已有段文件
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "seg-*.tsd")) {
+            for (Path file : files) {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (!matcher.matches()) {
+                    continue;
+                }
+                long day = Long.parseLong(matcher.group(1));
+                int part = Integer.parseInt(matcher.group(2));
+                segments.computeIfAbsent(day, key -> new ConcurrentSkipListMap<>())
+                        .put(part, Segment.open(file, day, part, segmentSize));
+            }
+        }
+        log.info("时间序列存储已打开: {}，段文件{}个", directory.toAbsolutePath(), segmentCount());
+    }
+
+    /**
+     * 写入一个点
+     *
+     * @param series    序列名
+     * @param timestamp 时间戳（毫秒）
+     * @param value     数值
+     * @return 乱序或超出可写入时间范围被丢弃时返回false
+     */
+    public boolean append(String series, long timestamp, double value) {
+        if (!isWritable(timestamp)) {
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+        Head head = heads.computeIfAbsent(series, key -> new Head(key, lastStoredTimestamp(key)));
+        synchronized (head) {
+            if (timestamp < head.lastTimestamp) {
+                rejectedCount.incrementAndGet();
+                return false;
+            }
+            long day = Math.floorDiv(timestamp, DAY_MILLIS);
+            if (head.count > 0 && day != head.day) {
+                seal(head);
+            }
+            if (head.count == 0) {
+                head.day = day;
+            }
+            head.add(timestamp, value);
+            if (head.count == CHUNK_POINTS) {
+                seal(head);
+            }
+        }
+        appendedCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * 序列已写入段文件的最大时间戳（重启后新建的未封口数据块以此为乱序判断的起点）
+     *
+     * @return 没有数据时返回 Long.MIN_VALUE
+     */
+    private long lastStoredTimestamp(String series) {
+        for (ConcurrentSkipListMap<Integer, Segment> parts : segments.descendingMap().values()) {
+            long last = Long.MIN_VALUE;
+            for (Segment segment : parts.values()) {
+                last = Math.max(last, segment.maxTimestamp(series));
+            }
+            if (last != Long.MIN_VALUE) {
+                return last;
+            }
+        }
+        return Long.MIN_VALUE;
+    }
+
+    /**
+     * 时间戳是否在可写入范围内：不早于保留期内最早的一天，不晚于当前时间加允许的时钟偏差
+     *
+     * @param timestamp 时间戳（毫秒）
+     * @return 是否可写入
+     */
+    public boolean isWritable(long timestamp) {
+        long now = System.currentTimeMillis();
+        long oldest = (Math.floorDiv(now, DAY_MILLIS) - retentionDays) * DAY_MILLIS;
+        return timestamp >= oldest && timestamp <= now + maxFutureSkewMillis;
+    }
+
+    /**
+     * 查询时间范围内的原始点
+     *
+     * @param series 序列名
+     * @param from   开始时间（毫秒，含）
+     * @param to     结束时间（毫秒，含）
+     * @return 查询结果
+     */
+    public SeriesData scan(String series, long from, long to) {
+        checkRange(from, to);
+        SeriesData.Builder result = new SeriesData.Builder();
+        collect(series, from, to, result);
+        return result.build(series);
+    }
+
+    /**
+     * 降采样查询：按固定步长分桶聚合，只返回有数据的桶（解码时直接累加到桶中，不保留原始点）
+     *
+     * @param series      序列名
+     * @param from        开始时间（毫秒，含）
+     * @param to          结束时间（毫秒，含）
+     * @param step        桶宽（毫秒，大于0）
+     * @param aggregation 聚合方式
+     * @return 查询结果，时间戳为桶起点
+     */
+    public SeriesData downsample(String series, long from, long to, long step, Aggregation aggregation) {
+        if (step <= 0) {
+            throw new IllegalArgumentException("降采样步长必须大于0");
+        }
+        checkRange(from, to);
+        long buckets = (to - from) / step + 1;
+        if (buckets > MAX_BUCKETS) {
+            throw new IllegalArgumentException("降采样桶数过多，请增大步长");
+        }
+
+        int bucketCount = (int) buckets;
+        double[] accumulator = new double[bucketCount];
+        int[] counts = new int[bucketCount];
+        collect(series, from, to, (timestamp, value) -> {
+            int bucket = (int) ((timestamp - from) / step);
+            if (counts[bucket] == 0) {
+                accumulator[bucket] = value;
+            } else {
+                switch (aggregation) {
+                    case MIN -> accumulator[bucket] = Math.min(accumulator[bucket], value);
+                    case MAX -> accumulator[bucket] = Math.max(accumulator[bucket], value);
+                    case LAST -> accumulator[bucket] = value;
+                    default -> accumulator[bucket] += value;
+                }
+            }
+            counts[bucket]++;
+        });
+
+        SeriesData.Builder result = new SeriesData.Builder();
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            if (counts[bucket] > 0) {
+                double value = aggregation == Aggregation.AVG ? accumulator[bucket] / counts[bucket] : accumulator[bucket];
+                result.add(from + bucket * step, value);
+            }
+        }
+        return result.build(series);
+    }
+
+    /**
+     * 校验查询范围：开始不晚于结束，跨度不超过保留期加一天
+     */
+    private void checkRange(long from, long to) {
+        if (from > to) {
+            throw new IllegalArgumentException("开始时间不能晚于结束时间");
+        }
+        long span = to - from;
+        if (span < 0 || span > (retentionDays + 1L) * DAY_MILLIS) {
+            throw new IllegalArgumentException("查询时间范围不能超过" + (retentionDays + 1) + "天");
+        }
+    }
+
+    /**
+     * 是否存在以指定前缀开头的序列
+     */
+    public boolean hasSeriesWithPrefix(String prefix) {
+        for (String series : heads.keySet()) {
+            if (series.startsWith(prefix)) {
+                return true;
+            }
+        }
+        for (Map<Integer, Segment> parts : segments.values()) {
+            for (Segment segment : parts.values()) {
+                if (segment.containsSeriesWithPrefix(prefix)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 定时封口所有未封口的数据块并刷盘，默认每分钟
+     */
+    @Scheduled(fixedDelayString = "${tsdb.seal-interval:60000}")
+    public void flush() {
+        for (Head head : heads.values()) {
+            synchronized (head) {
+                if (head.count > 0) {
+                    seal(head);
+                }
+            }
+        }
+        for (Map<Integer, Segment> parts : segments.values()) {
+            parts.values().forEach(Segment::force);
+        }
+    }
+
+    /**
+     * 按保留天数删除整个段文件
+     */
+    @Scheduled(cron = "${tsdb.retention-cron:0 20 4 * * ?}")
+    public void purgeExpired() {
+        long cutoff = Math.floorDiv(System.currentTimeMillis(), DAY_MILLIS) - retentionDays;
+        Map<Long, ConcurrentSkipListMap<Integer, Segment>> expired = segments.headMap(cutoff);
+        int deleted = 0;
+        for (Long day : new ArrayList<>(expired.keySet())) {
+            Map<Integer, Segment> parts = segments.remove(day);
+            if (parts == null) {
+                continue;
+            }
+            for (Segment segment : parts.values()) {
+                try {
+                    Files.deleteIfExists(segment.path());
+                    deleted++;
+                } catch (IOException e) {
+                    log.error("删除过期段文件失败: {}", segment.path(), e);
+                }
+            }
+        }
+        if (deleted > 0) {
+            log.info("清理过期段文件{}个（{}天前）", deleted, retentionDays);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    /**
+     * 存储统计
+     */
+    public Map<String, Object> stats() {
+        long bytes = 0;
+        for (Map<Integer, Segment> parts : segments.values()) {
+            for (Segment segment : parts.values()) {
+                bytes += segment.size();
+            }
+        }
+        return Map.of(
+                "series", heads.size(),
+                "segments", segmentCount(),
+                "bytes", bytes,
+                "appended", appendedCount.get(),
+                "rejected", rejectedCount.get()
+        );
+    }
+
+    private void collect(String series, long from, long to, PointSink result) {
+        long[] timestampBuffer = new long[CHUNK_POINTS];
+        double[] valueBuffer = new double[CHUNK_POINTS];
+        long firstDay = Math.floorDiv(from, DAY_MILLIS);
+        long lastDay = Math.floorDiv(to, DAY_MILLIS);
+
+        Head head = heads.get(series);
+        if (head == null) {
+            scanSegments(series, from, to, firstDay, lastDay, result, timestampBuffer, valueBuffer);
+            return;
+        }
+        // 持有序列锁，避免查询过程中数据块从内存封口到段文件造成重复或遗漏
+        synchronized (head) {
+            scanSegments(series, from, to, firstDay, lastDay, result, timestampBuffer, valueBuffer);
+            for (int i = 0; i < head.count; i++) {
+                long timestamp = head.timestamps[i];
+                if (timestamp >= from && timestamp <= to) {
+                    result.add(timestamp, head.values[i]);
+                }
+            }
+        }
+    }
+
+    private void scanSegments(String series, long from, long to, long firstDay, long lastDay,
+                              PointSink result, long[] timestampBuffer, double[] valueBuffer) {
+        for (Map<Integer, Segment> parts : segments.subMap(firstDay, true, lastDay, true).values()) {
+            for (Segment segment : parts.values()) {
+                segment.scan(series, from, to, result, timestampBuffer, valueBuffer);
+            }
+        }
+    }
+
+    /**
+     * 封口：压缩未封口的数据块并追加到当天的段文件（调用方持有head锁）
+     */
+    private void seal(Head head) {
+        BitWriter bits = new BitWriter();
+        ChunkCodec.encode(head.timestamps, head.values, head.count, bits);
+        long minTimestamp = head.timestamps[0];
+        long maxTimestamp = head.timestamps[head.count - 1];
+        try {
+            if (!writableSegment(head.day, false)
+                    .append(head.series, head.seriesBytes, minTimestamp, maxTimestamp, head.count, bits)
+                    && !writableSegment(head.day, true)
+                    .append(head.series, head.seriesBytes, minTimestamp, maxTimestamp, head.count, bits)) {
+                throw new IllegalStateException("数据块超过段文件大小: " + head.series);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入段文件失败", e);
+        }
+        head.count = 0;
+    }
+
+    /**
+     * 获取当天最新的段，不存在或要求新分片时创建
+     *
+     * @param day     天（自1970-01-01起的天数）
+     * @param newPart 当前分片已满，需要创建新分片
+     */
+    private synchronized Segment writableSegment(long day, boolean newPart) throws IOException {
+        ConcurrentSkipListMap<Integer, Segment> parts = segments.computeIfAbsent(day, key -> new ConcurrentSkipListMap<>());
+        Map.Entry<Integer, Segment> last = parts.lastEntry();
+        if (last != null && !newPart) {
+            return last.getValue();
+        }
+        int part = last != null ? last.getKey() + 1 : 0;
+        Segment segment = Segment.open(directory.resolve("seg-" + day + "-" + part + ".tsd"), day, part, segmentSize);
+        parts.put(part, segment);
+        return segment;
+    }
+
+    private int segmentCount() {
+        int count = 0;
+        for (Map<Integer, Segment> parts : segments.values()) {
+            count += parts.size();
+        }
+        return count;
+    }
+
+    /**
+     * 未封口的数据块
+     */
+    private static final class Head {
+
+        private final String series;
+        private final byte[] seriesBytes;
+        private long[] timestamps = new long[32];
+        private double[] values = new double[32];
+        private int count;
+        private long day;
+
+        /**
+         * 已接受的最大时间戳（封口后保留，保证同一序列跨数据块仍然有序）
+         */
+        private long lastTimestamp;
+
+        private Head(String series, long lastTimestamp) {
+            this.series = series;
+            this.seriesBytes = series.getBytes(StandardCharsets.UTF_8);
+            this.lastTimestamp = lastTimestamp;
+        }
+
+        /**
+         * 追加一个点（缓冲区按需扩容，最大 {@link #CHUNK_POINTS}，低频序列只占少量内存）
+         */
+        private void add(long timestamp, double value) {
+            if (count == timestamps.length) {
+                int capacity = Math.min(count << 1, CHUNK_POINTS);
+                timestamps = Arrays.copyOf(timestamps, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            timestamps[count] = timestamp;
+            values[count] = value;
+            count++;
+            lastTimestamp = timestamp;
+        }
+    }
+}
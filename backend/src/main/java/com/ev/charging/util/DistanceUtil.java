@@ -2,7 +2,9 @@ package com.ev.charging.util;
 
 /**
  * 距离计算工具类
- * 使用Haversine公式计算两个经纬度坐标之间的距离
+ * 使用Haversine公式计算两个经纬度坐标之间的距离；
+ * 批量接口针对"一个中心点 + 大量候选点"的场景，预先计算中心点的三角函数，
+ * 短距离时使用等距矩形投影近似，避免逐点调用反三角函数
  */
 public class DistanceUtil {
 
@@ -11,6 +13,13 @@ public class DistanceUtil {
      */
     private static final double EARTH_RADIUS = 6371.0;
 
+    private static final double DEG_TO_RAD = Math.PI / 180.0;
+
+    /**
+     * 等距矩形近似的适用半径（千米），该范围内与Haversine的相对误差小于0.1%
+     */
+    public static final double EQUIRECTANGULAR_MAX_KM = 50.0;
+
     /**
      * 计算两点之间的距离
      *
@@ -66,4 +75,169 @@ public class DistanceUtil {
             return String.format("%.2f公里", distance);
         }
     }
+
+    /**
+     * 批量计算中心点到候选点的距离（Haversine）
+     *
+     * @param originLat 中心点纬度
+     * @param originLon 中心点经度
+     * @param lats      候选点纬度
+     * @param lons      候选点经度
+     * @param count     候选点数量
+     * @param out       输出距离（单位：千米），长度不小于count
+     */
+    public static void distances(double originLat, double originLon,
+                                 double[] lats, double[] lons, int count, double[] out) {
+        double lat1Rad = originLat * DEG_TO_RAD;
+        double lon1Rad = originLon * DEG_TO_RAD;
+        double cosLat1 = Math.cos(lat1Rad);
+
+        for (int i = 0; i < count; i++) {
+            out[i] = haversine(lat1Rad, lon1Rad, cosLat1, lats[i] * DEG_TO_RAD, lons[i] * DEG_TO_RAD);
+        }
+    }
+
+    /**
+     * 批量筛选半径内的候选点
+     * 半径不超过{@link #EQUIRECTANGULAR_MAX_KM}时使用等距矩形近似，否则使用Haversine
+     *
+     * @param originLat   中心点纬度
+     * @param originLon   中心点经度
+     * @param lats        候选点纬度
+     * @param lons        候选点经度
+     * @param count       候选点数量
+     * @param radiusKm    半径（千米）
+     * @param indexOut    输出命中的候选点下标，长度不小于count
+     * @param distanceOut 输出命中的距离（千米），长度不小于count
+     * @return 命中数量
+     */
+    public static int withinRadius(double originLat, double originLon,
+                                   double[] lats, double[] lons, int count, double radiusKm,
+                                   int[] indexOut, double[] distanceOut) {
+        double lat1Rad = originLat * DEG_TO_RAD;
+        double lon1Rad = originLon * DEG_TO_RAD;
+        int hits = 0;
+
+        if (radiusKm <= EQUIRECTANGULAR_MAX_KM) {
+            // 比较平方距离，只对命中的点开方
+            // 经度差按两点中间纬度的余弦缩放，cos(中间纬度)用一阶展开近似
+            double cosLat1 = Math.cos(lat1Rad);
+            double halfTanLat1 = 0.5 * Math.tan(lat1Rad);
+            double radiusSq = (radiusKm / EARTH_RADIUS) * (radiusKm / EARTH_RADIUS);
+            for (int i = 0; i < count; i++) {
+                double lat2Rad = lats[i] * DEG_TO_RAD;
+                double y = lat2Rad - lat1Rad;
+                double x = (lons[i] * DEG_TO_RAD - lon1Rad) * cosLat1 * (1 - halfTanLat1 * y);
+                double distSq = x * x + y * y;
+                if (distSq <= radiusSq) {
+                    indexOut[hits] = i;
+                    distanceOut[hits] = EARTH_RADIUS * Math.sqrt(distSq);
+                    hits++;
+                }
+            }
+            return hits;
+        }
+
+        double cosLat1 = Math.cos(lat1Rad);
+        for (int i = 0; i < count; i++) {
+            double distance = haversine(lat1Rad, lon1Rad, cosLat1, lats[i] * DEG_TO_RAD, lons[i] * DEG_TO_RAD);
+            if (distance <= radiusKm) {
+                indexOut[hits] = i;
+                distanceOut[hits] = distance;
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * 批量查询距离中心点最近的k个候选点
+     *
+     * @param originLat   中心点纬度
+     * @param originLon   中心点经度
+     * @param lats        候选点纬度
+     * @param lons        候选点经度
+     * @param count       候选点数量
+     * @param k           返回数量
+     * @param indexOut    输出候选点下标（按距离升序），长度不小于k
+     * @param distanceOut 输出距离（千米），长度不小于k
+     * @return 实际返回数量，即min(k, count)
+     */
+    public static int nearest(double originLat, double originLon,
+                              double[] lats, double[] lons, int count, int k,
+                              int[] indexOut, double[] distanceOut) {
+        int n = Math.min(k, count);
+        if (n <= 0) {
+            return 0;
+        }
+
+        double lat1Rad = originLat * DEG_TO_RAD;
+        double lon1Rad = originLon * DEG_TO_RAD;
+        double cosLat1 = Math.cos(lat1Rad);
+
+        // 前n个位置作为大顶堆，堆顶为当前第n近的距离
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            double distance = haversine(lat1Rad, lon1Rad, cosLat1, lats[i] * DEG_TO_RAD, lons[i] * DEG_TO_RAD);
+            if (size < n) {
+                siftUp(indexOut, distanceOut, size++, i, distance);
+            } else if (distance < distanceOut[0]) {
+                siftDown(indexOut, distanceOut, n, i, distance);
+            }
+        }
+
+        // 堆排序为升序
+        for (int end = n - 1; end > 0; end--) {
+            int topIndex = indexOut[0];
+            double topDistance = distanceOut[0];
+            siftDown(indexOut, distanceOut, end, indexOut[end], distanceOut[end]);
+            indexOut[end] = topIndex;
+            distanceOut[end] = topDistance;
+        }
+        return n;
+    }
+
+    private static double haversine(double lat1Rad, double lon1Rad, double cosLat1, double lat2Rad, double lon2Rad) {
+        double sinDLat = Math.sin((lat2Rad - lat1Rad) / 2);
+        double sinDLon = Math.sin((lon2Rad - lon1Rad) / 2);
+        double a = sinDLat * sinDLat + cosLat1 * Math.cos(lat2Rad) * sinDLon * sinDLon;
+        return 2 * EARTH_RADIUS * Math.asin(Math.sqrt(Math.min(a, 1.0)));
+    }
+
+    private static void siftUp(int[] heapIndex, double[] heapDistance, int pos, int index, double distance) {
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (heapDistance[parent] >= distance) {
+                break;
+            }
+            heapIndex[pos] = heapIndex[parent];
+            heapDistance[pos] = heapDistance[parent];
+            pos = parent;
+        }
+        heapIndex[pos] = index;
+        heapDistance[pos] = distance;
+    }
+
+    /**
+     * 用新元素替换堆顶并下沉
+     */
+    private static void siftDown(int[] heapIndex, double[] heapDistance, int size, int index, double distance) {
+        int pos = 0;
+        int half = size >>> 1;
+        while (pos < half) {
+            int child = 2 * pos + 1;
+            int right = child + 1;
+            if (right < size && heapDistance[right] > heapDistance[child]) {
+                child = right;
+            }
+            if (distance >= heapDistance[child]) {
+                break;
+            }
+            heapIndex[pos] = heapIndex[child];
+            heapDistance[pos] = heapDistance[child];
+            pos = child;
+        }
+        heapIndex[pos] = index;
+        heapDistance[pos] = distance;
+    }
 }
@@ -0,0 +1,47 @@
+package com.ev.charging.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 故障风险评分报告VO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FaultScoringReportVO {
+
+    private String jobName;
+
+    /**
+     * 本次从哪个充电桩ID之后继续（0表示从头开始）
+     */
+    private Long resumedFromPileId;
+
+    private Long processedCount;
+
+    /**
+     * 新建或更新的预测性维护计划数
+     */
+    private Long plannedCount;
+
+    /**
+     * 由AI服务模型评分的充电桩数，其余由本地模型评分
+     */
+    private Long modelScoredCount;
+
+    /**
+     * 执行节点本地没有电压数据的充电桩数（电压波动按0计）
+     */
+    private Long voltageMissingCount;
+
+    private Long elapsedMillis;
+
+    /**
+     * 吞吐量（桩/秒）
+     */
+    private Double pilesPerSecond;
+}
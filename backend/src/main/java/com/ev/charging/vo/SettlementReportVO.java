@@ -0,0 +1,42 @@
+package com.ev.charging.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * 批量结算报告VO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SettlementReportVO {
+
+    private String jobName;
+    private LocalDate startDate;
+    private LocalDate endDate;
+
+    /**
+     * 本次从哪个订单ID之后继续（0表示从头开始）
+     */
+    private Long resumedFromOrderId;
+
+    private Long processedCount;
+    private Long updatedCount;
+
+    /**
+     * 重新计价后费用不一致的已支付订单数（不改写）
+     */
+    private Long mismatchedCount;
+
+    private Long elapsedMillis;
+
+    /**
+     * 吞吐量（单/秒）
+     */
+    private Double ordersPerSecond;
+}
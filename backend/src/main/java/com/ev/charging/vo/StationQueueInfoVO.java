@@ -5,6 +5,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 /**
  * 站点排队信息VO
  */
@@ -48,4 +50,9 @@ public class StationQueueInfoVO {
      * 建议信息
      */
     private String suggestion;
+
+    /**
+     * 备选充电站（排队较长时推荐，按开始充电所需总时间升序）
+     */
+    private List<StationRecommendationVO> alternatives;
 }
@@ -0,0 +1,66 @@
+package com.ev.charging.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 备选充电站推荐VO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StationRecommendationVO {
+
+    /**
+     * 充电站ID
+     */
+    private Long stationId;
+
+    /**
+     * 充电站名称
+     */
+    private String stationName;
+
+    /**
+     * 地址
+     */
+    private String address;
+
+    /**
+     * 距离（千米）
+     */
+    private Double distance;
+
+    /**
+     * 预计行驶时间（分钟）
+     */
+    private Integer travelTime;
+
+    /**
+     * 排队人数
+     */
+    private Integer queueCount;
+
+    /**
+     * 空闲充电桩数量
+     */
+    private Integer availablePiles;
+
+    /**
+     * 到达后预计等待时间（分钟）
+     */
+    private Integer estimatedWaitTime;
+
+    /**
+     * 预计开始充电所需总时间（行驶 + 等待，分钟）
+     */
+    private Integer totalTime;
+
+    /**
+     * 相比在原站点排队节省的时间（分钟）
+     */
+    private Integer savedTime;
+}
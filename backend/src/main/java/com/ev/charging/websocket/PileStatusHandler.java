@@ -1,52 +1,120 @@
 package com.ev.charging.websocket;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * WebSocket处理器 - 充电桩状态实时推送
+ * <p>
+ * 客户端消息：
+ * {"action":"subscribe","stationIds":[1,2]} 只订阅指定站点，并收到这些站点的状态快照；
+ * {"action":"subscribe","all":true} 订阅全部站点（连接后的默认状态，显式订阅时收到全部站点快照）；
+ * {"action":"unsubscribe","stationIds":[1]} 取消订阅；
+ * {"action":"resync","stationId":1,"lastSeq":41,"epoch":E} 补发缺失的状态增量，见 {@link PileStatusStream}；
+ * {"action":"ping"} 心跳。
  */
 @Slf4j
+@Component
 public class PileStatusHandler extends TextWebSocketHandler {
 
-    /**
-     * 存储所有WebSocket会话
-     * Key: sessionId, Value: WebSocketSession
-     */
-    private static final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    private final SubscriptionRegistry registry;
+    private final WebSocketPublisher publisher;
+    private final PileStatusStream statusStream;
+    private final ObjectMapper objectMapper;
+    private final int sendTimeLimit;
+    private final int bufferSizeLimit;
+
+    public PileStatusHandler(SubscriptionRegistry registry,
+                             WebSocketPublisher publisher,
+                             PileStatusStream statusStream,
+                             ObjectMapper objectMapper,
+                             @Value("${websocket.send-time-limit:5000}") int sendTimeLimit,
+                             @Value("${websocket.buffer-size-limit:524288}") int bufferSizeLimit) {
+        this.registry = registry;
+        this.publisher = publisher;
+        this.statusStream = statusStream;
+        this.objectMapper = objectMapper;
+        this.sendTimeLimit = sendTimeLimit;
+        this.bufferSizeLimit = bufferSizeLimit;
+    }
 
     /**
      * 连接建立时触发
      */
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        sessions.put(session.getId(), session);
-        log.info("WebSocket连接建立: sessionId={}, 当前连接数={}", session.getId(), sessions.size());
+        // 超过缓冲上限时丢弃最早的待发消息，而不是断开连接
+        WebSocketSession concurrentSession = new ConcurrentWebSocketSessionDecorator(
+                session, sendTimeLimit, bufferSizeLimit, ConcurrentWebSocketSessionDecorator.OverflowStrategy.DROP);
+        SubscriptionRegistry.Subscriber subscriber = registry.register(concurrentSession);
+        log.info("WebSocket连接建立: sessionId={}, 当前连接数={}", session.getId(), registry.size());
 
         // 发送欢迎消息
-        session.sendMessage(new TextMessage("{\"type\":\"connected\",\"message\":\"WebSocket连接成功\"}"));
+        reply(subscriber, Map.of("type", "connected", "message", "WebSocket连接成功", "epoch", statusStream.getEpoch()));
     }
 
     /**
-     * 接收客户端消息
+     * 接收客户端消息：订阅/取消订阅站点
      */
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
-        String payload = message.getPayload();
-        log.info("收到客户端消息: sessionId={}, message={}", session.getId(), payload);
+        SubscriptionRegistry.Subscriber subscriber = registry.get(session.getId());
+        if (subscriber == null) {
+            return;
+        }
+        log.debug("收到客户端消息: sessionId={}, message={}", session.getId(), message.getPayload());
 
-        // 这里可以根据客户端消息进行不同的处理
-        // 例如：客户端订阅特定站点的充电桩状态更新
+        JsonNode request;
+        try {
+            request = objectMapper.readTree(message.getPayload());
+        } catch (Exception e) {
+            reply(subscriber, Map.of("type", "error", "message", "消息格式错误"));
+            return;
+        }
 
-        // 回复确认消息
-        session.sendMessage(new TextMessage("{\"type\":\"ack\",\"message\":\"消息已收到\"}"));
+        String action = request.path("action").asText("");
+        switch (action) {
+            case "subscribe" -> {
+                // 先登记订阅再发快照，快照之后的变更都会以增量送达
+                if (request.path("all").asBoolean(false)) {
+                    registry.subscribeAll(subscriber);
+                    reply(subscriber, subscriptionState(subscriber));
+                    statusStream.sendAllSnapshots(subscriber);
+                } else {
+                    List<Long> stationIds = stationIds(request);
+                    registry.subscribe(subscriber, stationIds);
+                    reply(subscriber, subscriptionState(subscriber));
+                    statusStream.sendSnapshots(subscriber, stationIds);
+                }
+            }
+            case "unsubscribe" -> {
+                registry.unsubscribe(subscriber, stationIds(request));
+                reply(subscriber, subscriptionState(subscriber));
+            }
+            case "resync" -> {
+                long stationId = request.path("stationId").asLong(0);
+                if (stationId <= 0) {
+                    reply(subscriber, Map.of("type", "error", "message", "缺少站点ID"));
+                    return;
+                }
+                statusStream.resync(subscriber, stationId,
+                        request.path("lastSeq").asLong(-1), request.path("epoch").asLong(0));
+            }
+            case "ping" -> reply(subscriber, Map.of("type", "pong"));
+            default -> reply(subscriber, Map.of("type", "ack", "message", "消息已收到"));
+        }
     }
 
     /**
@@ -54,9 +122,9 @@ public class PileStatusHandler extends TextWebSocketHandler {
      */
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
-        sessions.remove(session.getId());
+        registry.unregister(session.getId());
         log.info("WebSocket连接关闭: sessionId={}, status={}, 当前连接数={}",
-                session.getId(), status, sessions.size());
+                session.getId(), status, registry.size());
     }
 
     /**
@@ -68,50 +136,29 @@ public class PileStatusHandler extends TextWebSocketHandler {
         if (session.isOpen()) {
             session.close();
         }
-        sessions.remove(session.getId());
+        registry.unregister(session.getId());
     }
 
-    /**
-     * 广播消息给所有连接的客户端
-     *
-     * @param message JSON格式的消息
-     */
-    public static void broadcast(String message) {
-        log.info("广播消息给{}个客户端: {}", sessions.size(), message);
-
-        sessions.values().forEach(session -> {
-            try {
-                if (session.isOpen()) {
-                    session.sendMessage(new TextMessage(message));
-                }
-            } catch (IOException e) {
-                log.error("发送消息失败: sessionId={}", session.getId(), e);
-            }
-        });
+    private void reply(SubscriptionRegistry.Subscriber subscriber, Map<String, Object> message) throws Exception {
+        publisher.send(subscriber, new TextMessage(objectMapper.writeValueAsString(message)));
     }
 
-    /**
-     * 向指定会话发送消息
-     *
-     * @param sessionId 会话ID
-     * @param message JSON格式的消息
-     */
-    public static void sendToSession(String sessionId, String message) {
-        WebSocketSession session = sessions.get(sessionId);
-        if (session != null && session.isOpen()) {
-            try {
-                session.sendMessage(new TextMessage(message));
-                log.info("发送消息给指定客户端: sessionId={}", sessionId);
-            } catch (IOException e) {
-                log.error("发送消息失败: sessionId={}", sessionId, e);
+    private static List<Long> stationIds(JsonNode request) {
+        List<Long> stationIds = new ArrayList<>();
+        request.path("stationIds").forEach(node -> {
+            long stationId = node.asLong(0);
+            if (stationId > 0) {
+                stationIds.add(stationId);
             }
-        }
+        });
+        return stationIds;
     }
 
-    /**
-     * 获取当前连接数
-     */
-    public static int getConnectionCount() {
-        return sessions.size();
+    private Map<String, Object> subscriptionState(SubscriptionRegistry.Subscriber subscriber) {
+        return Map.of(
+                "type", "subscribed",
+                "all", registry.isSubscribedToAll(subscriber),
+                "stationIds", List.copyOf(subscriber.getStationIds())
+        );
     }
 }
@@ -0,0 +1,298 @@
+package com.ev.charging.websocket;
+
+import com.ev.charging.event.PileStatusChangedEvent;
+import com.ev.charging.event.PileStatusClusterSync;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.socket.TextMessage;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 充电桩状态流
+ * <p>
+ * 协议（每个站点独立编号）：
+ * <ul>
+ *     <li>订阅时先收到快照：{"type":"pile_status_snapshot","epoch":E,"stationId":1,"seq":41,"piles":[[pileId,status],...]}</li>
+ *     <li>之后按合并窗口（默认200毫秒）收到增量：{"type":"pile_status_delta","epoch":E,"stationId":1,"seq":42,"changes":[[pileId,status],...]}，
+ *     窗口内同一充电桩的多次变更只保留最后状态，status 为0表示充电桩已删除</li>
+ *     <li>客户端发现 seq 不连续或 epoch 变化（服务重启）时发送 {"action":"resync","stationId":1,"lastSeq":41}，
+ *     服务端从历史帧补发缺失的增量；历史不足时改发快照</li>
+ * </ul>
+ * 状态取值：1空闲 2充电中 3预约中 4故障 5离线。多节点部署时其他节点的变更经 {@link PileStatusClusterSync} 转发后同样进入合并窗口。
+ */
+@Slf4j
+@Component
+public class PileStatusStream {
+
+    private static final String STATION_PILES_SQL = "SELECT id, status FROM charging_pile WHERE station_id = ?";
+    private static final String ALL_PILES_SQL = "SELECT id, station_id, status FROM charging_pile";
+
+    /**
+     * 删除的充电桩在增量中的状态值
+     */
+    private static final byte STATUS_REMOVED = 0;
+
+    private final WebSocketPublisher publisher;
+    private final SubscriptionRegistry registry;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final int historySize;
+
+    /**
+     * 本次启动的标识，客户端据此识别服务重启后 seq 重新计数
+     */
+    private final long epoch = System.currentTimeMillis();
+
+    private final Map<Long, StationStream> streams = new ConcurrentHashMap<>();
+    private final Set<Long> dirtyStations = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong changeCount = new AtomicLong();
+    private final AtomicLong frameCount = new AtomicLong();
+    private final AtomicLong snapshotCount = new AtomicLong();
+    private final AtomicLong replayCount = new AtomicLong();
+
+    public PileStatusStream(WebSocketPublisher publisher,
+                            SubscriptionRegistry registry,
+                            JdbcTemplate jdbcTemplate,
+                            ObjectMapper objectMapper,
+                            @Value("${websocket.status.history-size:64}") int historySize) {
+        this.publisher = publisher;
+        this.registry = registry;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.historySize = historySize;
+    }
+
+    /**
+     * 状态变更在事务提交后进入合并窗口（包括其他节点转发的变更，各节点独立编号）
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPileStatusChanged(PileStatusChangedEvent event) {
+        if (event.getStationId() == null) {
+            return;
+        }
+        byte status = event.getNewStatus() != null ? event.getNewStatus() : STATUS_REMOVED;
+        record(event.getStationId(), event.getPileId(), status);
+    }
+
+    /**
+     * 合并窗口结束：每个有变更的站点生成一帧增量并发布
+     */
+    @Scheduled(fixedDelayString = "${websocket.status.coalesce-interval:200}")
+    public void flush() {
+        if (dirtyStations.isEmpty()) {
+            return;
+        }
+        for (Long stationId : List.copyOf(dirtyStations)) {
+            dirtyStations.remove(stationId);
+            StationStream stream = streams.get(stationId);
+            TextMessage frame = stream != null ? stream.seal() : null;
+            if (frame != null) {
+                registry.forEachSubscriber(stationId, subscriber -> publisher.send(subscriber, frame));
+                frameCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 向会话发送站点快照
+     *
+     * @param subscriber 会话
+     * @param stationIds 站点ID
+     */
+    public void sendSnapshots(SubscriptionRegistry.Subscriber subscriber, Collection<Long> stationIds) {
+        for (Long stationId : stationIds) {
+            // 先取 seq 再读库：读库期间提交的变更都会出现在 seq 之后的增量中，客户端按绝对状态覆盖即可
+            long seq = stream(stationId).currentSeq();
+            List<long[]> piles = new ArrayList<>();
+            jdbcTemplate.query(STATION_PILES_SQL,
+                    rs -> {
+                        piles.add(new long[]{rs.getLong("id"), rs.getByte("status")});
+                    },
+                    stationId);
+            publisher.send(subscriber, snapshotMessage(stationId, seq, piles));
+            snapshotCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * 向会话发送全部站点的快照（一次查询）
+     *
+     * @param subscriber 会话
+     */
+    public void sendAllSnapshots(SubscriptionRegistry.Subscriber subscriber) {
+        Map<Long, Long> seqs = new HashMap<>();
+        streams.forEach((stationId, stream) -> seqs.put(stationId, stream.currentSeq()));
+
+        Map<Long, List<long[]>> byStation = new LinkedHashMap<>();
+        jdbcTemplate.query(ALL_PILES_SQL, rs -> {
+            byStation.computeIfAbsent(rs.getLong("station_id"), key -> new ArrayList<>())
+                    .add(new long[]{rs.getLong("id"), rs.getByte("status")});
+        });
+        byStation.forEach((stationId, piles) -> {
+            publisher.send(subscriber, snapshotMessage(stationId, seqs.getOrDefault(stationId, 0L), piles));
+            snapshotCount.incrementAndGet();
+        });
+    }
+
+    /**
+     * 客户端落后后的重新同步：历史帧覆盖缺口时补发增量，否则发送快照
+     *
+     * @param subscriber 会话
+     * @param stationId  站点ID
+     * @param lastSeq    客户端已应用的最后序号，小于0或 epoch 不一致时直接发送快照
+     * @param epoch      客户端记录的 epoch
+     */
+    public void resync(SubscriptionRegistry.Subscriber subscriber, Long stationId, long lastSeq, long epoch) {
+        List<TextMessage> frames = epoch == this.epoch && lastSeq >= 0
+                ? stream(stationId).framesAfter(lastSeq)
+                : null;
+        if (frames == null) {
+            sendSnapshots(subscriber, List.of(stationId));
+            return;
+        }
+        frames.forEach(frame -> publisher.send(subscriber, frame));
+        replayCount.addAndGet(frames.size());
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * 状态流统计：合并前的变更数与实际发出的帧数
+     */
+    public Map<String, Object> stats() {
+        return Map.of(
+                "epoch", epoch,
+                "stations", streams.size(),
+                "changes", changeCount.get(),
+                "frames", frameCount.get(),
+                "snapshots", snapshotCount.get(),
+                "replayedFrames", replayCount.get()
+        );
+    }
+
+    private void record(Long stationId, Long pileId, byte status) {
+        stream(stationId).record(pileId, status);
+        dirtyStations.add(stationId);
+        changeCount.incrementAndGet();
+    }
+
+    private StationStream stream(Long stationId) {
+        return streams.computeIfAbsent(stationId, StationStream::new);
+    }
+
+    private TextMessage snapshotMessage(Long stationId, long seq, List<long[]> piles) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("type", "pile_status_snapshot");
+        message.put("epoch", epoch);
+        message.put("stationId", stationId);
+        message.put("seq", seq);
+        message.put("piles", piles);
+        return toTextMessage(message);
+    }
+
+    private TextMessage toTextMessage(Map<String, Object> message) {
+        try {
+            return new TextMessage(objectMapper.writeValueAsString(message));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("状态帧序列化失败", e);
+        }
+    }
+
+    /**
+     * 单个站点的合并窗口、序号与最近帧历史
+     */
+    private final class StationStream {
+
+        private final Long stationId;
+
+        /**
+         * 当前窗口内的变更：充电桩ID -> 最后状态（保持首次变更的顺序）
+         */
+        private final Map<Long, Byte> pending = new LinkedHashMap<>();
+
+        /**
+         * 最近发出的帧，用于补发；下标与 seq 对应：最早一帧的 seq 为 seq - history.size() + 1
+         */
+        private final ArrayDeque<TextMessage> history = new ArrayDeque<>();
+
+        private long seq;
+
+        private StationStream(Long stationId) {
+            this.stationId = stationId;
+        }
+
+        synchronized void record(Long pileId, byte status) {
+            pending.put(pileId, status);
+        }
+
+        synchronized long currentSeq() {
+            return seq;
+        }
+
+        /**
+         * 结束当前窗口，生成下一帧
+         */
+        synchronized TextMessage seal() {
+            if (pending.isEmpty()) {
+                return null;
+            }
+            List<long[]> changes = new ArrayList<>(pending.size());
+            pending.forEach((pileId, status) -> changes.add(new long[]{pileId, status}));
+            pending.clear();
+
+            Map<String, Object> message = new LinkedHashMap<>();
+            message.put("type", "pile_status_delta");
+            message.put("epoch", epoch);
+            message.put("stationId", stationId);
+            message.put("seq", seq + 1);
+            message.put("changes", changes);
+            TextMessage frame = toTextMessage(message);
+
+            seq++;
+            history.addLast(frame);
+            if (history.size() > historySize) {
+                history.removeFirst();
+            }
+            return frame;
+        }
+
+        /**
+         * 序号大于 lastSeq 的历史帧；缺口超出历史范围或序号无效时返回null
+         */
+        synchronized List<TextMessage> framesAfter(long lastSeq) {
+            long oldest = seq - history.size() + 1;
+            if (lastSeq > seq || lastSeq + 1 < oldest) {
+                return null;
+            }
+            List<TextMessage> frames = new ArrayList<>((int) (seq - lastSeq));
+            long frameSeq = oldest;
+            for (TextMessage frame : history) {
+                if (frameSeq > lastSeq) {
+                    frames.add(frame);
+                }
+                frameSeq++;
+            }
+            return frames;
+        }
+    }
+}
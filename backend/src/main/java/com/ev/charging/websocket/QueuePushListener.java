@@ -0,0 +1,34 @@
+package com.ev.charging.websocket;
+
+import com.ev.charging.event.QueueChangedEvent;
+import com.ev.charging.queue.QueueEngine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 排队变更推送：向站点订阅者发送 queue_update 消息
+ * 本节点与其他节点（{@link com.ev.charging.queue.QueueClusterSync} 重新发布）的变更都只投递给本节点的会话
+ */
+@Component
+@RequiredArgsConstructor
+public class QueuePushListener {
+
+    private final WebSocketPublisher publisher;
+    private final QueueEngine queueEngine;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onQueueChanged(QueueChangedEvent event) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("type", "queue_update");
+        message.put("stationId", event.getStationId());
+        message.put("change", event.getType().name());
+        message.put("queueNo", event.getQueueNo());
+        message.put("queueCount", queueEngine.size(event.getStationId()));
+        publisher.publishToStationLocal(event.getStationId(), message);
+    }
+}
@@ -0,0 +1,171 @@
+package com.ev.charging.websocket;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * WebSocket订阅登记表：站点ID -> 订阅该站点的会话
+ * 新连接默认订阅全部站点（与原来的全量广播一致）；一旦订阅具体站点，只接收这些站点的消息。
+ */
+@Component
+public class SubscriptionRegistry {
+
+    private final Map<String, Subscriber> sessions = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Subscriber>> byStation = new ConcurrentHashMap<>();
+    private final Set<Subscriber> allStations = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 登记新会话（默认订阅全部站点）
+     *
+     * @param session 已包装为并发安全的会话
+     */
+    public Subscriber register(WebSocketSession session) {
+        Subscriber subscriber = new Subscriber(session);
+        sessions.put(session.getId(), subscriber);
+        allStations.add(subscriber);
+        return subscriber;
+    }
+
+    /**
+     * 注销会话并清理其全部订阅
+     */
+    public void unregister(String sessionId) {
+        Subscriber subscriber = sessions.remove(sessionId);
+        if (subscriber == null) {
+            return;
+        }
+        allStations.remove(subscriber);
+        for (Long stationId : subscriber.stationIds) {
+            removeFromStation(stationId, subscriber);
+        }
+    }
+
+    public Subscriber get(String sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    /**
+     * 订阅指定站点（不再接收其他站点的消息）
+     */
+    public void subscribe(Subscriber subscriber, Collection<Long> stationIds) {
+        allStations.remove(subscriber);
+        for (Long stationId : stationIds) {
+            if (subscriber.stationIds.add(stationId)) {
+                byStation.computeIfAbsent(stationId, key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+            }
+        }
+    }
+
+    /**
+     * 取消订阅指定站点
+     */
+    public void unsubscribe(Subscriber subscriber, Collection<Long> stationIds) {
+        for (Long stationId : stationIds) {
+            if (subscriber.stationIds.remove(stationId)) {
+                removeFromStation(stationId, subscriber);
+            }
+        }
+    }
+
+    /**
+     * 改为订阅全部站点
+     */
+    public void subscribeAll(Subscriber subscriber) {
+        unsubscribe(subscriber, List.copyOf(subscriber.stationIds));
+        allStations.add(subscriber);
+    }
+
+    public boolean isSubscribedToAll(Subscriber subscriber) {
+        return allStations.contains(subscriber);
+    }
+
+    /**
+     * 站点消息的接收者：订阅该站点的会话和订阅全部站点的会话
+     */
+    public void forEachSubscriber(Long stationId, Consumer<Subscriber> action) {
+        allStations.forEach(action);
+        Set<Subscriber> subscribers = stationId != null ? byStation.get(stationId) : null;
+        if (subscribers != null) {
+            subscribers.forEach(action);
+        }
+    }
+
+    /**
+     * 所有会话
+     */
+    public Collection<Subscriber> all() {
+        return Collections.unmodifiableCollection(sessions.values());
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * 本节点的会话与订阅统计
+     */
+    public Map<String, Object> stats() {
+        int stationSubscriptions = 0;
+        for (Set<Subscriber> subscribers : byStation.values()) {
+            stationSubscriptions += subscribers.size();
+        }
+        return Map.of(
+                "sessions", sessions.size(),
+                "allStationSubscribers", allStations.size(),
+                "stationTopics", byStation.size(),
+                "stationSubscriptions", stationSubscriptions
+        );
+    }
+
+    private void removeFromStation(Long stationId, Subscriber subscriber) {
+        byStation.computeIfPresent(stationId, (key, subscribers) -> {
+            subscribers.remove(subscriber);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    /**
+     * 已登记的会话
+     */
+    @Getter
+    public static final class Subscriber {
+
+        private final WebSocketSession session;
+
+        /**
+         * 订阅的站点（为空且在全量订阅集合中时表示订阅全部站点）
+         */
+        private final Set<Long> stationIds = ConcurrentHashMap.newKeySet();
+
+        /**
+         * 待发消息，由 {@link WebSocketPublisher} 按入队顺序串行发送，保证同一会话的消息不乱序
+         */
+        @Getter(AccessLevel.NONE)
+        final Queue<TextMessage> outbox = new ConcurrentLinkedQueue<>();
+
+        @Getter(AccessLevel.NONE)
+        final AtomicInteger outboxSize = new AtomicInteger();
+
+        @Getter(AccessLevel.NONE)
+        final AtomicBoolean draining = new AtomicBoolean();
+
+        private Subscriber(WebSocketSession session) {
+            this.session = session;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.ev.charging.websocket;
 
+import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
@@ -10,12 +11,15 @@ import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry
  */
 @Configuration
 @EnableWebSocket
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketConfigurer {
 
+    private final PileStatusHandler pileStatusHandler;
+
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         // 注册WebSocket处理器
-        registry.addHandler(new PileStatusHandler(), "/ws/pile-status")
+        registry.addHandler(pileStatusHandler, "/ws/pile-status")
                 .setAllowedOrigins("*"); // 允许跨域连接
     }
 }
@@ -0,0 +1,203 @@
+package com.ev.charging.websocket;
+
+import com.ev.charging.cluster.ClusterEventRelay;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * WebSocket消息发布
+ * 消息只序列化一次，按站点主题投递给订阅者；每个会话有自己的待发队列，由专用线程池按顺序发送，
+ * 会话已用 ConcurrentWebSocketSessionDecorator 包装（发送超时与缓冲上限），慢客户端只会占用自己的缓冲区。
+ */
+@Slf4j
+@Component
+public class WebSocketPublisher {
+
+    /**
+     * 单次连续发送的最大消息数
+     */
+    private static final int DRAIN_BATCH = 64;
+
+    private final SubscriptionRegistry registry;
+    private final ClusterEventRelay relay;
+    private final ObjectMapper objectMapper;
+    private final TaskExecutor sendExecutor;
+    private final int outboxLimit;
+
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    public WebSocketPublisher(SubscriptionRegistry registry,
+                              ClusterEventRelay relay,
+                              ObjectMapper objectMapper,
+                              @Qualifier("webSocketSendExecutor") TaskExecutor sendExecutor,
+                              @Value("${websocket.outbox-limit:1000}") int outboxLimit) {
+        this.registry = registry;
+        this.relay = relay;
+        this.objectMapper = objectMapper;
+        this.sendExecutor = sendExecutor;
+        this.outboxLimit = outboxLimit;
+    }
+
+    /**
+     * 其他节点转发来的站点消息只投递给本节点的订阅者
+     */
+    @PostConstruct
+    public void registerRelayHandler() {
+        relay.on(ClusterEventRelay.TYPE_STATION_MESSAGE,
+                event -> publishToStationLocal(event.getStationId(), event.getPayload()));
+    }
+
+    /**
+     * 向站点主题发布消息（本节点投递，并转发给其他节点）
+     *
+     * @param stationId 站点ID
+     * @param message   消息内容（序列化为JSON）
+     */
+    public void publishToStation(Long stationId, Map<String, Object> message) {
+        publishToStationLocal(stationId, message);
+        relay.publish(ClusterEventRelay.TYPE_STATION_MESSAGE, stationId, message);
+    }
+
+    /**
+     * 只向本节点的站点订阅者投递
+     *
+     * @param stationId 站点ID
+     * @param message   消息内容（序列化为JSON）
+     */
+    public void publishToStationLocal(Long stationId, Map<String, Object> message) {
+        TextMessage textMessage = toTextMessage(message);
+        if (textMessage == null) {
+            return;
+        }
+        registry.forEachSubscriber(stationId, subscriber -> send(subscriber, textMessage));
+        log.debug("发布站点消息: stationId={}, type={}", stationId, message.get("type"));
+    }
+
+    /**
+     * 在当前事务提交后向站点主题发布消息（无事务时立即发布）
+     *
+     * @param stationId 站点ID
+     * @param message   消息内容
+     */
+    public void publishToStationAfterCommit(Long stationId, Map<String, Object> message) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publishToStation(stationId, message);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publishToStation(stationId, message);
+            }
+        });
+    }
+
+    /**
+     * 向本节点所有会话广播
+     *
+     * @param message 消息内容
+     */
+    public void broadcast(Map<String, Object> message) {
+        TextMessage textMessage = toTextMessage(message);
+        if (textMessage == null) {
+            return;
+        }
+        registry.all().forEach(subscriber -> send(subscriber, textMessage));
+    }
+
+    /**
+     * 向单个会话发送
+     * 消息先进入会话的待发队列，由线程池串行发送，同一会话的消息保持发布顺序；
+     * 待发队列超过上限时丢弃新消息（状态流客户端会因 seq 不连续而重新同步）
+     */
+    public void send(SubscriptionRegistry.Subscriber subscriber, TextMessage message) {
+        if (subscriber.outboxSize.incrementAndGet() > outboxLimit) {
+            subscriber.outboxSize.decrementAndGet();
+            droppedCount.incrementAndGet();
+            return;
+        }
+        subscriber.outbox.offer(message);
+        scheduleDrain(subscriber);
+    }
+
+    private void scheduleDrain(SubscriptionRegistry.Subscriber subscriber) {
+        if (!subscriber.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            sendExecutor.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            int dropped = 0;
+            while (subscriber.outbox.poll() != null) {
+                subscriber.outboxSize.decrementAndGet();
+                dropped++;
+            }
+            droppedCount.addAndGet(dropped);
+            subscriber.draining.set(false);
+            log.warn("WebSocket发送队列已满，丢弃消息: sessionId={}, count={}", subscriber.getSession().getId(), dropped);
+        }
+    }
+
+    /**
+     * 发送会话的待发消息，单次最多 DRAIN_BATCH 条，剩余的重新提交，避免一个会话长期占用发送线程
+     */
+    private void drain(SubscriptionRegistry.Subscriber subscriber) {
+        WebSocketSession session = subscriber.getSession();
+        TextMessage message;
+        int sent = 0;
+        while (sent < DRAIN_BATCH && (message = subscriber.outbox.poll()) != null) {
+            subscriber.outboxSize.decrementAndGet();
+            sent++;
+            if (!session.isOpen()) {
+                droppedCount.incrementAndGet();
+                continue;
+            }
+            try {
+                session.sendMessage(message);
+                sentCount.incrementAndGet();
+            } catch (Exception e) {
+                droppedCount.incrementAndGet();
+                log.debug("发送消息失败: sessionId={}, {}", session.getId(), e.getMessage());
+            }
+        }
+        subscriber.draining.set(false);
+        if (!subscriber.outbox.isEmpty()) {
+            scheduleDrain(subscriber);
+        }
+    }
+
+    /**
+     * 发送统计
+     */
+    public Map<String, Object> stats() {
+        return Map.of(
+                "connections", registry.size(),
+                "sent", sentCount.get(),
+                "dropped", droppedCount.get()
+        );
+    }
+
+    private TextMessage toTextMessage(Map<String, Object> message) {
+        try {
+            return new TextMessage(objectMapper.writeValueAsString(message));
+        } catch (JsonProcessingException e) {
+            log.error("WebSocket消息序列化失败: {}", message, e);
+            return null;
+        }
+    }
+}
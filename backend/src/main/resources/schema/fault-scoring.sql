@@ -0,0 +1,11 @@
+-- 故障风险评分检查点表（任务中断后从 last_pile_id 之后继续）
+
+CREATE TABLE IF NOT EXISTS `fault_scoring_checkpoint` (
+    `job_name` VARCHAR(64) NOT NULL PRIMARY KEY COMMENT '任务名（fault-scoring:日期）',
+    `last_pile_id` BIGINT NOT NULL DEFAULT 0 COMMENT '已评分的最大充电桩ID',
+    `processed_count` BIGINT NOT NULL DEFAULT 0 COMMENT '已评分充电桩数',
+    `planned_count` BIGINT NOT NULL DEFAULT 0 COMMENT '新建或更新的维护计划数',
+    `model_count` BIGINT NOT NULL DEFAULT 0 COMMENT '由AI服务模型评分的充电桩数（其余为本地模型）',
+    `status` TINYINT NOT NULL DEFAULT 0 COMMENT '状态：0运行中 1已完成',
+    `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='故障风险评分检查点表';
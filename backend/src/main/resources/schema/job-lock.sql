@@ -0,0 +1,9 @@
+-- 集群任务锁表（夜间批处理等只允许一个节点执行的任务，租约到期自动失效）
+
+CREATE TABLE IF NOT EXISTS `job_lock` (
+    `lock_name` VARCHAR(64) NOT NULL PRIMARY KEY COMMENT '锁名',
+    `owner` VARCHAR(64) NOT NULL DEFAULT '' COMMENT '持有者令牌（每次获取生成）',
+    `locked_until` DATETIME(3) NOT NULL COMMENT '租约到期时间，早于当前时间表示未被持有',
+    `fence` BIGINT NOT NULL DEFAULT 0 COMMENT '获取次数，每次被新持有者获取时加1',
+    `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='集群任务锁表';
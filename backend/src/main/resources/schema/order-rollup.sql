@@ -0,0 +1,41 @@
+-- 订单统计汇总表（由订单事件增量维护，可从 charge_order 重建）
+
+CREATE TABLE IF NOT EXISTS `order_rollup_hourly` (
+    `bucket_hour` DATETIME NOT NULL COMMENT '小时（按订单创建时间）',
+    `station_id` BIGINT NOT NULL COMMENT '站点ID',
+    `pile_id` BIGINT NOT NULL COMMENT '充电桩ID',
+    `order_count` INT NOT NULL DEFAULT 0 COMMENT '订单数',
+    `in_progress_count` INT NOT NULL DEFAULT 0 COMMENT '进行中订单数',
+    `completed_count` INT NOT NULL DEFAULT 0 COMMENT '已完成订单数',
+    `cancelled_count` INT NOT NULL DEFAULT 0 COMMENT '已取消订单数',
+    `paid_count` INT NOT NULL DEFAULT 0 COMMENT '已支付订单数',
+    `charge_amount` DECIMAL(14,2) NOT NULL DEFAULT 0.00 COMMENT '充电量(kWh)',
+    `revenue` DECIMAL(14,2) NOT NULL DEFAULT 0.00 COMMENT '收入(元)',
+    `paid_amount` DECIMAL(14,2) NOT NULL DEFAULT 0.00 COMMENT '已支付金额(元)',
+    PRIMARY KEY (`bucket_hour`, `station_id`, `pile_id`),
+    INDEX idx_station_hour (`station_id`, `bucket_hour`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='订单小时汇总表';
+
+CREATE TABLE IF NOT EXISTS `order_rollup_daily` (
+    `bucket_date` DATE NOT NULL COMMENT '日期（按订单创建时间）',
+    `station_id` BIGINT NOT NULL COMMENT '站点ID',
+    `pile_id` BIGINT NOT NULL COMMENT '充电桩ID',
+    `order_count` INT NOT NULL DEFAULT 0 COMMENT '订单数',
+    `in_progress_count` INT NOT NULL DEFAULT 0 COMMENT '进行中订单数',
+    `completed_count` INT NOT NULL DEFAULT 0 COMMENT '已完成订单数',
+    `cancelled_count` INT NOT NULL DEFAULT 0 COMMENT '已取消订单数',
+    `paid_count` INT NOT NULL DEFAULT 0 COMMENT '已支付订单数',
+    `charge_amount` DECIMAL(14,2) NOT NULL DEFAULT 0.00 COMMENT '充电量(kWh)',
+    `revenue` DECIMAL(14,2) NOT NULL DEFAULT 0.00 COMMENT '收入(元)',
+    `paid_amount` DECIMAL(14,2) NOT NULL DEFAULT 0.00 COMMENT '已支付金额(元)',
+    PRIMARY KEY (`bucket_date`, `station_id`, `pile_id`),
+    INDEX idx_station_date (`station_id`, `bucket_date`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='订单日汇总表';
+
+CREATE TABLE IF NOT EXISTS `order_rollup_station` (
+    `station_id` BIGINT NOT NULL PRIMARY KEY COMMENT '站点ID',
+    `order_count` INT NOT NULL DEFAULT 0 COMMENT '订单数',
+    `charge_amount` DECIMAL(16,2) NOT NULL DEFAULT 0.00 COMMENT '累计充电量(kWh)',
+    `revenue` DECIMAL(16,2) NOT NULL DEFAULT 0.00 COMMENT '累计收入(元)',
+    INDEX idx_revenue (`revenue`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='站点累计汇总表';
@@ -0,0 +1,11 @@
+-- 批量结算检查点表（任务中断后从 last_order_id 之后继续）
+
+CREATE TABLE IF NOT EXISTS `settlement_checkpoint` (
+    `job_name` VARCHAR(64) NOT NULL PRIMARY KEY COMMENT '任务名（settlement:开始日期:结束日期）',
+    `last_order_id` BIGINT NOT NULL DEFAULT 0 COMMENT '已处理的最大订单ID',
+    `processed_count` BIGINT NOT NULL DEFAULT 0 COMMENT '已处理订单数',
+    `updated_count` BIGINT NOT NULL DEFAULT 0 COMMENT '已改写费用的订单数',
+    `mismatched_count` BIGINT NOT NULL DEFAULT 0 COMMENT '费用不一致的已支付订单数',
+    `status` TINYINT NOT NULL DEFAULT 0 COMMENT '状态：0运行中 1已完成',
+    `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='批量结算检查点表';
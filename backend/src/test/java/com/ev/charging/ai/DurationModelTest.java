@@ -0,0 +1,111 @@
+package com.ev.charging.ai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 充电时长模型：随机森林先序展平后的推理结果，以及模型文件校验
+ */
+class DurationModelTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String FEATURES =
+            "\"features\": [\"battery_capacity\", \"current_soc\", \"target_soc\", \"charge_power\", \"temperature\"]";
+
+    /**
+     * 第一棵树的节点编号不是先序（右子节点编号小于左子树），展平时需要重新编号：
+     * <pre>
+     * 0: current_soc <= 50 ? 2 : 1
+     * 1: 叶子 1.0
+     * 2: temperature <= 0 ? 3 : 4
+     * 3: 叶子 3.0
+     * 4: 叶子 2.0
+     * </pre>
+     * 第二棵树只有一个叶子 2.0
+     */
+    private static final String FOREST = "{" + FEATURES + ", \"format\": \"forest\", \"unit\": \"hours\", \"version\": \"t1\","
+            + "\"trees\": ["
+            + "{\"left\": [2, -1, 3, -1, -1], \"right\": [1, -1, 4, -1, -1], \"feature\": [1, -2, 4, -2, -2],"
+            + " \"threshold\": [50, -2, 0, -2, -2], \"value\": [0, 1.0, 0, 3.0, 2.0]},"
+            + "{\"left\": [-1], \"right\": [-1], \"feature\": [-2], \"threshold\": [-2], \"value\": [2.0]}"
+            + "]}";
+
+    @Test
+    void forestPredictsAverageOfLeaves() throws Exception {
+        DurationModel model = DurationModel.parse(json(FOREST));
+
+        assertEquals(DurationModel.FORMAT_FOREST, model.getFormat());
+        assertEquals("t1", model.getVersion());
+        assertEquals(2, model.treeCount());
+        assertEquals(6, model.nodeCount());
+
+        // (3.0 + 2.0) / 2 小时
+        assertEquals(150.0, model.predictMinutes(60, 30, 80, 60, -5), 1e-9);
+        // (2.0 + 2.0) / 2 小时
+        assertEquals(120.0, model.predictMinutes(60, 30, 80, 60, 10), 1e-9);
+        // (1.0 + 2.0) / 2 小时
+        assertEquals(90.0, model.predictMinutes(60, 80, 90, 60, -5), 1e-9);
+        // 等于阈值走左分支
+        assertEquals(150.0, model.predictMinutes(60, 50, 80, 60, 0), 1e-9);
+    }
+
+    @Test
+    void linearModelInMinutes() throws Exception {
+        DurationModel model = DurationModel.parse(json("{" + FEATURES + ", \"format\": \"linear\", \"unit\": \"minutes\","
+                + "\"intercept\": 5, \"coefficients\": [0.5, -1, 1, -0.1, 0]}"));
+
+        assertEquals(0, model.treeCount());
+        assertEquals(5 + 30 - 20 + 80 - 6, model.predictMinutes(60, 20, 80, 60, 25), 1e-9);
+    }
+
+    @Test
+    void rejectsCycle() throws Exception {
+        String tree = "{\"left\": [1, -1], \"right\": [1, -1], \"feature\": [0, -2], \"threshold\": [1, -2], \"value\": [0, 1]}";
+        assertInvalid(forest(tree), "环");
+    }
+
+    @Test
+    void rejectsUnreachableNodes() throws Exception {
+        String tree = "{\"left\": [-1, -1, -1], \"right\": [-1, -1, -1], \"feature\": [-2, -2, -2],"
+                + " \"threshold\": [-2, -2, -2], \"value\": [1, 2, 3]}";
+        assertInvalid(forest(tree), "不可达");
+    }
+
+    @Test
+    void rejectsInvalidChildOrFeature() throws Exception {
+        String backToRoot = "{\"left\": [0, -1], \"right\": [1, -1], \"feature\": [0, -2], \"threshold\": [1, -2], \"value\": [0, 1]}";
+        assertInvalid(forest(backToRoot), "无效");
+        String badFeature = "{\"left\": [1, -1, -1], \"right\": [2, -1, -1], \"feature\": [5, -2, -2],"
+                + " \"threshold\": [1, -2, -2], \"value\": [0, 1, 2]}";
+        assertInvalid(forest(badFeature), "无效");
+    }
+
+    @Test
+    void rejectsMismatchedArraysAndFeatures() throws Exception {
+        String mismatched = "{\"left\": [-1], \"right\": [-1, -1], \"feature\": [-2], \"threshold\": [-2], \"value\": [1]}";
+        assertInvalid(forest(mismatched), "长度不一致");
+        assertInvalid("{\"features\": [\"current_soc\", \"battery_capacity\", \"target_soc\", \"charge_power\", \"temperature\"],"
+                + " \"format\": \"linear\", \"coefficients\": [0, 0, 0, 0, 0]}", "顺序");
+        assertInvalid("{" + FEATURES + ", \"format\": \"forest\", \"unit\": \"days\", \"trees\": []}", "单位");
+    }
+
+    private static String forest(String tree) {
+        return "{" + FEATURES + ", \"format\": \"forest\", \"trees\": [" + tree + "]}";
+    }
+
+    private static void assertInvalid(String content, String messagePart) throws Exception {
+        JsonNode root = json(content);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> DurationModel.parse(root));
+        assertTrue(e.getMessage().contains(messagePart), e.getMessage());
+    }
+
+    private static JsonNode json(String content) throws Exception {
+        return MAPPER.readTree(content);
+    }
+}
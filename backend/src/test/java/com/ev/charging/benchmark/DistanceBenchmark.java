@@ -0,0 +1,101 @@
+package com.ev.charging.benchmark;
+
+import com.ev.charging.util.DistanceUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 距离计算基准测试：逐点Haversine与批量接口对比
+ * 运行方式：在IDE中执行main方法，或 mvn test-compile 后以测试classpath运行本类
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceBenchmark {
+
+    private static final double ORIGIN_LAT = 39.9042;
+    private static final double ORIGIN_LON = 116.4074;
+
+    @Param({"1000", "100000"})
+    private int count;
+
+    private double[] lats;
+    private double[] lons;
+    private double[] distanceOut;
+    private int[] indexOut;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        lats = new double[count];
+        lons = new double[count];
+        for (int i = 0; i < count; i++) {
+            lats[i] = ORIGIN_LAT + (random.nextDouble() - 0.5);
+            lons[i] = ORIGIN_LON + (random.nextDouble() - 0.5);
+        }
+        distanceOut = new double[count];
+        indexOut = new int[count];
+    }
+
+    @Benchmark
+    public int scalarWithinRadius() {
+        int hits = 0;
+        for (int i = 0; i < count; i++) {
+            double distance = DistanceUtil.calculateDistance(ORIGIN_LAT, ORIGIN_LON, lats[i], lons[i]);
+            if (distance <= 5.0) {
+                distanceOut[hits] = distance;
+                indexOut[hits++] = i;
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public int batchWithinRadius() {
+        return DistanceUtil.withinRadius(ORIGIN_LAT, ORIGIN_LON, lats, lons, count, 5.0, indexOut, distanceOut);
+    }
+
+    @Benchmark
+    public void scalarDistances(Blackhole blackhole) {
+        for (int i = 0; i < count; i++) {
+            distanceOut[i] = DistanceUtil.calculateDistance(ORIGIN_LAT, ORIGIN_LON, lats[i], lons[i]);
+        }
+        blackhole.consume(distanceOut);
+    }
+
+    @Benchmark
+    public void batchDistances(Blackhole blackhole) {
+        DistanceUtil.distances(ORIGIN_LAT, ORIGIN_LON, lats, lons, count, distanceOut);
+        blackhole.consume(distanceOut);
+    }
+
+    @Benchmark
+    public int batchNearest() {
+        return DistanceUtil.nearest(ORIGIN_LAT, ORIGIN_LON, lats, lons, count, 10, indexOut, distanceOut);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DistanceBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,224 @@
+package com.ev.charging.benchmark;
+
+import com.ev.charging.ai.AIServiceClient;
+import com.ev.charging.ai.JvmPredictionEngine;
+import com.ev.charging.ai.LocalPredictionModel;
+import com.ev.charging.dto.AIPredictionDTO.DurationPredictRequest;
+import com.ev.charging.dto.AIPredictionDTO.DurationPredictResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 充电时长推理基准测试：单次预测的延迟
+ * 对比进程内加载随机森林（200棵树、深度12，与训练脚本规模相当）直接推理、本地解析公式，
+ * 与经HTTP调用AI服务的往返（默认调用本机的桩服务，只计网络与JSON开销；设置 -Dai.benchmark.url=http://localhost:5000 可改为调用真实的Flask服务）
+ * 运行方式：在IDE中执行main方法，或 mvn test-compile 后以测试classpath运行本类
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class DurationInferenceBenchmark {
+
+    private static final int TREES = 200;
+    private static final int DEPTH = 12;
+    private static final int INPUTS = 1024;
+
+    private static final String STUB_RESPONSE =
+            "{\"code\":200,\"message\":\"预测成功\",\"data\":{\"duration\":45.5,\"charge_amount\":36.0,\"estimated_cost\":28.8}}";
+
+    private final double[][] inputs = new double[INPUTS][];
+    private final DurationPredictRequest[] requests = new DurationPredictRequest[INPUTS];
+    private int next;
+
+    private Path modelFile;
+    private JvmPredictionEngine jvmEngine;
+    private LocalPredictionModel localModel;
+    private AIServiceClient client;
+    private HttpServer stubServer;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(42);
+        for (int i = 0; i < INPUTS; i++) {
+            double capacity = 40 + random.nextInt(60);
+            double currentSoc = 10 + random.nextInt(40);
+            double targetSoc = currentSoc + 10 + random.nextInt(40);
+            double power = new double[]{7, 60, 120, 350}[random.nextInt(4)];
+            double temperature = -10 + random.nextInt(45);
+            inputs[i] = new double[]{capacity, currentSoc, targetSoc, power, temperature};
+            requests[i] = DurationPredictRequest.builder()
+                    .batteryCapacity(BigDecimal.valueOf(capacity))
+                    .currentSoc(BigDecimal.valueOf(currentSoc))
+                    .targetSoc(BigDecimal.valueOf(targetSoc))
+                    .chargePower(BigDecimal.valueOf(power))
+                    .temperature(BigDecimal.valueOf(temperature))
+                    .build();
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        modelFile = Files.createTempFile("charge_duration_model", ".json");
+        objectMapper.writeValue(modelFile.toFile(), syntheticForest(random));
+        jvmEngine = new JvmPredictionEngine(objectMapper, modelFile.toString());
+        jvmEngine.load();
+        if (!jvmEngine.isReady()) {
+            throw new IllegalStateException("模型加载失败");
+        }
+        localModel = new LocalPredictionModel();
+
+        String url = System.getProperty("ai.benchmark.url");
+        if (url == null) {
+            stubServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            stubServer.createContext("/", exchange -> {
+                try (InputStream in = exchange.getRequestBody()) {
+                    in.readAllBytes();
+                }
+                byte[] body = STUB_RESPONSE.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            stubServer.start();
+            url = "http://127.0.0.1:" + stubServer.getAddress().getPort();
+        }
+
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(1))
+                .build();
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+        factory.setReadTimeout(Duration.ofSeconds(3));
+        client = new AIServiceClient(new RestTemplate(factory), url, 1, Integer.MAX_VALUE, 0);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (stubServer != null) {
+            stubServer.stop(0);
+        }
+        Files.deleteIfExists(modelFile);
+    }
+
+    @Benchmark
+    public double jvmForest() {
+        double[] x = nextInput();
+        return jvmEngine.predictDurationMinutes(x[0], x[1], x[2], x[3], x[4]);
+    }
+
+    @Benchmark
+    public double localFormula() {
+        double[] x = nextInput();
+        return localModel.predictDurationMinutes(x[0], x[1], x[2], x[3], x[4]);
+    }
+
+    @Benchmark
+    public DurationPredictResponse remoteCall() {
+        DurationPredictRequest request = requests[next];
+        next = (next + 1) & (INPUTS - 1);
+        return client.predictDuration(request);
+    }
+
+    private double[] nextInput() {
+        double[] x = inputs[next];
+        next = (next + 1) & (INPUTS - 1);
+        return x;
+    }
+
+    /**
+     * 随机森林：每棵树为满二叉树，节点按深度优先顺序编号（与 sklearn 导出的布局一致），
+     * 内部节点在各特征的取值范围内随机取阈值，叶子为随机时长（小时）
+     */
+    private static Map<String, Object> syntheticForest(Random random) {
+        double[][] ranges = {{40, 100}, {10, 50}, {20, 100}, {7, 350}, {-10, 35}};
+        List<Map<String, Object>> trees = new ArrayList<>(TREES);
+        int nodes = (1 << (DEPTH + 1)) - 1;
+        for (int t = 0; t < TREES; t++) {
+            int[] left = new int[nodes];
+            int[] right = new int[nodes];
+            int[] feature = new int[nodes];
+            double[] threshold = new double[nodes];
+            double[] value = new double[nodes];
+            build(random, ranges, 0, 0, left, right, feature, threshold, value);
+
+            Map<String, Object> tree = new HashMap<>();
+            tree.put("left", left);
+            tree.put("right", right);
+            tree.put("feature", feature);
+            tree.put("threshold", threshold);
+            tree.put("value", value);
+            trees.add(tree);
+        }
+        Map<String, Object> model = new HashMap<>();
+        model.put("format", "forest");
+        model.put("version", "benchmark");
+        model.put("unit", "hours");
+        model.put("features", List.of("battery_capacity", "current_soc", "target_soc", "charge_power", "temperature"));
+        model.put("trees", trees);
+        return model;
+    }
+
+    /**
+     * 以深度优先顺序生成子树
+     *
+     * @return 子树占用的下一个空闲节点号
+     */
+    private static int build(Random random, double[][] ranges, int node, int depth,
+                             int[] left, int[] right, int[] feature, double[] threshold, double[] value) {
+        if (depth == DEPTH) {
+            left[node] = -1;
+            right[node] = -1;
+            value[node] = 0.2 + random.nextDouble() * 3;
+            return node + 1;
+        }
+        int f = random.nextInt(ranges.length);
+        feature[node] = f;
+        threshold[node] = ranges[f][0] + random.nextDouble() * (ranges[f][1] - ranges[f][0]);
+        left[node] = node + 1;
+        int next = build(random, ranges, node + 1, depth + 1, left, right, feature, threshold, value);
+        right[node] = next;
+        return build(random, ranges, next, depth + 1, left, right, feature, threshold, value);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DurationInferenceBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,112 @@
+package com.ev.charging.benchmark;
+
+import com.ev.charging.billing.TariffSchedule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分时计费基准测试：批量结算一天的充电订单
+ * 对比原有的BigDecimal按开始时段计价与预编译电价表按区段切分电量的long运算
+ * 运行方式：在IDE中执行main方法，或 mvn test-compile 后以测试classpath运行本类
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TariffBenchmark {
+
+    @Param({"10000", "100000"})
+    private int count;
+
+    private TariffSchedule[] schedules;
+    private long[] startSeconds;
+    private long[] endSeconds;
+    private long[] energyWh;
+    private LocalDateTime[] startTimes;
+    private BigDecimal[] chargeAmounts;
+    private long[] electricityCents;
+    private long[] serviceCents;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        TariffSchedule[] tariffs = {
+                TariffSchedule.compile(4000, 8000, 12000, 5000),
+                TariffSchedule.compile(5000, 10000, 15000, 8000),
+                TariffSchedule.compile(3000, 5000, 6000, 2000)
+        };
+        long dayStart = LocalDateTime.of(2024, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC);
+
+        schedules = new TariffSchedule[count];
+        startSeconds = new long[count];
+        endSeconds = new long[count];
+        energyWh = new long[count];
+        startTimes = new LocalDateTime[count];
+        chargeAmounts = new BigDecimal[count];
+        for (int i = 0; i < count; i++) {
+            schedules[i] = tariffs[random.nextInt(tariffs.length)];
+            startSeconds[i] = dayStart + random.nextInt(86_400);
+            endSeconds[i] = startSeconds[i] + 600 + random.nextInt(4 * 3600);
+            energyWh[i] = 1000 + random.nextInt(80_000);
+            startTimes[i] = LocalDateTime.ofEpochSecond(startSeconds[i], 0, ZoneOffset.UTC);
+            chargeAmounts[i] = BigDecimal.valueOf(energyWh[i], 3).setScale(2, RoundingMode.HALF_UP);
+        }
+        electricityCents = new long[count];
+        serviceCents = new long[count];
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalStartBand() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < count; i++) {
+            BigDecimal electricityFee = chargeAmounts[i].multiply(priceByHour(startTimes[i].getHour()))
+                    .setScale(2, RoundingMode.HALF_UP);
+            BigDecimal serviceFee = chargeAmounts[i].multiply(BigDecimal.valueOf(0.5)).setScale(2, RoundingMode.HALF_UP);
+            total = total.add(electricityFee).add(serviceFee);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long[] scheduleSplitBands() {
+        TariffSchedule.settleAll(schedules, startSeconds, endSeconds, energyWh, count, electricityCents, serviceCents);
+        return electricityCents;
+    }
+
+    private static BigDecimal priceByHour(int hour) {
+        if (hour >= 23 || hour < 7) {
+            return BigDecimal.valueOf(0.4);
+        } else if ((hour >= 10 && hour < 15) || (hour >= 18 && hour < 21)) {
+            return BigDecimal.valueOf(1.2);
+        } else {
+            return BigDecimal.valueOf(0.8);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TariffBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,108 @@
+package com.ev.charging.billing;
+
+import com.ev.charging.catalog.CatalogCache;
+import com.ev.charging.catalog.PileSnapshot;
+import com.ev.charging.entity.ChargingPile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 计费引擎：按充电桩电价结算、电价表共享与重新编译
+ */
+class TariffEngineTest {
+
+    private CatalogCache catalogCache;
+    private TariffEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        catalogCache = mock(CatalogCache.class);
+        engine = new TariffEngine(catalogCache);
+    }
+
+    @Test
+    void settleSplitsAcrossPeriodsAndRoundsToCents() {
+        when(catalogCache.pile(1L)).thenReturn(pile(1L, 1.5, 1.0, 0.3, 0.6));
+
+        // 09:30-10:30 共1.234kWh：平时617Wh × 1.0 + 峰时617Wh × 1.5 = 1.5425元；服务费 1.234 × 0.6 = 0.7404元
+        TariffEngine.Settlement settlement = engine.settle(1L,
+                LocalDateTime.of(2024, 3, 1, 9, 30), LocalDateTime.of(2024, 3, 1, 10, 30), new BigDecimal("1.234"));
+
+        assertEquals(new BigDecimal("1.54"), settlement.getElectricityFee());
+        assertEquals(new BigDecimal("0.74"), settlement.getServiceFee());
+        assertEquals(new BigDecimal("2.28"), settlement.getTotalFee());
+    }
+
+    @Test
+    void settleAcrossMidnightUsesValleyPrice() {
+        when(catalogCache.pile(1L)).thenReturn(pile(1L, 1.5, 1.0, 0.3, 0.0));
+
+        // 23:00-01:00 全部在谷时：10kWh × 0.3 = 3元
+        TariffEngine.Settlement settlement = engine.settle(1L,
+                LocalDateTime.of(2024, 3, 1, 23, 0), LocalDateTime.of(2024, 3, 2, 1, 0), BigDecimal.TEN);
+
+        assertEquals(new BigDecimal("3.00"), settlement.getElectricityFee());
+        assertEquals(new BigDecimal("0.00"), settlement.getServiceFee());
+    }
+
+    @Test
+    void unknownPileUsesDefaultPrices() {
+        // 默认峰时1.2、服务费0.5
+        TariffEngine.Settlement settlement = engine.settle(99L,
+                LocalDateTime.of(2024, 3, 1, 11, 0), LocalDateTime.of(2024, 3, 1, 12, 0), BigDecimal.ONE);
+
+        assertEquals(new BigDecimal("1.20"), settlement.getElectricityFee());
+        assertEquals(new BigDecimal("0.50"), settlement.getServiceFee());
+        assertSame(engine.scheduleFor(null), engine.scheduleFor(99L));
+    }
+
+    @Test
+    void pilesWithSamePricesShareSchedule() {
+        when(catalogCache.pile(1L)).thenReturn(pile(1L, 1.5, 1.0, 0.3, 0.6));
+        when(catalogCache.pile(2L)).thenReturn(pile(2L, 1.5, 1.0, 0.3, 0.6));
+        when(catalogCache.pile(3L)).thenReturn(pile(3L, 1.6, 1.0, 0.3, 0.6));
+
+        assertSame(engine.scheduleFor(1L), engine.scheduleFor(2L));
+        assertNotSame(engine.scheduleFor(1L), engine.scheduleFor(3L));
+    }
+
+    @Test
+    void priceChangeRecompilesSchedule() {
+        when(catalogCache.pile(1L)).thenReturn(pile(1L, 1.5, 1.0, 0.3, 0.6));
+        TariffSchedule before = engine.scheduleFor(1L);
+        assertSame(before, engine.scheduleFor(1L));
+
+        when(catalogCache.pile(1L)).thenReturn(pile(1L, 2.0, 1.0, 0.3, 0.6));
+        TariffSchedule after = engine.scheduleFor(1L);
+
+        assertNotSame(before, after);
+        assertEquals(20_000, after.priceAt(TariffEngine.toLocalSecond(LocalDateTime.of(2024, 3, 1, 11, 0))));
+    }
+
+    @Test
+    void toWhRoundsHalfUp() {
+        assertEquals(1235, TariffEngine.toWh(new BigDecimal("1.2345")));
+        assertEquals(1234, TariffEngine.toWh(new BigDecimal("1.2344")));
+        assertEquals(0, TariffEngine.toWh(null));
+        assertEquals(0, TariffEngine.toWh(new BigDecimal("-1")));
+    }
+
+    private static PileSnapshot pile(Long id, double peak, double flat, double valley, double serviceFee) {
+        ChargingPile pile = new ChargingPile();
+        pile.setId(id);
+        pile.setPricePeak(peak);
+        pile.setPriceFlat(flat);
+        pile.setPriceValley(valley);
+        pile.setServiceFee(serviceFee);
+        return PileSnapshot.from(pile);
+    }
+}
@@ -0,0 +1,116 @@
+package com.ev.charging.billing;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 分时电价表：跨时段切分、跨零点、四舍五入到分
+ */
+class TariffScheduleTest {
+
+    /**
+     * 谷 0.4、平 0.8、峰 1.2、服务费 0.5（元/kWh）
+     */
+    private static final TariffSchedule SCHEDULE = TariffSchedule.compile(4000, 8000, 12000, 5000);
+
+    @Test
+    void priceFollowsBands() {
+        assertEquals(4000, SCHEDULE.priceAt(second(2024, 1, 1, 6, 59)));
+        assertEquals(8000, SCHEDULE.priceAt(second(2024, 1, 1, 7, 0)));
+        assertEquals(12000, SCHEDULE.priceAt(second(2024, 1, 1, 10, 0)));
+        assertEquals(8000, SCHEDULE.priceAt(second(2024, 1, 1, 15, 0)));
+        assertEquals(12000, SCHEDULE.priceAt(second(2024, 1, 1, 20, 59)));
+        assertEquals(8000, SCHEDULE.priceAt(second(2024, 1, 1, 22, 59)));
+        assertEquals(4000, SCHEDULE.priceAt(second(2024, 1, 1, 23, 0)));
+    }
+
+    @Test
+    void sessionAcrossBandBoundaryIsSplitByDuration() {
+        // 09:30-10:30 共2kWh：平时1kWh + 峰时1kWh = 0.8 + 1.2
+        long cost = SCHEDULE.energyCost(second(2024, 1, 1, 9, 30), second(2024, 1, 1, 10, 30), 2000);
+        assertEquals(20_000_000L, cost);
+        assertEquals(200, TariffSchedule.toCents(cost));
+    }
+
+    @Test
+    void sessionAcrossMidnight() {
+        // 22:00-02:00 共4kWh：平时1kWh + 谷时3kWh（跨零点仍是同一谷时区段）= 0.8 + 1.2
+        long cost = SCHEDULE.energyCost(second(2024, 1, 31, 22, 0), second(2024, 2, 1, 2, 0), 4000);
+        assertEquals(20_000_000L, cost);
+    }
+
+    @Test
+    void fullDayCoversEveryBand() {
+        // 24小时24kWh：谷8h、平8h、峰8h，每小时1kWh
+        long cost = SCHEDULE.energyCost(second(2024, 1, 1, 0, 0), second(2024, 1, 2, 0, 0), 24_000);
+        assertEquals(8000L * (4000 + 8000 + 12000), cost);
+        assertEquals(1920, TariffSchedule.toCents(cost));
+    }
+
+    @Test
+    void sessionBeforeEpochUsesLocalMinuteOfDay() {
+        long cost = SCHEDULE.energyCost(second(1969, 12, 31, 22, 0), second(1970, 1, 1, 2, 0), 4000);
+        assertEquals(20_000_000L, cost);
+    }
+
+    @Test
+    void allocatedEnergyAlwaysSumsToTotal() {
+        // 各时段同价时，电费恰好等于 总电量 × 电价，说明切分没有丢失或重复电量
+        TariffSchedule flat = TariffSchedule.compile(7, 7, 7, 0);
+        Random random = new Random(42);
+        long base = second(2024, 1, 1, 0, 0);
+        for (int i = 0; i < 1000; i++) {
+            long start = base + random.nextInt(7 * 86_400);
+            long end = start + 1 + random.nextInt(3 * 86_400);
+            long energyWh = 1 + random.nextInt(200_000);
+            assertEquals(energyWh * 7, flat.energyCost(start, end, energyWh));
+        }
+    }
+
+    @Test
+    void zeroDurationUsesStartPriceAndNonPositiveEnergyCostsNothing() {
+        long at = second(2024, 1, 1, 10, 0);
+        assertEquals(1000L * 12000, SCHEDULE.energyCost(at, at, 1000));
+        assertEquals(0L, SCHEDULE.energyCost(at, at + 3600, 0));
+        assertEquals(0L, SCHEDULE.energyCost(at, at + 3600, -5));
+        assertEquals(0L, SCHEDULE.serviceCost(-5));
+    }
+
+    @Test
+    void toCentsRoundsHalfUp() {
+        assertEquals(0, TariffSchedule.toCents(0));
+        assertEquals(0, TariffSchedule.toCents(49_999));
+        assertEquals(1, TariffSchedule.toCents(50_000));
+        assertEquals(1, TariffSchedule.toCents(149_999));
+        assertEquals(2, TariffSchedule.toCents(150_000));
+        // 1.234kWh × 0.5元 = 0.617元
+        assertEquals(62, TariffSchedule.toCents(SCHEDULE.serviceCost(1234)));
+    }
+
+    @Test
+    void settleAllMatchesSingleSettlement() {
+        long[] starts = {second(2024, 1, 1, 9, 30), second(2024, 1, 31, 22, 0)};
+        long[] ends = {second(2024, 1, 1, 10, 30), second(2024, 2, 1, 2, 0)};
+        long[] energy = {2000, 1234};
+        long[] electricity = new long[2];
+        long[] service = new long[2];
+
+        TariffSchedule.settleAll(new TariffSchedule[]{SCHEDULE, SCHEDULE}, starts, ends, energy, 2, electricity, service);
+
+        long[] expectedElectricity = new long[2];
+        for (int i = 0; i < 2; i++) {
+            expectedElectricity[i] = TariffSchedule.toCents(SCHEDULE.energyCost(starts[i], ends[i], energy[i]));
+        }
+        assertArrayEquals(expectedElectricity, electricity);
+        assertArrayEquals(new long[]{100, 62}, service);
+    }
+
+    private static long second(int year, int month, int day, int hour, int minute) {
+        return TariffEngine.toLocalSecond(LocalDateTime.of(year, month, day, hour, minute));
+    }
+}
@@ -0,0 +1,87 @@
+package com.ev.charging.queue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 释放时间堆：更新、删除后的堆序，以及等待时间推演
+ */
+class ReleaseHeapTest {
+
+    @Test
+    void upsertAndRemoveKeepHeapOrder() {
+        ReleaseHeap heap = new ReleaseHeap();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(3);
+        for (int step = 0; step < 5000; step++) {
+            long pileId = random.nextInt(64);
+            if (random.nextInt(4) == 0) {
+                heap.remove(pileId);
+                expected.remove(pileId);
+            } else {
+                long releaseSecond = random.nextInt(100_000);
+                heap.upsert(pileId, releaseSecond);
+                expected.put(pileId, releaseSecond);
+            }
+
+            assertEquals(expected.size(), heap.size());
+            assertTrue(expected.keySet().stream().allMatch(heap::contains));
+            long[] times = heap.copyTimes();
+            assertHeapOrdered(times);
+            long[] sortedTimes = times.clone();
+            Arrays.sort(sortedTimes);
+            assertArrayEquals(expected.values().stream().mapToLong(Long::longValue).sorted().toArray(), sortedTimes);
+        }
+    }
+
+    @Test
+    void removeMissingPileIsNoop() {
+        ReleaseHeap heap = new ReleaseHeap();
+        heap.upsert(1L, 100);
+        heap.remove(2L);
+        assertEquals(1, heap.size());
+        heap.remove(1L);
+        assertFalse(heap.contains(1L));
+        assertEquals(0, heap.size());
+    }
+
+    @Test
+    void projectAssignsEarliestReleasedPile() {
+        ReleaseHeap heap = new ReleaseHeap();
+        long now = 1_000;
+        heap.upsert(1L, now + 20);
+        heap.upsert(2L, now + 10);
+        heap.upsert(3L, now - 50);
+
+        long[] eta = new long[6];
+        ReleaseHeap.project(heap.copyTimes(), now, 100, eta);
+
+        // 已空闲的桩从当前时间起算；之后依次轮到最早再次释放的桩
+        assertArrayEquals(new long[]{0, 10, 20, 100, 110, 120}, eta);
+    }
+
+    @Test
+    void projectDoesNotModifyHeap() {
+        ReleaseHeap heap = new ReleaseHeap();
+        heap.upsert(1L, 10);
+        heap.upsert(2L, 20);
+        long[] before = heap.copyTimes();
+        ReleaseHeap.project(heap.copyTimes(), 0, 30, new long[4]);
+        assertArrayEquals(before, heap.copyTimes());
+    }
+
+    private static void assertHeapOrdered(long[] times) {
+        for (int i = 1; i < times.length; i++) {
+            assertTrue(times[(i - 1) / 2] <= times[i], "heap order broken at " + i);
+        }
+    }
+}
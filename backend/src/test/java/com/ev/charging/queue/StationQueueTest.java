@@ -0,0 +1,128 @@
+package com.ev.charging.queue;
+
+import com.ev.charging.entity.QueueRecord;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 站点排队队列：排名、队首、槽位压缩与扩容、位置回写
+ */
+class StationQueueTest {
+
+    @Test
+    void positionsFollowJoinOrder() {
+        StationQueue queue = new StationQueue(1L);
+        for (long id = 1; id <= 5; id++) {
+            queue.add(record(id));
+        }
+
+        assertEquals(5, queue.size());
+        assertEquals(1L, queue.peek().getRecordId());
+        assertEquals(3, queue.positionOf(3L));
+        assertEquals(3, queue.positionOfUser(103L));
+
+        assertTrue(queue.remove(2L));
+        assertFalse(queue.remove(2L));
+        assertEquals(2, queue.positionOf(3L));
+        assertEquals(0, queue.positionOf(2L));
+        assertEquals(0, queue.positionOfUser(102L));
+
+        assertTrue(queue.remove(1L));
+        assertEquals(3L, queue.peek().getRecordId());
+        assertEquals(1, queue.positionOf(3L));
+        assertEquals(3, queue.positionOf(5L));
+    }
+
+    @Test
+    void addingSameRecordTwiceKeepsOriginalEntry() {
+        StationQueue queue = new StationQueue(1L);
+        StationQueue.Entry first = queue.add(record(1L));
+        assertSame(first, queue.add(record(1L)));
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    void emptyQueueHasNoHead() {
+        StationQueue queue = new StationQueue(1L);
+        assertNull(queue.peek());
+        queue.add(record(1L));
+        queue.remove(1L);
+        assertNull(queue.peek());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void matchesListAcrossCompactionAndGrowth() {
+        // 随机加入/离开，远超初始16个槽位，覆盖压缩（离开多）与扩容（排队多）两种情况
+        StationQueue queue = new StationQueue(1L);
+        List<Long> expected = new ArrayList<>();
+        Random random = new Random(7);
+        long nextId = 1;
+        for (int step = 0; step < 5000; step++) {
+            if (expected.isEmpty() || random.nextInt(100) < (step < 2500 ? 60 : 40)) {
+                queue.add(record(nextId));
+                expected.add(nextId++);
+            } else {
+                Long removed = random.nextBoolean()
+                        ? expected.remove(0)
+                        : expected.remove(random.nextInt(expected.size()));
+                assertTrue(queue.remove(removed));
+            }
+
+            assertEquals(expected.size(), queue.size());
+            if (!expected.isEmpty()) {
+                assertEquals(expected.get(0), queue.peek().getRecordId());
+                int probe = random.nextInt(expected.size());
+                assertEquals(probe + 1, queue.positionOf(expected.get(probe)));
+            }
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(i + 1, queue.positionOf(expected.get(i)));
+        }
+    }
+
+    @Test
+    void collectChangedReportsOnlyUnpersistedPositions() {
+        StationQueue queue = new StationQueue(1L);
+        for (long id = 1; id <= 3; id++) {
+            QueueRecord record = record(id);
+            record.setQueuePosition((int) id);
+            record.setEstimatedWaitTime((int) id * 10);
+            queue.add(record);
+        }
+        assertTrue(queue.collectChanged(position -> position * 10).isEmpty());
+
+        queue.remove(1L);
+        List<StationQueue.PositionUpdate> changed = queue.collectChanged(position -> position * 10);
+        assertEquals(2, changed.size());
+        assertEquals(2L, changed.get(0).getRecordId());
+        assertEquals(1, changed.get(0).getQueuePosition());
+        assertEquals(10, changed.get(0).getEstimatedWaitTime());
+        assertEquals(3L, changed.get(1).getRecordId());
+        assertEquals(2, changed.get(1).getQueuePosition());
+
+        queue.acknowledge(changed);
+        assertTrue(queue.collectChanged(position -> position * 10).isEmpty());
+        assertEquals(2, queue.collectChanged(position -> position * 15).size());
+    }
+
+    private static QueueRecord record(long id) {
+        return QueueRecord.builder()
+                .id(id)
+                .userId(100 + id)
+                .stationId(1L)
+                .queueNo("Q" + id)
+                .joinTime(LocalDateTime.of(2024, 1, 1, 8, 0).plusSeconds(id))
+                .build();
+    }
+}
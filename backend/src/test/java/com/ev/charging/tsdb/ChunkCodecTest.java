@@ -0,0 +1,210 @@
+package com.ev.charging.tsdb;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 数据块编解码与段文件的往返测试
+ */
+class ChunkCodecTest {
+
+    private static final long BASE = 1_700_000_000_000L;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void decodeReturnsEncodedPoints() {
+        long[] timestamps = irregularTimestamps(TimeSeriesStore.CHUNK_POINTS);
+        double[] values = mixedValues(TimeSeriesStore.CHUNK_POINTS);
+
+        BitWriter bits = new BitWriter();
+        ChunkCodec.encode(timestamps, values, timestamps.length, bits);
+
+        long[] timestampsOut = new long[timestamps.length];
+        double[] valuesOut = new double[values.length];
+        ChunkCodec.decode(new BitReader(toBuffer(bits), 0), timestamps.length, timestampsOut, valuesOut);
+
+        assertArrayEquals(timestamps, timestampsOut);
+        assertBitsEqual(values, valuesOut);
+    }
+
+    @Test
+    void decodeSinglePoint() {
+        BitWriter bits = new BitWriter();
+        ChunkCodec.encode(new long[]{BASE}, new double[]{-0.0}, 1, bits);
+
+        long[] timestampsOut = new long[1];
+        double[] valuesOut = new double[1];
+        ChunkCodec.decode(new BitReader(toBuffer(bits), 0), 1, timestampsOut, valuesOut);
+
+        assertEquals(BASE, timestampsOut[0]);
+        assertEquals(Double.doubleToRawLongBits(-0.0), Double.doubleToRawLongBits(valuesOut[0]));
+    }
+
+    @Test
+    void segmentScanSurvivesReopen() throws Exception {
+        Path file = directory.resolve("segment.dat");
+        int count = 500;
+        long[] timestamps = irregularTimestamps(count);
+        double[] values = mixedValues(count);
+        BitWriter bits = new BitWriter();
+        ChunkCodec.encode(timestamps, values, count, bits);
+        byte[] seriesBytes = "pile:1:power".getBytes(StandardCharsets.UTF_8);
+
+        Segment segment = Segment.open(file, 0, 0, 64 * 1024);
+        assertTrue(segment.append("pile:1:power", seriesBytes, timestamps[0], timestamps[count - 1], count, bits));
+        assertScan(segment, timestamps, values);
+        segment.force();
+
+        Segment reopened = Segment.open(file, 0, 0, 64 * 1024);
+        assertEquals(segment.size(), reopened.size());
+        assertScan(reopened, timestamps, values);
+        assertTrue(reopened.containsSeriesWithPrefix("pile:1:"));
+        assertFalse(reopened.containsSeriesWithPrefix("pile:2:"));
+    }
+
+    @Test
+    void segmentScanFiltersByRange() throws Exception {
+        long[] timestamps = irregularTimestamps(100);
+        double[] values = mixedValues(100);
+        BitWriter bits = new BitWriter();
+        ChunkCodec.encode(timestamps, values, 100, bits);
+
+        Segment segment = Segment.open(directory.resolve("range.dat"), 0, 0, 64 * 1024);
+        segment.append("s", "s".getBytes(StandardCharsets.UTF_8), timestamps[0], timestamps[99], 100, bits);
+
+        SeriesData.Builder result = new SeriesData.Builder();
+        segment.scan("s", timestamps[10], timestamps[19], result, new long[100], new double[100]);
+        SeriesData data = result.build("s");
+
+        assertEquals(10, data.size());
+        assertEquals(timestamps[10], data.getTimestamps()[0]);
+        assertEquals(timestamps[19], data.getTimestamps()[9]);
+    }
+
+    @Test
+    void segmentRejectsChunkWhenFull() throws Exception {
+        long[] timestamps = irregularTimestamps(TimeSeriesStore.CHUNK_POINTS);
+        double[] values = mixedValues(TimeSeriesStore.CHUNK_POINTS);
+        BitWriter bits = new BitWriter();
+        ChunkCodec.encode(timestamps, values, timestamps.length, bits);
+
+        Segment segment = Segment.open(directory.resolve("small.dat"), 0, 0, 256);
+        assertFalse(segment.append("s", "s".getBytes(StandardCharsets.UTF_8),
+                timestamps[0], timestamps[timestamps.length - 1], timestamps.length, bits));
+    }
+
+    @Test
+    void storeRejectsInvalidRangesAndTimestamps() throws Exception {
+        TimeSeriesStore store = new TimeSeriesStore(directory.resolve("store").toString(), 1, 30, 300_000);
+        store.open();
+        try {
+            long now = System.currentTimeMillis();
+            assertThrows(IllegalArgumentException.class, () -> store.scan("s", now, now - 1));
+            assertThrows(IllegalArgumentException.class, () -> store.downsample("s", now - 1, now, 0, Aggregation.AVG));
+            assertThrows(IllegalArgumentException.class, () -> store.scan("s", Long.MIN_VALUE, Long.MAX_VALUE));
+            assertThrows(IllegalArgumentException.class, () -> store.scan("s", now - 40 * 86_400_000L, now));
+
+            assertTrue(store.append("s", now, 1.0));
+            assertFalse(store.append("s", now + 3_600_000L, 2.0));
+            assertFalse(store.append("s", now - 40 * 86_400_000L, 3.0));
+            assertEquals(1, store.scan("s", now - 1000, now + 1000).size());
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    void storeRejectsOutOfOrderPointsAfterSealAndReopen() throws Exception {
+        String dir = directory.resolve("order").toString();
+        long now = System.currentTimeMillis();
+        TimeSeriesStore store = new TimeSeriesStore(dir, 1, 30, 300_000);
+        store.open();
+        try {
+            assertTrue(store.append("s", now - 2000, 1.0));
+            assertTrue(store.append("s", now, 2.0));
+            // 封口后未封口数据块为空，仍然要拒绝早于已写入的点
+            store.flush();
+            assertFalse(store.append("s", now - 1000, 3.0));
+        } finally {
+            store.close();
+        }
+
+        TimeSeriesStore reopened = new TimeSeriesStore(dir, 1, 30, 300_000);
+        reopened.open();
+        try {
+            assertFalse(reopened.append("s", now - 1000, 4.0));
+            assertTrue(reopened.append("s", now + 1000, 5.0));
+            SeriesData data = reopened.scan("s", now - 5000, now + 5000);
+            assertArrayEquals(new long[]{now - 2000, now, now + 1000}, data.getTimestamps());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    private static void assertScan(Segment segment, long[] timestamps, double[] values) {
+        SeriesData.Builder result = new SeriesData.Builder();
+        segment.scan("pile:1:power", Long.MIN_VALUE, Long.MAX_VALUE, result,
+                new long[timestamps.length], new double[values.length]);
+        SeriesData data = result.build("pile:1:power");
+        assertArrayEquals(timestamps, data.getTimestamps());
+        assertBitsEqual(values, data.getValues());
+    }
+
+    /**
+     * 按位比较，NaN 与 -0.0 也必须原样还原
+     */
+    private static void assertBitsEqual(double[] expected, double[] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(Double.doubleToRawLongBits(expected[i]), Double.doubleToRawLongBits(actual[i]), "index " + i);
+        }
+    }
+
+    /**
+     * 覆盖增量差的各个编码区间：0、7位、9位、12位和64位，以及重复时间戳
+     */
+    private static long[] irregularTimestamps(int count) {
+        long[] deltas = {1000, 1000, 1000, 1030, 970, 1200, 800, 3000, 0, 0, 1000, 1_000_000, 1000, 5};
+        long[] timestamps = new long[count];
+        timestamps[0] = BASE;
+        for (int i = 1; i < count; i++) {
+            timestamps[i] = timestamps[i - 1] + deltas[i % deltas.length];
+        }
+        return timestamps;
+    }
+
+    private static double[] mixedValues(int count) {
+        double[] special = {Double.NaN, -0.0, Double.MAX_VALUE, Double.MIN_VALUE, Double.NEGATIVE_INFINITY};
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            if (i % 50 == 7) {
+                values[i] = special[(i / 50) % special.length];
+            } else if (i % 3 == 0) {
+                values[i] = i > 0 ? values[i - 1] : 220.0;
+            } else {
+                values[i] = 220.0 + Math.sin(i) * 15.3 - (i % 11) * 0.01;
+            }
+        }
+        return values;
+    }
+
+    private static ByteBuffer toBuffer(BitWriter bits) {
+        ByteBuffer buffer = ByteBuffer.allocate(bits.wordCount() * 8);
+        for (int i = 0; i < bits.wordCount(); i++) {
+            buffer.putLong(i * 8, bits.word(i));
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,80 @@
+package com.ev.charging.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * long键开放寻址哈希表：扩容、后移删除、副本独立
+ */
+class LongObjectMapTest {
+
+    @Test
+    void putGetRemove() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        assertNull(map.put(0L, "zero"));
+        assertNull(map.put(-1L, "minus"));
+        assertEquals("zero", map.put(0L, "zero2"));
+
+        assertEquals("zero2", map.get(0L));
+        assertEquals("minus", map.get(-1L));
+        assertNull(map.get(1L));
+        assertEquals(2, map.size());
+
+        assertEquals("minus", map.remove(-1L));
+        assertNull(map.remove(-1L));
+        assertFalse(map.containsKey(-1L));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void nullValueRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new LongObjectMap<String>().put(1L, null));
+    }
+
+    @Test
+    void matchesHashMapUnderRandomOperations() {
+        // 键范围较小，保证探测链长且频繁删除，覆盖后移删除的各种回绕情况
+        LongObjectMap<Long> map = new LongObjectMap<>(4);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(11);
+        for (int step = 0; step < 50_000; step++) {
+            long key = random.nextInt(512) * 1024L;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                long value = random.nextLong();
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (long key = 0; key < 512 * 1024L; key += 1024) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+        assertEquals(expected.size(), map.values().size());
+        assertTrue(map.values().containsAll(expected.values()));
+    }
+
+    @Test
+    void copyIsIndependent() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        map.put(1L, "a");
+        LongObjectMap<String> copy = map.copy();
+        copy.put(2L, "b");
+        copy.remove(1L);
+
+        assertEquals("a", map.get(1L));
+        assertNull(map.get(2L));
+        assertEquals(1, map.size());
+        assertEquals("b", copy.get(2L));
+        assertNull(copy.get(1L));
+    }
+}
@@ -196,7 +196,7 @@ CREATE TABLE `queue_record` (
     `user_id` BIGINT NOT NULL COMMENT '用户ID',
     `station_id` BIGINT NOT NULL COMMENT '站点ID',
     `pile_type` TINYINT NOT NULL COMMENT '充电类型：1快充 2慢充',
-    `queue_no` VARCHAR(20) NOT NULL COMMENT '排队号',
+    `queue_no` VARCHAR(20) NOT NULL UNIQUE COMMENT '排队号（站点ID-日期-序号）',
     `queue_position` INT NOT NULL COMMENT '当前排队位置',
     `estimated_wait_time` INT DEFAULT NULL COMMENT '预计等待时间(分钟)',
     `queue_status` TINYINT DEFAULT 1 COMMENT '状态：1排队中 2已分配 3已取消 4超时',
@@ -436,6 +436,86 @@ CREATE TABLE `review` (
     INDEX idx_create_time (`create_time`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='评价表';
 
+-- 4.4 订单小时汇总表
+DROP TABLE IF EXISTS `order_rollup_hourly`;
+CREATE TABLE `order_rollup_hourly` (
+    `bucket_hour` DATETIME NOT NULL COMMENT '小时（按订单创建时间）',
+    `station_id` BIGINT NOT NULL COMMENT '站点ID',
+    `pile_id` BIGINT NOT NULL COMMENT '充电桩ID',
+    `order_count` INT NOT NULL DEFAULT 0 COMMENT '订单数',
+    `in_progress_count` INT NOT NULL DEFAULT 0 COMMENT '进行中订单数',
+    `completed_count` INT NOT NULL DEFAULT 0 COMMENT '已完成订单数',
+    `cancelled_count` INT NOT NULL DEFAULT 0 COMMENT '已取消订单数',
+    `paid_count` INT NOT NULL DEFAULT 0 COMMENT '已支付订单数',
+    `charge_amount` DECIMAL(14,2) NOT NULL DEFAULT 0.00 COMMENT '充电量(kWh)',
+    `revenue` DECIMAL(14,2) NOT NULL DEFAULT 0.00 COMMENT '收入(元)',
+    `paid_amount` DECIMAL(14,2) NOT NULL DEFAULT 0.00 COMMENT '已支付金额(元)',
+    PRIMARY KEY (`bucket_hour`, `station_id`, `pile_id`),
+    INDEX idx_station_hour (`station_id`, `bucket_hour`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='订单小时汇总表';
+
+-- 4.5 订单日汇总表
+DROP TABLE IF EXISTS `order_rollup_daily`;
+CREATE TABLE `order_rollup_daily` (
+    `bucket_date` DATE NOT NULL COMMENT '日期（按订单创建时间）',
+    `station_id` BIGINT NOT NULL COMMENT '站点ID',
+    `pile_id` BIGINT NOT NULL COMMENT '充电桩ID',
+    `order_count` INT NOT NULL DEFAULT 0 COMMENT '订单数',
+    `in_progress_count` INT NOT NULL DEFAULT 0 COMMENT '进行中订单数',
+    `completed_count` INT NOT NULL DEFAULT 0 COMMENT '已完成订单数',
+    `cancelled_count` INT NOT NULL DEFAULT 0 COMMENT '已取消订单数',
+    `paid_count` INT NOT NULL DEFAULT 0 COMMENT '已支付订单数',
+    `charge_amount` DECIMAL(14,2) NOT NULL DEFAULT 0.00 COMMENT '充电量(kWh)',
+    `revenue` DECIMAL(14,2) NOT NULL DEFAULT 0.00 COMMENT '收入(元)',
+    `paid_amount` DECIMAL(14,2) NOT NULL DEFAULT 0.00 COMMENT '已支付金额(元)',
+    PRIMARY KEY (`bucket_date`, `station_id`, `pile_id`),
+    INDEX idx_station_date (`station_id`, `bucket_date`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='订单日汇总表';
+
+-- 4.6 站点累计汇总表
+DROP TABLE IF EXISTS `order_rollup_station`;
+CREATE TABLE `order_rollup_station` (
+    `station_id` BIGINT NOT NULL PRIMARY KEY COMMENT '站点ID',
+    `order_count` INT NOT NULL DEFAULT 0 COMMENT '订单数',
+    `charge_amount` DECIMAL(16,2) NOT NULL DEFAULT 0.00 COMMENT '累计充电量(kWh)',
+    `revenue` DECIMAL(16,2) NOT NULL DEFAULT 0.00 COMMENT '累计收入(元)',
+    INDEX idx_revenue (`revenue`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='站点累计汇总表';
+
+-- 4.7 批量结算检查点表
+DROP TABLE IF EXISTS `settlement_checkpoint`;
+CREATE TABLE `settlement_checkpoint` (
+    `job_name` VARCHAR(64) NOT NULL PRIMARY KEY COMMENT '任务名（settlement:开始日期:结束日期）',
+    `last_order_id` BIGINT NOT NULL DEFAULT 0 COMMENT '已处理的最大订单ID',
+    `processed_count` BIGINT NOT NULL DEFAULT 0 COMMENT '已处理订单数',
+    `updated_count` BIGINT NOT NULL DEFAULT 0 COMMENT '已改写费用的订单数',
+    `mismatched_count` BIGINT NOT NULL DEFAULT 0 COMMENT '费用不一致的已支付订单数',
+    `status` TINYINT NOT NULL DEFAULT 0 COMMENT '状态：0运行中 1已完成',
+    `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='批量结算检查点表';
+
+-- 4.8 故障风险评分检查点表
+DROP TABLE IF EXISTS `fault_scoring_checkpoint`;
+CREATE TABLE `fault_scoring_checkpoint` (
+    `job_name` VARCHAR(64) NOT NULL PRIMARY KEY COMMENT '任务名（fault-scoring:日期）',
+    `last_pile_id` BIGINT NOT NULL DEFAULT 0 COMMENT '已评分的最大充电桩ID',
+    `processed_count` BIGINT NOT NULL DEFAULT 0 COMMENT '已评分充电桩数',
+    `planned_count` BIGINT NOT NULL DEFAULT 0 COMMENT '新建或更新的维护计划数',
+    `model_count` BIGINT NOT NULL DEFAULT 0 COMMENT '由AI服务模型评分的充电桩数（其余为本地模型）',
+    `status` TINYINT NOT NULL DEFAULT 0 COMMENT '状态：0运行中 1已完成',
+    `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='故障风险评分检查点表';
+
+-- 4.9 集群任务锁表
+DROP TABLE IF EXISTS `job_lock`;
+CREATE TABLE `job_lock` (
+    `lock_name` VARCHAR(64) NOT NULL PRIMARY KEY COMMENT '锁名',
+    `owner` VARCHAR(64) NOT NULL DEFAULT '' COMMENT '持有者令牌（每次获取生成）',
+    `locked_until` DATETIME(3) NOT NULL COMMENT '租约到期时间，早于当前时间表示未被持有',
+    `fence` BIGINT NOT NULL DEFAULT 0 COMMENT '获取次数，每次被新持有者获取时加1',
+    `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='集群任务锁表';
+
 -- ============================================
 -- 5. 插入测试数据
 -- ============================================
@@ -1,5 +1,8 @@
 /**
  * WebSocket 工具类
+ *
+ * 充电桩状态流：订阅后先收到 pile_status_snapshot，之后收到按站点编号的 pile_status_delta。
+ * 客户端记录每个站点最后应用的 seq，发现断档或服务重启（epoch 变化）时发送 resync 补齐。
  */
 class WebSocketClient {
   constructor(url) {
@@ -8,6 +11,8 @@ class WebSocketClient {
     this.reconnectTimer = null
     this.reconnectDelay = 3000
     this.messageHandlers = []
+    // stationId -> { epoch, seq }
+    this.streamState = new Map()
   }
 
   connect() {
@@ -24,6 +29,9 @@ class WebSocketClient {
 
       this.ws.onmessage = (event) => {
         const data = JSON.parse(event.data)
+        if (!this.acceptStatusFrame(data)) {
+          return
+        }
         this.messageHandlers.forEach(handler => handler(data))
       }
 
@@ -41,9 +49,49 @@ class WebSocketClient {
     }
   }
 
+  /**
+   * 校验状态帧序号，返回是否交给业务处理
+   */
+  acceptStatusFrame(data) {
+    if (data.type === 'pile_status_snapshot') {
+      const state = this.streamState.get(data.stationId)
+      if (state && state.epoch === data.epoch && data.seq < state.seq) {
+        return false
+      }
+      this.streamState.set(data.stationId, { epoch: data.epoch, seq: data.seq })
+      return true
+    }
+    if (data.type !== 'pile_status_delta') {
+      return true
+    }
+
+    const state = this.streamState.get(data.stationId)
+    if (!state) {
+      // 未收到快照（默认全量订阅），以第一帧为起点
+      this.streamState.set(data.stationId, { epoch: data.epoch, seq: data.seq })
+      return true
+    }
+    if (state.epoch !== data.epoch || data.seq > state.seq + 1) {
+      // 断档：请求补发（每个断档只请求一次），补发的帧到达后按顺序应用
+      if (!state.resyncing) {
+        state.resyncing = true
+        this.send({ action: 'resync', stationId: data.stationId, lastSeq: state.seq, epoch: state.epoch })
+      }
+      return false
+    }
+    if (data.seq <= state.seq) {
+      return false
+    }
+    state.seq = data.seq
+    state.resyncing = false
+    return true
+  }
+
   reconnect() {
     if (this.reconnectTimer) return
 
+    // 重连后服务端可能已重启，按新连接重新建立序号
+    this.streamState.clear()
     this.reconnectTimer = setTimeout(() => {
       console.log('尝试重新连接 WebSocket...')
       this.connect()
@@ -42,3 +42,18 @@ export function getStationQueueInfo(stationId) {
     method: 'get'
   })
 }
+
+/**
+ * 订阅我的排队事件（SSE），替代轮询排队状态
+ * 事件：status 当前状态、position 位置变化、called 已叫号、expiring 即将过期、expired 已过号、left 已离开、completed 已开始充电
+ * @param {object} handlers 事件名 -> 处理函数
+ * @returns {EventSource}
+ */
+export function subscribeQueueEvents(handlers) {
+  const token = localStorage.getItem('token')
+  const source = new EventSource(`/api/queue/stream?token=${encodeURIComponent(token || '')}`)
+  Object.keys(handlers).forEach(name => {
+    source.addEventListener(name, event => handlers[name](JSON.parse(event.data)))
+  })
+  return source
+}